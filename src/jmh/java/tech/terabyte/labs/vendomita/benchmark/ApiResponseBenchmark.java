@@ -0,0 +1,61 @@
+package tech.terabyte.labs.vendomita.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import tech.terabyte.labs.vendomita.model.ApiResponse;
+import tech.terabyte.labs.vendomita.model.Product;
+import tech.terabyte.labs.vendomita.specification.utility.ProductGenerator;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response-side cost of {@code /filter}: writing one page as the controller returns it,
+ * with the mapper configured the way Spring MVC configures its own.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ApiResponseBenchmark {
+
+    @Param({"20", "100", "1000"})
+    public int pageSize;
+
+    private final ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+    private ApiResponse<List<Product>> response;
+
+    @Setup
+    public void setup() {
+        // a materialized page, as the controller returns it; asList() would build the Products while writing
+        List<Product> page = new ArrayList<>(ProductGenerator.generateStore(pageSize, 42, null).asList());
+        Map<String, Object> meta = new LinkedHashMap<>();
+        meta.put("total", 250_000);
+        meta.put("page", 0);
+        meta.put("size", pageSize);
+        meta.put("returned", page.size());
+        meta.put("totalPages", 250_000 / pageSize);
+        meta.put("hasNext", true);
+        meta.put("hasPrev", false);
+        meta.put("nextCursor", "AAAAAAAAABM");
+        meta.put("catalogVersion", 1L);
+        meta.put("correlationId", "3f1c2b9e-8a47-4d2e-9b1a-5c6d7e8f9a0b");
+        response = ApiResponse.success("Filter executed", page, meta);
+    }
+
+    @Benchmark
+    public byte[] writePage() throws JsonProcessingException {
+        return mapper.writeValueAsBytes(response);
+    }
+}
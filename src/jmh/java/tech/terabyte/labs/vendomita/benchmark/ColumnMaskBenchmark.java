@@ -0,0 +1,68 @@
+package tech.terabyte.labs.vendomita.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import tech.terabyte.labs.vendomita.catalog.MaskKernel;
+import tech.terabyte.labs.vendomita.catalog.ProductStore;
+import tech.terabyte.labs.vendomita.specification.AndNode;
+import tech.terabyte.labs.vendomita.specification.ColorSpec;
+import tech.terabyte.labs.vendomita.specification.InStockSpec;
+import tech.terabyte.labs.vendomita.specification.PriceLtSpec;
+import tech.terabyte.labs.vendomita.specification.SizeSpec;
+import tech.terabyte.labs.vendomita.specification.SpecDto;
+import tech.terabyte.labs.vendomita.specification.factory.SpecCompiler;
+import tech.terabyte.labs.vendomita.specification.factory.SpecParser;
+import tech.terabyte.labs.vendomita.specification.impl.ParallelFilter;
+import tech.terabyte.labs.vendomita.specification.utility.ProductGenerator;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The same four-leaf AND selected from the indexes, from whole-column masks with the
+ * scalar kernel, and from masks with the Vector API kernel ({@code vendomita.scan.vector}).
+ * Needs {@code --add-modules jdk.incubator.vector}, which the {@code jmh} task passes;
+ * without it {@code vectorMasks} measures the scalar kernel again.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ColumnMaskBenchmark {
+
+    @Param({"1000000", "10000000"})
+    public int products;
+
+    private ProductStore store;
+    private final SpecDto andDto = new AndNode(List.of(new ColorSpec("RED"), new SizeSpec("LARGE"),
+      new PriceLtSpec(BigDecimal.valueOf(2500)), new InStockSpec()));
+    private final SpecParser indexes = new SpecParser();
+    private final SpecParser scalar = new SpecParser(ParallelFilter.serial(), new SpecCompiler(2, 256), MaskKernel.scalar());
+    private final SpecParser vector = new SpecParser(ParallelFilter.serial(), new SpecCompiler(2, 256), MaskKernel.best());
+
+    @Setup
+    public void setup() {
+        store = ProductGenerator.generateStore(products, 42, null);
+    }
+
+    @Benchmark
+    public int indexes() {
+        return indexes.select(andDto, store).cardinality();
+    }
+
+    @Benchmark
+    public int scalarMasks() {
+        return scalar.select(andDto, store).cardinality();
+    }
+
+    @Benchmark
+    public int vectorMasks() {
+        return vector.select(andDto, store).cardinality();
+    }
+}
@@ -0,0 +1,109 @@
+package tech.terabyte.labs.vendomita.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import tech.terabyte.labs.vendomita.catalog.ProductStore;
+import tech.terabyte.labs.vendomita.model.Color;
+import tech.terabyte.labs.vendomita.model.Product;
+import tech.terabyte.labs.vendomita.model.Size;
+import tech.terabyte.labs.vendomita.specification.AndNode;
+import tech.terabyte.labs.vendomita.specification.ColorSpec;
+import tech.terabyte.labs.vendomita.specification.InStockSpec;
+import tech.terabyte.labs.vendomita.specification.PriceLtSpec;
+import tech.terabyte.labs.vendomita.specification.SizeSpec;
+import tech.terabyte.labs.vendomita.specification.SpecDto;
+import tech.terabyte.labs.vendomita.specification.Specification;
+import tech.terabyte.labs.vendomita.specification.factory.SpecCompiler;
+import tech.terabyte.labs.vendomita.specification.factory.SpecParser;
+import tech.terabyte.labs.vendomita.specification.impl.ColorSpecification;
+import tech.terabyte.labs.vendomita.specification.impl.InStockSpecification;
+import tech.terabyte.labs.vendomita.specification.impl.ParallelFilter;
+import tech.terabyte.labs.vendomita.specification.impl.PriceLessThanSpecification;
+import tech.terabyte.labs.vendomita.specification.impl.SizeSpecification;
+import tech.terabyte.labs.vendomita.specification.utility.ProductGenerator;
+import tech.terabyte.labs.vendomita.specification.utility.SpecsBuilder;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full scans of a generated catalog with the {@link SpecsBuilder} combinators over
+ * materialized products. {@code columnScan} is the same AND compiled against the
+ * columnar store into a generated class, and {@code columnScanInterpreted} the same
+ * scan with the tree of lambdas. Each call returns the match count.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SpecEvaluationBenchmark {
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int products;
+
+    private List<Product> catalog;
+    private ProductStore store;
+    private Specification<Product>[] leaves;
+    private Specification<Product> and, or, not;
+    private final SpecParser parser = new SpecParser();
+    private final SpecParser interpreter = new SpecParser(ParallelFilter.serial(), new SpecCompiler(0, 0), null);
+    private final SpecDto andDto = new AndNode(List.of(new ColorSpec("RED"), new SizeSpec("LARGE"),
+      new PriceLtSpec(BigDecimal.valueOf(2500)), new InStockSpec()));
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        store = ProductGenerator.generateStore(products, 42, null);
+        // asList() builds each Product on access; materialize once so the object scans measure only the specs
+        catalog = new ArrayList<>(store.asList());
+        leaves = new Specification[]{
+          new ColorSpecification(Color.RED),
+          new SizeSpecification(Size.LARGE),
+          new PriceLessThanSpecification(BigDecimal.valueOf(2500)),
+          new InStockSpecification()
+        };
+        and = SpecsBuilder.and(leaves);
+        or = SpecsBuilder.or(leaves);
+        not = SpecsBuilder.not(and);
+    }
+
+    @Benchmark
+    public long and() {
+        return count(and);
+    }
+
+    @Benchmark
+    public long or() {
+        return count(or);
+    }
+
+    @Benchmark
+    public long not() {
+        return count(not);
+    }
+
+    @Benchmark
+    public long columnScan() {
+        return store.scan(parser.compile(andDto, store)).count();
+    }
+
+    @Benchmark
+    public long columnScanInterpreted() {
+        return store.scan(interpreter.compile(andDto, store)).count();
+    }
+
+    private long count(Specification<Product> spec) {
+        long matches = 0;
+        for (Product p : catalog) {
+            if (spec.isSatisfied(p)) matches++;
+        }
+        return matches;
+    }
+}
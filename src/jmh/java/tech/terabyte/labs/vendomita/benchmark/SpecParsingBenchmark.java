@@ -0,0 +1,68 @@
+package tech.terabyte.labs.vendomita.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import tech.terabyte.labs.vendomita.model.Product;
+import tech.terabyte.labs.vendomita.specification.SpecDto;
+import tech.terabyte.labs.vendomita.specification.Specification;
+import tech.terabyte.labs.vendomita.specification.factory.SpecDeserializer;
+import tech.terabyte.labs.vendomita.specification.factory.SpecParser;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request-side cost of a filter before any product is looked at: reading the
+ * {@link SpecDto} tree from JSON, with Jackson's polymorphic binding or with
+ * {@link SpecDeserializer}, and turning it into a {@link Specification}.
+ * A tree of depth {@code d} has {@code 3^(d-1)} leaves.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SpecParsingBenchmark {
+
+    @Param({"1", "3", "5", "7"})
+    public int depth;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final ObjectMapper streaming = new ObjectMapper()
+      .registerModule(new SimpleModule().addDeserializer(SpecDto.class, new SpecDeserializer()));
+    private final SpecParser parser = new SpecParser();
+    private String json;
+    private SpecDto dto;
+
+    @Setup
+    public void setup() throws IOException {
+        dto = SpecTrees.tree(depth);
+        json = mapper.writeValueAsString(dto);
+    }
+
+    @Benchmark
+    public SpecDto deserialize() throws IOException {
+        return mapper.readValue(json, SpecDto.class);
+    }
+
+    @Benchmark
+    public SpecDto deserializeStreaming() throws IOException {
+        return streaming.readValue(json, SpecDto.class);
+    }
+
+    @Benchmark
+    public Specification<Product> fromDto() {
+        return parser.fromDto(dto);
+    }
+
+    @Benchmark
+    public Specification<Product> deserializeAndParse() throws IOException {
+        return parser.fromDto(mapper.readValue(json, SpecDto.class));
+    }
+}
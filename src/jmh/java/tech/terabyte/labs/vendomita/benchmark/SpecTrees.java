@@ -0,0 +1,52 @@
+package tech.terabyte.labs.vendomita.benchmark;
+
+import tech.terabyte.labs.vendomita.specification.AndNode;
+import tech.terabyte.labs.vendomita.specification.ColorSpec;
+import tech.terabyte.labs.vendomita.specification.InStockSpec;
+import tech.terabyte.labs.vendomita.specification.NotNode;
+import tech.terabyte.labs.vendomita.specification.OrNode;
+import tech.terabyte.labs.vendomita.specification.PriceBetweenSpec;
+import tech.terabyte.labs.vendomita.specification.PriceLtSpec;
+import tech.terabyte.labs.vendomita.specification.SizeSpec;
+import tech.terabyte.labs.vendomita.specification.SpecDto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/** Spec trees shaped like real requests, for benchmarks that need them by depth. */
+final class SpecTrees {
+
+    private static final String[] COLORS = {"RED", "GREEN", "BLUE", "BLACK"};
+    private static final String[] SIZES = {"SMALL", "MEDIUM", "LARGE"};
+
+    private SpecTrees() {
+    }
+
+    /**
+     * A tree {@code depth} levels deep: levels alternate AND and OR with three children
+     * each, and every third subtree is negated, so the rewriter cannot flatten it away.
+     * Depth 1 is a single leaf.
+     */
+    static SpecDto tree(int depth) {
+        return node(depth, 0);
+    }
+
+    private static SpecDto node(int depth, int position) {
+        if (depth <= 1) return leaf(position);
+        List<SpecDto> children = List.of(
+          node(depth - 1, position * 3),
+          node(depth - 1, position * 3 + 1),
+          new NotNode(node(depth - 1, position * 3 + 2)));
+        return depth % 2 == 0 ? new AndNode(children) : new OrNode(children);
+    }
+
+    private static SpecDto leaf(int position) {
+        return switch (position % 5) {
+            case 0 -> new ColorSpec(COLORS[position % COLORS.length]);
+            case 1 -> new SizeSpec(SIZES[position % SIZES.length]);
+            case 2 -> new PriceLtSpec(BigDecimal.valueOf(500 + position % 40 * 100));
+            case 3 -> new PriceBetweenSpec(BigDecimal.valueOf(1000), BigDecimal.valueOf(2000 + position % 30 * 100));
+            default -> new InStockSpec();
+        };
+    }
+}
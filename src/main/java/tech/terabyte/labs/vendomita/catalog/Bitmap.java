@@ -0,0 +1,939 @@
+package tech.terabyte.labs.vendomita.catalog;
+
+import tech.terabyte.labs.vendomita.specification.RowSpecification;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Compressed set of non-negative row ids, Roaring-style.
+ * Rows are grouped into chunks of 65536 by their high 16 bits; each chunk keeps its
+ * low 16 bits either as a sorted {@code char[]} (sparse, up to 4096 values) or as a
+ * 1024-word bitset (dense). Set operations return new bitmaps and never modify
+ * their operands.
+ */
+public final class Bitmap {
+
+    private static final int ARRAY_MAX = 4096;
+    private static final int WORDS = 1024;
+    /** {@link #ofUnsorted} sorts when it has fewer rows than one per this many words. */
+    private static final int SPARSE = 16;
+
+    private char[] keys;
+    private Container[] containers;
+    private int count;
+
+    private Bitmap(char[] keys, Container[] containers, int count) {
+        this.keys = keys;
+        this.containers = containers;
+        this.count = count;
+    }
+
+    public Bitmap() {
+        this(new char[4], new Container[4], 0);
+    }
+
+    public static Bitmap empty() {
+        return new Bitmap();
+    }
+
+    public static Bitmap of(int... rows) {
+        Bitmap b = new Bitmap();
+        for (int row : rows) b.add(row);
+        return b;
+    }
+
+    /** Rows in {@code [from, to)}. */
+    public static Bitmap range(int from, int to) {
+        Bitmap b = new Bitmap();
+        for (int start = from; start < to; ) {
+            int high = start >>> 16;
+            int end = Math.min(to, (high + 1) << 16);
+            int lo = start & 0xFFFF;
+            int hi = lo + (end - start);
+            Container c;
+            if (hi - lo <= ARRAY_MAX) {
+                char[] values = new char[hi - lo];
+                for (int i = 0; i < values.length; i++) values[i] = (char) (lo + i);
+                c = new ArrayContainer(values, values.length);
+            } else {
+                long[] words = new long[WORDS];
+                setRange(words, lo, hi);
+                c = new BitmapContainer(words, hi - lo);
+            }
+            b.append((char) high, c);
+            start = end;
+        }
+        return b;
+    }
+
+    /**
+     * Rows {@code rows[from..to)}, given in any order. They are set as bits in words up to
+     * the highest row and the words turned into chunks, in time linear in the rows and
+     * the words; only a few rows spread far apart, where the words would dominate, are sorted.
+     */
+    public static Bitmap ofUnsorted(int[] rows, int from, int to) {
+        int max = -1;
+        for (int i = from; i < to; i++) max = Math.max(max, rows[i]);
+        if (max < 0) return new Bitmap();
+        int words = (max >>> 6) + 1;
+        if ((long) (to - from) * SPARSE < words) {
+            int[] sorted = Arrays.copyOfRange(rows, from, to);
+            Arrays.sort(sorted);
+            Bitmap b = new Bitmap();
+            for (int row : sorted) b.add(row);
+            return b;
+        }
+        long[] bits = new long[words];
+        for (int i = from; i < to; i++) bits[rows[i] >>> 6] |= 1L << rows[i];
+        return ofWords(bits);
+    }
+
+    /**
+     * Union of many bitmaps. When each part starts after the previous one ends, as with
+     * the segments of a parallel scan, containers are copied in order without merging.
+     */
+    public static Bitmap union(List<Bitmap> parts) {
+        Bitmap out = new Bitmap();
+        for (Bitmap part : parts) {
+            if (part.isEmpty()) continue;
+            if (out.count > 0 && part.keys[0] <= out.keys[out.count - 1]) {
+                out = out.or(part);
+                continue;
+            }
+            for (int i = 0; i < part.count; i++) out.append(part.keys[i], part.containers[i].copy());
+        }
+        return out;
+    }
+
+    /** Rows whose bit is set in {@code words}, 64 rows per word. */
+    public static Bitmap ofWords(long[] words) {
+        Bitmap b = new Bitmap();
+        for (int from = 0, chunk = 0; from < words.length; from += WORDS, chunk++) {
+            int to = Math.min(words.length, from + WORDS);
+            int card = 0;
+            for (int w = from; w < to; w++) card += Long.bitCount(words[w]);
+            if (card > 0) b.append((char) chunk, Container.fromWords(Arrays.copyOfRange(words, from, from + WORDS), card));
+        }
+        return b;
+    }
+
+    /**
+     * Rows whose bit is set in {@code chunks}, the words of chunk {@code i} (rows from
+     * {@code i * 65536}, at most 1024 words) being {@code chunks.get(i)}. The arrays are taken over.
+     */
+    static Bitmap ofChunks(List<long[]> chunks) {
+        Bitmap b = new Bitmap();
+        for (int chunk = 0; chunk < chunks.size(); chunk++) {
+            long[] words = chunks.get(chunk);
+            int card = 0;
+            for (long w : words) card += Long.bitCount(w);
+            if (card > 0) b.append((char) chunk, Container.fromWords(words.length == WORDS ? words : Arrays.copyOf(words, WORDS), card));
+        }
+        return b;
+    }
+
+    /** Rows of {@code [0, size)} satisfying {@code spec}. */
+    public static Bitmap scan(int size, RowSpecification spec) {
+        Bitmap b = new Bitmap();
+        for (int row = 0; row < size; row++) {
+            if (spec.isSatisfied(row)) b.add(row);
+        }
+        return b;
+    }
+
+    public void add(int row) {
+        char high = (char) (row >>> 16);
+        char low = (char) row;
+        int i = count > 0 && keys[count - 1] == high ? count - 1 : find(high);
+        if (i >= 0) {
+            containers[i] = containers[i].add(low);
+        } else {
+            insert(-i - 1, high, new ArrayContainer(new char[]{low}, 1));
+        }
+    }
+
+    public void remove(int row) {
+        int i = find((char) (row >>> 16));
+        if (i < 0) return;
+        Container c = containers[i].remove((char) row);
+        if (c.cardinality() == 0) {
+            System.arraycopy(keys, i + 1, keys, i, count - i - 1);
+            System.arraycopy(containers, i + 1, containers, i, count - i - 1);
+            containers[--count] = null;
+        } else {
+            containers[i] = c;
+        }
+    }
+
+    public boolean contains(int row) {
+        int i = find((char) (row >>> 16));
+        return i >= 0 && containers[i].contains((char) row);
+    }
+
+    public int cardinality() {
+        int card = 0;
+        for (int i = 0; i < count; i++) card += containers[i].cardinality();
+        return card;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public Bitmap and(Bitmap other) {
+        Bitmap out = new Bitmap();
+        int i = 0, j = 0;
+        while (i < count && j < other.count) {
+            char a = keys[i], b = other.keys[j];
+            if (a < b) i++;
+            else if (a > b) j++;
+            else {
+                Container c = containers[i].and(other.containers[j]);
+                if (c.cardinality() > 0) out.append(a, c);
+                i++;
+                j++;
+            }
+        }
+        return out;
+    }
+
+    /** Size of the intersection with {@code other}, without building it. */
+    public int andCardinality(Bitmap other) {
+        int card = 0;
+        int i = 0, j = 0;
+        while (i < count && j < other.count) {
+            char a = keys[i], b = other.keys[j];
+            if (a < b) i++;
+            else if (a > b) j++;
+            else card += containers[i++].andCardinality(other.containers[j++]);
+        }
+        return card;
+    }
+
+    /** Whether the intersection with {@code other} is non-empty; stops at the first common row. */
+    public boolean intersects(Bitmap other) {
+        int i = 0, j = 0;
+        while (i < count && j < other.count) {
+            char a = keys[i], b = other.keys[j];
+            if (a < b) i++;
+            else if (a > b) j++;
+            else if (containers[i++].intersects(other.containers[j++])) return true;
+        }
+        return false;
+    }
+
+    public Bitmap or(Bitmap other) {
+        Bitmap out = new Bitmap();
+        int i = 0, j = 0;
+        while (i < count || j < other.count) {
+            if (j >= other.count || (i < count && keys[i] < other.keys[j])) {
+                out.append(keys[i], containers[i].copy());
+                i++;
+            } else if (i >= count || keys[i] > other.keys[j]) {
+                out.append(other.keys[j], other.containers[j].copy());
+                j++;
+            } else {
+                out.append(keys[i], containers[i].or(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return out;
+    }
+
+    public Bitmap andNot(Bitmap other) {
+        Bitmap out = new Bitmap();
+        int j = 0;
+        for (int i = 0; i < count; i++) {
+            char a = keys[i];
+            while (j < other.count && other.keys[j] < a) j++;
+            Container c = j < other.count && other.keys[j] == a
+              ? containers[i].andNot(other.containers[j])
+              : containers[i].copy();
+            if (c.cardinality() > 0) out.append(a, c);
+        }
+        return out;
+    }
+
+    /** Number of members less than or equal to {@code row}. */
+    public int rank(int row) {
+        if (row < 0) return 0;
+        char high = (char) (row >>> 16);
+        int rank = 0;
+        for (int i = 0; i < count && keys[i] <= high; i++) {
+            rank += keys[i] < high ? containers[i].cardinality() : containers[i].rank((char) row);
+        }
+        return rank;
+    }
+
+    /**
+     * Up to {@code limit} members, in order, starting at the {@code offset}-th one.
+     * Whole containers are skipped by their cardinality, so deep offsets do not
+     * walk the members before them.
+     */
+    public int[] page(int offset, int limit) {
+        int card = cardinality();
+        int n = Math.max(0, Math.min(limit, card - Math.max(offset, 0)));
+        int[] out = new int[n];
+        if (n == 0) return out;
+
+        int skip = offset;
+        int i = 0;
+        while (skip >= containers[i].cardinality()) {
+            skip -= containers[i].cardinality();
+            i++;
+        }
+        int pos = 0;
+        for (; i < count && pos < n; i++, skip = 0) {
+            PrimitiveIterator.OfInt it = containers[i].iterator(keys[i] << 16, skip);
+            while (pos < n && it.hasNext()) out[pos++] = it.nextInt();
+        }
+        return out;
+    }
+
+    /** Up to {@code limit} members strictly greater than {@code row}, for keyset paging. */
+    public int[] after(int row, int limit) {
+        return page(rank(row), limit);
+    }
+
+    /** Rows of {@code [0, universe)} not in this bitmap. */
+    public Bitmap complement(int universe) {
+        return range(0, universe).andNot(this);
+    }
+
+    /** Members satisfying {@code spec}; used for leaves that have no index. */
+    public Bitmap filter(RowSpecification spec) {
+        Bitmap out = new Bitmap();
+        forEach(row -> {
+            if (spec.isSatisfied(row)) out.add(row);
+        });
+        return out;
+    }
+
+    /**
+     * Clears the bits of {@code mask}, one per row and 64 per word, whose rows are not members;
+     * bit 0 is {@code fromRow}, a multiple of 65536.
+     */
+    void andInto(long[] mask, int fromRow) {
+        int i = 0;
+        for (int from = 0, chunk = fromRow >>> 16; from < mask.length; from += WORDS, chunk++) {
+            int to = Math.min(mask.length, from + WORDS);
+            while (i < count && keys[i] < chunk) i++;
+            if (i < count && keys[i] == chunk) containers[i].andInto(mask, from, to);
+            else Arrays.fill(mask, from, to, 0L);
+        }
+    }
+
+    /** Sets the bits of the members in {@code mask}, whose bit 0 is {@code fromRow}, a multiple of 65536. */
+    void orInto(long[] mask, int fromRow) {
+        int first = fromRow >>> 16;
+        for (int i = 0; i < count; i++) {
+            int from = (keys[i] - first) * WORDS;
+            if (from < 0) continue;
+            if (from >= mask.length) break;
+            containers[i].orInto(mask, from, Math.min(mask.length, from + WORDS));
+        }
+    }
+
+    public Bitmap copy() {
+        Container[] copies = new Container[Math.max(count, 1)];
+        for (int i = 0; i < count; i++) copies[i] = containers[i].copy();
+        return new Bitmap(Arrays.copyOf(keys, Math.max(count, 1)), copies, count);
+    }
+
+    public void forEach(IntConsumer action) {
+        for (int i = 0; i < count; i++) containers[i].forEach(keys[i] << 16, action);
+    }
+
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int container;
+            private PrimitiveIterator.OfInt current = count > 0 ? containers[0].iterator(keys[0] << 16, 0) : null;
+
+            @Override
+            public boolean hasNext() {
+                while (current != null && !current.hasNext()) {
+                    container++;
+                    current = container < count ? containers[container].iterator(keys[container] << 16, 0) : null;
+                }
+                return current != null;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return current.nextInt();
+            }
+        };
+    }
+
+    /** Members in ascending order. */
+    public IntStream stream() {
+        int characteristics = Spliterator.ORDERED | Spliterator.SORTED | Spliterator.DISTINCT | Spliterator.NONNULL;
+        return StreamSupport.intStream(
+          Spliterators.spliterator(iterator(), cardinality(), characteristics), false);
+    }
+
+    public int[] toArray() {
+        int[] out = new int[cardinality()];
+        int[] pos = {0};
+        forEach(row -> out[pos[0]++] = row);
+        return out;
+    }
+
+    // ---- binary form: int count, then per container char key, byte kind, int cardinality, payload ----
+
+    /** Bytes {@link #writeTo} will write. */
+    long serializedSize() {
+        long bytes = 4;
+        for (int i = 0; i < count; i++) {
+            bytes += 2 + 1 + 4;
+            bytes += containers[i] instanceof BitmapContainer ? WORDS * 8L : containers[i].cardinality() * 2L;
+        }
+        return bytes;
+    }
+
+    void writeTo(ByteBuffer out) {
+        out.putInt(count);
+        for (int i = 0; i < count; i++) {
+            out.putChar(keys[i]);
+            switch (containers[i]) {
+                case ArrayContainer a -> {
+                    out.put((byte) 0).putInt(a.card);
+                    out.asCharBuffer().put(a.values, 0, a.card);
+                    out.position(out.position() + a.card * 2);
+                }
+                case BitmapContainer b -> {
+                    out.put((byte) 1).putInt(b.card);
+                    out.asLongBuffer().put(b.words);
+                    out.position(out.position() + WORDS * 8);
+                }
+            }
+        }
+    }
+
+    /** Reads what {@link #writeTo} wrote, with bulk copies; throws if the data is malformed. */
+    static Bitmap readFrom(ByteBuffer in) {
+        int n = in.getInt();
+        if (n < 0 || n > 65536) throw new IllegalStateException("Corrupt bitmap: " + n + " containers");
+        char[] keys = new char[Math.max(n, 1)];
+        Container[] containers = new Container[Math.max(n, 1)];
+        for (int i = 0; i < n; i++) {
+            keys[i] = in.getChar();
+            byte kind = in.get();
+            int card = in.getInt();
+            if (kind == 0 && card > 0 && card <= ARRAY_MAX) {
+                char[] values = new char[card];
+                in.asCharBuffer().get(values);
+                in.position(in.position() + card * 2);
+                containers[i] = new ArrayContainer(values, card);
+            } else if (kind == 1 && card > 0 && card <= 65536) {
+                long[] words = new long[WORDS];
+                in.asLongBuffer().get(words);
+                in.position(in.position() + WORDS * 8);
+                containers[i] = new BitmapContainer(words, card);
+            } else {
+                throw new IllegalStateException("Corrupt bitmap container " + i);
+            }
+        }
+        return new Bitmap(keys, containers, n);
+    }
+
+    /** Approximate heap footprint of the containers, for sizing reports. */
+    public long sizeInBytes() {
+        long bytes = keys.length * 2L + containers.length * 8L;
+        for (int i = 0; i < count; i++) bytes += containers[i].sizeInBytes();
+        return bytes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Bitmap other) || other.count != count) return false;
+        if (!Arrays.equals(keys, 0, count, other.keys, 0, count)) return false;
+        for (int i = 0; i < count; i++) {
+            if (!Arrays.equals(containers[i].toArray(), other.containers[i].toArray())) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(toArray());
+    }
+
+    @Override
+    public String toString() {
+        return "Bitmap{cardinality=" + cardinality() + ", containers=" + count + "}";
+    }
+
+    private int find(char high) {
+        return Arrays.binarySearch(keys, 0, count, high);
+    }
+
+    private void append(char high, Container c) {
+        insert(count, high, c);
+    }
+
+    private void insert(int at, char high, Container c) {
+        if (count == keys.length) {
+            int cap = Math.max(4, count * 2);
+            keys = Arrays.copyOf(keys, cap);
+            containers = Arrays.copyOf(containers, cap);
+        }
+        System.arraycopy(keys, at, keys, at + 1, count - at);
+        System.arraycopy(containers, at, containers, at + 1, count - at);
+        keys[at] = high;
+        containers[at] = c;
+        count++;
+    }
+
+    private static void setRange(long[] words, int from, int to) {
+        if (from >= to) return;
+        int first = from >>> 6;
+        int last = (to - 1) >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+        if (first == last) {
+            words[first] |= firstMask & lastMask;
+            return;
+        }
+        words[first] |= firstMask;
+        for (int w = first + 1; w < last; w++) words[w] = -1L;
+        words[last] |= lastMask;
+    }
+
+    // ---- containers ----
+
+    private abstract static sealed class Container permits ArrayContainer, BitmapContainer {
+        abstract int cardinality();
+
+        abstract boolean contains(char v);
+
+        /** Number of values less than or equal to {@code v}. */
+        abstract int rank(char v);
+
+        abstract Container add(char v);
+
+        abstract Container remove(char v);
+
+        abstract Container and(Container other);
+
+        abstract int andCardinality(Container other);
+
+        abstract boolean intersects(Container other);
+
+        abstract Container or(Container other);
+
+        abstract Container andNot(Container other);
+
+        abstract Container copy();
+
+        /** Clears the bits of {@code mask[from..to)} that are not values of this container. */
+        abstract void andInto(long[] mask, int from, int to);
+
+        /** Sets the bits of the members in {@code mask[from, to)}, word {@code from} holding values 0-63. */
+        abstract void orInto(long[] mask, int from, int to);
+
+        abstract void forEach(int base, IntConsumer action);
+
+        /** Iterates the values from the {@code skip}-th one on, offset by {@code base}. */
+        abstract PrimitiveIterator.OfInt iterator(int base, int skip);
+
+        abstract long sizeInBytes();
+
+        final char[] toArray() {
+            char[] out = new char[cardinality()];
+            int[] pos = {0};
+            forEach(0, v -> out[pos[0]++] = (char) v);
+            return out;
+        }
+
+        static Container fromWords(long[] words, int card) {
+            if (card > ARRAY_MAX) return new BitmapContainer(words, card);
+            char[] values = new char[card];
+            int n = 0;
+            for (int w = 0; w < WORDS; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    values[n++] = (char) ((w << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values, card);
+        }
+    }
+
+    private static final class ArrayContainer extends Container {
+        private char[] values;
+        private int card;
+
+        ArrayContainer(char[] values, int card) {
+            this.values = values;
+            this.card = card;
+        }
+
+        @Override
+        int cardinality() {
+            return card;
+        }
+
+        @Override
+        boolean contains(char v) {
+            return Arrays.binarySearch(values, 0, card, v) >= 0;
+        }
+
+        @Override
+        int rank(char v) {
+            int i = Arrays.binarySearch(values, 0, card, v);
+            return i >= 0 ? i + 1 : -i - 1;
+        }
+
+        @Override
+        Container add(char v) {
+            int i = card > 0 && values[card - 1] < v ? -card - 1 : Arrays.binarySearch(values, 0, card, v);
+            if (i >= 0) return this;
+            if (card == ARRAY_MAX) return toBitmap().add(v);
+            int at = -i - 1;
+            if (card == values.length) values = Arrays.copyOf(values, Math.min(ARRAY_MAX, Math.max(4, card * 2)));
+            System.arraycopy(values, at, values, at + 1, card - at);
+            values[at] = v;
+            card++;
+            return this;
+        }
+
+        @Override
+        Container remove(char v) {
+            int i = Arrays.binarySearch(values, 0, card, v);
+            if (i < 0) return this;
+            System.arraycopy(values, i + 1, values, i, card - i - 1);
+            card--;
+            return this;
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] out = new char[card];
+            int n = 0;
+            if (other instanceof ArrayContainer a) {
+                int i = 0, j = 0;
+                while (i < card && j < a.card) {
+                    if (values[i] < a.values[j]) i++;
+                    else if (values[i] > a.values[j]) j++;
+                    else {
+                        out[n++] = values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < card; i++) {
+                    if (other.contains(values[i])) out[n++] = values[i];
+                }
+            }
+            return new ArrayContainer(out, n);
+        }
+
+        @Override
+        int andCardinality(Container other) {
+            int n = 0;
+            if (other instanceof ArrayContainer a) {
+                int i = 0, j = 0;
+                while (i < card && j < a.card) {
+                    if (values[i] < a.values[j]) i++;
+                    else if (values[i] > a.values[j]) j++;
+                    else {
+                        n++;
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i = 0; i < card; i++) {
+                    if (other.contains(values[i])) n++;
+                }
+            }
+            return n;
+        }
+
+        @Override
+        void andInto(long[] mask, int from, int to) {
+            long[] keep = new long[to - from];
+            for (int i = 0; i < card; i++) {
+                int w = values[i] >>> 6;
+                if (w < keep.length) keep[w] |= 1L << values[i];
+            }
+            for (int w = from; w < to; w++) mask[w] &= keep[w - from];
+        }
+
+        @Override
+        void orInto(long[] mask, int from, int to) {
+            for (int i = 0; i < card; i++) {
+                int w = from + (values[i] >>> 6);
+                if (w < to) mask[w] |= 1L << values[i];
+            }
+        }
+
+        @Override
+        boolean intersects(Container other) {
+            if (other instanceof ArrayContainer a) {
+                int i = 0, j = 0;
+                while (i < card && j < a.card) {
+                    if (values[i] < a.values[j]) i++;
+                    else if (values[i] > a.values[j]) j++;
+                    else return true;
+                }
+                return false;
+            }
+            for (int i = 0; i < card; i++) {
+                if (other.contains(values[i])) return true;
+            }
+            return false;
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof BitmapContainer b) return b.or(this);
+            ArrayContainer a = (ArrayContainer) other;
+            char[] out = new char[card + a.card];
+            int i = 0, j = 0, n = 0;
+            while (i < card || j < a.card) {
+                if (j >= a.card || (i < card && values[i] < a.values[j])) out[n++] = values[i++];
+                else if (i >= card || values[i] > a.values[j]) out[n++] = a.values[j++];
+                else {
+                    out[n++] = values[i++];
+                    j++;
+                }
+            }
+            if (n <= ARRAY_MAX) return new ArrayContainer(out, n);
+            return new ArrayContainer(out, n).toBitmap();
+        }
+
+        @Override
+        Container andNot(Container other) {
+            char[] out = new char[card];
+            int n = 0;
+            for (int i = 0; i < card; i++) {
+                if (!other.contains(values[i])) out[n++] = values[i];
+            }
+            return new ArrayContainer(out, n);
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(card, 1)), card);
+        }
+
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (int i = 0; i < card; i++) action.accept(base | values[i]);
+        }
+
+        @Override
+        PrimitiveIterator.OfInt iterator(int base, int skip) {
+            return new PrimitiveIterator.OfInt() {
+                private int i = skip;
+
+                @Override
+                public boolean hasNext() {
+                    return i < card;
+                }
+
+                @Override
+                public int nextInt() {
+                    return base | values[i++];
+                }
+            };
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 16 + values.length * 2L;
+        }
+
+        private BitmapContainer toBitmap() {
+            long[] words = new long[WORDS];
+            for (int i = 0; i < card; i++) words[values[i] >>> 6] |= 1L << values[i];
+            return new BitmapContainer(words, card);
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        private final long[] words;
+        private int card;
+
+        BitmapContainer(long[] words, int card) {
+            this.words = words;
+            this.card = card;
+        }
+
+        @Override
+        int cardinality() {
+            return card;
+        }
+
+        @Override
+        boolean contains(char v) {
+            return (words[v >>> 6] & (1L << v)) != 0;
+        }
+
+        @Override
+        int rank(char v) {
+            int w = v >>> 6;
+            int rank = 0;
+            for (int i = 0; i < w; i++) rank += Long.bitCount(words[i]);
+            return rank + Long.bitCount(words[w] & (-1L >>> (63 - (v & 63))));
+        }
+
+        @Override
+        Container add(char v) {
+            long before = words[v >>> 6];
+            words[v >>> 6] = before | (1L << v);
+            if (before != words[v >>> 6]) card++;
+            return this;
+        }
+
+        @Override
+        Container remove(char v) {
+            long before = words[v >>> 6];
+            words[v >>> 6] = before & ~(1L << v);
+            if (before != words[v >>> 6]) card--;
+            return card > ARRAY_MAX ? this : fromWords(words, card);
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer a) return a.and(this);
+            long[] o = ((BitmapContainer) other).words;
+            long[] out = new long[WORDS];
+            int c = 0;
+            for (int w = 0; w < WORDS; w++) {
+                out[w] = words[w] & o[w];
+                c += Long.bitCount(out[w]);
+            }
+            return fromWords(out, c);
+        }
+
+        @Override
+        int andCardinality(Container other) {
+            if (other instanceof ArrayContainer a) return a.andCardinality(this);
+            long[] o = ((BitmapContainer) other).words;
+            int c = 0;
+            for (int w = 0; w < WORDS; w++) c += Long.bitCount(words[w] & o[w]);
+            return c;
+        }
+
+        @Override
+        void andInto(long[] mask, int from, int to) {
+            for (int w = from; w < to; w++) mask[w] &= words[w - from];
+        }
+
+        @Override
+        void orInto(long[] mask, int from, int to) {
+            for (int w = from; w < to; w++) mask[w] |= words[w - from];
+        }
+
+        @Override
+        boolean intersects(Container other) {
+            if (other instanceof ArrayContainer a) return a.intersects(this);
+            long[] o = ((BitmapContainer) other).words;
+            for (int w = 0; w < WORDS; w++) {
+                if ((words[w] & o[w]) != 0) return true;
+            }
+            return false;
+        }
+
+        @Override
+        Container or(Container other) {
+            long[] out = words.clone();
+            if (other instanceof ArrayContainer a) {
+                for (int i = 0; i < a.card; i++) out[a.values[i] >>> 6] |= 1L << a.values[i];
+            } else {
+                long[] o = ((BitmapContainer) other).words;
+                for (int w = 0; w < WORDS; w++) out[w] |= o[w];
+            }
+            int c = 0;
+            for (long word : out) c += Long.bitCount(word);
+            return new BitmapContainer(out, c);
+        }
+
+        @Override
+        Container andNot(Container other) {
+            long[] out = words.clone();
+            if (other instanceof ArrayContainer a) {
+                for (int i = 0; i < a.card; i++) out[a.values[i] >>> 6] &= ~(1L << a.values[i]);
+            } else {
+                long[] o = ((BitmapContainer) other).words;
+                for (int w = 0; w < WORDS; w++) out[w] &= ~o[w];
+            }
+            int c = 0;
+            for (long word : out) c += Long.bitCount(word);
+            return fromWords(out, c);
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(words.clone(), card);
+        }
+
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (int w = 0; w < WORDS; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    action.accept(base | (w << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        PrimitiveIterator.OfInt iterator(int base, int skip) {
+            int start = 0;
+            int remaining = skip;
+            while (start < WORDS && remaining >= Long.bitCount(words[start])) {
+                remaining -= Long.bitCount(words[start]);
+                start++;
+            }
+            long first = start < WORDS ? words[start] : 0;
+            for (int k = 0; k < remaining; k++) first &= first - 1;
+            int firstWord = start;
+            long firstBits = first;
+
+            return new PrimitiveIterator.OfInt() {
+                private int w = firstWord;
+                private long word = firstBits;
+
+                @Override
+                public boolean hasNext() {
+                    while (word == 0) {
+                        if (++w >= WORDS) return false;
+                        word = words[w];
+                    }
+                    return true;
+                }
+
+                @Override
+                public int nextInt() {
+                    if (!hasNext()) throw new NoSuchElementException();
+                    int v = (w << 6) + Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                    return base | v;
+                }
+            };
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 16 + WORDS * 8L;
+        }
+    }
+}
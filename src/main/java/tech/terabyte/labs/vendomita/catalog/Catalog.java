@@ -0,0 +1,122 @@
+package tech.terabyte.labs.vendomita.catalog;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tech.terabyte.labs.vendomita.model.CatalogBatch;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Holder of the current {@link CatalogSnapshot}. Readers take {@link #current()} once
+ * per request without locking; writers build the new store off to the side and
+ * publish it with a single atomic swap, bumping the version. A batch that loses the
+ * swap to a concurrent writer is re-applied on top of the winner. Published stores
+ * are moved to the configured {@link StorageMode} before they become visible.
+ */
+@Component
+public class Catalog {
+
+    private final AtomicReference<CatalogSnapshot> current =
+      new AtomicReference<>(new CatalogSnapshot(0, ProductStore.empty()));
+    private final StorageMode storage;
+    private final List<Consumer<CatalogSnapshot>> listeners = new CopyOnWriteArrayList<>();
+    /** Version of the last {@link #publish}; guarded by {@code this}, like {@link #discard}. */
+    private long publishedAt;
+
+    public Catalog() {
+        this(StorageMode.HEAP);
+    }
+
+    public Catalog(StorageMode storage) {
+        this.storage = storage;
+    }
+
+    @Autowired
+    public Catalog(@Value("${vendomita.catalog.storage:heap}") String storage) {
+        this(StorageMode.from(storage));
+    }
+
+    public StorageMode storage() {
+        return storage;
+    }
+
+    public CatalogSnapshot current() {
+        return current.get();
+    }
+
+    /** Called with every snapshot published after registration, on the publishing thread. */
+    public void addListener(Consumer<CatalogSnapshot> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Replaces the whole catalog with {@code store}. Its ids are shifted to start at the
+     * current catalog's {@link ProductStore#nextId()}, so an id kept from before never
+     * names a different product, and a batch retried on top of it fails on unknown ids.
+     */
+    public synchronized CatalogSnapshot publish(ProductStore store) {
+        ProductStore numbered = null;
+        long firstId = 0;
+        while (true) {
+            CatalogSnapshot previous = current.get();
+            if (numbered == null || firstId != previous.store().nextId()) {
+                firstId = previous.store().nextId();
+                numbered = store.withIdsFrom(firstId).withStorage(storage);
+            }
+            CatalogSnapshot next = new CatalogSnapshot(previous.version() + 1, numbered);
+            if (current.compareAndSet(previous, next)) {
+                publishedAt = next.version();
+                return published(next);
+            }
+        }
+    }
+
+    /**
+     * Installs a snapshot loaded at startup as is, keeping its version and storage.
+     * Does nothing once another snapshot has been published.
+     */
+    public boolean restore(CatalogSnapshot snapshot) {
+        CatalogSnapshot initial = current.get();
+        return initial.version() == 0 && current.compareAndSet(initial, snapshot);
+    }
+
+    /**
+     * Replaces {@code restored}, and every batch applied on top of it, with an empty catalog
+     * under the next version, unless a catalog was published since. For a restored snapshot
+     * whose rows turn out to be corrupt: requests get the empty-catalog answer rather than
+     * bad rows, and ids keep counting from where it left off.
+     */
+    public synchronized boolean discard(CatalogSnapshot restored) {
+        if (publishedAt > restored.version()) return false;
+        while (true) {
+            CatalogSnapshot previous = current.get();
+            if (previous.version() < restored.version()) return false;
+            ProductStore empty = ProductStore.empty().withIdsFrom(previous.store().nextId()).withStorage(storage);
+            CatalogSnapshot next = new CatalogSnapshot(previous.version() + 1, empty);
+            if (current.compareAndSet(previous, next)) {
+                published(next);
+                return true;
+            }
+        }
+    }
+
+    public CatalogChange apply(CatalogBatch batch) {
+        while (true) {
+            CatalogSnapshot previous = current.get();
+            StoreDelta delta = previous.store().apply(batch);
+            long version = previous.version() + 1;
+            CatalogSnapshot next = new CatalogSnapshot(version, delta.store().withStorage(storage),
+              delta.compacted() ? version : previous.rowsVersion());
+            if (current.compareAndSet(previous, next)) return new CatalogChange(previous, published(next), delta);
+        }
+    }
+
+    private CatalogSnapshot published(CatalogSnapshot snapshot) {
+        for (Consumer<CatalogSnapshot> listener : listeners) listener.accept(snapshot);
+        return snapshot;
+    }
+}
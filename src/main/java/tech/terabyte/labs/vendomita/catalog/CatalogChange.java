@@ -0,0 +1,5 @@
+package tech.terabyte.labs.vendomita.catalog;
+
+/** A batch published by {@link Catalog#apply}: the snapshots on both sides and the delta between them. */
+public record CatalogChange(CatalogSnapshot previous, CatalogSnapshot current, StoreDelta delta) {
+}
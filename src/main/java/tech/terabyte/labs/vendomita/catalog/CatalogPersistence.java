@@ -0,0 +1,124 @@
+package tech.terabyte.labs.vendomita.catalog;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Keeps the catalog in a {@link SnapshotFile}: restores it at startup, checking rows and
+ * names in the background unless {@code verify-rows} is set (a corrupt catalog is then
+ * dropped for an empty one), and rewrites it
+ * in the background whenever a new snapshot is published. Writes are coalesced, so
+ * a burst of batches costs one write of the latest version. Listeners run on each
+ * publishing thread in no particular order, so only versions newer than the last one
+ * written are written.
+ */
+@Component
+public class CatalogPersistence {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogPersistence.class);
+
+    private final Catalog catalog;
+    private final boolean enabled;
+    private final Path path;
+    private final boolean verifyRows;
+    private final AtomicReference<CatalogSnapshot> pending = new AtomicReference<>();
+    /** Version of the last snapshot written; only touched by the writer thread. */
+    private long written;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "catalog-snapshot");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public CatalogPersistence(Catalog catalog,
+                              @Value("${vendomita.snapshot.enabled:false}") boolean enabled,
+                              @Value("${vendomita.snapshot.path:data/catalog.snapshot}") String path,
+                              @Value("${vendomita.snapshot.verify-rows:false}") boolean verifyRows) {
+        this.catalog = catalog;
+        this.enabled = enabled;
+        this.path = Path.of(path);
+        this.verifyRows = verifyRows;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) return;
+        // registered first, so a catalog dropped by the verification below is saved too
+        catalog.addListener(this::save);
+        if (!Files.exists(path)) return;
+        long t0 = System.nanoTime();
+        try {
+            CatalogSnapshot snapshot = SnapshotFile.read(path, verifyRows);
+            if (catalog.restore(snapshot)) {
+                log.info("Catalog v{} restored from {}: {} products in {} ms", snapshot.version(), path,
+                  snapshot.store().count(), (System.nanoTime() - t0) / 1_000_000);
+                // queued ahead of any write, so it checks the file that was mapped
+                if (!verifyRows) writer.execute(() -> verifyRestored(snapshot));
+            }
+        } catch (IOException e) {
+            log.warn("Ignoring catalog snapshot: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Checks the rows of a snapshot restored without {@code verify-rows}. A corrupt one is
+     * dropped, with whatever was applied on top of it, for an empty catalog, which is then
+     * written over the file.
+     */
+    private void verifyRestored(CatalogSnapshot restored) {
+        long t0 = System.nanoTime();
+        try {
+            SnapshotFile.verify(path);
+            log.info("Catalog snapshot {} verified in {} ms", path, (System.nanoTime() - t0) / 1_000_000);
+        } catch (IOException e) {
+            if (catalog.discard(restored)) {
+                log.error("Restored catalog failed verification and was dropped, regenerate it: {}", e.getMessage());
+            } else {
+                log.error("Restored catalog failed verification after it was replaced: {}", e.getMessage());
+            }
+        }
+    }
+
+    /** Schedules {@code snapshot} to be written; a newer one replaces it if still queued. */
+    public void save(CatalogSnapshot snapshot) {
+        if (pending.getAndAccumulate(snapshot, CatalogPersistence::newer) == null) writer.execute(this::flush);
+    }
+
+    private static CatalogSnapshot newer(CatalogSnapshot queued, CatalogSnapshot snapshot) {
+        return queued == null || snapshot.version() > queued.version() ? snapshot : queued;
+    }
+
+    private void flush() {
+        CatalogSnapshot snapshot = pending.getAndSet(null);
+        // a publisher that lost the race to a newer version may save after it was written
+        if (snapshot == null || snapshot.version() <= written) return;
+        try {
+            SnapshotFile.write(snapshot, path);
+            written = snapshot.version();
+            log.debug("Catalog v{} written to {}", snapshot.version(), path);
+        } catch (IOException | RuntimeException e) {
+            log.error("Could not write catalog snapshot v{} to {}", snapshot.version(), path, e);
+        }
+    }
+
+    /** Waits for the queued write, if any, and stops the writer. */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        writer.shutdown();
+        if (!writer.awaitTermination(30, TimeUnit.SECONDS)) {
+            log.warn("Catalog snapshot still being written at shutdown");
+        }
+    }
+}
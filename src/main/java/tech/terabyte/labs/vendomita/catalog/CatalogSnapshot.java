@@ -0,0 +1,21 @@
+package tech.terabyte.labs.vendomita.catalog;
+
+/**
+ * Immutable catalog version: the store and every index derived from it. Requests pin
+ * one snapshot and use it throughout, so a concurrent reload never mixes data from
+ * two versions in one response.
+ * <p>
+ * {@code rowsVersion} is the version since which row numbers name the same products:
+ * batches keep it unless they compact the store, a new catalog starts its own.
+ */
+public record CatalogSnapshot(long version, ProductStore store, long rowsVersion) {
+
+    /** Snapshot whose rows are numbered afresh. */
+    public CatalogSnapshot(long version, ProductStore store) {
+        this(version, store, version);
+    }
+
+    public boolean isEmpty() {
+        return store.isEmpty();
+    }
+}
@@ -0,0 +1,157 @@
+package tech.terabyte.labs.vendomita.catalog;
+
+import tech.terabyte.labs.vendomita.model.Color;
+import tech.terabyte.labs.vendomita.model.Size;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+/**
+ * Leaf predicates of one heap store evaluated into mask words, one bit per row, to be
+ * combined word by word. Masks cover one {@link RowSegments} segment at a time: bit
+ * {@code i} is row {@link #from()} {@code + i}. {@link #select} and {@link #count} evaluate
+ * every segment, on the scan pool for large stores, and keep live rows only; masks may
+ * have bits set past the last row or on deleted rows until then.
+ */
+public final class ColumnMasks {
+
+    private final ProductStore store;
+    private final HeapRows rows;
+    private final Bitmap live;
+    private final MaskKernel kernel;
+    private final RowSegments segments;
+    private final int from;
+    private final int to;
+    private final int words;
+
+    private ColumnMasks(ProductStore store, HeapRows rows, MaskKernel kernel, RowSegments segments, int from, int to) {
+        this.store = store;
+        this.rows = rows;
+        this.live = store.live();
+        this.kernel = kernel;
+        this.segments = segments;
+        this.from = from;
+        this.to = to;
+        this.words = (to - from + 63) >>> 6;
+    }
+
+    /** Masks over {@code store}, segment by segment on the calling thread. */
+    public static ColumnMasks of(ProductStore store, MaskKernel kernel) {
+        return of(store, kernel, RowSegments.SERIAL);
+    }
+
+    /** Masks over {@code store} split by {@code segments}, or {@code null} when its rows are not on the heap. */
+    public static ColumnMasks of(ProductStore store, MaskKernel kernel, RowSegments segments) {
+        return store.rows() instanceof HeapRows heap ? new ColumnMasks(store, heap, kernel, segments, 0, heap.size()) : null;
+    }
+
+    /** Live rows of the masks {@code mask} builds for each segment. */
+    public Bitmap select(Function<ColumnMasks, long[]> mask) {
+        return Bitmap.ofChunks(segments.map(size(), (from, to) -> live(mask, from, to)));
+    }
+
+    /** Number of live rows of the masks {@code mask} builds for each segment, without building them. */
+    public int count(Function<ColumnMasks, long[]> mask) {
+        int n = 0;
+        for (int c : segments.map(size(), (from, to) -> bitCount(live(mask, from, to)))) n += c;
+        return n;
+    }
+
+    private long[] live(Function<ColumnMasks, long[]> mask, int from, int to) {
+        long[] words = mask.apply(new ColumnMasks(store, rows, kernel, segments, from, to));
+        live.andInto(words, from);
+        return words;
+    }
+
+    /** Row of bit 0 of these masks. */
+    public int from() {
+        return from;
+    }
+
+    /** Rows these masks cover. */
+    public int size() {
+        return to - from;
+    }
+
+    public long[] all() {
+        long[] out = new long[words];
+        Arrays.fill(out, -1L);
+        return out;
+    }
+
+    public long[] none() {
+        return new long[words];
+    }
+
+    public long[] color(Color color) {
+        long[] out = new long[words];
+        kernel.equal(rows.colors(), from, to, (byte) color.ordinal(), out);
+        return out;
+    }
+
+    public long[] size(Size size) {
+        long[] out = new long[words];
+        kernel.equal(rows.sizes(), from, to, (byte) size.ordinal(), out);
+        return out;
+    }
+
+    public long[] inStock() {
+        long[] bits = rows.inStock().get(from, to).toLongArray();
+        return bits.length == words ? bits : Arrays.copyOf(bits, words);
+    }
+
+    public long[] priceBelow(long cents) {
+        long[] out = new long[words];
+        kernel.less(rows.priceCents(), from, to, cents, out);
+        return out;
+    }
+
+    public long[] priceAtLeast(long cents) {
+        long[] out = priceBelow(cents);
+        not(out);
+        return out;
+    }
+
+    public long[] priceBetween(long minCents, long maxCents) {
+        long[] out = new long[words];
+        kernel.between(rows.priceCents(), from, to, minCents, maxCents, out);
+        return out;
+    }
+
+    /** Name index of the store, for leaves answered from an index rather than a column. */
+    public NameIndex names() {
+        return store.names();
+    }
+
+    /** Mask with the bits of the {@code rows} in this segment set. */
+    public long[] rows(Bitmap rows) {
+        long[] out = new long[words];
+        rows.orInto(out, from);
+        return out;
+    }
+
+    /** Live rows among the set bits of {@code mask}, without building them. */
+    public int cardinality(long[] mask) {
+        long[] copy = mask.clone();
+        live.andInto(copy, from);
+        return bitCount(copy);
+    }
+
+    private static int bitCount(long[] mask) {
+        int n = 0;
+        for (long w : mask) n += Long.bitCount(w);
+        return n;
+    }
+
+    public static void and(long[] into, long[] other) {
+        for (int i = 0; i < into.length; i++) into[i] &= other[i];
+    }
+
+    public static void or(long[] into, long[] other) {
+        for (int i = 0; i < into.length; i++) into[i] |= other[i];
+    }
+
+    public static void not(long[] mask) {
+        for (int i = 0; i < mask.length; i++) mask[i] = ~mask[i];
+    }
+}
@@ -0,0 +1,101 @@
+package tech.terabyte.labs.vendomita.catalog;
+
+import java.util.BitSet;
+
+/**
+ * One primitive array per attribute, indexed by row, and a dictionary-encoded
+ * {@link NameColumn}. Arrays are never modified once wrapped. Each id is
+ * {@code ids[row] + idShift}, so renumbering the whole catalog shares the arrays.
+ */
+record HeapRows(long[] ids, NameColumn names, byte[] colors, byte[] sizes, long[] priceCents, BitSet inStock,
+                long idShift) implements RowStorage {
+
+    HeapRows(long[] ids, NameColumn names, byte[] colors, byte[] sizes, long[] priceCents, BitSet inStock) {
+        this(ids, names, colors, sizes, priceCents, inStock, 0);
+    }
+
+    /** Same rows with every id moved up by {@code shift}. */
+    HeapRows shifted(long shift) {
+        return new HeapRows(ids, names, colors, sizes, priceCents, inStock, idShift + shift);
+    }
+
+    @Override
+    public int size() {
+        return ids.length;
+    }
+
+    @Override
+    public long id(int row) {
+        return ids[row] + idShift;
+    }
+
+    @Override
+    public String name(int row) {
+        return names.get(row);
+    }
+
+    @Override
+    public int nameCode(int row) {
+        return names.code(row);
+    }
+
+    @Override
+    public void appendName(int row, StringBuilder into) {
+        names.appendTo(row, into);
+    }
+
+    @Override
+    public int nameLength(int row) {
+        return names.length(row);
+    }
+
+    @Override
+    public int compareNames(int a, int b) {
+        return names.compare(a, b);
+    }
+
+    @Override
+    public byte colorOrdinal(int row) {
+        return colors[row];
+    }
+
+    @Override
+    public byte sizeOrdinal(int row) {
+        return sizes[row];
+    }
+
+    @Override
+    public long priceCents(int row) {
+        return priceCents[row];
+    }
+
+    @Override
+    public boolean inStock(int row) {
+        return inStock.get(row);
+    }
+
+    @Override
+    public HeapRows toHeap() {
+        return this;
+    }
+
+    @Override
+    public StorageMode mode() {
+        return StorageMode.HEAP;
+    }
+
+    @Override
+    public long heapBytes() {
+        return ids.length * (8L + 1 + 1 + 8) + inStock.size() / 8 + names.heapBytes();
+    }
+
+    @Override
+    public long offHeapBytes() {
+        return 0;
+    }
+
+    @Override
+    public long nameStorageBytes() {
+        return names.heapBytes();
+    }
+}
@@ -0,0 +1,66 @@
+package tech.terabyte.labs.vendomita.catalog;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Column comparisons written as mask words over the rows {@code [from, to)}: bit
+ * {@code i % 64} of {@code out[i / 64]} is set when row {@code from + i} passes. {@code from}
+ * is a multiple of 64, so words line up with the rows. Bits are only ever set, so
+ * {@code out} should start zeroed.
+ */
+public interface MaskKernel {
+
+    /** {@code column[row] == value}. */
+    void equal(byte[] column, int from, int to, byte value, long[] out);
+
+    /** {@code column[row] < bound}. */
+    void less(long[] column, int from, int to, long bound, long[] out);
+
+    /** {@code min <= column[row] < max}. */
+    void between(long[] column, int from, int to, long min, long max, long[] out);
+
+    /** Over the whole column. */
+    default void equal(byte[] column, byte value, long[] out) {
+        equal(column, 0, column.length, value, out);
+    }
+
+    /** Over the whole column. */
+    default void less(long[] column, long bound, long[] out) {
+        less(column, 0, column.length, bound, out);
+    }
+
+    /** Over the whole column. */
+    default void between(long[] column, long min, long max, long[] out) {
+        between(column, 0, column.length, min, max, out);
+    }
+
+    String name();
+
+    static MaskKernel scalar() {
+        return ScalarMaskKernel.INSTANCE;
+    }
+
+    /**
+     * The Vector API kernel when the JVM was started with
+     * {@code --add-modules jdk.incubator.vector}, the scalar one otherwise. The kernel is
+     * compiled apart from the rest (see {@code build.gradle}) and looked up by name, so
+     * nothing else needs the incubator module to compile or load.
+     */
+    static MaskKernel best() {
+        Logger log = LoggerFactory.getLogger(MaskKernel.class);
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                MaskKernel kernel = (MaskKernel) Class.forName(MaskKernel.class.getPackageName() + ".VectorMaskKernel")
+                  .getDeclaredConstructor().newInstance();
+                log.info("Column scan kernel: {}", kernel.name());
+                return kernel;
+            } catch (ReflectiveOperationException | LinkageError e) {
+                log.warn("Vector API unusable, scanning scalar: {}", e.toString());
+            }
+        } else {
+            log.info("Column scan kernel: scalar (start with --add-modules jdk.incubator.vector for the Vector API)");
+        }
+        return scalar();
+    }
+}
@@ -0,0 +1,357 @@
+package tech.terabyte.labs.vendomita.catalog;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary-encoded name column: one {@code int} code per row, decoded only when a
+ * name is read.
+ * <ul>
+ *   <li>Names shaped {@code <base>-<number>}, like {@code Jacket-4821}, are coded inline:
+ *       the slot of the base in a dictionary of at most {@value #MAX_BASES} bases and the
+ *       number, so they take no storage of their own;</li>
+ *   <li>any other name is an entry of a front-coded dictionary: sorted, in blocks of
+ *       {@value FrontCoded#BLOCK} where each name stores only the bytes that differ from the
+ *       previous one. Names added by batches are appended after it as plain strings.</li>
+ * </ul>
+ * Within a column and the columns derived from it, equal names have equal codes.
+ */
+public final class NameColumn {
+
+    static final int MAX_BASES = 256;
+    private static final int SUFFIX_BITS = 23;
+    private static final int SUFFIX_MASK = (1 << SUFFIX_BITS) - 1;
+    private static final String[] NO_NAMES = {};
+
+    private final int[] codes;
+    private final String[] bases;
+    private final FrontCoded pool;
+    private final String[] extra;
+
+    private NameColumn(int[] codes, String[] bases, FrontCoded pool, String[] extra) {
+        this.codes = codes;
+        this.bases = bases;
+        this.pool = pool;
+        this.extra = extra;
+    }
+
+    /** Encodes {@code names}, one per row. */
+    public static NameColumn encode(String[] names) {
+        Encoder encoder = new Encoder(null);
+        int[] codes = new int[names.length];
+        for (int row = 0; row < names.length; row++) codes[row] = encoder.encode(names[row]);
+        return encoder.column(codes);
+    }
+
+    /** Column whose row {@code i} holds the name of row {@code rows[i]} of this one, without re-encoding. */
+    public NameColumn pick(int[] rows) {
+        int[] picked = new int[rows.length];
+        for (int i = 0; i < rows.length; i++) picked[i] = codes[rows[i]];
+        return withCodes(picked);
+    }
+
+    public int size() {
+        return codes.length;
+    }
+
+    public String get(int row) {
+        return decode(codes[row]);
+    }
+
+    /** Appends the name of {@code row} to {@code into}; inline-coded names allocate nothing. */
+    public void appendTo(int row, StringBuilder into) {
+        int code = codes[row];
+        if (code >= 0) into.append(bases[code >>> SUFFIX_BITS]).append('-').append(code & SUFFIX_MASK);
+        else into.append(general(~code));
+    }
+
+    /** Length of the name of {@code row}, in chars. */
+    public int length(int row) {
+        int code = codes[row];
+        return code >= 0 ? bases[code >>> SUFFIX_BITS].length() + 1 + digits(code & SUFFIX_MASK) : general(~code).length();
+    }
+
+    /**
+     * {@code get(a).compareTo(get(b))}. Two inline names whose bases settle the order, or that
+     * share a base, are compared without decoding.
+     */
+    public int compare(int a, int b) {
+        int x = codes[a], y = codes[b];
+        if (x == y) return 0;
+        if (x >= 0 && y >= 0) {
+            if (x >>> SUFFIX_BITS == y >>> SUFFIX_BITS) return compareDigits(x & SUFFIX_MASK, y & SUFFIX_MASK);
+            String bx = bases[x >>> SUFFIX_BITS], by = bases[y >>> SUFFIX_BITS];
+            if (!bx.startsWith(by) && !by.startsWith(bx)) return bx.compareTo(by);
+        }
+        return decode(x).compareTo(decode(y));
+    }
+
+    /** Same code means same name, and the other way round. */
+    int code(int row) {
+        return codes[row];
+    }
+
+    int[] codes() {
+        return codes;
+    }
+
+    /** Same dictionary over other codes, which must all come from this column. */
+    NameColumn withCodes(int[] codes) {
+        return new NameColumn(codes, bases, pool, extra);
+    }
+
+    /** Encoder that extends this column's dictionary; see {@link Encoder#column}. */
+    Encoder encoder() {
+        return new Encoder(this);
+    }
+
+    /** Heap taken by the codes and the dictionary. */
+    public long heapBytes() {
+        long bytes = codes.length * 4L + pool.heapBytes();
+        for (String base : bases) bytes += 40 + base.length();
+        for (String name : extra) bytes += 40 + name.length();
+        return bytes;
+    }
+
+    /** Number of names stored in the dictionaries; inline-coded names are not among them. */
+    public int dictionarySize() {
+        return pool.size() + extra.length;
+    }
+
+    private String decode(int code) {
+        return code >= 0 ? bases[code >>> SUFFIX_BITS] + "-" + (code & SUFFIX_MASK) : general(~code);
+    }
+
+    private String general(int index) {
+        return index < pool.size() ? pool.get(index) : extra[index - pool.size()];
+    }
+
+    private static int digits(int n) {
+        int d = 1;
+        while (n >= 10) {
+            n /= 10;
+            d++;
+        }
+        return d;
+    }
+
+    /** Order of the decimal strings of {@code x} and {@code y} (no leading zeros), without building them. */
+    private static int compareDigits(int x, int y) {
+        int dx = digits(x), dy = digits(y);
+        long sx = x, sy = y;
+        for (int i = dx; i < dy; i++) sx *= 10;
+        for (int i = dy; i < dx; i++) sy *= 10;
+        return sx != sy ? Long.compare(sx, sy) : Integer.compare(dx, dy);
+    }
+
+    /**
+     * Turns names into codes, learning bases as it goes. A fresh encoder sorts the names
+     * that are not inline into a new front-coded dictionary; one derived from a column
+     * keeps that column's dictionary and appends the names it does not hold.
+     */
+    static final class Encoder {
+
+        private final NameColumn from;
+        private final List<String> bases = new ArrayList<>();
+        private final int[] baseSlots = new int[MAX_BASES * 2];
+        private final Map<String, Integer> general = new HashMap<>();
+        private final List<String> added = new ArrayList<>();
+        private final int firstAdded;
+
+        Encoder(NameColumn from) {
+            this.from = from;
+            if (from != null) {
+                for (String base : from.bases) learn(base);
+                for (int i = 0; i < from.extra.length; i++) general.put(from.extra[i], from.pool.size() + i);
+                firstAdded = from.pool.size() + from.extra.length;
+            } else {
+                firstAdded = 0;
+            }
+        }
+
+        int encode(String name) {
+            int inline = inline(name);
+            if (inline >= 0) return inline;
+            if (from != null) {
+                int index = from.pool.indexOf(name);
+                if (index >= 0) return ~index;
+            }
+            Integer index = general.get(name);
+            if (index == null) {
+                index = firstAdded + added.size();
+                general.put(name, index);
+                added.add(name);
+            }
+            return ~index;
+        }
+
+        /** Column over {@code codes}, which must all come from this encoder. */
+        NameColumn column(int[] codes) {
+            String[] baseArray = bases.toArray(String[]::new);
+            if (from != null) {
+                String[] extra = Arrays.copyOf(from.extra, from.extra.length + added.size());
+                for (int i = 0; i < added.size(); i++) extra[from.extra.length + i] = added.get(i);
+                return new NameColumn(codes, baseArray, from.pool, extra);
+            }
+            String[] sorted = added.toArray(String[]::new);
+            Arrays.sort(sorted);
+            int[] rank = new int[sorted.length];
+            for (int i = 0; i < sorted.length; i++) rank[general.get(sorted[i])] = i;
+            for (int row = 0; row < codes.length; row++) {
+                if (codes[row] < 0) codes[row] = ~rank[~codes[row]];
+            }
+            return new NameColumn(codes, baseArray, FrontCoded.of(sorted), NO_NAMES);
+        }
+
+        /** Inline code of {@code name}, or -1 if it is not {@code <base>-<number>} or no base slot is left. */
+        private int inline(String name) {
+            int dash = name.lastIndexOf('-');
+            int length = name.length();
+            int digits = length - dash - 1;
+            if (dash <= 0 || digits < 1 || digits > 7 || digits > 1 && name.charAt(dash + 1) == '0') return -1;
+            int suffix = 0;
+            for (int i = dash + 1; i < length; i++) {
+                char c = name.charAt(i);
+                if (c < '0' || c > '9') return -1;
+                suffix = suffix * 10 + (c - '0');
+            }
+            if (suffix > SUFFIX_MASK) return -1;
+            int base = base(name, dash);
+            return base < 0 ? -1 : base << SUFFIX_BITS | suffix;
+        }
+
+        /** Slot of {@code name[0, end)} among the bases, learning it if there is room; -1 otherwise. */
+        private int base(String name, int end) {
+            int h = 0;
+            for (int i = 0; i < end; i++) h = 31 * h + name.charAt(i);
+            int mask = baseSlots.length - 1;
+            for (int slot = spread(h) & mask; ; slot = (slot + 1) & mask) {
+                int id = baseSlots[slot] - 1;
+                if (id < 0) break;
+                String base = bases.get(id);
+                if (base.length() == end && name.regionMatches(0, base, 0, end)) return id;
+            }
+            if (bases.size() == MAX_BASES) return -1;
+            return learn(name.substring(0, end));
+        }
+
+        private int learn(String base) {
+            int id = bases.size();
+            bases.add(base);
+            int mask = baseSlots.length - 1;
+            int slot = spread(base.hashCode()) & mask;
+            while (baseSlots[slot] != 0) slot = (slot + 1) & mask;
+            baseSlots[slot] = id + 1;
+            return id;
+        }
+
+        private static int spread(int h) {
+            return h ^ h >>> 16;
+        }
+    }
+
+    /**
+     * Sorted distinct names as UTF-8, in blocks of {@value #BLOCK}: the first name of a block
+     * in full, each next one as the length of the prefix it shares with the previous name and
+     * the bytes after it.
+     */
+    private static final class FrontCoded {
+
+        static final int BLOCK = 16;
+
+        private final byte[] data;
+        private final int[] blocks;
+        private final int size;
+
+        private FrontCoded(byte[] data, int[] blocks, int size) {
+            this.data = data;
+            this.blocks = blocks;
+            this.size = size;
+        }
+
+        static FrontCoded of(String[] sorted) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            int[] blocks = new int[(sorted.length + BLOCK - 1) / BLOCK];
+            byte[] previous = null;
+            for (int i = 0; i < sorted.length; i++) {
+                byte[] utf8 = sorted[i].getBytes(StandardCharsets.UTF_8);
+                int shared = 0;
+                if (i % BLOCK == 0) {
+                    blocks[i / BLOCK] = out.size();
+                } else {
+                    int max = Math.min(previous.length, utf8.length);
+                    while (shared < max && previous[shared] == utf8[shared]) shared++;
+                    varint(out, shared);
+                }
+                varint(out, utf8.length - shared);
+                out.write(utf8, shared, utf8.length - shared);
+                previous = utf8;
+            }
+            return new FrontCoded(out.toByteArray(), blocks, sorted.length);
+        }
+
+        int size() {
+            return size;
+        }
+
+        String get(int index) {
+            int[] pos = {blocks[index / BLOCK]};
+            byte[] name = new byte[0];
+            for (int i = index / BLOCK * BLOCK; i <= index; i++) {
+                int shared = i % BLOCK == 0 ? 0 : varint(pos);
+                int rest = varint(pos);
+                byte[] next = Arrays.copyOf(name, shared + rest);
+                System.arraycopy(data, pos[0], next, shared, rest);
+                pos[0] += rest;
+                name = next;
+            }
+            return new String(name, StandardCharsets.UTF_8);
+        }
+
+        /** Position of {@code name}, or -1: a binary search over the block heads, then one block. */
+        int indexOf(String name) {
+            int lo = 0, hi = blocks.length - 1, block = -1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (get(mid * BLOCK).compareTo(name) <= 0) {
+                    block = mid;
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            if (block < 0) return -1;
+            int end = Math.min(size, (block + 1) * BLOCK);
+            for (int i = block * BLOCK; i < end; i++) {
+                if (get(i).equals(name)) return i;
+            }
+            return -1;
+        }
+
+        long heapBytes() {
+            return 16 + data.length + 16 + blocks.length * 4L;
+        }
+
+        private static void varint(ByteArrayOutputStream out, int value) {
+            while (value >= 0x80) {
+                out.write(value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+        }
+
+        private int varint(int[] pos) {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = data[pos[0]++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) return value;
+            }
+        }
+    }
+}
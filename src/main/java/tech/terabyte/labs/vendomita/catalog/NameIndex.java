@@ -0,0 +1,303 @@
+package tech.terabyte.labs.vendomita.catalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Name lookups over the live rows of a {@link ProductStore}, case-insensitive.
+ * Distinct names are kept lower-cased and sorted, and the rows are sorted by
+ * (name, row), so the rows of one name, and of every name sharing a prefix, are a
+ * contiguous range. Substrings go through trigram postings: for each three-character
+ * sequence, the names that contain it. A search intersects the postings of the needle's
+ * trigrams, checks the few names left and only then looks at rows.
+ */
+public final class NameIndex {
+
+    private static final int GRAM = 3;
+
+    /** Distinct lower-case names, sorted; some may have no rows left after deletions. */
+    private final String[] terms;
+    /** Rows of {@code terms[t]} are {@code rows[termStart[t] .. termStart[t + 1])}. */
+    private final int[] termStart;
+    private final int[] rows;
+    private final Grams grams;
+
+    private NameIndex(String[] terms, int[] termStart, int[] rows, Grams grams) {
+        this.terms = terms;
+        this.termStart = termStart;
+        this.rows = rows;
+        this.grams = grams;
+    }
+
+    static NameIndex build(ProductStore store) {
+        int[] live = store.live().toArray();
+        // names are told apart by code, so each distinct value is decoded and lower-cased once
+        int[] slots = new int[64];
+        int[] codes = new int[32];
+        List<String> distinct = new ArrayList<>();
+        int[] provisional = new int[live.length];
+        for (int i = 0; i < live.length; i++) {
+            int code = store.nameCode(live[i]);
+            int slot = slot(slots, codes, code);
+            int id = slots[slot] - 1;
+            if (id < 0) {
+                id = distinct.size();
+                distinct.add(store.name(live[i]));
+                if (id == codes.length) {
+                    codes = Arrays.copyOf(codes, id * 2);
+                    slots = new int[id * 4];
+                    for (int d = 0; d < id; d++) slots[slot(slots, codes, codes[d])] = d + 1;
+                    slot = slot(slots, codes, code);
+                }
+                codes[id] = code;
+                slots[slot] = id + 1;
+            }
+            provisional[i] = id;
+        }
+        String[] lower = new String[distinct.size()];
+        for (int i = 0; i < lower.length; i++) lower[i] = key(distinct.get(i));
+        String[] terms = Arrays.stream(lower).distinct().sorted().toArray(String[]::new);
+        int[] termOf = new int[lower.length];
+        for (int i = 0; i < lower.length; i++) termOf[i] = Arrays.binarySearch(terms, lower[i]);
+
+        // counting sort by term; live rows come in ascending order, so ties stay by row
+        int[] termStart = new int[terms.length + 1];
+        for (int id : provisional) termStart[termOf[id] + 1]++;
+        for (int t = 0; t < terms.length; t++) termStart[t + 1] += termStart[t];
+        int[] cursor = Arrays.copyOf(termStart, terms.length);
+        int[] rows = new int[live.length];
+        for (int i = 0; i < live.length; i++) rows[cursor[termOf[provisional[i]]]++] = live[i];
+        return new NameIndex(terms, termStart, rows, Grams.build(terms));
+    }
+
+    /**
+     * Index of {@code next}: the {@code touched} rows are dropped from this one and the
+     * live ones among them merged back in under their new name, without re-sorting.
+     * Trigram postings are only rebuilt when the batch brings names not seen before.
+     */
+    NameIndex update(ProductStore next, Bitmap touched) {
+        BitSet drop = new BitSet();
+        touched.forEach(drop::set);
+        int[] addedRows = touched.stream().filter(next::isLive).toArray();
+        String[] addedKeys = new String[addedRows.length];
+        for (int i = 0; i < addedRows.length; i++) addedKeys[i] = key(next.name(addedRows[i]));
+
+        String[] fresh = Arrays.stream(addedKeys).filter(k -> Arrays.binarySearch(terms, k) < 0)
+          .distinct().sorted().toArray(String[]::new);
+        String[] merged = fresh.length == 0 ? terms : mergeSorted(terms, fresh);
+        // old term t is merged[oldToNew[t]]; both arrays are sorted, so the mapping is monotonic
+        int[] oldToNew = new int[terms.length];
+        for (int t = 0, m = 0; t < terms.length; t++) {
+            while (!merged[m].equals(terms[t])) m++;
+            oldToNew[t] = m;
+        }
+
+        long[] added = new long[addedRows.length];
+        for (int i = 0; i < added.length; i++) {
+            added[i] = (long) Arrays.binarySearch(merged, addedKeys[i]) << 32 | addedRows[i];
+        }
+        Arrays.sort(added);
+
+        int[] out = new int[rows.length + added.length];
+        int[] starts = new int[merged.length + 1];
+        int n = 0, a = 0, t = 0;
+        for (int m = 0; m < merged.length; m++) {
+            starts[m] = n;
+            int from = 0, to = 0;
+            if (t < terms.length && oldToNew[t] == m) {
+                from = termStart[t];
+                to = termStart[++t];
+            }
+            while (from < to || a < added.length && (int) (added[a] >>> 32) == m) {
+                while (from < to && drop.get(rows[from])) from++;
+                boolean takeAdded = a < added.length && (int) (added[a] >>> 32) == m
+                  && (from == to || (int) added[a] < rows[from]);
+                if (takeAdded) out[n++] = (int) added[a++];
+                else if (from < to) out[n++] = rows[from++];
+            }
+        }
+        starts[merged.length] = n;
+        Grams nextGrams = fresh.length == 0 ? grams : Grams.build(merged);
+        return new NameIndex(merged, starts, Arrays.copyOf(out, n), nextGrams);
+    }
+
+    /** Rows whose name starts with {@code prefix}, ignoring case. */
+    public Bitmap prefix(String prefix) {
+        String p = key(prefix);
+        int from = lowerBound(p);
+        int lo = from, hi = terms.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (terms[mid].startsWith(p)) lo = mid + 1;
+            else hi = mid;
+        }
+        return rowsAt(termStart[from], termStart[lo]);
+    }
+
+    /**
+     * Rows whose name contains {@code text}, ignoring case. Needles shorter than a
+     * trigram are checked against the distinct names instead of the postings.
+     */
+    public Bitmap contains(String text) {
+        String needle = key(text);
+        int[] candidates = needle.length() < GRAM ? null : grams.candidates(needle);
+        int total = 0;
+        int count = candidates != null ? candidates.length : terms.length;
+        int[] matches = new int[count];
+        int found = 0;
+        for (int i = 0; i < count; i++) {
+            int t = candidates != null ? candidates[i] : i;
+            if (!terms[t].contains(needle)) continue;
+            matches[found++] = t;
+            total += termStart[t + 1] - termStart[t];
+        }
+        int[] hits = new int[total];
+        int n = 0;
+        for (int i = 0; i < found; i++) {
+            int t = matches[i];
+            int length = termStart[t + 1] - termStart[t];
+            System.arraycopy(rows, termStart[t], hits, n, length);
+            n += length;
+        }
+        return Bitmap.ofUnsorted(hits, 0, n);
+    }
+
+    /** Number of distinct names, ignoring case. */
+    public int terms() {
+        return terms.length;
+    }
+
+    public long sizeInBytes() {
+        long bytes = rows.length * 4L + termStart.length * 4L + grams.sizeInBytes();
+        for (String term : terms) bytes += 4 + 40 + term.length();
+        return bytes;
+    }
+
+    /** The form names and needles are compared in. */
+    public static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    private int lowerBound(String p) {
+        int lo = 0, hi = terms.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (terms[mid].compareTo(p) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /** As {@link PriceIndex}: the rows of positions {@code [from, to)}, set as bits rather than sorted. */
+    private Bitmap rowsAt(int from, int to) {
+        return from < to ? Bitmap.ofUnsorted(rows, from, to) : Bitmap.empty();
+    }
+
+    /**
+     * Open-addressing lookup for {@link #build}: the slot holding {@code code}, or the empty
+     * one it would go in. Slots hold id + 1 of a code in {@code codes}; the caller keeps
+     * them at most half full.
+     */
+    private static int slot(int[] slots, int[] codes, int code) {
+        int h = code * 0x9E3779B9;
+        int mask = slots.length - 1;
+        int slot = (h ^ h >>> 16) & mask;
+        while (slots[slot] != 0 && codes[slots[slot] - 1] != code) slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    private static String[] mergeSorted(String[] a, String[] b) {
+        String[] out = new String[a.length + b.length];
+        int i = 0, j = 0, k = 0;
+        while (i < a.length && j < b.length) out[k++] = a[i].compareTo(b[j]) < 0 ? a[i++] : b[j++];
+        while (i < a.length) out[k++] = a[i++];
+        while (j < b.length) out[k++] = b[j++];
+        return out;
+    }
+
+    /** Trigram postings: for each distinct trigram, the ascending ids of the terms that contain it. */
+    private record Grams(long[] keys, int[] start, int[] terms) {
+
+        static Grams build(String[] terms) {
+            Map<Long, Integer> ids = new HashMap<>();
+            List<Long> distinct = new ArrayList<>();
+            int[] counts = new int[16];
+            for (String term : terms) {
+                for (long gram : grams(term)) {
+                    Integer id = ids.get(gram);
+                    if (id == null) {
+                        id = distinct.size();
+                        ids.put(gram, id);
+                        distinct.add(gram);
+                        if (id == counts.length) counts = Arrays.copyOf(counts, id * 2);
+                    }
+                    counts[id]++;
+                }
+            }
+            long[] keys = distinct.stream().mapToLong(Long::longValue).sorted().toArray();
+            int[] start = new int[keys.length + 1];
+            for (int g = 0; g < keys.length; g++) start[g + 1] = start[g] + counts[ids.get(keys[g])];
+            int[] cursor = Arrays.copyOf(start, keys.length);
+            int[] postings = new int[start[keys.length]];
+            for (int t = 0; t < terms.length; t++) {
+                for (long gram : grams(terms[t])) postings[cursor[Arrays.binarySearch(keys, gram)]++] = t;
+            }
+            return new Grams(keys, start, postings);
+        }
+
+        /** Terms holding every trigram of {@code needle}, ascending; they still have to be checked. */
+        int[] candidates(String needle) {
+            long[] wanted = grams(needle);
+            int[] order = new int[wanted.length];
+            for (int i = 0; i < wanted.length; i++) {
+                int g = Arrays.binarySearch(keys, wanted[i]);
+                if (g < 0) return new int[0];
+                order[i] = g;
+            }
+            // rarest trigram first, so the intersection only shrinks from the smallest list
+            int[] sorted = Arrays.stream(order).boxed()
+              .sorted((x, y) -> Integer.compare(start[x + 1] - start[x], start[y + 1] - start[y]))
+              .mapToInt(Integer::intValue).toArray();
+            int[] result = Arrays.copyOfRange(terms, start[sorted[0]], start[sorted[0] + 1]);
+            for (int i = 1; i < sorted.length && result.length > 0; i++) {
+                result = intersect(result, terms, start[sorted[i]], start[sorted[i] + 1]);
+            }
+            return result;
+        }
+
+        long sizeInBytes() {
+            return keys.length * 12L + start.length * 4L + terms.length * 4L;
+        }
+
+        private static int[] intersect(int[] a, int[] b, int from, int to) {
+            int[] out = new int[Math.min(a.length, to - from)];
+            int i = 0, j = from, n = 0;
+            while (i < a.length && j < to) {
+                if (a[i] < b[j]) i++;
+                else if (a[i] > b[j]) j++;
+                else {
+                    out[n++] = a[i++];
+                    j++;
+                }
+            }
+            return Arrays.copyOf(out, n);
+        }
+
+        /** Distinct trigrams of {@code s}, three chars packed into a long, sorted. */
+        private static long[] grams(String s) {
+            int n = s.length() - GRAM + 1;
+            if (n <= 0) return new long[0];
+            long[] out = new long[n];
+            for (int i = 0; i < n; i++) out[i] = (long) s.charAt(i) << 32 | (long) s.charAt(i + 1) << 16 | s.charAt(i + 2);
+            Arrays.sort(out);
+            int distinct = 0;
+            for (int i = 0; i < n; i++) if (i == 0 || out[i] != out[i - 1]) out[distinct++] = out[i];
+            return Arrays.copyOf(out, distinct);
+        }
+    }
+}
@@ -0,0 +1,457 @@
+package tech.terabyte.labs.vendomita.catalog;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Rows in direct {@link ByteBuffer}s, outside the GC heap. Every row has the same
+ * width, so a field is read at {@code row * ROW_BYTES + offset}; names live in a
+ * separate area as length-prefixed UTF-8, and a row holds the offset of its name.
+ * <pre>
+ *   0  id           long
+ *   8  price cents  long
+ *  16  name offset  int
+ *  20  color        byte
+ *  21  size         byte
+ *  22  flags        byte (bit 0: in stock)
+ * </pre>
+ * Rows are split in pages of {@link #PAGE_ROWS} and the name area in chunks, so a batch
+ * ({@link Editor}) copies only the pages it writes to and appends its new names in a
+ * chunk of their own; everything else is shared with the rows it was applied to.
+ * Only absolute reads are used, so the buffers are safe to share between threads.
+ */
+final class OffHeapRows implements RowStorage {
+
+    static final int ROW_BYTES = 24;
+    static final int MAX_ROWS = Integer.MAX_VALUE / ROW_BYTES;
+    static final int PAGE_SHIFT = 12;
+    static final int PAGE_ROWS = 1 << PAGE_SHIFT;
+
+    private static final int PAGE_MASK = PAGE_ROWS - 1;
+    private static final int PAGE_BYTES = PAGE_ROWS * ROW_BYTES;
+    /** Chunks appended by batches are merged into one past this many. */
+    private static final int MAX_NAME_CHUNKS = 16;
+
+    private static final int ID = 0;
+    private static final int PRICE = 8;
+    private static final int NAME = 16;
+    private static final int COLOR = 20;
+    private static final int SIZE = 21;
+    private static final int FLAGS = 22;
+    private static final byte IN_STOCK = 1;
+
+    private final ByteBuffer[] pages;
+    private final ByteBuffer[] names;
+    /** Offset in the name area where {@code names[i]} starts. */
+    private final int[] nameStarts;
+    private final int size;
+
+    /** Rows and names each in one buffer, as mapped from a snapshot file; pages are slices of {@code rows}. */
+    OffHeapRows(ByteBuffer rows, ByteBuffer names, int size) {
+        this(slice(rows, size), new ByteBuffer[]{names.order(ByteOrder.LITTLE_ENDIAN)}, new int[]{0}, size);
+    }
+
+    private OffHeapRows(ByteBuffer[] pages, ByteBuffer[] names, int[] nameStarts, int size) {
+        this.pages = pages;
+        this.names = names;
+        this.nameStarts = nameStarts;
+        this.size = size;
+    }
+
+    static OffHeapRows copyOf(RowStorage source) {
+        return copyOf(source, null);
+    }
+
+    /** Copies the given rows of {@code source} in order, or all of them when {@code rows} is null. */
+    static OffHeapRows copyOf(RowStorage source, int[] rows) {
+        int n = rows == null ? source.size() : rows.length;
+        if (n > MAX_ROWS) throw new IllegalArgumentException("Off-heap storage holds at most " + MAX_ROWS + " rows");
+
+        // names are decoded once per distinct name code, and each distinct name stored once
+        Map<Integer, Integer> byCode = new HashMap<>();
+        Map<String, Integer> offsets = new HashMap<>();
+        int[] nameOffsets = new int[n];
+        long nameBytes = 0;
+        for (int i = 0; i < n; i++) {
+            int row = rows == null ? i : rows[i];
+            Integer offset = byCode.get(source.nameCode(row));
+            if (offset == null) {
+                String name = source.name(row);
+                offset = offsets.get(name);
+                if (offset == null) {
+                    if (nameBytes > Integer.MAX_VALUE) throw new IllegalArgumentException("Name area over 2 GB");
+                    offset = (int) nameBytes;
+                    offsets.put(name, offset);
+                    nameBytes += 4 + name.getBytes(StandardCharsets.UTF_8).length;
+                }
+                byCode.put(source.nameCode(row), offset);
+            }
+            nameOffsets[i] = offset;
+        }
+        if (nameBytes > Integer.MAX_VALUE) throw new IllegalArgumentException("Name area over 2 GB");
+
+        ByteBuffer names = ByteBuffer.allocateDirect((int) nameBytes).order(ByteOrder.LITTLE_ENDIAN);
+        for (Map.Entry<String, Integer> e : offsets.entrySet()) {
+            byte[] utf8 = e.getKey().getBytes(StandardCharsets.UTF_8);
+            names.putInt(e.getValue(), utf8.length);
+            names.put(e.getValue() + 4, utf8);
+        }
+
+        ByteBuffer area = ByteBuffer.allocateDirect(n * ROW_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < n; i++) {
+            int row = rows == null ? i : rows[i];
+            putRow(area, i * ROW_BYTES, source, row, nameOffsets[i]);
+        }
+        return new OffHeapRows(area, names, n);
+    }
+
+    /** Receives the areas streamed by {@link #encode}, one buffer at a time. */
+    @FunctionalInterface
+    interface Sink {
+        /** Consumes all of {@code bytes}, which is reused once this returns. */
+        void write(ByteBuffer bytes) throws IOException;
+    }
+
+    /**
+     * Streams the row and name areas of {@code source}, laid out as {@link #copyOf} would,
+     * through one reused page of rows and one buffer of names, without building either
+     * area. Names are given offsets, and written, in order of first use.
+     */
+    static void encode(RowStorage source, Sink rowArea, Sink nameArea) throws IOException {
+        int n = source.size();
+        if (n > MAX_ROWS) throw new IllegalArgumentException("Off-heap storage holds at most " + MAX_ROWS + " rows");
+
+        Map<Integer, Integer> byCode = new HashMap<>();
+        Map<String, Integer> offsets = new HashMap<>();
+        ByteBuffer page = ByteBuffer.allocate(PAGE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer names = ByteBuffer.allocate(PAGE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        long nameBytes = 0;
+        for (int row = 0; row < n; row++) {
+            Integer offset = byCode.get(source.nameCode(row));
+            if (offset == null) {
+                String name = source.name(row);
+                offset = offsets.get(name);
+                if (offset == null) {
+                    byte[] utf8 = name.getBytes(StandardCharsets.UTF_8);
+                    if (nameBytes + 4 + utf8.length > Integer.MAX_VALUE) throw new IllegalArgumentException("Name area over 2 GB");
+                    offset = (int) nameBytes;
+                    offsets.put(name, offset);
+                    nameBytes += 4 + utf8.length;
+                    if (names.remaining() < 4 + utf8.length) names = drain(names, nameArea, 4 + utf8.length);
+                    names.putInt(utf8.length).put(utf8);
+                }
+                byCode.put(source.nameCode(row), offset);
+            }
+            int at = (row & PAGE_MASK) * ROW_BYTES;
+            putRow(page, at, source, row, offset);
+            if (at + ROW_BYTES == PAGE_BYTES || row == n - 1) {
+                rowArea.write(page.clear().limit(at + ROW_BYTES));
+            }
+        }
+        drain(names, nameArea, 0);
+    }
+
+    /** Hands what {@code buffer} holds to {@code sink} and returns an empty buffer of at least {@code needed} bytes. */
+    private static ByteBuffer drain(ByteBuffer buffer, Sink sink, int needed) throws IOException {
+        buffer.flip();
+        if (buffer.hasRemaining()) sink.write(buffer);
+        buffer.clear();
+        return buffer.capacity() >= needed ? buffer : ByteBuffer.allocate(needed).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static void putRow(ByteBuffer area, int at, RowStorage source, int row, int nameOffset) {
+        area.putLong(at + ID, source.id(row));
+        area.putLong(at + PRICE, source.priceCents(row));
+        area.putInt(at + NAME, nameOffset);
+        area.put(at + COLOR, source.colorOrdinal(row));
+        area.put(at + SIZE, source.sizeOrdinal(row));
+        area.put(at + FLAGS, source.inStock(row) ? IN_STOCK : 0);
+    }
+
+    private static ByteBuffer[] slice(ByteBuffer rows, int size) {
+        ByteBuffer[] pages = new ByteBuffer[(size + PAGE_MASK) >>> PAGE_SHIFT];
+        for (int p = 0; p < pages.length; p++) {
+            int from = p * PAGE_BYTES;
+            pages[p] = rows.slice(from, Math.min(PAGE_BYTES, size * ROW_BYTES - from)).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return pages;
+    }
+
+    /** Starts a copy-on-write batch over these rows, which stay unchanged. */
+    Editor edit() {
+        return new Editor();
+    }
+
+    /** The row pages in order, each positioned at 0 and limited to its rows; for writing them out. */
+    ByteBuffer[] rowBytes() {
+        ByteBuffer[] out = new ByteBuffer[pages.length];
+        for (int p = 0; p < pages.length; p++) {
+            int rows = Math.min(PAGE_ROWS, size - (p << PAGE_SHIFT));
+            out[p] = pages[p].duplicate().clear().limit(rows * ROW_BYTES);
+        }
+        return out;
+    }
+
+    /** The name chunks in order, each positioned at 0; together they are the name area. */
+    ByteBuffer[] nameBytes() {
+        ByteBuffer[] out = new ByteBuffer[names.length];
+        for (int c = 0; c < names.length; c++) out[c] = names[c].duplicate().clear();
+        return out;
+    }
+
+    /** Bytes of the pages and name chunks that are the same buffers in {@code other}. */
+    long sharedBytes(OffHeapRows other) {
+        long shared = 0;
+        for (int p = 0; p < Math.min(pages.length, other.pages.length); p++) {
+            if (pages[p] == other.pages[p]) shared += pages[p].capacity();
+        }
+        for (int c = 0; c < Math.min(names.length, other.names.length); c++) {
+            if (names[c] == other.names[c]) shared += names[c].capacity();
+        }
+        return shared;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long id(int row) {
+        return pages[row >>> PAGE_SHIFT].getLong((row & PAGE_MASK) * ROW_BYTES + ID);
+    }
+
+    @Override
+    public String name(int row) {
+        int offset = nameCode(row);
+        int chunk = chunkOf(offset);
+        ByteBuffer area = names[chunk];
+        int at = offset - nameStarts[chunk];
+        byte[] utf8 = new byte[area.getInt(at)];
+        area.get(at + 4, utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Offset of the name in the name area. Rows copied together share the offset of an
+     * equal name; a name written by a later batch gets its own.
+     */
+    @Override
+    public int nameCode(int row) {
+        return pages[row >>> PAGE_SHIFT].getInt((row & PAGE_MASK) * ROW_BYTES + NAME);
+    }
+
+    @Override
+    public byte colorOrdinal(int row) {
+        return pages[row >>> PAGE_SHIFT].get((row & PAGE_MASK) * ROW_BYTES + COLOR);
+    }
+
+    @Override
+    public byte sizeOrdinal(int row) {
+        return pages[row >>> PAGE_SHIFT].get((row & PAGE_MASK) * ROW_BYTES + SIZE);
+    }
+
+    @Override
+    public long priceCents(int row) {
+        return pages[row >>> PAGE_SHIFT].getLong((row & PAGE_MASK) * ROW_BYTES + PRICE);
+    }
+
+    @Override
+    public boolean inStock(int row) {
+        return (pages[row >>> PAGE_SHIFT].get((row & PAGE_MASK) * ROW_BYTES + FLAGS) & IN_STOCK) != 0;
+    }
+
+    private int chunkOf(int offset) {
+        if (names.length == 1) return 0;
+        int c = Arrays.binarySearch(nameStarts, offset);
+        return c >= 0 ? c : -c - 2;
+    }
+
+    @Override
+    public HeapRows toHeap() {
+        long[] ids = new long[size];
+        int[] nameCodes = new int[size];
+        NameColumn.Encoder encoder = new NameColumn.Encoder(null);
+        byte[] colors = new byte[size];
+        byte[] sizes = new byte[size];
+        long[] priceCents = new long[size];
+        BitSet inStock = new BitSet(size);
+        Map<Integer, Integer> byOffset = new HashMap<>();
+        for (int row = 0; row < size; row++) {
+            ids[row] = id(row);
+            int r = row;
+            nameCodes[row] = byOffset.computeIfAbsent(nameCode(row), o -> encoder.encode(name(r)));
+            colors[row] = colorOrdinal(row);
+            sizes[row] = sizeOrdinal(row);
+            priceCents[row] = priceCents(row);
+            if (inStock(row)) inStock.set(row);
+        }
+        return new HeapRows(ids, encoder.column(nameCodes), colors, sizes, priceCents, inStock);
+    }
+
+    @Override
+    public StorageMode mode() {
+        return StorageMode.OFF_HEAP;
+    }
+
+    /** The object itself plus one buffer object per page and name chunk. */
+    @Override
+    public long heapBytes() {
+        return 64 + 72L * (pages.length + names.length);
+    }
+
+    @Override
+    public long offHeapBytes() {
+        long bytes = 0;
+        for (ByteBuffer page : pages) bytes += page.capacity();
+        return bytes + nameAreaBytes();
+    }
+
+    @Override
+    public long nameStorageBytes() {
+        return 4L * size + nameAreaBytes();
+    }
+
+    private long nameAreaBytes() {
+        long bytes = 0;
+        for (ByteBuffer chunk : names) bytes += chunk.capacity();
+        return bytes;
+    }
+
+    /**
+     * Writes of one batch. A page is copied the first time one of its rows changes; rows
+     * are appended at the end. New names go to a heap buffer that becomes one more chunk
+     * of the name area in {@link #rows()}.
+     */
+    final class Editor {
+
+        private ByteBuffer[] editPages;
+        private boolean[] copied;
+        private int editSize;
+        private final int nameEnd;
+        private final Map<String, Integer> added = new HashMap<>();
+        private byte[] addedBytes = new byte[0];
+        private int addedLength;
+
+        private Editor() {
+            this.editPages = pages.clone();
+            this.copied = new boolean[editPages.length];
+            this.editSize = size;
+            ByteBuffer last = names[names.length - 1];
+            this.nameEnd = nameStarts[names.length - 1] + last.capacity();
+        }
+
+        int size() {
+            return editSize;
+        }
+
+        boolean inStock(int row) {
+            return (editPages[row >>> PAGE_SHIFT].get((row & PAGE_MASK) * ROW_BYTES + FLAGS) & IN_STOCK) != 0;
+        }
+
+        /** Appends a row and returns its number. */
+        int append(long id, String name, byte color, byte size, long priceCents, boolean inStock) {
+            if (editSize == MAX_ROWS) throw new IllegalArgumentException("Off-heap storage holds at most " + MAX_ROWS + " rows");
+            int row = editSize++;
+            ByteBuffer page = writable(row);
+            int at = (row & PAGE_MASK) * ROW_BYTES;
+            page.putLong(at + ID, id);
+            page.putLong(at + PRICE, priceCents);
+            page.putInt(at + NAME, nameOffset(name));
+            page.put(at + COLOR, color);
+            page.put(at + SIZE, size);
+            page.put(at + FLAGS, inStock ? IN_STOCK : 0);
+            return row;
+        }
+
+        void setName(int row, String name) {
+            writable(row).putInt((row & PAGE_MASK) * ROW_BYTES + NAME, nameOffset(name));
+        }
+
+        void setColor(int row, byte color) {
+            writable(row).put((row & PAGE_MASK) * ROW_BYTES + COLOR, color);
+        }
+
+        void setSize(int row, byte size) {
+            writable(row).put((row & PAGE_MASK) * ROW_BYTES + SIZE, size);
+        }
+
+        void setPrice(int row, long priceCents) {
+            writable(row).putLong((row & PAGE_MASK) * ROW_BYTES + PRICE, priceCents);
+        }
+
+        void setInStock(int row, boolean inStock) {
+            writable(row).put((row & PAGE_MASK) * ROW_BYTES + FLAGS, inStock ? IN_STOCK : 0);
+        }
+
+        /** The edited rows; pages and name chunks not written to are shared. */
+        OffHeapRows rows() {
+            ByteBuffer[] chunks = names;
+            int[] starts = nameStarts;
+            if (addedLength > 0) {
+                ByteBuffer chunk = ByteBuffer.allocateDirect(addedLength).order(ByteOrder.LITTLE_ENDIAN);
+                chunk.put(0, addedBytes, 0, addedLength);
+                chunks = Arrays.copyOf(names, names.length + 1);
+                starts = Arrays.copyOf(nameStarts, names.length + 1);
+                chunks[names.length] = chunk;
+                starts[names.length] = nameEnd;
+                if (chunks.length > MAX_NAME_CHUNKS) {
+                    // the first chunk is the bulk of the area; the ones batches appended become one
+                    chunks = new ByteBuffer[]{chunks[0], merge(chunks, 1)};
+                    starts = new int[]{starts[0], starts[1]};
+                }
+            }
+            return new OffHeapRows(Arrays.copyOf(editPages, (editSize + PAGE_MASK) >>> PAGE_SHIFT), chunks, starts, editSize);
+        }
+
+        /** The page of {@code row}, copied to a full-size one the first time it is written. */
+        private ByteBuffer writable(int row) {
+            int p = row >>> PAGE_SHIFT;
+            if (p == editPages.length) {
+                editPages = Arrays.copyOf(editPages, Math.max(p + 1, p * 2));
+                copied = Arrays.copyOf(copied, editPages.length);
+            }
+            if (copied[p]) return editPages[p];
+            ByteBuffer page = ByteBuffer.allocateDirect(PAGE_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer from = editPages[p];
+            if (from != null) page.put(0, from, 0, from.limit());
+            editPages[p] = page;
+            copied[p] = true;
+            return page;
+        }
+
+        private int nameOffset(String name) {
+            Integer known = added.get(name);
+            if (known != null) return known;
+            byte[] utf8 = name.getBytes(StandardCharsets.UTF_8);
+            long offset = (long) nameEnd + addedLength;
+            if (offset + 4 + utf8.length > Integer.MAX_VALUE) throw new IllegalArgumentException("Name area over 2 GB");
+            if (addedLength + 4 + utf8.length > addedBytes.length) {
+                addedBytes = Arrays.copyOf(addedBytes, Math.max(addedBytes.length * 2, addedLength + 4 + utf8.length + 256));
+            }
+            ByteBuffer.wrap(addedBytes).order(ByteOrder.LITTLE_ENDIAN).putInt(addedLength, utf8.length);
+            System.arraycopy(utf8, 0, addedBytes, addedLength + 4, utf8.length);
+            addedLength += 4 + utf8.length;
+            added.put(name, (int) offset);
+            return (int) offset;
+        }
+    }
+
+    private static ByteBuffer merge(ByteBuffer[] chunks, int from) {
+        int length = 0;
+        for (int c = from; c < chunks.length; c++) length += chunks[c].capacity();
+        ByteBuffer merged = ByteBuffer.allocateDirect(length).order(ByteOrder.LITTLE_ENDIAN);
+        int at = 0;
+        for (int c = from; c < chunks.length; c++) {
+            merged.put(at, chunks[c], 0, chunks[c].capacity());
+            at += chunks[c].capacity();
+        }
+        return merged;
+    }
+}
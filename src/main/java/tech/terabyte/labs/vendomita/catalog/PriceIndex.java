@@ -0,0 +1,166 @@
+package tech.terabyte.labs.vendomita.catalog;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+
+/**
+ * Live rows of a {@link ProductStore} sorted by price (ties by row), so any price bound
+ * is a binary search that yields a contiguous range of positions.
+ */
+public final class PriceIndex {
+
+    private final long[] sortedCents;
+    private final int[] rows;
+
+    private PriceIndex(long[] sortedCents, int[] rows) {
+        this.sortedCents = sortedCents;
+        this.rows = rows;
+    }
+
+    /** Index of the live rows of {@code store}, sorted on the pool of {@code segments} when it is large. */
+    static PriceIndex build(ProductStore store, RowSegments segments) {
+        int[] live = store.live().toArray();
+        int n = live.length;
+        int[] rows = new int[n];
+        long[] sortedCents = new long[n];
+
+        if (fitsPacked(store, live)) {
+            long[] packed = new long[n];
+            for (int i = 0; i < n; i++) packed[i] = store.priceCents(live[i]) << 32 | live[i];
+            segments.run(n, () -> Arrays.parallelSort(packed));
+            for (int i = 0; i < n; i++) {
+                rows[i] = (int) packed[i];
+                sortedCents[i] = packed[i] >>> 32;
+            }
+        } else {
+            Integer[] boxed = Arrays.stream(live).boxed().toArray(Integer[]::new);
+            Arrays.sort(boxed, Comparator.comparingLong(store::priceCents));
+            for (int i = 0; i < n; i++) {
+                rows[i] = boxed[i];
+                sortedCents[i] = store.priceCents(rows[i]);
+            }
+        }
+        return new PriceIndex(sortedCents, rows);
+    }
+
+    /**
+     * Index of {@code next}: the {@code touched} rows are dropped from this one and the
+     * live ones among them merged back in at their new price, without re-sorting. When no
+     * touched row changed price or liveness the sorted arrays are shared as they are.
+     */
+    PriceIndex update(ProductStore previous, ProductStore next, Bitmap touched) {
+        if (touched.stream().noneMatch(row -> moved(previous, next, row))) return new PriceIndex(sortedCents, rows);
+        BitSet drop = new BitSet();
+        touched.forEach(drop::set);
+        int[] added = touched.stream().filter(next::isLive).boxed()
+          .sorted(Comparator.<Integer>comparingLong(next::priceCents).thenComparingInt(r -> r))
+          .mapToInt(Integer::intValue).toArray();
+
+        int kept = 0;
+        for (int row : rows) if (!drop.get(row)) kept++;
+        int n = kept + added.length;
+        long[] cents = new long[n];
+        int[] merged = new int[n];
+
+        int i = 0, j = 0;
+        for (int k = 0; k < n; k++) {
+            while (i < rows.length && drop.get(rows[i])) i++;
+            boolean takeOld = j == added.length || i < rows.length && (sortedCents[i] < next.priceCents(added[j])
+              || sortedCents[i] == next.priceCents(added[j]) && rows[i] < added[j]);
+            if (takeOld) {
+                cents[k] = sortedCents[i];
+                merged[k] = rows[i++];
+            } else {
+                merged[k] = added[j++];
+                cents[k] = next.priceCents(merged[k]);
+            }
+        }
+        return new PriceIndex(cents, merged);
+    }
+
+    private static boolean moved(ProductStore previous, ProductStore next, int row) {
+        boolean was = row < previous.size() && previous.isLive(row);
+        return was != next.isLive(row) || was && previous.priceCents(row) != next.priceCents(row);
+    }
+
+    long serializedSize() {
+        return 4 + rows.length * 12L;
+    }
+
+    void writeTo(ByteBuffer out) {
+        out.putInt(rows.length);
+        out.asLongBuffer().put(sortedCents);
+        out.position(out.position() + sortedCents.length * 8);
+        out.asIntBuffer().put(rows);
+        out.position(out.position() + rows.length * 4);
+    }
+
+    static PriceIndex readFrom(ByteBuffer in, Bitmap universe) {
+        int n = in.getInt();
+        if (n != universe.cardinality()) throw new IllegalStateException("Corrupt price index: " + n + " rows");
+        long[] sortedCents = new long[n];
+        int[] rows = new int[n];
+        in.asLongBuffer().get(sortedCents);
+        in.position(in.position() + n * 8);
+        in.asIntBuffer().get(rows);
+        in.position(in.position() + n * 4);
+        return new PriceIndex(sortedCents, rows);
+    }
+
+    /** Rows priced strictly below {@code cents}. */
+    public Bitmap lessThan(long cents) {
+        return rowsAt(0, lowerBound(cents));
+    }
+
+    /** Rows priced at or above {@code cents}. */
+    public Bitmap atLeast(long cents) {
+        return rowsAt(lowerBound(cents), rows.length);
+    }
+
+    /** Rows priced in {@code [minCents, maxCents)}. */
+    public Bitmap between(long minCents, long maxCents) {
+        return rowsAt(lowerBound(minCents), lowerBound(maxCents));
+    }
+
+    /** First sorted position whose price is at or above {@code cents}. */
+    public int lowerBound(long cents) {
+        int lo = 0, hi = sortedCents.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sortedCents[mid] < cents) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    public int rowAt(int position) {
+        return rows[position];
+    }
+
+    public long centsAt(int position) {
+        return sortedCents[position];
+    }
+
+    public int size() {
+        return rows.length;
+    }
+
+    public long sizeInBytes() {
+        return rows.length * 12L;
+    }
+
+    /** Bitmap of the rows in sorted positions {@code [from, to)}, built without sorting them (see {@link Bitmap#ofUnsorted}). */
+    private Bitmap rowsAt(int from, int to) {
+        return from < to ? Bitmap.ofUnsorted(rows, from, to) : Bitmap.empty();
+    }
+
+    private static boolean fitsPacked(ProductStore store, int[] live) {
+        for (int row : live) {
+            long cents = store.priceCents(row);
+            if (cents < 0 || cents > Integer.MAX_VALUE) return false;
+        }
+        return true;
+    }
+}
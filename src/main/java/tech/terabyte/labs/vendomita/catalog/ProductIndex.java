@@ -0,0 +1,179 @@
+package tech.terabyte.labs.vendomita.catalog;
+
+import tech.terabyte.labs.vendomita.model.Color;
+import tech.terabyte.labs.vendomita.model.Size;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Per-attribute bitmap indexes over the live rows of a {@link ProductStore}, built
+ * when the catalog is loaded and patched row by row when a batch changes it.
+ * Returned bitmaps are shared: callers combine them with the set operations of
+ * {@link Bitmap}, which never modify their operands.
+ */
+public final class ProductIndex {
+
+    private final Bitmap live;
+    private final Bitmap[] byColor;
+    private final Bitmap[] bySize;
+    private final Bitmap inStock;
+    private final PriceIndex price;
+
+    private ProductIndex(Bitmap live, Bitmap[] byColor, Bitmap[] bySize, Bitmap inStock, PriceIndex price) {
+        this.live = live;
+        this.byColor = byColor;
+        this.bySize = bySize;
+        this.inStock = inStock;
+        this.price = price;
+    }
+
+    static ProductIndex build(ProductStore store) {
+        return build(store, RowSegments.SERIAL);
+    }
+
+    /**
+     * Index of {@code store}, each segment of rows bitmapped on its own (on the pool for large
+     * stores) and the per-segment bitmaps appended in row order.
+     */
+    static ProductIndex build(ProductStore store, RowSegments segments) {
+        List<Part> parts = segments.map(store.size(), (from, to) -> Part.of(store, from, to));
+        Bitmap[] byColor = new Bitmap[Color.values().length];
+        Bitmap[] bySize = new Bitmap[Size.values().length];
+        for (int i = 0; i < byColor.length; i++) {
+            int color = i;
+            byColor[i] = join(parts.stream().map(p -> p.byColor()[color]).toList());
+        }
+        for (int i = 0; i < bySize.length; i++) {
+            int size = i;
+            bySize[i] = join(parts.stream().map(p -> p.bySize()[size]).toList());
+        }
+        Bitmap inStock = join(parts.stream().map(Part::inStock).toList());
+        return new ProductIndex(store.live(), byColor, bySize, inStock, PriceIndex.build(store, segments));
+    }
+
+    /** Bitmaps of the rows {@code [from, to)} of one segment. */
+    private record Part(Bitmap[] byColor, Bitmap[] bySize, Bitmap inStock) {
+
+        static Part of(ProductStore store, int from, int to) {
+            Bitmap[] byColor = new Bitmap[Color.values().length];
+            Bitmap[] bySize = new Bitmap[Size.values().length];
+            for (int i = 0; i < byColor.length; i++) byColor[i] = new Bitmap();
+            for (int i = 0; i < bySize.length; i++) bySize[i] = new Bitmap();
+            Bitmap inStock = new Bitmap();
+
+            for (int row = from; row < to; row++) {
+                if (!store.isLive(row)) continue;
+                byColor[store.colorOrdinal(row)].add(row);
+                bySize[store.sizeOrdinal(row)].add(row);
+                if (store.inStock(row)) inStock.add(row);
+            }
+            return new Part(byColor, bySize, inStock);
+        }
+    }
+
+    private static Bitmap join(List<Bitmap> parts) {
+        if (parts.isEmpty()) return new Bitmap();
+        return parts.size() == 1 ? parts.get(0) : Bitmap.union(parts);
+    }
+
+    /**
+     * Index of {@code next}, derived from this index of {@code previous} by moving only the
+     * {@code touched} rows. Bitmaps that none of them enter or leave are shared with this index;
+     * the others are copied before the first change.
+     */
+    ProductIndex update(ProductStore previous, ProductStore next, Bitmap touched) {
+        Bitmap[] colors = byColor.clone();
+        Bitmap[] sizes = bySize.clone();
+        Bitmap[] stock = {inStock};
+        boolean[] copiedColors = new boolean[colors.length];
+        boolean[] copiedSizes = new boolean[sizes.length];
+        boolean[] copiedStock = new boolean[1];
+
+        touched.forEach(row -> {
+            boolean was = row < previous.size() && previous.isLive(row);
+            boolean is = next.isLive(row);
+            move(colors, copiedColors, row, was, is,
+              was ? previous.colorOrdinal(row) : -1, is ? next.colorOrdinal(row) : -1);
+            move(sizes, copiedSizes, row, was, is,
+              was ? previous.sizeOrdinal(row) : -1, is ? next.sizeOrdinal(row) : -1);
+            move(stock, copiedStock, row, was && previous.inStock(row), is && next.inStock(row), 0, 0);
+        });
+        return new ProductIndex(next.live(), colors, sizes, stock[0], price.update(previous, next, touched));
+    }
+
+    /** Takes {@code row} out of bitmap {@code from} and into bitmap {@code to} when it changes. */
+    private static void move(Bitmap[] bitmaps, boolean[] copied, int row, boolean was, boolean is, int from, int to) {
+        if (was && is && from == to) return;
+        if (was) writable(bitmaps, copied, from).remove(row);
+        if (is) writable(bitmaps, copied, to).add(row);
+    }
+
+    private static Bitmap writable(Bitmap[] bitmaps, boolean[] copied, int i) {
+        if (!copied[i]) {
+            bitmaps[i] = bitmaps[i].copy();
+            copied[i] = true;
+        }
+        return bitmaps[i];
+    }
+
+    long serializedSize() {
+        long bytes = 8 + inStock.serializedSize() + price.serializedSize();
+        for (Bitmap b : byColor) bytes += b.serializedSize();
+        for (Bitmap b : bySize) bytes += b.serializedSize();
+        return bytes;
+    }
+
+    /** Everything but the live rows, which the caller stores next to the rows. */
+    void writeTo(ByteBuffer out) {
+        out.putInt(byColor.length);
+        for (Bitmap b : byColor) b.writeTo(out);
+        out.putInt(bySize.length);
+        for (Bitmap b : bySize) b.writeTo(out);
+        inStock.writeTo(out);
+        price.writeTo(out);
+    }
+
+    static ProductIndex readFrom(ByteBuffer in, Bitmap live) {
+        Bitmap[] byColor = readBitmaps(in, Color.values().length);
+        Bitmap[] bySize = readBitmaps(in, Size.values().length);
+        Bitmap inStock = Bitmap.readFrom(in);
+        return new ProductIndex(live, byColor, bySize, inStock, PriceIndex.readFrom(in, live));
+    }
+
+    private static Bitmap[] readBitmaps(ByteBuffer in, int expected) {
+        int n = in.getInt();
+        if (n != expected) throw new IllegalStateException("Index has " + n + " bitmaps, expected " + expected);
+        Bitmap[] bitmaps = new Bitmap[n];
+        for (int i = 0; i < n; i++) bitmaps[i] = Bitmap.readFrom(in);
+        return bitmaps;
+    }
+
+    public Bitmap color(Color color) {
+        return byColor[color.ordinal()];
+    }
+
+    public Bitmap size(Size size) {
+        return bySize[size.ordinal()];
+    }
+
+    public Bitmap inStock() {
+        return inStock;
+    }
+
+    public PriceIndex price() {
+        return price;
+    }
+
+    /** Every live row of the catalog. */
+    public Bitmap all() {
+        return live;
+    }
+
+    public long sizeInBytes() {
+        long bytes = inStock.sizeInBytes() + price.sizeInBytes();
+        for (Bitmap b : byColor) bytes += b.sizeInBytes();
+        for (Bitmap b : bySize) bytes += b.sizeInBytes();
+        return bytes;
+    }
+}
@@ -0,0 +1,363 @@
+package tech.terabyte.labs.vendomita.catalog;
+
+import tech.terabyte.labs.vendomita.model.CatalogBatch;
+import tech.terabyte.labs.vendomita.model.Color;
+import tech.terabyte.labs.vendomita.model.Product;
+import tech.terabyte.labs.vendomita.model.Size;
+import tech.terabyte.labs.vendomita.specification.RowSpecification;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.AbstractList;
+import java.util.LinkedHashMap;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Columnar, read-only view of the catalog.
+ * Attributes live in primitive columns on the heap or in fixed-width rows off the heap
+ * (see {@link StorageMode}); either way scans read them by row number instead of
+ * chasing one {@link Product} reference per row. Names are stored once per distinct
+ * value (on the heap, dictionary-encoded by {@link NameColumn}) and decoded on read.
+ * Prices are stored with cent precision. Bitmap indexes are built with the store; the
+ * {@link NameIndex} the first time a name is searched.
+ * <p>
+ * Every row carries a stable product id; ids grow with the row number, so lookups are a
+ * binary search. Deleted rows stay in the columns as tombstones and are left out of
+ * {@link #count()}, the indexes and every scan until the store is compacted.
+ */
+public final class ProductStore {
+
+    private static final Color[] COLORS = Color.values();
+    private static final Size[] SIZES = Size.values();
+    private static final ProductStore EMPTY = of(List.of());
+    /** A name as its own {@code String} with compressed oops: header and fields, plus the byte[] header. */
+    private static final int STRING_BYTES = 24 + 16;
+
+    private final int size;
+    private final RowStorage rows;
+    private final Bitmap live;
+    private final int count;
+    private final long nextId;
+    private final ProductIndex index;
+    private volatile NameIndex names;
+
+    /**
+     * {@code rows} is owned by the store from here on and never modified.
+     * {@code indexer} builds (or derives) the indexes once the rows are in place.
+     */
+    ProductStore(RowStorage rows, Bitmap live, long nextId, Function<ProductStore, ProductIndex> indexer) {
+        this.size = rows.size();
+        this.rows = rows;
+        this.live = live;
+        this.count = live.cardinality();
+        this.nextId = nextId;
+        this.index = indexer.apply(this);
+    }
+
+    public static ProductStore empty() {
+        return EMPTY;
+    }
+
+    /** Loads {@code products} in order and assigns them ids {@code 1..n}. */
+    public static ProductStore of(List<Product> products) {
+        int n = products.size();
+        String[] names = new String[n];
+        byte[] colors = new byte[n];
+        byte[] sizes = new byte[n];
+        long[] priceCents = new long[n];
+        BitSet inStock = new BitSet(n);
+
+        for (int row = 0; row < n; row++) {
+            Product p = products.get(row);
+            names[row] = p.name();
+            colors[row] = (byte) p.color().ordinal();
+            sizes[row] = (byte) p.size().ordinal();
+            priceCents[row] = toCents(p.price());
+            if (p.inStock()) inStock.set(row);
+        }
+        return ofColumns(names, colors, sizes, priceCents, inStock);
+    }
+
+    /**
+     * Store over already filled columns, with ids {@code 1..n}. The arrays are taken
+     * over, not copied: callers must not touch them afterwards.
+     */
+    public static ProductStore ofColumns(String[] names, byte[] colors, byte[] sizes, long[] priceCents, BitSet inStock) {
+        return ofColumns(NameColumn.encode(names), colors, sizes, priceCents, inStock);
+    }
+
+    /** As {@link #ofColumns(String[], byte[], byte[], long[], BitSet)}, with the names already encoded. */
+    public static ProductStore ofColumns(NameColumn names, byte[] colors, byte[] sizes, long[] priceCents, BitSet inStock) {
+        return ofColumns(names, colors, sizes, priceCents, inStock, RowSegments.SERIAL);
+    }
+
+    /** As {@link #ofColumns(NameColumn, byte[], byte[], long[], BitSet)}, indexing segment by segment on {@code segments}. */
+    public static ProductStore ofColumns(NameColumn names, byte[] colors, byte[] sizes, long[] priceCents, BitSet inStock,
+                                         RowSegments segments) {
+        int n = names.size();
+        if (colors.length != n || sizes.length != n || priceCents.length != n) {
+            throw new IllegalArgumentException("Columns must have the same length");
+        }
+        long[] ids = new long[n];
+        for (int row = 0; row < n; row++) ids[row] = row + 1;
+        return new ProductStore(new HeapRows(ids, names, colors, sizes, priceCents, inStock),
+          Bitmap.range(0, n), n + 1, store -> ProductIndex.build(store, segments));
+    }
+
+    /**
+     * Same products with their attributes in {@code mode} storage. Rows keep their
+     * numbers, so the indexes are shared instead of rebuilt.
+     */
+    public ProductStore withStorage(StorageMode mode) {
+        if (rows.mode() == mode) return this;
+        RowStorage moved = mode == StorageMode.OFF_HEAP ? OffHeapRows.copyOf(rows) : rows.toHeap();
+        ProductStore store = new ProductStore(moved, live, nextId, s -> index);
+        store.names = names;
+        return store;
+    }
+
+    /**
+     * Same rows with every id shifted so none is below {@code firstId}, for a store that
+     * replaces the whole catalog: its ids continue after the previous catalog's instead of
+     * reusing them. Row numbers do not change, so the indexes are shared, and heap rows
+     * share their columns too (see {@link HeapRows#idShift}).
+     */
+    ProductStore withIdsFrom(long firstId) {
+        long shift = size == 0 ? 0 : Math.max(0, firstId - rows.id(0));
+        if (shift == 0 && nextId >= firstId) return this;
+        RowStorage shifted = shift > 0 ? rows.toHeap().shifted(shift) : rows;
+        ProductStore store = new ProductStore(shifted, live, Math.max(nextId + shift, firstId), s -> index);
+        store.names = names;
+        return store;
+    }
+
+    public StorageMode storageMode() {
+        return rows.mode();
+    }
+
+    /**
+     * Off-heap bytes this store shares with {@code other} instead of holding a copy, e.g.
+     * the pages a batch left untouched; {@code 0} unless both are off-heap.
+     */
+    public long sharedOffHeapBytes(ProductStore other) {
+        return rows instanceof OffHeapRows mine && other.rows instanceof OffHeapRows theirs ? mine.sharedBytes(theirs) : 0;
+    }
+
+    /**
+     * Estimated footprint of the store next to the same products held as a
+     * {@code List<Product>}, for comparing storage modes, with the names on their own:
+     * as stored, and as one {@code String} per product.
+     */
+    public Map<String, Object> memoryReport() {
+        long heap = rows.heapBytes();
+        long offHeap = rows.offHeapBytes();
+        NameIndex built = names;
+        long indexes = index.sizeInBytes() + live.sizeInBytes() + (built != null ? built.sizeInBytes() : 0);
+        long nameChars = 0;
+        for (int row = 0; row < size; row++) {
+            if (live.contains(row)) nameChars += rows.nameLength(row);
+        }
+        long productList = 16 + 4L * count + (40 + 24 + 16 + STRING_BYTES) * (long) count + nameChars;
+        var report = new LinkedHashMap<String, Object>();
+        report.put("storage", rows.mode().value());
+        report.put("rows", size);
+        report.put("products", count);
+        report.put("heapBytes", heap);
+        report.put("offHeapBytes", offHeap);
+        report.put("indexBytes", indexes);
+        report.put("nameBytes", rows.nameStorageBytes());
+        report.put("nameStringBytes", STRING_BYTES * (long) count + nameChars);
+        report.put("productListBytes", productList);
+        report.put("bytesPerProduct", perProduct(heap + offHeap + indexes));
+        report.put("productListBytesPerProduct", perProduct(productList));
+        return report;
+    }
+
+    private double perProduct(long bytes) {
+        return count == 0 ? 0 : Math.round(bytes * 10.0 / count) / 10.0;
+    }
+
+    /**
+     * Applies {@code batch} as a delta: only the columns and indexes it touches are
+     * copied, and this store is left unchanged for the readers still using it.
+     */
+    public StoreDelta apply(CatalogBatch batch) {
+        return new StoreWriter(this).apply(batch);
+    }
+
+    /** Number of rows, including deleted ones; row numbers are below this. */
+    public int size() {
+        return size;
+    }
+
+    /** Number of live products. */
+    public int count() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public boolean hasDeletions() {
+        return count < size;
+    }
+
+    public boolean isLive(int row) {
+        return live.contains(row);
+    }
+
+    public long id(int row) {
+        return rows.id(row);
+    }
+
+    /** Row of the live product with {@code id}, or {@code -1}. */
+    public int rowOf(long id) {
+        int lo = 0, hi = size - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long found = rows.id(mid);
+            if (found < id) lo = mid + 1;
+            else if (found > id) hi = mid - 1;
+            else return live.contains(mid) ? mid : -1;
+        }
+        return -1;
+    }
+
+    /**
+     * Id the next inserted product gets; ids of deleted products are never reused, not
+     * even by a catalog published in place of this one (see {@link Catalog#publish}).
+     */
+    public long nextId() {
+        return nextId;
+    }
+
+    /** Decodes the name of {@code row}; prefer {@link #appendName} or {@link #compareNames} in loops. */
+    public String name(int row) {
+        return rows.name(row);
+    }
+
+    public void appendName(int row, StringBuilder into) {
+        rows.appendName(row, into);
+    }
+
+    /** {@code name(a).compareTo(name(b))}, mostly without decoding either. */
+    public int compareNames(int a, int b) {
+        return rows.compareNames(a, b);
+    }
+
+    /** Equal for two rows exactly when their names are equal. */
+    int nameCode(int row) {
+        return rows.nameCode(row);
+    }
+
+    public byte colorOrdinal(int row) {
+        return rows.colorOrdinal(row);
+    }
+
+    public byte sizeOrdinal(int row) {
+        return rows.sizeOrdinal(row);
+    }
+
+    public long priceCents(int row) {
+        return rows.priceCents(row);
+    }
+
+    public boolean inStock(int row) {
+        return rows.inStock(row);
+    }
+
+    public ProductIndex index() {
+        return index;
+    }
+
+    /** Name index of the live rows, built on the first call. */
+    public NameIndex names() {
+        NameIndex built = names;
+        if (built == null) {
+            synchronized (this) {
+                built = names;
+                if (built == null) names = built = NameIndex.build(this);
+            }
+        }
+        return built;
+    }
+
+    /**
+     * Carries the name index of {@code previous} over to this store, patched for the
+     * {@code touched} rows, if {@code previous} had built one.
+     */
+    void inheritNames(ProductStore previous, Bitmap touched) {
+        NameIndex built = previous.names;
+        if (built != null) names = built.update(this, touched);
+    }
+
+    /** Materializes a single row. */
+    public Product get(int row) {
+        return new Product(
+          rows.id(row),
+          rows.name(row),
+          COLORS[rows.colorOrdinal(row)],
+          SIZES[rows.sizeOrdinal(row)],
+          toPrice(rows.priceCents(row)),
+          rows.inStock(row)
+        );
+    }
+
+    /** Live rows satisfying {@code spec}, in catalog order. */
+    public IntStream scan(RowSpecification spec) {
+        IntStream rows = hasDeletions() ? live.stream() : IntStream.range(0, size);
+        return rows.filter(spec::isSatisfied);
+    }
+
+    /**
+     * Live {@link Product} view, materialized on access.
+     * Lets the object-based {@code Specification<Product>} path run over the same data.
+     */
+    public List<Product> asList() {
+        int[] liveRows = hasDeletions() ? live.toArray() : null;
+        return new AbstractList<>() {
+            @Override
+            public Product get(int index) {
+                return ProductStore.this.get(liveRows != null ? liveRows[index] : index);
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
+    }
+
+    // rows and live rows, for the writer and the index builders
+    RowStorage rows() {
+        return rows;
+    }
+
+    Bitmap live() {
+        return live;
+    }
+
+    public static long toCents(BigDecimal price) {
+        return price.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    public static BigDecimal toPrice(long cents) {
+        return cents % 100 == 0 ? BigDecimal.valueOf(cents / 100) : BigDecimal.valueOf(cents, 2);
+    }
+
+    /**
+     * Smallest cent amount {@code c} such that {@code price < threshold} is equivalent
+     * to {@code cents(price) < c}. Saturates instead of overflowing.
+     */
+    public static long centsCeiling(BigDecimal threshold) {
+        BigDecimal cents = threshold.movePointRight(2).setScale(0, RoundingMode.CEILING);
+        if (cents.compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) >= 0) return Long.MAX_VALUE;
+        if (cents.compareTo(BigDecimal.valueOf(Long.MIN_VALUE)) <= 0) return Long.MIN_VALUE;
+        return cents.longValue();
+    }
+}
@@ -0,0 +1,83 @@
+package tech.terabyte.labs.vendomita.catalog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Splits rows {@code [0, size)} into segments of {@link #ROWS} rows and runs a task per
+ * segment, on a dedicated {@link ForkJoinPool} once {@code size} reaches the threshold and
+ * on the calling thread below it. A segment is exactly one {@link Bitmap} chunk and a whole
+ * number of mask words, so per-segment results never overlap and come back in row order.
+ */
+public final class RowSegments {
+
+    /** Rows per segment: one bitmap chunk, 1024 mask words. */
+    public static final int ROWS = 1 << 16;
+
+    /** Always runs on the calling thread. */
+    public static final RowSegments SERIAL = new RowSegments(null, Integer.MAX_VALUE);
+
+    /** Work on the rows {@code [from, to)} of one segment. */
+    @FunctionalInterface
+    public interface Task<T> {
+        T run(int from, int to);
+    }
+
+    private final ForkJoinPool pool;
+    private final int threshold;
+    private final LongAdder pooled = new LongAdder();
+
+    public RowSegments(ForkJoinPool pool, int threshold) {
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+    /** Segments on {@code pool} for anything larger than one segment; serial without a pool. */
+    public static RowSegments on(ForkJoinPool pool) {
+        return pool == null ? SERIAL : new RowSegments(pool, ROWS + 1);
+    }
+
+    /** Results of {@code task} for each segment of {@code [0, size)}, in segment order. */
+    public <T> List<T> map(int size, Task<T> task) {
+        List<T> results = new ArrayList<>(size / ROWS + 1);
+        if (!parallel(size)) {
+            for (int from = 0; from < size; from += ROWS) results.add(task.run(from, Math.min(size, from + ROWS)));
+            return results;
+        }
+        List<ForkJoinTask<T>> running = new ArrayList<>(size / ROWS + 1);
+        for (int from = 0; from < size; from += ROWS) {
+            int start = from;
+            int end = Math.min(size, from + ROWS);
+            running.add(pool.submit(() -> task.run(start, end)));
+        }
+        for (ForkJoinTask<T> segment : running) results.add(segment.join());
+        pooled.add(running.size());
+        return results;
+    }
+
+    /**
+     * Runs {@code action} inside the pool when {@code size} rows are worth splitting, so the
+     * fork/join work it starts (such as {@link java.util.Arrays#parallelSort}) stays there.
+     */
+    public void run(int size, Runnable action) {
+        if (parallel(size)) pool.submit(action).join();
+        else action.run();
+    }
+
+    /** Whether {@code size} rows are split across the pool. */
+    public boolean parallel(int size) {
+        return pool != null && pool.getParallelism() > 1 && size >= threshold && size > ROWS;
+    }
+
+    public int parallelism() {
+        return pool == null ? 1 : pool.getParallelism();
+    }
+
+    /** Segments run on the pool so far. */
+    public long pooledSegments() {
+        return pooled.sum();
+    }
+}
@@ -0,0 +1,54 @@
+package tech.terabyte.labs.vendomita.catalog;
+
+/**
+ * Where a {@link ProductStore} keeps its rows. Accessors read one field of one row
+ * without materializing anything else.
+ */
+sealed interface RowStorage permits HeapRows, OffHeapRows {
+
+    int size();
+
+    long id(int row);
+
+    String name(int row);
+
+    /**
+     * Equal codes mean equal names. Equal names share a code on the heap; off the heap
+     * a name written by a batch may get a code of its own.
+     */
+    int nameCode(int row);
+
+    default void appendName(int row, StringBuilder into) {
+        into.append(name(row));
+    }
+
+    default int nameLength(int row) {
+        return name(row).length();
+    }
+
+    default int compareNames(int a, int b) {
+        return name(a).compareTo(name(b));
+    }
+
+    byte colorOrdinal(int row);
+
+    byte sizeOrdinal(int row);
+
+    long priceCents(int row);
+
+    boolean inStock(int row);
+
+    /** Plain-array copy of the rows, for writers; heap storage returns itself. */
+    HeapRows toHeap();
+
+    StorageMode mode();
+
+    /** Bytes held on the Java heap (estimated). */
+    long heapBytes();
+
+    /** Bytes held outside the Java heap. */
+    long offHeapBytes();
+
+    /** Bytes of {@link #heapBytes()} or {@link #offHeapBytes()} that hold names, per-row references included. */
+    long nameStorageBytes();
+}
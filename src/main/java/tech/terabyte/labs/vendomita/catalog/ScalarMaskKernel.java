@@ -0,0 +1,52 @@
+package tech.terabyte.labs.vendomita.catalog;
+
+/** {@link MaskKernel} one row at a time, building each word in a register. */
+final class ScalarMaskKernel implements MaskKernel {
+
+    static final ScalarMaskKernel INSTANCE = new ScalarMaskKernel();
+
+    private ScalarMaskKernel() {
+    }
+
+    @Override
+    public void equal(byte[] column, int from, int to, byte value, long[] out) {
+        for (int base = from; base < to; base += 64) {
+            int end = Math.min(to, base + 64);
+            long word = 0;
+            for (int i = base; i < end; i++) {
+                if (column[i] == value) word |= 1L << i;
+            }
+            out[(base - from) >>> 6] |= word;
+        }
+    }
+
+    @Override
+    public void less(long[] column, int from, int to, long bound, long[] out) {
+        for (int base = from; base < to; base += 64) {
+            int end = Math.min(to, base + 64);
+            long word = 0;
+            for (int i = base; i < end; i++) {
+                if (column[i] < bound) word |= 1L << i;
+            }
+            out[(base - from) >>> 6] |= word;
+        }
+    }
+
+    @Override
+    public void between(long[] column, int from, int to, long min, long max, long[] out) {
+        for (int base = from; base < to; base += 64) {
+            int end = Math.min(to, base + 64);
+            long word = 0;
+            for (int i = base; i < end; i++) {
+                long v = column[i];
+                if (v >= min && v < max) word |= 1L << i;
+            }
+            out[(base - from) >>> 6] |= word;
+        }
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,195 @@
+package tech.terabyte.labs.vendomita.catalog;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Binary catalog snapshot: a page-sized header followed by three page-aligned
+ * sections, each with its own CRC32C.
+ * <pre>
+ *   header  magic, format, rows, catalog version, next id, section table, header CRC
+ *   ROWS    fixed-width rows, as in {@link OffHeapRows}
+ *   NAMES   name area, as in {@link OffHeapRows}
+ *   INDEX   live rows, then the {@link ProductIndex} bitmaps and price index
+ * </pre>
+ * Reading maps ROWS and NAMES and serves them in place, so loading does not touch
+ * each row; only the index section is copied to the heap, in bulk. Heap rows are
+ * streamed out in that layout a page at a time. Files are written to a temporary
+ * sibling, forced to disk and moved over the target.
+ */
+public final class SnapshotFile {
+
+    static final long MAGIC = 0x50414E534D444E56L; // "VNDMSNAP"
+    static final int FORMAT = 1;
+
+    private static final int PAGE = 4096;
+    private static final int SECTIONS = 3;
+    private static final int ROWS = 0, NAMES = 1, INDEX = 2;
+    private static final int TABLE = 32;
+    private static final int HEADER_CRC = TABLE + SECTIONS * 24;
+
+    private SnapshotFile() {
+    }
+
+    public static void write(CatalogSnapshot snapshot, Path path) throws IOException {
+        ProductStore store = snapshot.store();
+        ByteBuffer index = ByteBuffer.allocate(checkedSize(store.live().serializedSize() + store.index().serializedSize()))
+          .order(ByteOrder.LITTLE_ENDIAN);
+        store.live().writeTo(index);
+        store.index().writeTo(index);
+        index.flip();
+
+        Path dir = path.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        Path tmp = Files.createTempFile(dir, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                // the row area has a known size, so rows and names are streamed side by side
+                Section[] sections = new Section[SECTIONS];
+                sections[ROWS] = new Section(channel, PAGE);
+                sections[NAMES] = new Section(channel, align(PAGE + (long) store.size() * OffHeapRows.ROW_BYTES));
+                if (store.rows() instanceof OffHeapRows mapped) {
+                    for (ByteBuffer part : mapped.rowBytes()) sections[ROWS].write(part);
+                    for (ByteBuffer part : mapped.nameBytes()) sections[NAMES].write(part);
+                } else {
+                    OffHeapRows.encode(store.rows(), sections[ROWS]::write, sections[NAMES]::write);
+                }
+                sections[INDEX] = new Section(channel, align(sections[NAMES].end));
+                sections[INDEX].write(index);
+
+                writeFully(channel, header(snapshot, sections), 0);
+                channel.force(true);
+            }
+            Files.move(tmp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /** A section being written: where it starts, where the next bytes go and their CRC so far. */
+    private static final class Section {
+        final FileChannel channel;
+        final long start;
+        long end;
+        final CRC32C crc = new CRC32C();
+
+        Section(FileChannel channel, long start) {
+            this.channel = channel;
+            this.start = start;
+            this.end = start;
+        }
+
+        void write(ByteBuffer bytes) throws IOException {
+            crc.update(bytes.duplicate());
+            end = writeFully(channel, bytes, end);
+        }
+    }
+
+    private static ByteBuffer header(CatalogSnapshot snapshot, Section[] sections) {
+        ByteBuffer header = ByteBuffer.allocate(PAGE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putLong(0, MAGIC);
+        header.putInt(8, FORMAT);
+        header.putInt(12, snapshot.store().size());
+        header.putLong(16, snapshot.version());
+        header.putLong(24, snapshot.store().nextId());
+        for (int i = 0; i < SECTIONS; i++) {
+            int at = TABLE + i * 24;
+            header.putLong(at, sections[i].start);
+            header.putLong(at + 8, sections[i].end - sections[i].start);
+            header.putInt(at + 16, (int) sections[i].crc.getValue());
+        }
+        header.putInt(HEADER_CRC, crc(header.duplicate().limit(HEADER_CRC)));
+        return header;
+    }
+
+    /**
+     * Maps the snapshot at {@code path}. The header and index are always checked against
+     * their CRCs; the row and name areas only with {@code verifyRows}, which reads them
+     * once and so makes loading time grow with the catalog. {@link #verify} checks them later.
+     */
+    public static CatalogSnapshot read(Path path, boolean verifyRows) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = header(channel, path);
+            int size = header.getInt(12);
+            long version = header.getLong(16);
+            long nextId = header.getLong(24);
+            MappedByteBuffer[] sections = new MappedByteBuffer[SECTIONS];
+            for (int i = 0; i < SECTIONS; i++) sections[i] = section(channel, header, path, i, i == INDEX || verifyRows);
+            if (sections[ROWS].capacity() != (long) size * OffHeapRows.ROW_BYTES) throw corrupt(path, "row area size");
+
+            try {
+                ByteBuffer index = sections[INDEX].order(ByteOrder.LITTLE_ENDIAN);
+                Bitmap live = Bitmap.readFrom(index);
+                ProductIndex productIndex = ProductIndex.readFrom(index, live);
+                OffHeapRows rows = new OffHeapRows(sections[ROWS], sections[NAMES], size);
+                return new CatalogSnapshot(version, new ProductStore(rows, live, nextId, store -> productIndex));
+            } catch (IllegalStateException | BufferUnderflowException | IndexOutOfBoundsException e) {
+                throw corrupt(path, e.getMessage());
+            }
+        }
+    }
+
+    /** Checks every section of the snapshot at {@code path} against its CRC, reading the whole file once. */
+    public static void verify(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = header(channel, path);
+            for (int i = 0; i < SECTIONS; i++) section(channel, header, path, i, true);
+        }
+    }
+
+    private static ByteBuffer header(FileChannel channel, Path path) throws IOException {
+        if (channel.size() < PAGE) throw corrupt(path, "shorter than its header");
+        ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, PAGE).order(ByteOrder.LITTLE_ENDIAN);
+        if (header.getLong(0) != MAGIC) throw corrupt(path, "not a catalog snapshot");
+        if (header.getInt(8) != FORMAT) throw corrupt(path, "unsupported format " + header.getInt(8));
+        if (crc(header.duplicate().limit(HEADER_CRC)) != header.getInt(HEADER_CRC)) throw corrupt(path, "header checksum");
+        return header;
+    }
+
+    private static MappedByteBuffer section(FileChannel channel, ByteBuffer header, Path path, int i, boolean check)
+      throws IOException {
+        int at = TABLE + i * 24;
+        long offset = header.getLong(at);
+        long length = header.getLong(at + 8);
+        if (offset < PAGE || length < 0 || length > Integer.MAX_VALUE || offset + length > channel.size()) {
+            throw corrupt(path, "section " + i + " out of bounds");
+        }
+        MappedByteBuffer section = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+        if (check && crc(section.duplicate()) != header.getInt(at + 16)) throw corrupt(path, "section " + i + " checksum");
+        return section;
+    }
+
+    /** Writes all of {@code buffer} at {@code position} and returns the position after it. */
+    private static long writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) position += channel.write(buffer, position);
+        return position;
+    }
+
+    private static int crc(ByteBuffer buffer) {
+        CRC32C crc = new CRC32C();
+        crc.update(buffer);
+        return (int) crc.getValue();
+    }
+
+    private static long align(long offset) {
+        return (offset + PAGE - 1) / PAGE * PAGE;
+    }
+
+    private static int checkedSize(long bytes) {
+        if (bytes > Integer.MAX_VALUE) throw new IllegalArgumentException("Index section over 2 GB");
+        return (int) bytes;
+    }
+
+    private static IOException corrupt(Path path, String reason) {
+        return new IOException("Corrupt catalog snapshot " + path + ": " + reason);
+    }
+}
@@ -0,0 +1,26 @@
+package tech.terabyte.labs.vendomita.catalog;
+
+import java.util.Arrays;
+
+/** Where product attributes live; see {@code vendomita.catalog.storage}. */
+public enum StorageMode {
+    HEAP("heap"),
+    OFF_HEAP("off-heap");
+
+    private final String value;
+
+    StorageMode(String value) {
+        this.value = value;
+    }
+
+    public String value() {
+        return value;
+    }
+
+    public static StorageMode from(String value) {
+        return Arrays.stream(values())
+          .filter(m -> m.value.equalsIgnoreCase(value) || m.name().equalsIgnoreCase(value))
+          .findFirst()
+          .orElseThrow(() -> new IllegalArgumentException("Unknown storage mode: " + value));
+    }
+}
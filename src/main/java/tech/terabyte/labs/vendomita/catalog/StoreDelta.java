@@ -0,0 +1,13 @@
+package tech.terabyte.labs.vendomita.catalog;
+
+/**
+ * Outcome of applying a batch to a {@link ProductStore}.
+ *
+ * @param touched  rows whose attributes or liveness changed; row numbers are the same in
+ *                 both stores unless {@code compacted}
+ * @param ids      product id of each upsert entry, in request order
+ * @param compacted the new store dropped its tombstones and renumbered its rows
+ */
+public record StoreDelta(ProductStore store, Bitmap touched, long[] ids,
+                         int inserted, int updated, int deleted, boolean compacted) {
+}
@@ -0,0 +1,250 @@
+package tech.terabyte.labs.vendomita.catalog;
+
+import tech.terabyte.labs.vendomita.model.CatalogBatch;
+import tech.terabyte.labs.vendomita.model.Color;
+import tech.terabyte.labs.vendomita.model.ProductUpsert;
+import tech.terabyte.labs.vendomita.model.Size;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Applies a {@link CatalogBatch} to a store copy-on-write: a column is copied the first
+ * time the batch writes to it and shared with the base store otherwise, so flipping
+ * {@code inStock} copies the stock bits and nothing else. Off-heap stores stay off-heap:
+ * only the pages holding written rows are copied (see {@link OffHeapRows.Editor}).
+ * Indexes, including a built {@link NameIndex}, are patched for the touched rows only.
+ * New names extend the base store's name dictionary rather than re-encoding it. Once
+ * tombstones outnumber live rows the result is compacted.
+ */
+final class StoreWriter {
+
+    private final ProductStore base;
+    /** Set for off-heap bases, which leave the heap columns below unused. */
+    private final OffHeapRows.Editor offHeap;
+
+    private long[] ids;
+    /** Added to {@link #ids}, as in {@link HeapRows#idShift}. */
+    private long idShift;
+    private final NameColumn names;
+    private NameColumn.Encoder encoder;
+    private int[] nameCodes;
+    private byte[] colors;
+    private byte[] sizes;
+    private long[] priceCents;
+    private BitSet inStock;
+    private Bitmap live;
+    private boolean namesCopied, colorsCopied, sizesCopied, pricesCopied, stockCopied;
+
+    StoreWriter(ProductStore base) {
+        this.base = base;
+        this.live = base.live();
+        if (base.rows() instanceof OffHeapRows rows) {
+            this.offHeap = rows.edit();
+            this.names = null;
+            return;
+        }
+        HeapRows rows = base.rows().toHeap();
+        this.offHeap = null;
+        this.ids = rows.ids();
+        this.idShift = rows.idShift();
+        this.names = rows.names();
+        this.nameCodes = names.codes();
+        this.colors = rows.colors();
+        this.sizes = rows.sizes();
+        this.priceCents = rows.priceCents();
+        this.inStock = rows.inStock();
+    }
+
+    StoreDelta apply(CatalogBatch batch) {
+        int n = base.size();
+        int inserts = (int) batch.upsert().stream().filter(u -> u != null && u.id() == null).count();
+        if (inserts > 0) grow(n + inserts);
+
+        Bitmap touched = new Bitmap();
+        long[] assigned = new long[batch.upsert().size()];
+        long nextId = base.nextId();
+        int inserted = 0, updated = 0, deleted = 0;
+
+        for (int i = 0; i < assigned.length; i++) {
+            ProductUpsert u = batch.upsert().get(i);
+            if (u == null) throw new IllegalArgumentException("Upsert entries must not be null");
+            int row;
+            if (u.id() == null) {
+                row = n + inserted++;
+                assigned[i] = nextId++;
+                live.add(row);
+                insert(row, assigned[i], u);
+            } else {
+                row = base.rowOf(u.id());
+                if (row < 0) throw new IllegalArgumentException("Unknown product id: " + u.id());
+                update(row, u);
+                assigned[i] = u.id();
+                updated++;
+            }
+            touched.add(row);
+        }
+
+        for (Long id : batch.delete()) {
+            if (id == null) throw new IllegalArgumentException("Delete ids must not be null");
+            int row = base.rowOf(id);
+            if (row < 0 || !live.contains(row)) continue;
+            liveCopy().remove(row);
+            touched.add(row);
+            deleted++;
+        }
+
+        int total = n + inserted;
+        int alive = live.cardinality();
+        if (total - alive > alive) {
+            return new StoreDelta(compact(nextId), touched, assigned, inserted, updated, deleted, true);
+        }
+        Bitmap changed = touched;
+        RowStorage rows = offHeap != null ? offHeap.rows() : new HeapRows(ids, nameColumn(), colors, sizes, priceCents, inStock, idShift);
+        ProductStore next = new ProductStore(rows, live, nextId, store -> base.index().update(base, store, changed));
+        next.inheritNames(base, changed);
+        return new StoreDelta(next, touched, assigned, inserted, updated, deleted, false);
+    }
+
+    private void insert(int row, long id, ProductUpsert u) {
+        if (u.name() == null || u.color() == null || u.size() == null || u.price() == null) {
+            throw new IllegalArgumentException("New products require 'name', 'color', 'size' and 'price'");
+        }
+        if (offHeap != null) {
+            offHeap.append(id, u.name(), (byte) color(u.color()).ordinal(), (byte) size(u.size()).ordinal(),
+              cents(u.price()), Boolean.TRUE.equals(u.inStock()));
+            return;
+        }
+        ids[row] = id - idShift;
+        nameCodes[row] = encoder().encode(u.name());
+        colors[row] = (byte) color(u.color()).ordinal();
+        sizes[row] = (byte) size(u.size()).ordinal();
+        priceCents[row] = cents(u.price());
+        if (Boolean.TRUE.equals(u.inStock())) inStock.set(row);
+    }
+
+    private void update(int row, ProductUpsert u) {
+        if (offHeap != null) {
+            if (u.name() != null) offHeap.setName(row, u.name());
+            if (u.color() != null) offHeap.setColor(row, (byte) color(u.color()).ordinal());
+            if (u.size() != null) offHeap.setSize(row, (byte) size(u.size()).ordinal());
+            if (u.price() != null) offHeap.setPrice(row, cents(u.price()));
+            if (u.inStock() != null && u.inStock() != offHeap.inStock(row)) offHeap.setInStock(row, u.inStock());
+            return;
+        }
+        if (u.name() != null) namesCopy()[row] = encoder().encode(u.name());
+        if (u.color() != null) colorsCopy()[row] = (byte) color(u.color()).ordinal();
+        if (u.size() != null) sizesCopy()[row] = (byte) size(u.size()).ordinal();
+        if (u.price() != null) pricesCopy()[row] = cents(u.price());
+        if (u.inStock() != null && u.inStock() != inStock.get(row)) stockCopy().set(row, u.inStock());
+    }
+
+    /** Inserts append rows, so every heap column is copied once at the new length. */
+    private void grow(int length) {
+        liveCopy();
+        if (offHeap != null) return;
+        ids = Arrays.copyOf(ids, length);
+        nameCodes = Arrays.copyOf(nameCodes, length);
+        colors = Arrays.copyOf(colors, length);
+        sizes = Arrays.copyOf(sizes, length);
+        priceCents = Arrays.copyOf(priceCents, length);
+        namesCopied = colorsCopied = sizesCopied = pricesCopied = true;
+        stockCopy();
+    }
+
+    private ProductStore compact(long nextId) {
+        int[] rows = live.toArray();
+        int m = rows.length;
+        if (offHeap != null) {
+            return new ProductStore(OffHeapRows.copyOf(offHeap.rows(), rows), Bitmap.range(0, m), nextId, ProductIndex::build);
+        }
+        long[] cIds = new long[m];
+        int[] cNames = new int[m];
+        byte[] cColors = new byte[m];
+        byte[] cSizes = new byte[m];
+        long[] cPrices = new long[m];
+        BitSet cStock = new BitSet(m);
+        for (int i = 0; i < m; i++) {
+            int row = rows[i];
+            cIds[i] = ids[row] + idShift;
+            cNames[i] = nameCodes[row];
+            cColors[i] = colors[row];
+            cSizes[i] = sizes[row];
+            cPrices[i] = priceCents[row];
+            if (inStock.get(row)) cStock.set(i);
+        }
+        return new ProductStore(new HeapRows(cIds, nameColumn().withCodes(cNames), cColors, cSizes, cPrices, cStock), Bitmap.range(0, m), nextId,
+          ProductIndex::build);
+    }
+
+    private int[] namesCopy() {
+        if (!namesCopied) {
+            nameCodes = nameCodes.clone();
+            namesCopied = true;
+        }
+        return nameCodes;
+    }
+
+    private NameColumn.Encoder encoder() {
+        if (encoder == null) encoder = names.encoder();
+        return encoder;
+    }
+
+    /** The base column when no name was written, else its dictionary plus the new names. */
+    private NameColumn nameColumn() {
+        if (encoder != null) return encoder.column(nameCodes);
+        return nameCodes == names.codes() ? names : names.withCodes(nameCodes);
+    }
+
+    private byte[] colorsCopy() {
+        if (!colorsCopied) {
+            colors = colors.clone();
+            colorsCopied = true;
+        }
+        return colors;
+    }
+
+    private byte[] sizesCopy() {
+        if (!sizesCopied) {
+            sizes = sizes.clone();
+            sizesCopied = true;
+        }
+        return sizes;
+    }
+
+    private long[] pricesCopy() {
+        if (!pricesCopied) {
+            priceCents = priceCents.clone();
+            pricesCopied = true;
+        }
+        return priceCents;
+    }
+
+    private BitSet stockCopy() {
+        if (!stockCopied) {
+            inStock = (BitSet) inStock.clone();
+            stockCopied = true;
+        }
+        return inStock;
+    }
+
+    private Bitmap liveCopy() {
+        if (live == base.live()) live = live.copy();
+        return live;
+    }
+
+    private static Color color(String color) {
+        return Color.from(color);
+    }
+
+    private static Size size(String size) {
+        return Size.from(size);
+    }
+
+    private static long cents(BigDecimal price) {
+        if (price.signum() < 0) throw new IllegalArgumentException("Price must not be negative: " + price);
+        if (price.stripTrailingZeros().scale() > 2) throw new IllegalArgumentException("Price must be in whole cents: " + price);
+        return ProductStore.toCents(price);
+    }
+}
@@ -0,0 +1,40 @@
+package tech.terabyte.labs.vendomita.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import tech.terabyte.labs.vendomita.catalog.RowSegments;
+import tech.terabyte.labs.vendomita.model.Product;
+import tech.terabyte.labs.vendomita.specification.impl.ParallelFilter;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Dedicated pool for catalog scans, so large queries neither compete with nor
+ * starve the common pool used by the rest of the JVM.
+ */
+@Configuration
+public class ScanConfig {
+
+    @Bean(destroyMethod = "shutdown")
+    public ForkJoinPool scanPool(@Value("${vendomita.scan.parallelism:0}") int parallelism) {
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        return new ForkJoinPool(threads);
+    }
+
+    @Bean
+    public ParallelFilter<Product> productFilter(ForkJoinPool scanPool,
+                                                 @Value("${vendomita.scan.parallel-threshold:100000}") int parallelThreshold,
+                                                 @Value("${vendomita.scan.segment-size:16384}") int segmentSize) {
+        return new ParallelFilter<>(scanPool, parallelThreshold, segmentSize);
+    }
+
+    @Bean
+    public MeterBinder scanMetrics(ParallelFilter<Product> productFilter) {
+        return registry -> FunctionCounter.builder("vendomita.scan.segments", productFilter.segments(), RowSegments::pooledSegments)
+          .description("Row segments evaluated on the scan pool")
+          .register(registry);
+    }
+}
@@ -1,51 +1,116 @@
 package tech.terabyte.labs.vendomita.controller;
 
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.Resource;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import tech.terabyte.labs.vendomita.catalog.Bitmap;
+import tech.terabyte.labs.vendomita.catalog.Catalog;
+import tech.terabyte.labs.vendomita.catalog.CatalogChange;
+import tech.terabyte.labs.vendomita.catalog.CatalogSnapshot;
+import tech.terabyte.labs.vendomita.catalog.ProductStore;
+import tech.terabyte.labs.vendomita.catalog.StoreDelta;
+import tech.terabyte.labs.vendomita.exception.CatalogNotReadyException;
+import tech.terabyte.labs.vendomita.export.ExportFormat;
+import tech.terabyte.labs.vendomita.export.ProductExporter;
 import tech.terabyte.labs.vendomita.filter.CorrelationIdFilter;
+import tech.terabyte.labs.vendomita.metrics.FilterMetrics;
+import tech.terabyte.labs.vendomita.metrics.TimedJsonConverter;
 import tech.terabyte.labs.vendomita.model.ApiResponse;
+import tech.terabyte.labs.vendomita.model.CatalogBatch;
 import tech.terabyte.labs.vendomita.model.Color;
+import tech.terabyte.labs.vendomita.model.Facets;
+import tech.terabyte.labs.vendomita.model.FilterBatch;
 import tech.terabyte.labs.vendomita.model.Product;
+import tech.terabyte.labs.vendomita.model.ResultPage;
 import tech.terabyte.labs.vendomita.model.Size;
-import tech.terabyte.labs.vendomita.specification.Filter;
+import tech.terabyte.labs.vendomita.query.CachedQuery;
+import tech.terabyte.labs.vendomita.query.FacetCounter;
+import tech.terabyte.labs.vendomita.query.PageCursor;
+import tech.terabyte.labs.vendomita.query.QueryCache;
+import tech.terabyte.labs.vendomita.query.SortOrder;
+import tech.terabyte.labs.vendomita.query.SortedRows;
 import tech.terabyte.labs.vendomita.specification.SpecDto;
-import tech.terabyte.labs.vendomita.specification.Specification;
-import tech.terabyte.labs.vendomita.specification.factory.SpecParser;
+import tech.terabyte.labs.vendomita.specification.factory.SpecSyntax;
 import tech.terabyte.labs.vendomita.specification.utility.ProductGenerator;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/products")
 public class VendomitaController {
 
-    private List<Product> products;
-    private final SpecParser specParser;
+    public static final String CATALOG_VERSION_HEADER = "X-Catalog-Version";
 
-    public VendomitaController(SpecParser specParser) {
-        this.products = new ArrayList<>();
-        this.specParser = specParser;
+    private final Catalog catalog;
+    private final QueryCache queryCache;
+    private final ForkJoinPool scanPool;
+    private final FilterMetrics metrics;
+
+    public VendomitaController(Catalog catalog, QueryCache queryCache, ForkJoinPool scanPool, FilterMetrics metrics) {
+        this.catalog = catalog;
+        this.queryCache = queryCache;
+        this.scanPool = scanPool;
+        this.metrics = metrics;
     }
 
+    /**
+     * Replaces the catalog with {@code count} random products; the same {@code seed} gives
+     * the same products. Their ids continue after the previous catalog's, from {@code firstId}.
+     */
     @GetMapping("/generate")
-    public ResponseEntity<ApiResponse<Map<String, ?>>> generate(@RequestParam(defaultValue = "50") int count) {
-        this.products = ProductGenerator.generate(count);
-        var meta = Map.of("count", products.size());
+    public ResponseEntity<ApiResponse<Map<String, ?>>> generate(
+      @RequestParam(defaultValue = "50") int count,
+      @RequestParam(required = false) Long seed) {
+
+        long s = seed != null ? seed : ProductGenerator.randomSeed();
+        // se construye fuera de la vista de los lectores y se publica de una sola vez
+        CatalogSnapshot snapshot = catalog.publish(ProductGenerator.generateStore(count, s, scanPool));
+        queryCache.clear();
+        // los ids siguen tras los del catálogo anterior: un id antiguo nunca nombra otro producto
+        ProductStore store = snapshot.store();
+        long firstId = store.size() > 0 ? store.id(0) : store.nextId();
+        var meta = Map.of("count", store.count(), "seed", s, "firstId", firstId, "catalogVersion", snapshot.version());
         return ResponseEntity.ok(ApiResponse.success("Catalog generated", meta, meta));
     }
 
+    /**
+     * Applies upserts and deletes as one batch on top of the current catalog. Each product
+     * keeps its id for life; entries without an id are inserted and get a new one.
+     * Readers keep using the snapshot they pinned while the batch is applied.
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<ApiResponse<List<Long>>> applyBatch(@RequestBody CatalogBatch batch) {
+        CatalogChange change = catalog.apply(batch);
+        queryCache.advance(change);
+
+        StoreDelta delta = change.delta();
+        var meta = new LinkedHashMap<String, Object>();
+        meta.put("inserted", delta.inserted());
+        meta.put("updated", delta.updated());
+        meta.put("deleted", delta.deleted());
+        meta.put("count", delta.store().count());
+        meta.put("catalogVersion", change.current().version());
+        return ResponseEntity.ok(ApiResponse.success("Batch applied", Arrays.stream(delta.ids()).boxed().toList(), meta));
+    }
+
     @GetMapping("/specs")
     public ResponseEntity<ApiResponse<Map<String, Object>>> getAvailableSpecs() {
         var data = Map.of(
@@ -57,77 +122,264 @@ public class VendomitaController {
         return ResponseEntity.ok(ApiResponse.success("Available specifications", data));
     }
 
+    @GetMapping("/cache")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> cacheStats() {
+        var stats = queryCache.stats();
+        return ResponseEntity.ok(ApiResponse.success("Query cache stats", stats, Map.of("catalogVersion", catalog.current().version())));
+    }
+
+    /** Storage mode and estimated memory of the current catalog, next to a {@code List<Product>} of it. */
+    @GetMapping("/catalog")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> catalogStats() {
+        CatalogSnapshot snapshot = catalog.current();
+        return ResponseEntity.ok(ApiResponse.success("Catalog stats", snapshot.store().memoryReport(),
+          Map.of("catalogVersion", snapshot.version())));
+    }
+
     @PostMapping("/filter")
     public ResponseEntity<ApiResponse<List<Product>>> filterProducts(
       @RequestBody SpecDto root,
       @RequestParam(defaultValue = "0") int page,
-      @RequestParam(defaultValue = "20") int size) {
+      @RequestParam(defaultValue = "20") int size,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(required = false) String sort) {
+        return filter(root, page, size, cursor, sort);
+    }
+
+    /** As {@code POST /filter}, with the spec in compact form (see {@link SpecSyntax}), so the URL alone identifies the request. */
+    @GetMapping("/filter")
+    public ResponseEntity<ApiResponse<List<Product>>> filterByQuery(
+      @RequestParam String q,
+      @RequestParam(defaultValue = "0") int page,
+      @RequestParam(defaultValue = "20") int size,
+      @RequestParam(required = false) String cursor,
+      @RequestParam(required = false) String sort) {
+        return filter(query(q), page, size, cursor, sort);
+    }
+
+    private ResponseEntity<ApiResponse<List<Product>>> filter(SpecDto root, int page, int size, String cursor, String sort) {
+        SortOrder order = sort != null ? SortOrder.parse(sort) : null;
+        CatalogSnapshot snapshot = requireCatalog();
+        ProductStore store = snapshot.store();
 
-        if (products == null || products.isEmpty()) {
-            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
-              .body(ApiResponse.error("No products available. Generate the catalog first with POST /api/products/generate"));
+        Bitmap matches = queryCache.lookup(root, store, snapshot.version()).rows();
+        ResultPage result = page(matches, snapshot, page, size, cursor, order);
+
+        var meta = new LinkedHashMap<String, Object>(result.meta());
+        meta.put("correlationId", org.slf4j.MDC.get(CorrelationIdFilter.MDC_KEY));
+
+        return ResponseEntity.ok(ApiResponse.success("Filter executed", result.data(), meta));
+    }
+
+    /**
+     * Runs several named specs against one pinned snapshot. Parts the specs have in
+     * common are evaluated once; each spec gets its own page and meta, keyed by name.
+     */
+    @PostMapping("/filter/batch")
+    public ResponseEntity<ApiResponse<Map<String, ResultPage>>> filterBatch(@RequestBody FilterBatch batch) {
+        CatalogSnapshot snapshot = requireCatalog();
+        ProductStore store = snapshot.store();
+
+        Set<String> names = new HashSet<>();
+        for (FilterBatch.Query q : batch.queries()) {
+            if (q == null || q.name() == null || q.name().isBlank()) throw new IllegalArgumentException("Every query needs a 'name'");
+            if (!names.add(q.name())) throw new IllegalArgumentException("Duplicate query name: " + q.name());
+            if (q.spec() == null) throw new IllegalArgumentException("Query '" + q.name() + "' has no 'spec'");
+        }
+
+        List<CachedQuery> results = queryCache.lookupAll(
+          batch.queries().stream().map(FilterBatch.Query::spec).toList(), store, snapshot.version());
+        var data = new LinkedHashMap<String, ResultPage>();
+        for (int i = 0; i < results.size(); i++) {
+            FilterBatch.Query q = batch.queries().get(i);
+            data.put(q.name(), page(results.get(i).rows(), snapshot,
+              q.page() != null ? q.page() : 0, q.size() != null ? q.size() : 20, q.cursor(), null));
         }
 
-        Specification<Product> spec = specParser.fromDto(root);
-        Filter<Product> filter = (items, s) -> items.stream().filter(s::isSatisfied);
+        var meta = new LinkedHashMap<String, Object>();
+        meta.put("queries", data.size());
+        meta.put("catalogVersion", snapshot.version());
+        meta.put("correlationId", org.slf4j.MDC.get(CorrelationIdFilter.MDC_KEY));
+        return ResponseEntity.ok(ApiResponse.success("Batch filter executed", data, meta));
+    }
+
+    /**
+     * Counts of the matches of {@code root} by color, size and stock, and a price histogram
+     * of {@code buckets} buckets between {@code priceMin} and {@code priceMax} (by default the
+     * cheapest and dearest match). No product is materialized.
+     */
+    @PostMapping("/facets")
+    public ResponseEntity<ApiResponse<Facets>> facets(
+      @RequestBody SpecDto root,
+      @RequestParam(defaultValue = "10") int buckets,
+      @RequestParam(required = false) BigDecimal priceMin,
+      @RequestParam(required = false) BigDecimal priceMax) {
+
+        CatalogSnapshot snapshot = requireCatalog();
+        ProductStore store = snapshot.store();
+
+        Bitmap matches = queryCache.lookup(root, store, snapshot.version()).rows();
+        Facets facets = FacetCounter.count(matches, store, buckets,
+          priceMin != null ? ProductStore.centsCeiling(priceMin) : null,
+          priceMax != null ? -ProductStore.centsCeiling(priceMax.negate()) : null);
+
+        var meta = new LinkedHashMap<String, Object>();
+        meta.put("catalogVersion", snapshot.version());
+        meta.put("correlationId", org.slf4j.MDC.get(CorrelationIdFilter.MDC_KEY));
+        return ResponseEntity.ok(ApiResponse.success("Facets computed", facets, meta));
+    }
+
+    /** Number of products matching {@code root}; no product is materialized. */
+    @PostMapping("/count")
+    public ResponseEntity<ApiResponse<Map<String, Integer>>> count(@RequestBody SpecDto root) {
+        return countMatches(root);
+    }
+
+    @GetMapping("/count")
+    public ResponseEntity<ApiResponse<Map<String, Integer>>> countByQuery(@RequestParam String q) {
+        return countMatches(query(q));
+    }
+
+    private ResponseEntity<ApiResponse<Map<String, Integer>>> countMatches(SpecDto root) {
+        CatalogSnapshot snapshot = requireCatalog();
+        ProductStore store = snapshot.store();
+
+        int count = queryCache.count(root, store, snapshot.version());
+        return ResponseEntity.ok(ApiResponse.success("Count computed", Map.of("count", count),
+          Map.of("catalogVersion", snapshot.version())));
+    }
+
+    /** Whether any product matches {@code root}; evaluation stops at the first match. */
+    @PostMapping("/exists")
+    public ResponseEntity<ApiResponse<Map<String, Boolean>>> exists(@RequestBody SpecDto root) {
+        return anyMatch(root);
+    }
 
-        List<Product> filtered = filter.filter(products, spec).toList();
+    @GetMapping("/exists")
+    public ResponseEntity<ApiResponse<Map<String, Boolean>>> existsByQuery(@RequestParam String q) {
+        return anyMatch(query(q));
+    }
+
+    private ResponseEntity<ApiResponse<Map<String, Boolean>>> anyMatch(SpecDto root) {
+        CatalogSnapshot snapshot = requireCatalog();
+        ProductStore store = snapshot.store();
+
+        boolean exists = queryCache.exists(root, store, snapshot.version());
+        return ResponseEntity.ok(ApiResponse.success("Existence checked", Map.of("exists", exists),
+          Map.of("catalogVersion", snapshot.version())));
+    }
 
-        int total = filtered.size();
+    /** The snapshot this request pins; an empty catalog answers {@code 412} (see {@link CatalogNotReadyException}). */
+    private CatalogSnapshot requireCatalog() {
+        CatalogSnapshot snapshot = catalog.current();
+        if (snapshot.isEmpty()) throw new CatalogNotReadyException();
+        return snapshot;
+    }
+
+    /** Parses a compact spec from the query string, timed like a JSON body. */
+    private SpecDto query(String q) {
+        long start = System.nanoTime();
+        SpecDto root = SpecSyntax.parse(q);
+        metrics.record(FilterMetrics.Stage.DESERIALIZE, System.nanoTime() - start);
+        TimedJsonConverter.markSpecRequest();
+        return root;
+    }
+
+    /**
+     * Materializes one page of {@code matches}, by cursor when given and by page number otherwise,
+     * in catalog order or in {@code order} when not {@code null}.
+     */
+    private ResultPage page(Bitmap matches, CatalogSnapshot snapshot, int page, int size, String cursor,
+                            SortOrder order) {
+        long start = System.nanoTime();
+        ProductStore store = snapshot.store();
+        int total = matches.cardinality();
         if (size <= 0) size = 20;
         if (page < 0) page = 0;
 
-        int from = Math.min(page * size, total);
-        int to = Math.min(from + size, total);
-        List<Product> pageContent = filtered.subList(from, to);
+        // keyset paging: el cursor trae la última fila entregada; sin cursor, offset por página
+        PageCursor after = cursor != null ? PageCursor.decode(cursor).validFor(snapshot, order) : null;
+        int from;
+        int[] rows;
+        boolean hasNext;
+        if (order != null) {
+            SortedRows.Slice slice = after != null
+              ? SortedRows.after(matches, store, after, size)
+              : SortedRows.page(matches, store, order, (int) Math.min((long) page * size, total), size);
+            from = slice.before();
+            rows = slice.rows();
+            hasNext = slice.more();
+        } else {
+            from = after != null
+              ? matches.rank(after.lastRow())
+              : (int) Math.min((long) page * size, total);
+            rows = matches.page(from, size);
+            hasNext = from + rows.length < total;
+        }
+        List<Product> pageContent = Arrays.stream(rows).mapToObj(store::get).toList();
+        if (cursor != null) page = from / size;
 
         int totalPages = (int) Math.ceil(total / (double) size);
-        boolean hasNext = page + 1 < totalPages;
-        boolean hasPrev = page > 0;
-
-        String cid = org.slf4j.MDC.get(CorrelationIdFilter.MDC_KEY);
-
-        var meta = java.util.Map.of(
-          "total", total,
-          "page", page,
-          "size", size,
-          "returned", pageContent.size(),
-          "totalPages", totalPages,
-          "hasNext", hasNext,
-          "hasPrev", hasPrev,
-          "correlationId", cid
-        );
+        boolean hasPrev = from > 0;
+        String nextCursor = hasNext && rows.length > 0
+          ? PageCursor.after(snapshot, order, rows[rows.length - 1], from + rows.length).encode()
+          : null;
+
+        var meta = new LinkedHashMap<String, Object>();
+        meta.put("total", total);
+        meta.put("page", page);
+        meta.put("size", size);
+        meta.put("returned", pageContent.size());
+        meta.put("totalPages", totalPages);
+        meta.put("hasNext", hasNext);
+        meta.put("hasPrev", hasPrev);
+        meta.put("nextCursor", nextCursor);
+        meta.put("catalogVersion", snapshot.version());
+        metrics.record(FilterMetrics.Stage.PAGE, System.nanoTime() - start);
+        return new ResultPage(pageContent, meta);
 
-        return ResponseEntity.ok(ApiResponse.success("Filter executed", pageContent, meta));
     }
 
 
+    /**
+     * Streams the matches straight to the response in the requested format
+     * ({@code text}, {@code csv} or {@code ndjson}), gzip-compressed when the client
+     * accepts it. Nothing proportional to the result size is buffered, except the row
+     * numbers of a download sorted by anything other than price.
+     */
     @PostMapping("/download")
-    public ResponseEntity<Resource> downloadFromSpec(@RequestBody SpecDto root) {
-        if (products == null || products.isEmpty()) {
-            var msg = "No products available. Generate the catalog first with POST /api/products/generate";
-            var r = new ByteArrayResource(msg.getBytes());
-            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED)
-              .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=info.txt")
-              .contentType(MediaType.TEXT_PLAIN)
-              .body(r);
-        }
+    public void downloadFromSpec(
+      @RequestBody SpecDto root,
+      @RequestParam(defaultValue = "text") String format,
+      @RequestParam(required = false) String sort,
+      @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+      HttpServletResponse response) throws IOException {
 
-        Specification<Product> spec = specParser.fromDto(root);
-        var filtered = products.stream().filter(spec::isSatisfied).toList();
+        ExportFormat exportFormat = ExportFormat.from(format);
+        SortOrder order = sort != null ? SortOrder.parse(sort) : null;
+        CatalogSnapshot snapshot = requireCatalog();
+        ProductStore store = snapshot.store();
 
-        StringBuilder content = new StringBuilder("Filtered Products:\n\n");
-        if (filtered.isEmpty()) {
-            content.append("No matches.\n");
+        Bitmap matches = queryCache.lookup(root, store, snapshot.version()).rows();
+
+        boolean gzip = ProductExporter.acceptsGzip(acceptEncoding);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+          "attachment; filename=filtered-products." + exportFormat.extension());
+        response.setContentType(exportFormat.contentType());
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        response.setHeader(CATALOG_VERSION_HEADER, Long.toString(snapshot.version()));
+        if (gzip) response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+
+        long start = System.nanoTime();
+        PrimitiveIterator.OfInt rows = order != null ? SortedRows.iterator(matches, store, order) : matches.iterator();
+        OutputStream out = response.getOutputStream();
+        if (gzip) {
+            try (GZIPOutputStream zipped = new GZIPOutputStream(out, ProductExporter.CHUNK_SIZE)) {
+                new ProductExporter(store, exportFormat, zipped).write(rows, matches.isEmpty());
+            }
         } else {
-            filtered.forEach(p -> content.append("%s | %s | %s | $%s | %s%n"
-              .formatted(p.name(), p.color(), p.size(), p.price(), p.inStock() ? "IN" : "OUT")));
+            new ProductExporter(store, exportFormat, out).write(rows, matches.isEmpty());
         }
-
-        ByteArrayResource r = new ByteArrayResource(content.toString().getBytes());
-        return ResponseEntity.ok()
-          .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=filtered-products.txt")
-          .contentType(MediaType.TEXT_PLAIN)
-          .body(r);
+        metrics.record(FilterMetrics.Stage.SERIALIZE, System.nanoTime() - start);
     }
 }
\ No newline at end of file
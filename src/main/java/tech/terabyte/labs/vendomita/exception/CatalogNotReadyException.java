@@ -0,0 +1,12 @@
+package tech.terabyte.labs.vendomita.exception;
+
+/**
+ * The catalog is empty, so there is nothing to query yet; answered with
+ * {@code 412 PRECONDITION_FAILED} by {@link GlobalExceptionHandler}.
+ */
+public class CatalogNotReadyException extends RuntimeException {
+
+    public CatalogNotReadyException() {
+        super("No products available. Generate the catalog first with POST /api/products/generate");
+    }
+}
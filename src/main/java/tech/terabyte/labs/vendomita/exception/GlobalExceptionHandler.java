@@ -1,10 +1,14 @@
 package tech.terabyte.labs.vendomita.exception;
 
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.method.HandlerMethod;
 import tech.terabyte.labs.vendomita.model.ApiResponse;
 
 import java.util.Map;
@@ -18,6 +22,33 @@ public class GlobalExceptionHandler {
           .body(ApiResponse.error(ex.getMessage()));
     }
 
+    /**
+     * Malformed JSON, or a body rejected while being read (a spec over its limits, an unknown
+     * color); Jackson wraps errors raised inside nested values, so the cause's message is used.
+     */
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<ApiResponse<Void>> handleUnreadable(HttpMessageNotReadableException ex) {
+        Throwable cause = ex.getMostSpecificCause();
+        String message = cause instanceof IllegalArgumentException ? cause.getMessage() : "Malformed request body";
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+          .body(ApiResponse.error(message));
+    }
+
+    /**
+     * Nothing to query until a catalog is generated. A download, which streams a file instead
+     * of returning an {@link ApiResponse}, gets the message as a text attachment.
+     */
+    @ExceptionHandler(CatalogNotReadyException.class)
+    public ResponseEntity<?> handleCatalogNotReady(CatalogNotReadyException ex, HandlerMethod handler) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.PRECONDITION_FAILED);
+        if (handler != null && handler.isVoid()) {
+            return response.header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=info.txt")
+              .contentType(MediaType.TEXT_PLAIN)
+              .body(ex.getMessage());
+        }
+        return response.body(ApiResponse.error(ex.getMessage()));
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public ResponseEntity<ApiResponse<Void>> handleValidation(MethodArgumentNotValidException ex) {
         var meta = Map.of("fieldErrors", ex.getBindingResult().getFieldErrors());
@@ -0,0 +1,265 @@
+package tech.terabyte.labs.vendomita.export;
+
+import tech.terabyte.labs.vendomita.catalog.Bitmap;
+import tech.terabyte.labs.vendomita.catalog.ProductStore;
+import tech.terabyte.labs.vendomita.model.Color;
+import tech.terabyte.labs.vendomita.model.Size;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.PrimitiveIterator;
+
+/**
+ * Streams rows of a {@link ProductStore} straight from its columns into an
+ * {@link OutputStream}. Rows are encoded into one reusable buffer that is flushed
+ * every {@link #CHUNK_SIZE} bytes, so memory use does not depend on the result size
+ * and no {@code Product} or per-row {@code String} is created; names are decoded
+ * into a reused buffer.
+ */
+public final class ProductExporter {
+
+    public static final int CHUNK_SIZE = 64 * 1024;
+
+    private static final byte[][] COLORS = names(Color.values());
+    private static final byte[][] SIZES = names(Size.values());
+
+    private final ProductStore store;
+    private final ExportFormat format;
+    private final OutputStream out;
+    private final byte[] buffer = new byte[CHUNK_SIZE];
+    private final StringBuilder nameBuffer = new StringBuilder();
+    private int pos;
+
+    public ProductExporter(ProductStore store, ExportFormat format, OutputStream out) {
+        this.store = store;
+        this.format = format;
+        this.out = out;
+    }
+
+    /**
+     * Whether an {@code Accept-Encoding} header allows gzip: {@code gzip} (or {@code x-gzip})
+     * is listed with a q-value above 0, or, when it is not listed, {@code *} is. So
+     * {@code gzip;q=0} refuses it even next to {@code *}.
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        boolean wildcard = false;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] params = entry.split(";");
+            String coding = params[0].trim().toLowerCase(Locale.ROOT);
+            if (coding.equals("gzip") || coding.equals("x-gzip")) return quality(params) > 0;
+            if (coding.equals("*")) wildcard = quality(params) > 0;
+        }
+        return wildcard;
+    }
+
+    /** The {@code q} parameter among {@code params[1..]}, 1 when absent and 0 when malformed. */
+    private static double quality(String[] params) {
+        for (int i = 1; i < params.length; i++) {
+            String param = params[i].trim();
+            if (param.length() < 2 || Character.toLowerCase(param.charAt(0)) != 'q' || param.charAt(1) != '=') continue;
+            try {
+                return Double.parseDouble(param.substring(2).trim());
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        return 1;
+    }
+
+    public void write(Bitmap rows) throws IOException {
+        write(rows.iterator(), rows.isEmpty());
+    }
+
+    /** Writes the rows in the order {@code it} yields them. */
+    public void write(PrimitiveIterator.OfInt it, boolean empty) throws IOException {
+        header(empty);
+        while (it.hasNext()) {
+            int row = it.nextInt();
+            switch (format) {
+                case TEXT -> textRow(row);
+                case CSV -> csvRow(row);
+                case NDJSON -> ndjsonRow(row);
+            }
+            if (pos > CHUNK_SIZE - 512) flush();
+        }
+        flush();
+        out.flush();
+    }
+
+    private void header(boolean empty) throws IOException {
+        switch (format) {
+            case TEXT -> {
+                ascii("Filtered Products:");
+                put('\n');
+                put('\n');
+                if (empty) {
+                    ascii("No matches.");
+                    put('\n');
+                }
+            }
+            case CSV -> ascii("id,name,color,size,price,inStock\n");
+            case NDJSON -> {
+            }
+        }
+    }
+
+    // T-Shirt-7342 | GREEN | LARGE | $899 | IN
+    private void textRow(int row) throws IOException {
+        string(name(row));
+        ascii(" | ");
+        bytes(COLORS[store.colorOrdinal(row)]);
+        ascii(" | ");
+        bytes(SIZES[store.sizeOrdinal(row)]);
+        ascii(" | $");
+        price(store.priceCents(row));
+        ascii(store.inStock(row) ? " | IN" : " | OUT");
+        put('\n');
+    }
+
+    private void csvRow(int row) throws IOException {
+        number(store.id(row));
+        put(',');
+        CharSequence name = name(row);
+        if (needsQuotes(name)) {
+            put('"');
+            for (int i = 0; i < name.length(); ) {
+                int c = Character.codePointAt(name, i);
+                if (c == '"') put('"');
+                codePoint(c);
+                i += Character.charCount(c);
+            }
+            put('"');
+        } else {
+            string(name);
+        }
+        put(',');
+        bytes(COLORS[store.colorOrdinal(row)]);
+        put(',');
+        bytes(SIZES[store.sizeOrdinal(row)]);
+        put(',');
+        price(store.priceCents(row));
+        ascii(store.inStock(row) ? ",true\n" : ",false\n");
+    }
+
+    private void ndjsonRow(int row) throws IOException {
+        ascii("{\"id\":");
+        number(store.id(row));
+        ascii(",\"name\":\"");
+        CharSequence name = name(row);
+        for (int i = 0; i < name.length(); ) {
+            int c = Character.codePointAt(name, i);
+            if (c == '"' || c == '\\') {
+                put('\\');
+                put((byte) c);
+            } else if (c < 0x20) {
+                ascii("\\u00");
+                put((byte) Character.forDigit(c >> 4, 16));
+                put((byte) Character.forDigit(c & 0xF, 16));
+            } else {
+                codePoint(c);
+            }
+            i += Character.charCount(c);
+        }
+        ascii("\",\"color\":\"");
+        bytes(COLORS[store.colorOrdinal(row)]);
+        ascii("\",\"size\":\"");
+        bytes(SIZES[store.sizeOrdinal(row)]);
+        ascii("\",\"price\":");
+        price(store.priceCents(row));
+        ascii(store.inStock(row) ? ",\"inStock\":true}\n" : ",\"inStock\":false}\n");
+    }
+
+    private void price(long cents) throws IOException {
+        if (cents < 0) {
+            put('-');
+            cents = -cents;
+        }
+        number(cents / 100);
+        long fraction = cents % 100;
+        if (fraction != 0) {
+            put('.');
+            put((byte) ('0' + fraction / 10));
+            put((byte) ('0' + fraction % 10));
+        }
+    }
+
+    private void number(long value) throws IOException {
+        if (value >= 10) number(value / 10);
+        put((byte) ('0' + value % 10));
+    }
+
+    /** The name of {@code row}, decoded into a buffer reused from row to row. */
+    private CharSequence name(int row) {
+        nameBuffer.setLength(0);
+        store.appendName(row, nameBuffer);
+        return nameBuffer;
+    }
+
+    private void string(CharSequence s) throws IOException {
+        for (int i = 0; i < s.length(); ) {
+            int c = Character.codePointAt(s, i);
+            codePoint(c);
+            i += Character.charCount(c);
+        }
+    }
+
+    /** UTF-8 without going through {@code String.getBytes}. */
+    private void codePoint(int c) throws IOException {
+        if (c < 0x80) {
+            put((byte) c);
+        } else if (c < 0x800) {
+            put((byte) (0xC0 | c >> 6));
+            put((byte) (0x80 | c & 0x3F));
+        } else if (c < 0x10000) {
+            put((byte) (0xE0 | c >> 12));
+            put((byte) (0x80 | c >> 6 & 0x3F));
+            put((byte) (0x80 | c & 0x3F));
+        } else {
+            put((byte) (0xF0 | c >> 18));
+            put((byte) (0x80 | c >> 12 & 0x3F));
+            put((byte) (0x80 | c >> 6 & 0x3F));
+            put((byte) (0x80 | c & 0x3F));
+        }
+    }
+
+    private void ascii(String s) throws IOException {
+        for (int i = 0; i < s.length(); i++) put((byte) s.charAt(i));
+    }
+
+    private void bytes(byte[] b) throws IOException {
+        for (byte x : b) put(x);
+    }
+
+    private void put(char c) throws IOException {
+        put((byte) c);
+    }
+
+    private void put(byte b) throws IOException {
+        if (pos == buffer.length) flush();
+        buffer[pos++] = b;
+    }
+
+    private void flush() throws IOException {
+        if (pos > 0) {
+            out.write(buffer, 0, pos);
+            pos = 0;
+        }
+    }
+
+    private static boolean needsQuotes(CharSequence s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') return true;
+        }
+        return false;
+    }
+
+    private static byte[][] names(Enum<?>[] values) {
+        byte[][] names = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) names[i] = values[i].name().getBytes(StandardCharsets.US_ASCII);
+        return names;
+    }
+}
@@ -0,0 +1,159 @@
+package tech.terabyte.labs.vendomita.filter;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import static net.logstash.logback.argument.StructuredArguments.kv;
+
+/**
+ * Access log off the request path. Request threads only offer an {@link Entry} to a
+ * bounded queue; a background thread drains it in batches and writes them. A fraction
+ * {@code sampleRate} of successful ({@code 2xx}) requests is kept; slow requests and
+ * every other status, client errors included, always are. When the queue is full the entry is dropped and counted, never waited for.
+ */
+@Component
+public class AccessLog implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(AccessLog.class);
+    private static final int BATCH = 256;
+
+    public record Entry(String method, String uri, int status, long elapsedNanos, String correlationId) {
+    }
+
+    private final ArrayBlockingQueue<Entry> queue;
+    private final double sampleRate;
+    private final long slowNanos;
+    private final Consumer<List<Entry>> sink;
+    private final LongAdder dropped = new LongAdder();
+    private final Thread writer;
+    private volatile boolean running;
+
+    @Autowired
+    public AccessLog(@Value("${vendomita.access-log.capacity:8192}") int capacity,
+                     @Value("${vendomita.access-log.sample-rate:1.0}") double sampleRate,
+                     @Value("${vendomita.access-log.slow-threshold-ms:500}") long slowThresholdMs) {
+        this(capacity, sampleRate, Duration.ofMillis(slowThresholdMs), AccessLog::write);
+    }
+
+    /** {@code sink} receives each drained batch on the writer thread. */
+    public AccessLog(int capacity, double sampleRate, Duration slowThreshold, Consumer<List<Entry>> sink) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.sampleRate = sampleRate;
+        this.slowNanos = slowThreshold.toNanos();
+        this.sink = sink;
+        this.writer = new Thread(this::drainLoop, "access-log");
+        this.writer.setDaemon(true);
+    }
+
+    /**
+     * Queues the entry if sampled; returns whether it was queued. Never blocks.
+     */
+    public boolean record(String method, String uri, int status, long elapsedNanos, String correlationId) {
+        boolean always = status < 200 || status >= 300 || elapsedNanos >= slowNanos;
+        if (!always && !sampled()) return false;
+        if (queue.offer(new Entry(method, uri, status, elapsedNanos, correlationId))) return true;
+        dropped.increment();
+        return false;
+    }
+
+    /** Entries lost because the queue was full. */
+    public long dropped() {
+        return dropped.sum();
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer.start();
+    }
+
+    /**
+     * Stops the writer, which writes whatever is still queued before it exits. The sink is
+     * only ever called from one thread: if the writer is still busy after the timeout it is
+     * left to finish on its own.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (writer.getState() == Thread.State.NEW) {
+            flush(new ArrayList<>(BATCH));
+            return;
+        }
+        writer.interrupt();
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+        if (writer.isAlive()) log.warn("Access log writer still busy at shutdown, {} entries queued", queue.size());
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("vendomita.access-log.dropped", dropped, LongAdder::sum)
+          .description("Access log entries dropped because the queue was full")
+          .register(registry);
+        Gauge.builder("vendomita.access-log.queued", queue, ArrayBlockingQueue::size)
+          .description("Access log entries waiting to be written")
+          .register(registry);
+    }
+
+    private boolean sampled() {
+        return sampleRate >= 1 || sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+
+    private void drainLoop() {
+        List<Entry> batch = new ArrayList<>(BATCH);
+        while (running) {
+            try {
+                Entry first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, BATCH - 1);
+                sink.accept(batch);
+            } catch (InterruptedException e) {
+                break;
+            } catch (RuntimeException e) {
+                log.warn("Could not write access log batch", e);
+            }
+            batch.clear();
+        }
+        // stop() interrupts the wait; the final drain happens here, on the writer thread
+        Thread.interrupted();
+        batch.clear();
+        flush(batch);
+    }
+
+    private void flush(List<Entry> batch) {
+        while (queue.drainTo(batch, BATCH) > 0) {
+            try {
+                sink.accept(batch);
+            } catch (RuntimeException e) {
+                log.warn("Could not write access log batch", e);
+            }
+            batch.clear();
+        }
+    }
+
+    private static void write(List<Entry> batch) {
+        for (Entry e : batch) {
+            log.info("{} {} {} {} {}", kv("method", e.method()), kv("uri", e.uri()), kv("status", e.status()),
+              kv("elapsedMs", e.elapsedNanos() / 1_000_000.0), kv("cid", e.correlationId()));
+        }
+    }
+}
@@ -30,6 +30,8 @@ public class CorrelationIdFilter extends OncePerRequestFilter {
         }
 
         MDC.put(MDC_KEY, correlationId);
+        // también para respuestas escritas directo al stream (p.ej. /download), donde no corre el advice
+        response.setHeader(HEADER, correlationId);
         try {
             chain.doFilter(request, response);
         } finally {
@@ -0,0 +1,31 @@
+package tech.terabyte.labs.vendomita.metrics;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+import tech.terabyte.labs.vendomita.catalog.Catalog;
+
+/** Gauges over the published catalog snapshot. */
+@Component
+public class CatalogMetrics implements MeterBinder {
+
+    private final Catalog catalog;
+
+    public CatalogMetrics(Catalog catalog) {
+        this.catalog = catalog;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("vendomita.catalog.products", catalog, c -> c.current().store().count())
+          .description("Live products in the current catalog")
+          .register(registry);
+        Gauge.builder("vendomita.catalog.rows", catalog, c -> c.current().store().size())
+          .description("Rows in the current catalog, deleted ones included until compaction")
+          .register(registry);
+        Gauge.builder("vendomita.catalog.version", catalog, c -> c.current().version())
+          .description("Version of the current catalog snapshot")
+          .register(registry);
+    }
+}
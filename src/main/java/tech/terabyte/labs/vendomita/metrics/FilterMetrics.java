@@ -0,0 +1,119 @@
+package tech.terabyte.labs.vendomita.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import tech.terabyte.labs.vendomita.catalog.ProductStore;
+import tech.terabyte.labs.vendomita.specification.SpecDto;
+import tech.terabyte.labs.vendomita.specification.factory.SelectionTrace;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters of the filter pipeline. Each {@link Stage} has a timer with a nanosecond
+ * histogram; rows scanned and matched are recorded once per request; selectivity is
+ * the share of live products each leaf matched, per leaf type. Leaves and scanned rows
+ * are only seen when a query is evaluated: a cache hit scans nothing.
+ */
+@Component
+public class FilterMetrics {
+
+    public enum Stage {
+        DESERIALIZE, COMPILE, SCAN, PAGE, SERIALIZE;
+
+        String tag() {
+            return name().toLowerCase();
+        }
+    }
+
+    private final MeterRegistry registry;
+    private final Timer[] stages = new Timer[Stage.values().length];
+    private final DistributionSummary scanned;
+    private final DistributionSummary matched;
+    private final Map<Class<?>, DistributionSummary> selectivity = new ConcurrentHashMap<>();
+
+    @Autowired
+    public FilterMetrics(ObjectProvider<MeterRegistry> registry) {
+        this(registry.getIfAvailable(SimpleMeterRegistry::new));
+    }
+
+    public FilterMetrics(MeterRegistry registry) {
+        this.registry = registry;
+        for (Stage stage : Stage.values()) {
+            stages[stage.ordinal()] = Timer.builder("vendomita.filter.stage")
+              .description("Time spent in each stage of a filter request")
+              .tag("stage", stage.tag())
+              .publishPercentileHistogram()
+              .minimumExpectedValue(Duration.ofNanos(1_000))
+              .maximumExpectedValue(Duration.ofSeconds(10))
+              .register(registry);
+        }
+        scanned = DistributionSummary.builder("vendomita.filter.rows.scanned")
+          .description("Rows read from indexes or tested one by one, per request")
+          .baseUnit("rows")
+          .register(registry);
+        matched = DistributionSummary.builder("vendomita.filter.rows.matched")
+          .description("Rows matching the spec, per request")
+          .baseUnit("rows")
+          .register(registry);
+    }
+
+    /** Metrics that go nowhere, for code built outside Spring. */
+    public static FilterMetrics noop() {
+        return new FilterMetrics(new CompositeMeterRegistry());
+    }
+
+    public void record(Stage stage, long nanos) {
+        stages[stage.ordinal()].record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void rows(long scannedRows, long matchedRows) {
+        scanned.record(scannedRows);
+        matched.record(matchedRows);
+    }
+
+    /** A trace for one evaluation against {@code store}; read {@link Trace#scanned()} once it is done. */
+    public Trace trace(ProductStore store) {
+        return new Trace(store.count());
+    }
+
+    private DistributionSummary selectivity(SpecDto leaf) {
+        return selectivity.computeIfAbsent(leaf.getClass(), type -> DistributionSummary.builder("vendomita.filter.selectivity")
+          .description("Share of live products matched by a leaf spec")
+          .tag("leaf", type.getSimpleName())
+          .register(registry));
+    }
+
+    public final class Trace implements SelectionTrace {
+
+        private final int live;
+        private long scanned;
+
+        private Trace(int live) {
+            this.live = live;
+        }
+
+        @Override
+        public void leaf(SpecDto leaf, int matches) {
+            scanned += matches;
+            selectivity(leaf).record(live == 0 ? 0 : (double) matches / live);
+        }
+
+        @Override
+        public void tested(int rows) {
+            scanned += rows;
+        }
+
+        public long scanned() {
+            return scanned;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package tech.terabyte.labs.vendomita.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import tech.terabyte.labs.vendomita.model.FilterBatch;
+import tech.terabyte.labs.vendomita.specification.SpecDto;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * Spring's JSON converter, timing the {@link FilterMetrics.Stage#DESERIALIZE} of
+ * {@link SpecDto} and {@link FilterBatch} bodies and the {@link FilterMetrics.Stage#SERIALIZE}
+ * of the responses to those requests, and to requests marked by {@link #markSpecRequest()}.
+ * Replaces the converter Spring Boot would otherwise register.
+ */
+@Component
+public class TimedJsonConverter extends MappingJackson2HttpMessageConverter {
+
+    private static final String SPEC_REQUEST = TimedJsonConverter.class.getName() + ".spec";
+
+    private final FilterMetrics metrics;
+
+    public TimedJsonConverter(ObjectMapper objectMapper, FilterMetrics metrics) {
+        super(objectMapper);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) throws IOException {
+        if (type != SpecDto.class && type != FilterBatch.class) return super.read(type, contextClass, inputMessage);
+        long start = System.nanoTime();
+        Object spec = super.read(type, contextClass, inputMessage);
+        metrics.record(FilterMetrics.Stage.DESERIALIZE, System.nanoTime() - start);
+        markSpecRequest();
+        return spec;
+    }
+
+    /** Times the response of the current request as a spec response; for specs read from the query string. */
+    public static void markSpecRequest() {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request != null) request.setAttribute(SPEC_REQUEST, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage) throws IOException {
+        RequestAttributes request = RequestContextHolder.getRequestAttributes();
+        if (request == null || request.getAttribute(SPEC_REQUEST, RequestAttributes.SCOPE_REQUEST) == null) {
+            super.writeInternal(object, type, outputMessage);
+            return;
+        }
+        long start = System.nanoTime();
+        super.writeInternal(object, type, outputMessage);
+        metrics.record(FilterMetrics.Stage.SERIALIZE, System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,15 @@
+package tech.terabyte.labs.vendomita.model;
+
+import java.util.List;
+
+/**
+ * Changes applied to the catalog as one unit: {@code upsert} in order, then {@code delete}.
+ * Either list may be omitted.
+ */
+public record CatalogBatch(List<ProductUpsert> upsert, List<Long> delete) {
+
+    public CatalogBatch {
+        upsert = upsert == null ? List.of() : upsert;
+        delete = delete == null ? List.of() : delete;
+    }
+}
@@ -1,5 +1,15 @@
 package tech.terabyte.labs.vendomita.model;
 
 public enum Color {
-    RED, GREEN, BLUE, BLACK
+    RED, GREEN, BLUE, BLACK;
+
+    private static final Color[] VALUES = values();
+
+    /** Case-insensitive lookup that, unlike {@code valueOf(s.toUpperCase())}, allocates nothing. */
+    public static Color from(String color) {
+        for (Color c : VALUES) {
+            if (c.name().equalsIgnoreCase(color)) return c;
+        }
+        throw new IllegalArgumentException("Unsupported color: " + color + " (use RED, GREEN, BLUE or BLACK)");
+    }
 }
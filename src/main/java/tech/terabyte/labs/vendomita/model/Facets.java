@@ -0,0 +1,21 @@
+package tech.terabyte.labs.vendomita.model;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Match counts of a spec broken down by attribute. Price buckets are
+ * {@code from <= price < to}, the same bounds as a {@code PriceBetweenSpecification},
+ * so a bucket can be turned straight into a filter.
+ */
+public record Facets(int total, Map<Color, Integer> color, Map<Size, Integer> size, Map<Boolean, Integer> inStock,
+                     PriceHistogram price) {
+
+    /** {@code min} and {@code max} are the cheapest and dearest match, {@code null} when nothing matched. */
+    public record PriceHistogram(BigDecimal min, BigDecimal max, List<Bucket> buckets) {
+    }
+
+    public record Bucket(BigDecimal from, BigDecimal to, int count) {
+    }
+}
@@ -0,0 +1,19 @@
+package tech.terabyte.labs.vendomita.model;
+
+import tech.terabyte.labs.vendomita.specification.SpecDto;
+
+import java.util.List;
+
+/**
+ * Several named filters answered in one request. Each query pages like {@code /filter}:
+ * {@code page} and {@code size} default to 0 and 20 and {@code cursor} is optional.
+ */
+public record FilterBatch(List<Query> queries) {
+
+    public FilterBatch {
+        queries = queries == null ? List.of() : queries;
+    }
+
+    public record Query(String name, SpecDto spec, Integer page, Integer size, String cursor) {
+    }
+}
@@ -2,5 +2,13 @@ package tech.terabyte.labs.vendomita.model;
 
 import java.math.BigDecimal;
 
-public record Product(String name, Color color, Size size, BigDecimal price, boolean inStock) {
+/**
+ * A catalog product. {@code id} is assigned by the catalog when the product is loaded
+ * or inserted and never changes afterwards; {@code 0} means not assigned yet.
+ */
+public record Product(long id, String name, Color color, Size size, BigDecimal price, boolean inStock) {
+
+    public Product(String name, Color color, Size size, BigDecimal price, boolean inStock) {
+        this(0, name, color, size, price, inStock);
+    }
 }
@@ -0,0 +1,11 @@
+package tech.terabyte.labs.vendomita.model;
+
+import java.math.BigDecimal;
+
+/**
+ * One entry of a catalog batch. Without {@code id} it inserts a new product and every
+ * field but {@code inStock} is required. With {@code id} it updates that product and
+ * only the non-null fields change, so {@code {"id": 7, "inStock": false}} just flips stock.
+ */
+public record ProductUpsert(Long id, String name, String color, String size, BigDecimal price, Boolean inStock) {
+}
@@ -0,0 +1,8 @@
+package tech.terabyte.labs.vendomita.model;
+
+import java.util.List;
+import java.util.Map;
+
+/** One page of matches with its paging meta, as {@code /filter} returns it. */
+public record ResultPage(List<Product> data, Map<String, ?> meta) {
+}
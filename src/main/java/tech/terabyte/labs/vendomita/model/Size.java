@@ -1,5 +1,15 @@
 package tech.terabyte.labs.vendomita.model;
 
 public enum Size {
-    SMALL, MEDIUM, LARGE
+    SMALL, MEDIUM, LARGE;
+
+    private static final Size[] VALUES = values();
+
+    /** Case-insensitive lookup that, unlike {@code valueOf(s.toUpperCase())}, allocates nothing. */
+    public static Size from(String size) {
+        for (Size s : VALUES) {
+            if (s.name().equalsIgnoreCase(size)) return s;
+        }
+        throw new IllegalArgumentException("Unsupported size: " + size + " (use SMALL, MEDIUM or LARGE)");
+    }
 }
@@ -0,0 +1,16 @@
+package tech.terabyte.labs.vendomita.query;
+
+import tech.terabyte.labs.vendomita.catalog.Bitmap;
+import tech.terabyte.labs.vendomita.specification.SpecDto;
+
+/**
+ * A spec evaluated against one catalog version: its canonical tree and the matching rows.
+ * It holds nothing bound to the store, so a cached entry does not keep an old catalog
+ * reachable. {@code rows} is shared between requests and must not be modified.
+ */
+public record CachedQuery(SpecDto spec, long catalogVersion, Bitmap rows) {
+
+    long sizeInBytes() {
+        return 64 + spec.toString().length() * 2L + rows.sizeInBytes();
+    }
+}
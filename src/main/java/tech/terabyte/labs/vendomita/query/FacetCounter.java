@@ -0,0 +1,98 @@
+package tech.terabyte.labs.vendomita.query;
+
+import tech.terabyte.labs.vendomita.catalog.Bitmap;
+import tech.terabyte.labs.vendomita.catalog.ProductIndex;
+import tech.terabyte.labs.vendomita.catalog.ProductStore;
+import tech.terabyte.labs.vendomita.model.Color;
+import tech.terabyte.labs.vendomita.model.Facets;
+import tech.terabyte.labs.vendomita.model.Size;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Facet counts over a result set. Color, size and stock counts are intersection sizes
+ * against the attribute bitmaps, so nothing is materialized; the price histogram reads
+ * the price column of the matching rows only.
+ */
+public final class FacetCounter {
+
+    public static final int MAX_BUCKETS = 1000;
+
+    /** Bucket widths are whole multiples of this, one display unit (a dollar). */
+    private static final long UNIT_CENTS = 100;
+
+    private FacetCounter() {
+    }
+
+    /**
+     * Facets of {@code matches} with a {@code buckets}-bucket price histogram spanning
+     * {@code [minCents, maxCents]}; a {@code null} bound defaults to the cheapest or
+     * dearest match, the cheapest rounded down to a whole dollar. Matches outside explicit
+     * bounds are left out of the histogram.
+     * <p>
+     * Buckets are {@code [from, to)} and as wide as needed to cover the span, rounded up to
+     * whole dollars, so the last bucket's {@code to} is past {@code maxCents} by less than
+     * one bucket, and fewer buckets than asked may be needed.
+     */
+    public static Facets count(Bitmap matches, ProductStore store, int buckets, Long minCents, Long maxCents) {
+        if (buckets < 1 || buckets > MAX_BUCKETS) {
+            throw new IllegalArgumentException("buckets must be between 1 and " + MAX_BUCKETS + ": " + buckets);
+        }
+        if (minCents != null && minCents < 0 || maxCents != null && maxCents < 0) {
+            throw new IllegalArgumentException("Price bounds must not be negative");
+        }
+        if (minCents != null && maxCents != null && minCents > maxCents) {
+            throw new IllegalArgumentException("Price min must not exceed max");
+        }
+        ProductIndex index = store.index();
+        int total = matches.cardinality();
+
+        Map<Color, Integer> colors = new EnumMap<>(Color.class);
+        for (Color c : Color.values()) colors.put(c, matches.andCardinality(index.color(c)));
+        Map<Size, Integer> sizes = new EnumMap<>(Size.class);
+        for (Size s : Size.values()) sizes.put(s, matches.andCardinality(index.size(s)));
+        int inStock = matches.andCardinality(index.inStock());
+        Map<Boolean, Integer> stock = new LinkedHashMap<>();
+        stock.put(true, inStock);
+        stock.put(false, total - inStock);
+
+        return new Facets(total, colors, sizes, stock, histogram(matches, store, buckets, minCents, maxCents));
+    }
+
+    private static Facets.PriceHistogram histogram(Bitmap matches, ProductStore store, int buckets, Long minCents,
+                                                   Long maxCents) {
+        if (matches.isEmpty()) return new Facets.PriceHistogram(null, null, List.of());
+
+        long[] range = {Long.MAX_VALUE, Long.MIN_VALUE};
+        matches.forEach(row -> {
+            long cents = store.priceCents(row);
+            if (cents < range[0]) range[0] = cents;
+            if (cents > range[1]) range[1] = cents;
+        });
+        long from = minCents != null ? minCents : range[0] / UNIT_CENTS * UNIT_CENTS;
+        // acotado para que los límites de los buckets no desborden
+        long to = Math.min(maxCents != null ? maxCents : range[1], Long.MAX_VALUE / 4);
+        BigDecimal min = ProductStore.toPrice(range[0]), max = ProductStore.toPrice(range[1]);
+        if (to < from) return new Facets.PriceHistogram(min, max, List.of());
+        long width = Math.ceilDiv(Math.ceilDiv(to - from + 1, buckets), UNIT_CENTS) * UNIT_CENTS;
+
+        int[] counts = new int[buckets];
+        matches.forEach(row -> {
+            long cents = store.priceCents(row);
+            if (cents >= from && cents <= to) counts[(int) ((cents - from) / width)]++;
+        });
+
+        List<Facets.Bucket> out = new ArrayList<>(buckets);
+        for (int b = 0; b < buckets; b++) {
+            long lo = from + b * width;
+            if (lo > to) break;
+            out.add(new Facets.Bucket(ProductStore.toPrice(lo), ProductStore.toPrice(lo + width), counts[b]));
+        }
+        return new Facets.PriceHistogram(min, max, out);
+    }
+}
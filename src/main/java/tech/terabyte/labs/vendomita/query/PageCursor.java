@@ -0,0 +1,68 @@
+package tech.terabyte.labs.vendomita.query;
+
+import tech.terabyte.labs.vendomita.catalog.CatalogSnapshot;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Opaque keyset cursor: the last row returned by the previous page, with its sort key
+ * ({@link SortedRows#key}, {@code null} in catalog order) and how many matches had been
+ * returned up to it. The next page starts right after the (key, row) pair, so deep pages
+ * cost the same as the first one, and a row whose key a batch has since changed does not
+ * move the page.
+ * <p>
+ * Row numbers only name the same products until the catalog is replaced or compacted,
+ * so the cursor carries the {@link CatalogSnapshot#rowsVersion()} it was issued on and
+ * the order of its pages ({@code null} for catalog order), and is refused under any other.
+ */
+public record PageCursor(long rowsVersion, SortOrder order, int lastRow, String lastKey, int seen) {
+
+    private static final String PREFIX = "r3";
+
+    /** Cursor past {@code lastRow} of {@code snapshot}, the {@code seen}-th match returned in {@code order}. */
+    public static PageCursor after(CatalogSnapshot snapshot, SortOrder order, int lastRow, int seen) {
+        String key = order != null ? SortedRows.key(snapshot.store(), order, lastRow) : null;
+        return new PageCursor(snapshot.rowsVersion(), order, lastRow, key, seen);
+    }
+
+    public String encode() {
+        // the key goes last: a name may contain the separator
+        String raw = PREFIX + ':' + rowsVersion + ':' + (order != null ? order.value() : "") + ':' + lastRow
+          + ':' + seen + ':' + (lastKey != null ? lastKey : "");
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static PageCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split(":", 6);
+            if (parts.length != 6 || !parts[0].equals(PREFIX)) throw new IllegalArgumentException("Invalid cursor");
+            SortOrder order = parts[2].isEmpty() ? null : SortOrder.parse(parts[2]);
+            String key = order != null ? parts[5] : null;
+            if (order != null && order.key() != SortOrder.Key.NAME) Long.parseLong(key);
+            return new PageCursor(Long.parseLong(parts[1]), order, Integer.parseInt(parts[3]), key,
+              Integer.parseInt(parts[4]));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor: " + cursor);
+        }
+    }
+
+    /** This cursor, if it can continue paging {@code snapshot} in {@code order}. */
+    public PageCursor validFor(CatalogSnapshot snapshot, SortOrder order) {
+        if (rowsVersion != snapshot.rowsVersion()) {
+            throw new IllegalArgumentException("Cursor is from before the catalog was replaced or compacted"
+              + " (catalog version " + snapshot.version() + "); start again without cursor");
+        }
+        if (!Objects.equals(this.order, order)) {
+            throw new IllegalArgumentException("Cursor was issued for sort " + describe(this.order) + ", not " + describe(order));
+        }
+        if (lastRow < 0 || lastRow >= snapshot.store().size()) throw new IllegalArgumentException("Invalid cursor");
+        return this;
+    }
+
+    private static String describe(SortOrder order) {
+        return order != null ? order.value() : "catalog order";
+    }
+}
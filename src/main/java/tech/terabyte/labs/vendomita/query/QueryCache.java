@@ -0,0 +1,266 @@
+package tech.terabyte.labs.vendomita.query;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tech.terabyte.labs.vendomita.catalog.Bitmap;
+import tech.terabyte.labs.vendomita.catalog.CatalogChange;
+import tech.terabyte.labs.vendomita.catalog.ProductStore;
+import tech.terabyte.labs.vendomita.metrics.FilterMetrics;
+import tech.terabyte.labs.vendomita.specification.RowSpecification;
+import tech.terabyte.labs.vendomita.specification.SpecDto;
+import tech.terabyte.labs.vendomita.specification.factory.SpecParser;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU cache of compiled queries, keyed by the canonical spec tree (see
+ * {@link tech.terabyte.labs.vendomita.specification.factory.SpecRewriter}) and the
+ * catalog version. Entries are evicted when either the entry count or the estimated
+ * size of the cached row sets goes over its limit.
+ * <p>
+ * A batch only records which rows it touched ({@link #advance}); an entry of an older
+ * version is carried over to the current one the first time it is asked for there.
+ */
+@Component
+public class QueryCache {
+
+    private record Key(SpecDto spec, long catalogVersion) {
+    }
+
+    private record Entry(CachedQuery query, long bytes) {
+    }
+
+    /** Rows a batch touched, and the version it was applied to. */
+    private record Step(long from, Bitmap touched) {
+    }
+
+    /** Batches kept for carrying entries over; an entry older than that is evaluated afresh. */
+    private static final int MAX_STEPS = 64;
+
+    private final SpecParser specParser;
+    private final FilterMetrics metrics;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    /** By the version each batch produced; guarded by {@code entries}. */
+    private final LinkedHashMap<Long, Step> steps = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Step> eldest) {
+            return size() > MAX_STEPS;
+        }
+    };
+    private long bytes;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public QueryCache(SpecParser specParser, int maxEntries, long maxBytes) {
+        this(specParser, FilterMetrics.noop(), maxEntries, maxBytes);
+    }
+
+    @Autowired
+    public QueryCache(SpecParser specParser, FilterMetrics metrics,
+                      @Value("${vendomita.query-cache.max-entries:512}") int maxEntries,
+                      @Value("${vendomita.query-cache.max-bytes:67108864}") long maxBytes) {
+        this.specParser = specParser;
+        this.metrics = metrics;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Cached query for {@code root} on the given catalog version, evaluating it on a miss. Concurrent misses for the same key may both evaluate;
+     * the last one wins, which is harmless because the results are identical.
+     * Records the compile and scan stages and the rows scanned and matched.
+     */
+    public CachedQuery lookup(SpecDto root, ProductStore store, long catalogVersion) {
+        long start = System.nanoTime();
+        SpecDto canonical = specParser.normalize(root);
+        Key key = new Key(canonical, catalogVersion);
+
+        CachedQuery cached = find(canonical, store, catalogVersion);
+        if (cached != null) {
+            hits.increment();
+            metrics.record(FilterMetrics.Stage.COMPILE, System.nanoTime() - start);
+            metrics.rows(0, cached.rows().cardinality());
+            return cached;
+        }
+        misses.increment();
+        long compiled = System.nanoTime();
+        metrics.record(FilterMetrics.Stage.COMPILE, compiled - start);
+
+        FilterMetrics.Trace trace = metrics.trace(store);
+        Bitmap rows = specParser.select(canonical, store, trace);
+        metrics.record(FilterMetrics.Stage.SCAN, System.nanoTime() - compiled);
+        metrics.rows(trace.scanned(), rows.cardinality());
+
+        CachedQuery query = new CachedQuery(canonical, catalogVersion, rows);
+        put(key, query);
+        return query;
+    }
+
+    /**
+     * Cached queries for several roots on the same catalog version, in order. The misses
+     * are evaluated together (see {@link SpecParser#selectAll}), so parts they have in
+     * common are computed once. Stages and rows are recorded once for the whole batch.
+     */
+    public List<CachedQuery> lookupAll(List<SpecDto> roots, ProductStore store, long catalogVersion) {
+        long start = System.nanoTime();
+        CachedQuery[] found = new CachedQuery[roots.size()];
+        Map<SpecDto, List<Integer>> missing = new LinkedHashMap<>();
+        for (int i = 0; i < found.length; i++) {
+            SpecDto canonical = specParser.normalize(roots.get(i));
+            List<Integer> positions = missing.get(canonical);
+            if (positions != null) {
+                positions.add(i);
+                continue;
+            }
+            found[i] = find(canonical, store, catalogVersion);
+            if (found[i] == null) missing.computeIfAbsent(canonical, spec -> new ArrayList<>()).add(i);
+        }
+        hits.add(found.length - missing.size());
+        misses.add(missing.size());
+
+        List<SpecDto> specs = new ArrayList<>(missing.keySet());
+        long compiled = System.nanoTime();
+        metrics.record(FilterMetrics.Stage.COMPILE, compiled - start);
+
+        long scanned = 0;
+        if (!specs.isEmpty()) {
+            FilterMetrics.Trace trace = metrics.trace(store);
+            List<Bitmap> rows = specParser.selectAll(specs, store, trace);
+            metrics.record(FilterMetrics.Stage.SCAN, System.nanoTime() - compiled);
+            scanned = trace.scanned();
+            for (int m = 0; m < specs.size(); m++) {
+                CachedQuery query = new CachedQuery(specs.get(m), catalogVersion, rows.get(m));
+                put(new Key(specs.get(m), catalogVersion), query);
+                for (int i : missing.get(specs.get(m))) found[i] = query;
+            }
+        }
+        long matched = 0;
+        for (CachedQuery query : found) matched += query.rows().cardinality();
+        metrics.rows(scanned, matched);
+        return List.of(found);
+    }
+
+    /**
+     * Number of matches of {@code root}: the cardinality of the cached rows on a hit, otherwise
+     * {@link SpecParser#count}, which builds no result set. Nothing is cached on a miss.
+     */
+    public int count(SpecDto root, ProductStore store, long catalogVersion) {
+        long start = System.nanoTime();
+        SpecDto canonical = specParser.normalize(root);
+        CachedQuery cached = peek(canonical, store, catalogVersion);
+        int count = cached != null ? cached.rows().cardinality() : specParser.count(canonical, store);
+        metrics.record(FilterMetrics.Stage.SCAN, System.nanoTime() - start);
+        return count;
+    }
+
+    /** Whether {@code root} matches anything; like {@link #count}, but stops at the first match. */
+    public boolean exists(SpecDto root, ProductStore store, long catalogVersion) {
+        long start = System.nanoTime();
+        SpecDto canonical = specParser.normalize(root);
+        CachedQuery cached = peek(canonical, store, catalogVersion);
+        boolean exists = cached != null ? !cached.rows().isEmpty() : specParser.exists(canonical, store);
+        metrics.record(FilterMetrics.Stage.SCAN, System.nanoTime() - start);
+        return exists;
+    }
+
+    private CachedQuery peek(SpecDto canonical, ProductStore store, long catalogVersion) {
+        CachedQuery cached = find(canonical, store, catalogVersion);
+        if (cached == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return cached;
+    }
+
+    /**
+     * Entry for {@code canonical} on {@code catalogVersion}, or one of an older version carried
+     * over to it: only the rows the batches since then touched are re-tested, against the spec
+     * compiled for {@code store}, and the rest of the cached result is kept. The older entry
+     * stays for requests still pinned to its version and ages out as usual.
+     */
+    private CachedQuery find(SpecDto canonical, ProductStore store, long catalogVersion) {
+        Entry older = null;
+        Bitmap touched = null;
+        synchronized (entries) {
+            Entry cached = entries.get(new Key(canonical, catalogVersion));
+            if (cached != null) return cached.query();
+            Step step;
+            for (long version = catalogVersion; older == null && (step = steps.get(version)) != null; version = step.from()) {
+                touched = touched == null ? step.touched() : touched.or(step.touched());
+                older = entries.get(new Key(canonical, step.from()));
+            }
+        }
+        if (older == null) return null;
+        RowSpecification predicate = specParser.compile(canonical, store);
+        Bitmap rows = older.query().rows().andNot(touched).or(touched.filter(predicate));
+        CachedQuery query = new CachedQuery(canonical, catalogVersion, rows);
+        put(new Key(canonical, catalogVersion), query);
+        return query;
+    }
+
+    /**
+     * Records the rows {@code change} touched, so entries of the previous version are carried
+     * over lazily (see {@link #find}). A compacted store renumbers its rows, so it drops them all.
+     */
+    public void advance(CatalogChange change) {
+        if (change.delta().compacted()) {
+            clear();
+            return;
+        }
+        synchronized (entries) {
+            steps.put(change.current().version(), new Step(change.previous().version(), change.delta().touched()));
+        }
+    }
+
+    /** Drops every entry; called when the catalog is replaced. */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            steps.clear();
+            bytes = 0;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        synchronized (entries) {
+            return Map.of(
+              "entries", entries.size(),
+              "bytes", bytes,
+              "maxEntries", maxEntries,
+              "maxBytes", maxBytes,
+              "hits", hits.sum(),
+              "misses", misses.sum(),
+              "evictions", evictions.sum()
+            );
+        }
+    }
+
+    private void put(Key key, CachedQuery query) {
+        long size = query.sizeInBytes();
+        if (maxEntries <= 0 || size > maxBytes) return;
+
+        synchronized (entries) {
+            Entry previous = entries.put(key, new Entry(query, size));
+            if (previous != null) bytes -= previous.bytes();
+            bytes += size;
+
+            Iterator<Entry> eldest = entries.values().iterator();
+            while ((entries.size() > maxEntries || bytes > maxBytes) && eldest.hasNext()) {
+                bytes -= eldest.next().bytes();
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+}
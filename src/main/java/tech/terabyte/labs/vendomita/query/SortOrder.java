@@ -0,0 +1,36 @@
+package tech.terabyte.labs.vendomita.query;
+
+import java.util.Locale;
+
+/**
+ * Requested order of a result: a key, ascending or descending. Ties are broken by row,
+ * so the order is total and pages never overlap; descending is the exact reverse.
+ * Colors and sizes sort by their declaration order.
+ */
+public record SortOrder(Key key, boolean descending) {
+
+    public enum Key { PRICE, NAME, SIZE, COLOR }
+
+    /** {@code key} or {@code key,asc|desc}, as in {@code ?sort=price,desc}; case-insensitive. */
+    public static SortOrder parse(String sort) {
+        String[] parts = sort.split(",", -1);
+        if (parts.length > 2) throw new IllegalArgumentException("Invalid sort: " + sort + " (use key or key,asc|desc)");
+        Key key;
+        try {
+            key = Key.valueOf(parts[0].trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unsupported sort key: " + parts[0] + " (use price, name, size or color)");
+        }
+        String direction = parts.length == 2 ? parts[1].trim().toLowerCase(Locale.ROOT) : "asc";
+        return switch (direction) {
+            case "asc" -> new SortOrder(key, false);
+            case "desc" -> new SortOrder(key, true);
+            default -> throw new IllegalArgumentException("Unsupported sort direction: " + parts[1] + " (use asc or desc)");
+        };
+    }
+
+    /** As accepted by {@link #parse}, e.g. {@code price,desc}. */
+    public String value() {
+        return key.name().toLowerCase(Locale.ROOT) + (descending ? ",desc" : ",asc");
+    }
+}
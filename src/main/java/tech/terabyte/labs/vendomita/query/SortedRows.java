@@ -0,0 +1,316 @@
+package tech.terabyte.labs.vendomita.query;
+
+import tech.terabyte.labs.vendomita.catalog.Bitmap;
+import tech.terabyte.labs.vendomita.catalog.PriceIndex;
+import tech.terabyte.labs.vendomita.catalog.ProductIndex;
+import tech.terabyte.labs.vendomita.catalog.ProductStore;
+import tech.terabyte.labs.vendomita.model.Color;
+import tech.terabyte.labs.vendomita.model.Size;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntPredicate;
+
+/**
+ * Matches of a query in a {@link SortOrder}, without sorting all of them for one page.
+ * Price walks the {@link PriceIndex} while matches are dense enough for the page to turn
+ * up early; color and size go bucket by bucket over the attribute bitmaps, counting the
+ * buckets before the page instead of reading them; anything else keeps a bounded heap of
+ * the best {@code offset + limit} rows. A {@link PageCursor} seeks to its (key, row) pair
+ * instead: a binary search in the price index, or a heap of {@code limit} rows past it.
+ */
+public final class SortedRows {
+
+    /** Rows of one page, in order, how many matches come before it and whether any come after. */
+    public record Slice(int[] rows, int before, boolean more) {
+    }
+
+    /** Total order on rows; ties between keys are broken by row. */
+    private interface RowOrder {
+        int compare(int a, int b);
+    }
+
+    /** Index positions visited per heap step that still make the walk the cheaper one. */
+    private static final int WALK_COST = 8;
+
+    private SortedRows() {
+    }
+
+    /** Up to {@code limit} matches in order, starting at the {@code offset}-th one. */
+    public static Slice page(Bitmap matches, ProductStore store, SortOrder order, int offset, int limit) {
+        int total = matches.cardinality();
+        int from = Math.min(Math.max(offset, 0), total);
+        int n = Math.max(0, Math.min(limit, total - from));
+        if (n == 0) return new Slice(new int[0], from, false);
+
+        ProductIndex index = store.index();
+        int[] rows = switch (order.key()) {
+            case PRICE -> walkPays(from + n, total, index.price().size())
+              ? byPrice(matches, index.price(), order.descending(), from, n)
+              : byHeap(matches, rowOrder(store, order), from, n, row -> true);
+            case COLOR -> byBuckets(matches, colorBuckets(index), order.descending(), from, n);
+            case SIZE -> byBuckets(matches, sizeBuckets(index), order.descending(), from, n);
+            case NAME -> byHeap(matches, rowOrder(store, order), from, n, row -> true);
+        };
+        return new Slice(rows, from, from + n < total);
+    }
+
+    /**
+     * Up to {@code limit} matches that come after the cursor's (key, row) pair in its order,
+     * for keyset paging. Price and name seek to the pair without reading the matches before
+     * it, and report the cursor's own count of them; color and size count them by bucket.
+     */
+    public static Slice after(Bitmap matches, ProductStore store, PageCursor cursor, int limit) {
+        SortOrder order = cursor.order();
+        int lastRow = cursor.lastRow();
+        if (order == null || lastRow < 0 || lastRow >= store.size()) throw new IllegalArgumentException("Invalid cursor");
+        if (order.key() == SortOrder.Key.COLOR || order.key() == SortOrder.Key.SIZE) {
+            return page(matches, store, order, bucketsBefore(matches, store, order, cursor), limit);
+        }
+
+        int total = matches.cardinality();
+        int n = Math.max(0, Math.min(limit, total)) + 1;
+        PriceIndex prices = store.index().price();
+        int[] rows;
+        if (order.key() == SortOrder.Key.PRICE && walkPays(n, total, prices.size())) {
+            long cents = Long.parseLong(cursor.lastKey());
+            rows = order.descending()
+              ? byPrice(matches, prices, positionAfter(prices, cents, lastRow - 1) - 1, -1, n)
+              : byPrice(matches, prices, positionAfter(prices, cents, lastRow), prices.size(), n);
+        } else {
+            IntPredicate past = pastCursor(store, order, cursor);
+            rows = byHeap(matches, rowOrder(store, order), 0, n, past);
+        }
+        boolean more = rows.length == n;
+        if (more) rows = Arrays.copyOf(rows, n - 1);
+        return new Slice(rows, Math.max(0, Math.min(cursor.seen(), total - rows.length)), more);
+    }
+
+    /** Sort key of {@code row} as a cursor carries it: cents, ordinal or name. */
+    public static String key(ProductStore store, SortOrder order, int row) {
+        return switch (order.key()) {
+            case PRICE -> Long.toString(store.priceCents(row));
+            case SIZE -> Integer.toString(store.sizeOrdinal(row));
+            case COLOR -> Integer.toString(store.colorOrdinal(row));
+            case NAME -> store.name(row);
+        };
+    }
+
+    /**
+     * Every match in order, for streaming. Price order walks the index lazily; the other
+     * keys sort the matches up front, which holds one {@code int} per match.
+     */
+    public static PrimitiveIterator.OfInt iterator(Bitmap matches, ProductStore store, SortOrder order) {
+        if (order.key() == SortOrder.Key.PRICE) return priceIterator(matches, store.index().price(), order.descending());
+        return Arrays.stream(page(matches, store, order, 0, matches.cardinality()).rows()).iterator();
+    }
+
+    /** Number of matches at or before the cursor in a color or size order, bucket by bucket. */
+    private static int bucketsBefore(Bitmap matches, ProductStore store, SortOrder order, PageCursor cursor) {
+        Bitmap[] buckets = order.key() == SortOrder.Key.COLOR ? colorBuckets(store.index()) : sizeBuckets(store.index());
+        int bucket = Integer.parseInt(cursor.lastKey());
+        if (bucket < 0 || bucket >= buckets.length) throw new IllegalArgumentException("Invalid cursor");
+        int lastRow = cursor.lastRow();
+        int before = 0;
+        for (int b = 0; b < buckets.length; b++) {
+            if (order.descending() ? b > bucket : b < bucket) before += matches.andCardinality(buckets[b]);
+        }
+        Bitmap hits = matches.and(buckets[bucket]);
+        return before + (order.descending() ? hits.cardinality() - hits.rank(lastRow - 1) : hits.rank(lastRow));
+    }
+
+    /**
+     * Walking the price index visits about {@code k * indexSize / total} positions to find
+     * the first {@code k} matches; the heap reads every match once.
+     */
+    private static boolean walkPays(int k, int total, int indexSize) {
+        return (double) k * indexSize * WALK_COST <= (double) total * total;
+    }
+
+    private static int[] byPrice(Bitmap matches, PriceIndex prices, boolean descending, int from, int n) {
+        int[] out = new int[n];
+        int size = prices.size();
+        int skip = from, pos = 0;
+        for (int i = 0; i < size && pos < n; i++) {
+            int row = prices.rowAt(descending ? size - 1 - i : i);
+            if (!matches.contains(row)) continue;
+            if (skip > 0) skip--;
+            else out[pos++] = row;
+        }
+        return out;
+    }
+
+    /** Up to {@code n} matches at sorted positions {@code start} up to {@code end} (exclusive), either way. */
+    private static int[] byPrice(Bitmap matches, PriceIndex prices, int start, int end, int n) {
+        int[] out = new int[n];
+        int step = start <= end ? 1 : -1, pos = 0;
+        for (int i = start; i != end && pos < n; i += step) {
+            int row = prices.rowAt(i);
+            if (matches.contains(row)) out[pos++] = row;
+        }
+        return pos == n ? out : Arrays.copyOf(out, pos);
+    }
+
+    /** First sorted position past {@code (cents, row)}, ascending. */
+    private static int positionAfter(PriceIndex prices, long cents, int row) {
+        int lo = 0, hi = prices.size();
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            long at = prices.centsAt(mid);
+            if (at < cents || at == cents && prices.rowAt(mid) <= row) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Whether a row comes after the cursor in its order. Compares rows directly while the
+     * cursor row still has the key the cursor carries (no names decoded), and against the
+     * carried key once a batch has changed it.
+     */
+    private static IntPredicate pastCursor(ProductStore store, SortOrder order, PageCursor cursor) {
+        int lastRow = cursor.lastRow();
+        String lastKey = cursor.lastKey();
+        if (key(store, order, lastRow).equals(lastKey)) {
+            RowOrder rowOrder = rowOrder(store, order);
+            return row -> rowOrder.compare(row, lastRow) > 0;
+        }
+        boolean byPrice = order.key() == SortOrder.Key.PRICE;
+        long cents = byPrice ? Long.parseLong(lastKey) : 0;
+        return row -> {
+            int c = byPrice ? Long.compare(store.priceCents(row), cents) : store.name(row).compareTo(lastKey);
+            if (c == 0) c = Integer.compare(row, lastRow);
+            return order.descending() ? c < 0 : c > 0;
+        };
+    }
+
+    private static PrimitiveIterator.OfInt priceIterator(Bitmap matches, PriceIndex prices, boolean descending) {
+        int size = prices.size();
+        return new PrimitiveIterator.OfInt() {
+            private int i;
+            private int next = advance();
+
+            private int advance() {
+                while (i < size) {
+                    int row = prices.rowAt(descending ? size - 1 - i : i);
+                    i++;
+                    if (matches.contains(row)) return row;
+                }
+                return -1;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public int nextInt() {
+                if (next < 0) throw new NoSuchElementException();
+                int row = next;
+                next = advance();
+                return row;
+            }
+        };
+    }
+
+    /** Buckets in key order; within one, rows ascend (descending orders read them backwards). */
+    private static int[] byBuckets(Bitmap matches, Bitmap[] buckets, boolean descending, int from, int n) {
+        int[] out = new int[n];
+        int skip = from, pos = 0;
+        for (int b = 0; b < buckets.length && pos < n; b++) {
+            Bitmap bucket = buckets[descending ? buckets.length - 1 - b : b];
+            int count = matches.andCardinality(bucket);
+            if (skip >= count) {
+                skip -= count;
+                continue;
+            }
+            Bitmap hits = matches.and(bucket);
+            int take = Math.min(n - pos, count - skip);
+            if (descending) {
+                int[] part = hits.page(count - skip - take, take);
+                for (int i = take - 1; i >= 0; i--) out[pos++] = part[i];
+            } else {
+                System.arraycopy(hits.page(skip, take), 0, out, pos, take);
+                pos += take;
+            }
+            skip = 0;
+        }
+        return out;
+    }
+
+    /**
+     * Keeps the best {@code from + n} matches that pass {@code keep} in a max-heap (the worst
+     * kept row on top), then sorts the heap and drops the first {@code from}. Fewer rows come
+     * back when fewer pass.
+     */
+    private static int[] byHeap(Bitmap matches, RowOrder order, int from, int n, IntPredicate keep) {
+        int k = from + n;
+        int[] heap = new int[k];
+        int[] size = {0};
+        matches.forEach(row -> {
+            if (!keep.test(row)) return;
+            if (size[0] < k) {
+                heap[size[0]] = row;
+                siftUp(heap, size[0]++, order);
+            } else if (order.compare(row, heap[0]) < 0) {
+                heap[0] = row;
+                siftDown(heap, 0, k, order);
+            }
+        });
+        for (int end = size[0] - 1; end > 0; end--) {
+            int top = heap[0];
+            heap[0] = heap[end];
+            heap[end] = top;
+            siftDown(heap, 0, end, order);
+        }
+        return Arrays.copyOfRange(heap, Math.min(from, size[0]), size[0]);
+    }
+
+    private static void siftUp(int[] heap, int i, RowOrder order) {
+        int row = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (order.compare(heap[parent], row) >= 0) break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = row;
+    }
+
+    private static void siftDown(int[] heap, int i, int size, RowOrder order) {
+        int row = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) break;
+            if (child + 1 < size && order.compare(heap[child + 1], heap[child]) > 0) child++;
+            if (order.compare(heap[child], row) <= 0) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = row;
+    }
+
+    private static RowOrder rowOrder(ProductStore store, SortOrder order) {
+        RowOrder byKey = switch (order.key()) {
+            case PRICE -> (a, b) -> Long.compare(store.priceCents(a), store.priceCents(b));
+            case NAME -> store::compareNames;
+            case SIZE -> (a, b) -> Byte.compare(store.sizeOrdinal(a), store.sizeOrdinal(b));
+            case COLOR -> (a, b) -> Byte.compare(store.colorOrdinal(a), store.colorOrdinal(b));
+        };
+        RowOrder ascending = (a, b) -> {
+            int c = byKey.compare(a, b);
+            return c != 0 ? c : Integer.compare(a, b);
+        };
+        return order.descending() ? (a, b) -> ascending.compare(b, a) : ascending;
+    }
+
+    private static Bitmap[] colorBuckets(ProductIndex index) {
+        return Arrays.stream(Color.values()).map(index::color).toArray(Bitmap[]::new);
+    }
+
+    private static Bitmap[] sizeBuckets(ProductIndex index) {
+        return Arrays.stream(Size.values()).map(index::size).toArray(Bitmap[]::new);
+    }
+}
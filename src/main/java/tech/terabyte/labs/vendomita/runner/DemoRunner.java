@@ -22,11 +22,15 @@ import java.util.List;
 @Component
 public class DemoRunner implements CommandLineRunner {
     private Logger logger = LoggerFactory.getLogger(DemoRunner.class);
+    private final Filter<Product> productFilter;
+
+    public DemoRunner(Filter<Product> productFilter) {
+        this.productFilter = productFilter;
+    }
 
     @Override
     public void run(String... args) throws Exception {
         List<Product> productList = ProductGenerator.generate(50);
-        Filter<Product> productFilter = (items, spec) -> items.stream().filter(spec::isSatisfied);
 
         logger.info("📦 Total products: {}", productList.size());
         logger.info("RED products:");
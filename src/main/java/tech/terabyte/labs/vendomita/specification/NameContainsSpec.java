@@ -0,0 +1,5 @@
+package tech.terabyte.labs.vendomita.specification;
+
+/** Names containing {@code text}, ignoring case. */
+public record NameContainsSpec(String text) implements SpecDto {
+}
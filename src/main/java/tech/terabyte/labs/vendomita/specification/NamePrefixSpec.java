@@ -0,0 +1,5 @@
+package tech.terabyte.labs.vendomita.specification;
+
+/** Names starting with {@code prefix}, ignoring case. */
+public record NamePrefixSpec(String prefix) implements SpecDto {
+}
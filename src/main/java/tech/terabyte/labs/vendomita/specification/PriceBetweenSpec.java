@@ -0,0 +1,7 @@
+package tech.terabyte.labs.vendomita.specification;
+
+import java.math.BigDecimal;
+
+/** {@code min <= price < max}, the same as {@code AND(PriceGte(min), PriceLt(max))}. */
+public record PriceBetweenSpec(BigDecimal min, BigDecimal max) implements SpecDto {
+}
@@ -0,0 +1,6 @@
+package tech.terabyte.labs.vendomita.specification;
+
+import java.math.BigDecimal;
+
+public record PriceGteSpec(BigDecimal price) implements SpecDto {
+}
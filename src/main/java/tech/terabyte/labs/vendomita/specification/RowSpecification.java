@@ -0,0 +1,10 @@
+package tech.terabyte.labs.vendomita.specification;
+
+/**
+ * Columnar counterpart of {@link Specification}: tests a row of a
+ * {@link tech.terabyte.labs.vendomita.catalog.ProductStore} by index.
+ */
+@FunctionalInterface
+public interface RowSpecification {
+    boolean isSatisfied(int row);
+}
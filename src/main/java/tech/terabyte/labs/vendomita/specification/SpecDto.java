@@ -11,8 +11,13 @@ import com.fasterxml.jackson.annotation.JsonTypeInfo;
   @JsonSubTypes.Type(value = ColorSpec.class, name = "ColorSpecification"),
   @JsonSubTypes.Type(value = SizeSpec.class,  name = "SizeSpecification"),
   @JsonSubTypes.Type(value = PriceLtSpec.class, name = "PriceLessThanSpecification"),
-  @JsonSubTypes.Type(value = InStockSpec.class, name = "InStockSpecification")
+  @JsonSubTypes.Type(value = PriceGteSpec.class, name = "PriceGreaterOrEqualSpecification"),
+  @JsonSubTypes.Type(value = PriceBetweenSpec.class, name = "PriceBetweenSpecification"),
+  @JsonSubTypes.Type(value = InStockSpec.class, name = "InStockSpecification"),
+  @JsonSubTypes.Type(value = NamePrefixSpec.class, name = "NamePrefixSpecification"),
+  @JsonSubTypes.Type(value = NameContainsSpec.class, name = "NameContainsSpecification")
 })
-public sealed interface SpecDto permits AndNode, OrNode, NotNode, ColorSpec, SizeSpec, PriceLtSpec, InStockSpec {
+public sealed interface SpecDto permits AndNode, OrNode, NotNode, ColorSpec, SizeSpec, PriceLtSpec, PriceGteSpec,
+  PriceBetweenSpec, InStockSpec, NamePrefixSpec, NameContainsSpec {
 }
 
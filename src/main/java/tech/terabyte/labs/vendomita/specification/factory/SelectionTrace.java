@@ -0,0 +1,19 @@
+package tech.terabyte.labs.vendomita.specification.factory;
+
+import tech.terabyte.labs.vendomita.specification.SpecDto;
+
+/**
+ * Observes how {@link SpecParser#select} evaluates a tree: the rows each leaf matched
+ * and the rows tested one by one against leaves that have no index.
+ */
+public interface SelectionTrace {
+
+    SelectionTrace NONE = new SelectionTrace() {
+    };
+
+    default void leaf(SpecDto leaf, int matches) {
+    }
+
+    default void tested(int rows) {
+    }
+}
@@ -0,0 +1,333 @@
+package tech.terabyte.labs.vendomita.specification.factory;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tech.terabyte.labs.vendomita.catalog.ProductStore;
+import tech.terabyte.labs.vendomita.specification.AndNode;
+import tech.terabyte.labs.vendomita.specification.ColorSpec;
+import tech.terabyte.labs.vendomita.specification.InStockSpec;
+import tech.terabyte.labs.vendomita.specification.NameContainsSpec;
+import tech.terabyte.labs.vendomita.specification.NamePrefixSpec;
+import tech.terabyte.labs.vendomita.specification.NotNode;
+import tech.terabyte.labs.vendomita.specification.OrNode;
+import tech.terabyte.labs.vendomita.specification.PriceBetweenSpec;
+import tech.terabyte.labs.vendomita.specification.PriceGteSpec;
+import tech.terabyte.labs.vendomita.specification.PriceLtSpec;
+import tech.terabyte.labs.vendomita.specification.RowSpecification;
+import tech.terabyte.labs.vendomita.specification.SizeSpec;
+import tech.terabyte.labs.vendomita.specification.SpecDto;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compiles canonical spec trees into hidden classes, one per shape: the tree with its
+ * colors, sizes and price bounds taken out. The whole boolean expression becomes
+ * straight-line, short-circuit bytecode over the store columns, with the constants in
+ * final fields, so the JIT sees one small monomorphic method instead of a tree of
+ * lambdas behind one interface call. A shape is compiled once it has been asked for
+ * {@code threshold} times and then reused for any constants; until then, past
+ * {@code maxShapes} classes or if generation fails, {@link #compile} returns
+ * {@code null} and the caller interprets the tree. Trees with name searches are always
+ * interpreted: their constants are strings, and they are normally answered by the name index.
+ */
+@Component
+public class SpecCompiler implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(SpecCompiler.class);
+
+    private static final String CLASS = "tech/terabyte/labs/vendomita/specification/factory/CompiledSpec";
+    private static final String STORE = "tech/terabyte/labs/vendomita/catalog/ProductStore";
+    private static final String STORE_DESC = "L" + STORE + ";";
+    private static final String ROW_SPEC = "tech/terabyte/labs/vendomita/specification/RowSpecification";
+    private static final MethodType CONSTRUCTOR = MethodType.methodType(void.class, ProductStore.class, long[].class);
+    /** Shapes seen but not compiled yet are forgotten past this many, so one-off trees cannot pile up. */
+    private static final int MAX_PENDING = 4096;
+    /** Marks a shape whose generation failed. */
+    private static final MethodHandle FAILED = MethodHandles.constant(Object.class, null);
+
+    private final int threshold;
+    private final int maxShapes;
+    private final ConcurrentHashMap<String, AtomicInteger> pending = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, MethodHandle> compiled = new ConcurrentHashMap<>();
+    /** Shapes in {@code compiled} with a class; failed ones do not count against {@code maxShapes}. */
+    private final AtomicInteger defined = new AtomicInteger();
+    private final LongAdder interpreted = new LongAdder();
+
+    /** {@code threshold <= 0} disables compilation. */
+    public SpecCompiler(@Value("${vendomita.spec-compiler.threshold:2}") int threshold,
+                        @Value("${vendomita.spec-compiler.max-shapes:256}") int maxShapes) {
+        this.threshold = threshold;
+        this.maxShapes = maxShapes;
+    }
+
+    /**
+     * Compiled predicate for {@code canonical} on {@code store}, deleted rows excluded,
+     * or {@code null} when the tree should be interpreted.
+     */
+    public RowSpecification compile(SpecDto canonical, ProductStore store) {
+        if (threshold <= 0 || !compilable(canonical)) return declined();
+        List<Long> constants = new ArrayList<>();
+        StringBuilder shape = new StringBuilder(store.hasDeletions() ? "L" : "A");
+        describe(canonical, shape, constants);
+        String key = shape.toString();
+
+        MethodHandle constructor = compiled.get(key);
+        if (constructor == null) {
+            if (defined.get() >= maxShapes || !due(key)) return declined();
+            constructor = compiled.computeIfAbsent(key, k -> define(canonical, k, constants.size()));
+        }
+        if (constructor == FAILED) return declined();
+        try {
+            return (RowSpecification) constructor.invoke(store, constants.stream().mapToLong(Long::longValue).toArray());
+        } catch (Throwable e) {
+            throw new IllegalStateException("Compiled spec for shape " + key + " failed to instantiate", e);
+        }
+    }
+
+    /** Number of shapes with a compiled class. */
+    public int shapes() {
+        return defined.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("vendomita.spec-compiler.shapes", this, SpecCompiler::shapes)
+          .description("Spec shapes compiled to a hidden class")
+          .register(registry);
+        FunctionCounter.builder("vendomita.spec-compiler.interpreted", interpreted, LongAdder::sum)
+          .description("Predicates left to the interpreter")
+          .register(registry);
+    }
+
+    private RowSpecification declined() {
+        interpreted.increment();
+        return null;
+    }
+
+    private boolean due(String key) {
+        if (pending.size() >= MAX_PENDING) pending.clear();
+        return pending.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet() >= threshold;
+    }
+
+    private static boolean compilable(SpecDto dto) {
+        return switch (dto) {
+            case AndNode a -> a.children().stream().allMatch(SpecCompiler::compilable);
+            case OrNode o -> o.children().stream().allMatch(SpecCompiler::compilable);
+            case NotNode n -> compilable(n.child());
+            case NamePrefixSpec ignored -> false;
+            case NameContainsSpec ignored -> false;
+            default -> true;
+        };
+    }
+
+    /** Appends the shape of {@code dto} to {@code shape} and its constants, in order, to {@code constants}. */
+    private static void describe(SpecDto dto, StringBuilder shape, List<Long> constants) {
+        switch (dto) {
+            case AndNode a -> children("&(", a.children(), shape, constants);
+            case OrNode o -> children("|(", o.children(), shape, constants);
+            case NotNode n -> {
+                shape.append('!');
+                describe(n.child(), shape, constants);
+            }
+            case ColorSpec c -> {
+                shape.append('c');
+                constants.add((long) SpecRewriter.parseColor(c.color()).ordinal());
+            }
+            case SizeSpec s -> {
+                shape.append('s');
+                constants.add((long) SpecRewriter.parseSize(s.size()).ordinal());
+            }
+            case InStockSpec ignored -> shape.append('i');
+            case PriceLtSpec p -> {
+                shape.append('<');
+                constants.add(ProductStore.centsCeiling(p.price()));
+            }
+            case PriceGteSpec p -> {
+                shape.append('>');
+                constants.add(ProductStore.centsCeiling(p.price()));
+            }
+            case PriceBetweenSpec p -> {
+                shape.append('[');
+                constants.add(ProductStore.centsCeiling(p.min()));
+                constants.add(ProductStore.centsCeiling(p.max()));
+            }
+            case NamePrefixSpec ignored -> throw new IllegalArgumentException("Name searches are not compiled");
+            case NameContainsSpec ignored -> throw new IllegalArgumentException("Name searches are not compiled");
+        }
+    }
+
+    private static void children(String open, List<SpecDto> children, StringBuilder shape, List<Long> constants) {
+        shape.append(open);
+        for (SpecDto child : children) describe(child, shape, constants);
+        shape.append(')');
+    }
+
+    private MethodHandle define(SpecDto canonical, String key, int constants) {
+        try {
+            byte[] bytes = new Emitter(constants).emit(canonical, key.charAt(0) == 'L');
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            MethodHandle constructor = lookup.findConstructor(lookup.lookupClass(), CONSTRUCTOR);
+            defined.incrementAndGet();
+            return constructor;
+        } catch (ReflectiveOperationException | RuntimeException | LinkageError e) {
+            log.warn("Could not compile spec shape {}, interpreting it: {}", key, e.toString());
+            return FAILED;
+        }
+    }
+
+    /**
+     * Writes {@code CompiledSpec implements RowSpecification}: fields {@code store} and
+     * {@code c0..cN}, a {@code (ProductStore, long[])} constructor, and {@code isSatisfied}.
+     */
+    private static final class Emitter implements Opcodes {
+
+        private static final int THIS = 0, ROW = 1, STORE_LOCAL = 2;
+
+        private final int constants;
+        private MethodVisitor mv;
+        private int next;
+
+        Emitter(int constants) {
+            this.constants = constants;
+        }
+
+        byte[] emit(SpecDto canonical, boolean liveOnly) {
+            ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+            cw.visit(V17, ACC_FINAL | ACC_SUPER, CLASS, null, "java/lang/Object", new String[]{ROW_SPEC});
+            cw.visitField(ACC_PRIVATE | ACC_FINAL, "store", STORE_DESC, null, null).visitEnd();
+            for (int i = 0; i < constants; i++) cw.visitField(ACC_PRIVATE | ACC_FINAL, "c" + i, "J", null, null).visitEnd();
+
+            mv = cw.visitMethod(ACC_PUBLIC, "<init>", "(" + STORE_DESC + "[J)V", null, null);
+            mv.visitCode();
+            mv.visitVarInsn(ALOAD, THIS);
+            mv.visitMethodInsn(INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+            mv.visitVarInsn(ALOAD, THIS);
+            mv.visitVarInsn(ALOAD, 1);
+            mv.visitFieldInsn(PUTFIELD, CLASS, "store", STORE_DESC);
+            for (int i = 0; i < constants; i++) {
+                mv.visitVarInsn(ALOAD, THIS);
+                mv.visitVarInsn(ALOAD, 2);
+                mv.visitLdcInsn(i);
+                mv.visitInsn(LALOAD);
+                mv.visitFieldInsn(PUTFIELD, CLASS, "c" + i, "J");
+            }
+            mv.visitInsn(RETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+
+            mv = cw.visitMethod(ACC_PUBLIC, "isSatisfied", "(I)Z", null, null);
+            mv.visitCode();
+            mv.visitVarInsn(ALOAD, THIS);
+            mv.visitFieldInsn(GETFIELD, CLASS, "store", STORE_DESC);
+            mv.visitVarInsn(ASTORE, STORE_LOCAL);
+            Label no = new Label();
+            if (liveOnly) test("isLive", "Z", false, no);
+            branch(canonical, false, no);
+            mv.visitInsn(ICONST_1);
+            mv.visitInsn(IRETURN);
+            mv.visitLabel(no);
+            mv.visitInsn(ICONST_0);
+            mv.visitInsn(IRETURN);
+            mv.visitMaxs(0, 0);
+            mv.visitEnd();
+
+            cw.visitEnd();
+            return cw.toByteArray();
+        }
+
+        /** Jumps to {@code target} when {@code dto} evaluates to {@code jumpIf}; falls through otherwise. */
+        private void branch(SpecDto dto, boolean jumpIf, Label target) {
+            switch (dto) {
+                case AndNode a -> junction(a.children(), false, jumpIf, target);
+                case OrNode o -> junction(o.children(), true, jumpIf, target);
+                case NotNode n -> branch(n.child(), !jumpIf, target);
+                case ColorSpec ignored -> compare("colorOrdinal", "B", IFEQ, jumpIf, target);
+                case SizeSpec ignored -> compare("sizeOrdinal", "B", IFEQ, jumpIf, target);
+                case InStockSpec ignored -> test("inStock", "Z", jumpIf, target);
+                case PriceLtSpec ignored -> compare("priceCents", "J", IFLT, jumpIf, target);
+                case PriceGteSpec ignored -> compare("priceCents", "J", IFGE, jumpIf, target);
+                case PriceBetweenSpec ignored -> {
+                    // min <= cents && cents < max, as a two-leaf AND
+                    if (jumpIf) {
+                        Label skip = new Label();
+                        compare("priceCents", "J", IFGE, false, skip);
+                        compare("priceCents", "J", IFLT, true, target);
+                        mv.visitLabel(skip);
+                    } else {
+                        compare("priceCents", "J", IFGE, false, target);
+                        compare("priceCents", "J", IFLT, false, target);
+                    }
+                }
+                case NamePrefixSpec ignored -> throw new IllegalArgumentException("Name searches are not compiled");
+                case NameContainsSpec ignored -> throw new IllegalArgumentException("Name searches are not compiled");
+            }
+        }
+
+        /**
+         * AND ({@code or == false}) or OR of {@code children}. When the outcome the jump wants
+         * is the one a single child decides, every child jumps straight to {@code target};
+         * otherwise all but the last short-circuit past it.
+         */
+        private void junction(List<SpecDto> children, boolean or, boolean jumpIf, Label target) {
+            if (children.isEmpty()) {
+                // empty AND is always true, empty OR always false
+                if (jumpIf != or) mv.visitJumpInsn(GOTO, target);
+                return;
+            }
+            if (jumpIf == or) {
+                for (SpecDto child : children) branch(child, jumpIf, target);
+                return;
+            }
+            Label skip = new Label();
+            int last = children.size() - 1;
+            for (int i = 0; i < last; i++) branch(children.get(i), or, skip);
+            branch(children.get(last), jumpIf, target);
+            mv.visitLabel(skip);
+        }
+
+        /** {@code store.<getter>(row)} against the next constant, with {@code cmp} as the leaf's test. */
+        private void compare(String getter, String type, int cmp, boolean jumpIf, Label target) {
+            mv.visitVarInsn(ALOAD, STORE_LOCAL);
+            mv.visitVarInsn(ILOAD, ROW);
+            mv.visitMethodInsn(INVOKEVIRTUAL, STORE, getter, "(I)" + type, false);
+            if (!type.equals("J")) mv.visitInsn(I2L);
+            mv.visitVarInsn(ALOAD, THIS);
+            mv.visitFieldInsn(GETFIELD, CLASS, "c" + next++, "J");
+            mv.visitInsn(LCMP);
+            mv.visitJumpInsn(jumpIf ? cmp : negate(cmp), target);
+        }
+
+        private void test(String getter, String type, boolean jumpIf, Label target) {
+            mv.visitVarInsn(ALOAD, STORE_LOCAL);
+            mv.visitVarInsn(ILOAD, ROW);
+            mv.visitMethodInsn(INVOKEVIRTUAL, STORE, getter, "(I)" + type, false);
+            mv.visitJumpInsn(jumpIf ? IFNE : IFEQ, target);
+        }
+
+        private static int negate(int cmp) {
+            return switch (cmp) {
+                case IFEQ -> IFNE;
+                case IFLT -> IFGE;
+                case IFGE -> IFLT;
+                default -> throw new IllegalArgumentException("Unexpected comparison " + cmp);
+            };
+        }
+    }
+}
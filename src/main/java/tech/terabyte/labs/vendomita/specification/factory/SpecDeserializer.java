@@ -0,0 +1,168 @@
+package tech.terabyte.labs.vendomita.specification.factory;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.jsontype.TypeDeserializer;
+import org.springframework.boot.jackson.JsonComponent;
+import tech.terabyte.labs.vendomita.model.Color;
+import tech.terabyte.labs.vendomita.model.Size;
+import tech.terabyte.labs.vendomita.specification.AndNode;
+import tech.terabyte.labs.vendomita.specification.ColorSpec;
+import tech.terabyte.labs.vendomita.specification.InStockSpec;
+import tech.terabyte.labs.vendomita.specification.NameContainsSpec;
+import tech.terabyte.labs.vendomita.specification.NamePrefixSpec;
+import tech.terabyte.labs.vendomita.specification.NotNode;
+import tech.terabyte.labs.vendomita.specification.OrNode;
+import tech.terabyte.labs.vendomita.specification.PriceBetweenSpec;
+import tech.terabyte.labs.vendomita.specification.PriceGteSpec;
+import tech.terabyte.labs.vendomita.specification.PriceLtSpec;
+import tech.terabyte.labs.vendomita.specification.SizeSpec;
+import tech.terabyte.labs.vendomita.specification.SpecDto;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a {@link SpecDto} straight off the token stream in one pass, instead of Jackson's
+ * polymorphic dispatch (which buffers each node until it finds {@code "type"} and then
+ * binds it reflectively). Fields may come in any order and unknown ones are skipped, as
+ * with the default binding. Type names, colors and sizes are matched ignoring case;
+ * colors and sizes are stored upper-case, so {@link SpecRewriter} keeps those leaves as they
+ * are. Trees deeper than {@link #MAX_DEPTH} or with more than {@link #MAX_NODES} nodes
+ * are rejected before they are built.
+ */
+@JsonComponent
+public class SpecDeserializer extends StdDeserializer<SpecDto> {
+
+    public static final int MAX_DEPTH = 32;
+    public static final int MAX_NODES = 4096;
+
+    private enum Type {
+        AND("AND"), OR("OR"), NOT("NOT"),
+        COLOR("ColorSpecification"), SIZE("SizeSpecification"),
+        PRICE_LT("PriceLessThanSpecification"), PRICE_GTE("PriceGreaterOrEqualSpecification"),
+        PRICE_BETWEEN("PriceBetweenSpecification"), IN_STOCK("InStockSpecification"),
+        NAME_PREFIX("NamePrefixSpecification"), NAME_CONTAINS("NameContainsSpecification");
+
+        private static final Type[] VALUES = values();
+
+        private final String id;
+
+        Type(String id) {
+            this.id = id;
+        }
+
+        static Type from(String id) {
+            for (Type t : VALUES) {
+                if (t.id.equalsIgnoreCase(id)) return t;
+            }
+            throw new IllegalArgumentException("Unknown spec type: " + id);
+        }
+    }
+
+    public SpecDeserializer() {
+        super(SpecDto.class);
+    }
+
+    @Override
+    public SpecDto deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        return new Reader(p).node(0);
+    }
+
+    /** {@code SpecDto} declares {@code @JsonTypeInfo}; this reader handles {@code "type"} itself. */
+    @Override
+    public Object deserializeWithType(JsonParser p, DeserializationContext ctxt, TypeDeserializer typeDeserializer)
+      throws IOException {
+        return deserialize(p, ctxt);
+    }
+
+    /** State of one tree: the parser and the nodes read so far. */
+    private static final class Reader {
+
+        private final JsonParser p;
+        private int nodes;
+
+        Reader(JsonParser p) {
+            this.p = p;
+        }
+
+        /** The node whose {@code START_OBJECT} is the current token, or {@code null} for a JSON null. */
+        SpecDto node(int depth) throws IOException {
+            if (p.currentToken() == JsonToken.VALUE_NULL) return null;
+            if (p.currentToken() != JsonToken.START_OBJECT) throw new IllegalArgumentException("Spec node must be a JSON object");
+            if (depth >= MAX_DEPTH) throw new IllegalArgumentException("Spec nested deeper than " + MAX_DEPTH + " levels");
+            if (++nodes > MAX_NODES) throw new IllegalArgumentException("Spec has more than " + MAX_NODES + " nodes");
+
+            Type type = null;
+            List<SpecDto> children = null;
+            SpecDto child = null;
+            String color = null, size = null, prefix = null, text = null;
+            BigDecimal price = null, min = null, max = null;
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                p.nextToken();
+                switch (field) {
+                    case "type" -> type = Type.from(string(field));
+                    case "children" -> children = children(depth);
+                    case "child" -> child = node(depth + 1);
+                    case "color" -> color = string(field);
+                    case "size" -> size = string(field);
+                    case "prefix" -> prefix = string(field);
+                    case "text" -> text = string(field);
+                    case "price" -> price = decimal(field);
+                    case "min" -> min = decimal(field);
+                    case "max" -> max = decimal(field);
+                    default -> p.skipChildren();
+                }
+            }
+            if (type == null) throw new IllegalArgumentException("Spec node requires 'type'");
+            return switch (type) {
+                case AND -> new AndNode(children);
+                case OR -> new OrNode(children);
+                case NOT -> new NotNode(child);
+                case COLOR -> new ColorSpec(color != null ? Color.from(color).name() : null);
+                case SIZE -> new SizeSpec(size != null ? Size.from(size).name() : null);
+                case PRICE_LT -> new PriceLtSpec(price);
+                case PRICE_GTE -> new PriceGteSpec(price);
+                case PRICE_BETWEEN -> new PriceBetweenSpec(min, max);
+                case IN_STOCK -> new InStockSpec();
+                case NAME_PREFIX -> new NamePrefixSpec(prefix);
+                case NAME_CONTAINS -> new NameContainsSpec(text);
+            };
+        }
+
+        private List<SpecDto> children(int depth) throws IOException {
+            if (p.currentToken() == JsonToken.VALUE_NULL) return null;
+            if (p.currentToken() != JsonToken.START_ARRAY) throw new IllegalArgumentException("'children' must be an array");
+            List<SpecDto> children = new ArrayList<>();
+            while (p.nextToken() != JsonToken.END_ARRAY) children.add(node(depth + 1));
+            return children;
+        }
+
+        private String string(String field) throws IOException {
+            JsonToken t = p.currentToken();
+            if (t == JsonToken.VALUE_NULL) return null;
+            if (!t.isScalarValue()) throw new IllegalArgumentException("'" + field + "' must be a string");
+            return p.getText();
+        }
+
+        private BigDecimal decimal(String field) throws IOException {
+            return switch (p.currentToken()) {
+                case VALUE_NULL -> null;
+                case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> p.getDecimalValue();
+                case VALUE_STRING -> {
+                    try {
+                        yield new BigDecimal(p.getText().trim());
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("'" + field + "' must be a number: " + p.getText());
+                    }
+                }
+                default -> throw new IllegalArgumentException("'" + field + "' must be a number");
+            };
+        }
+    }
+}
@@ -1,31 +1,446 @@
 package tech.terabyte.labs.vendomita.specification.factory;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import tech.terabyte.labs.vendomita.catalog.Bitmap;
+import tech.terabyte.labs.vendomita.catalog.ColumnMasks;
+import tech.terabyte.labs.vendomita.catalog.MaskKernel;
+import tech.terabyte.labs.vendomita.catalog.NameIndex;
+import tech.terabyte.labs.vendomita.catalog.PriceIndex;
+import tech.terabyte.labs.vendomita.catalog.ProductIndex;
+import tech.terabyte.labs.vendomita.catalog.ProductStore;
 import tech.terabyte.labs.vendomita.model.Color;
 import tech.terabyte.labs.vendomita.model.Product;
 import tech.terabyte.labs.vendomita.model.Size;
 import tech.terabyte.labs.vendomita.specification.AndNode;
 import tech.terabyte.labs.vendomita.specification.ColorSpec;
 import tech.terabyte.labs.vendomita.specification.InStockSpec;
+import tech.terabyte.labs.vendomita.specification.NameContainsSpec;
+import tech.terabyte.labs.vendomita.specification.NamePrefixSpec;
 import tech.terabyte.labs.vendomita.specification.NotNode;
 import tech.terabyte.labs.vendomita.specification.OrNode;
+import tech.terabyte.labs.vendomita.specification.PriceBetweenSpec;
+import tech.terabyte.labs.vendomita.specification.PriceGteSpec;
 import tech.terabyte.labs.vendomita.specification.PriceLtSpec;
+import tech.terabyte.labs.vendomita.specification.RowSpecification;
 import tech.terabyte.labs.vendomita.specification.SizeSpec;
 import tech.terabyte.labs.vendomita.specification.SpecDto;
 import tech.terabyte.labs.vendomita.specification.Specification;
+import tech.terabyte.labs.vendomita.specification.impl.ParallelFilter;
 import tech.terabyte.labs.vendomita.specification.utility.SpecsBuilder;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
 @Component
 public class SpecParser {
+
+    private final SpecRewriter rewriter = new SpecRewriter();
+    private final ParallelFilter<Product> scanner;
+    private final SpecCompiler compiler;
+    private final MaskKernel kernel;
+
+    public SpecParser() {
+        this(ParallelFilter.serial(), new SpecCompiler(2, 256), null);
+    }
+
+    /**
+     * {@code scanner} splits large stores into segments on its pool; {@code compiler} turns recurring tree shapes into classes of
+     * their own. With a {@code kernel}, heap stores are selected by column masks instead of
+     * the indexes (see {@link ColumnMasks}), segment by segment on the scanner's pool.
+     */
+    public SpecParser(ParallelFilter<Product> scanner, SpecCompiler compiler, MaskKernel kernel) {
+        this.scanner = scanner;
+        this.compiler = compiler;
+        this.kernel = kernel;
+    }
+
+    @Autowired
+    public SpecParser(ParallelFilter<Product> scanner, SpecCompiler compiler,
+                      @Value("${vendomita.scan.vector:false}") boolean vector) {
+        this(scanner, compiler, vector ? MaskKernel.best() : null);
+    }
+
     public Specification<Product> fromDto(SpecDto dto) {
+        return specification(normalize(dto));
+    }
+
+    /**
+     * Compiles the tree into a scan over the store columns. Enum and price
+     * conversions happen once here instead of once per row. Recurring shapes get a
+     * generated class (see {@link SpecCompiler}); others are interpreted. Deleted rows never match.
+     */
+    public RowSpecification compile(SpecDto dto, ProductStore store) {
+        return predicate(normalize(dto), store);
+    }
+
+    /**
+     * Evaluates the tree as set algebra over the store indexes: AND intersects,
+     * OR unions and NOT complements. Price bounds are binary searches over the price
+     * index and name searches are lookups in the {@link NameIndex}. Provably empty trees
+     * return without touching the store.
+     * The result may be shared with the index and must not be modified.
+     */
+    public Bitmap select(SpecDto dto, ProductStore store) {
+        return select(dto, store, SelectionTrace.NONE);
+    }
+
+    /** As {@link #select(SpecDto, ProductStore)}, reporting each leaf and row test to {@code trace}. */
+    public Bitmap select(SpecDto dto, ProductStore store, SelectionTrace trace) {
+        SpecDto canonical = normalize(dto);
+        if (SpecRewriter.isNever(canonical)) return Bitmap.empty();
+        ColumnMasks masks = masks(store);
+        if (masks != null) return selectMasks(canonical, masks, trace);
+        return selectNode(canonical, store, trace, null);
+    }
+
+    /**
+     * Evaluates several trees against the same store in one go. Subtrees that appear in
+     * more than one of them, down to single leaves, are evaluated once and shared.
+     * Results are in the order of {@code dtos}.
+     */
+    public List<Bitmap> selectAll(List<SpecDto> dtos, ProductStore store, SelectionTrace trace) {
+        Map<SpecDto, Bitmap> shared = new HashMap<>();
+        ColumnMasks masks = masks(store);
+        List<Bitmap> results = new ArrayList<>(dtos.size());
+        for (SpecDto dto : dtos) {
+            SpecDto canonical = normalize(dto);
+            if (SpecRewriter.isNever(canonical)) results.add(Bitmap.empty());
+            else if (masks != null) results.add(selectMasks(canonical, masks, trace));
+            else results.add(selectNode(canonical, store, trace, shared));
+        }
+        return results;
+    }
+
+    /**
+     * Number of matches. Over the indexes the last intersection of an AND is only counted,
+     * never built; a price range under an AND is counted against its siblings' rows without
+     * turning the range into a bitmap (see {@link #countPriced}).
+     */
+    public int count(SpecDto dto, ProductStore store) {
+        SpecDto canonical = normalize(dto);
+        if (SpecRewriter.isNever(canonical)) return 0;
+        ColumnMasks masks = masks(store);
+        if (masks != null) return masks.count(segment -> mask(canonical, segment, SelectionTrace.NONE));
+        return switch (canonical) {
+            case AndNode a when !a.children().isEmpty() -> countAnd(a.children(), store, Integer.MAX_VALUE);
+            case SpecDto leaf when priceRange(leaf) != null -> countAnd(List.of(leaf), store, Integer.MAX_VALUE);
+            case NotNode n -> store.count() - selectNode(n.child(), store, SelectionTrace.NONE, null).cardinality();
+            default -> selectNode(canonical, store, SelectionTrace.NONE, null).cardinality();
+        };
+    }
+
+    /**
+     * Whether anything matches. OR stops at the first child with a match, and the last
+     * intersection of an AND, or its price range, stops at the first common row.
+     */
+    public boolean exists(SpecDto dto, ProductStore store) {
+        SpecDto canonical = normalize(dto);
+        if (SpecRewriter.isNever(canonical)) return false;
+        ColumnMasks masks = masks(store);
+        if (masks != null) return masks.count(segment -> mask(canonical, segment, SelectionTrace.NONE)) > 0;
+        return existsNode(canonical, store);
+    }
+
+    /** Canonical form of the tree; see {@link SpecRewriter}. */
+    public SpecDto normalize(SpecDto dto) {
+        return rewriter.rewrite(dto);
+    }
+
+    private Specification<Product> specification(SpecDto dto) {
         return switch (dto) {
-            case AndNode a -> SpecsBuilder.and(a.children().stream().map(this::fromDto).toArray(Specification[]::new));
-            case OrNode o -> SpecsBuilder.or(o.children().stream().map(this::fromDto).toArray(Specification[]::new));
-            case NotNode n -> SpecsBuilder.not(fromDto(n.child()));
-            case ColorSpec c -> p -> p.color() == Color.valueOf(c.color().toUpperCase());
-            case SizeSpec s -> p -> p.size() == Size.valueOf(s.size().toUpperCase());
+            case AndNode a -> SpecsBuilder.and(a.children().stream().map(this::specification).toArray(Specification[]::new));
+            case OrNode o -> SpecsBuilder.or(o.children().stream().map(this::specification).toArray(Specification[]::new));
+            case NotNode n -> SpecsBuilder.not(specification(n.child()));
+            case ColorSpec c -> {
+                Color color = color(c);
+                yield p -> p.color() == color;
+            }
+            case SizeSpec s -> {
+                Size size = size(s);
+                yield p -> p.size() == size;
+            }
             case PriceLtSpec pr -> p -> p.price().compareTo(pr.price()) < 0;
+            case PriceGteSpec pr -> p -> p.price().compareTo(pr.price()) >= 0;
+            case PriceBetweenSpec pr -> p -> p.price().compareTo(pr.min()) >= 0 && p.price().compareTo(pr.max()) < 0;
             case InStockSpec ignored -> Product::inStock;
+            case NamePrefixSpec n -> p -> NameIndex.key(p.name()).startsWith(n.prefix());
+            case NameContainsSpec n -> p -> NameIndex.key(p.name()).contains(n.text());
+        };
+    }
+
+    private RowSpecification predicate(SpecDto canonical, ProductStore store) {
+        RowSpecification compiled = compiler.compile(canonical, store);
+        return compiled != null ? compiled : liveOnly(compileNode(canonical, store), store);
+    }
+
+    private RowSpecification compileNode(SpecDto dto, ProductStore store) {
+        return switch (dto) {
+            case AndNode a -> {
+                RowSpecification[] specs = compileAll(a.children(), store);
+                yield row -> {
+                    for (RowSpecification s : specs) {
+                        if (!s.isSatisfied(row)) return false;
+                    }
+                    return true;
+                };
+            }
+            case OrNode o -> {
+                RowSpecification[] specs = compileAll(o.children(), store);
+                yield row -> {
+                    for (RowSpecification s : specs) {
+                        if (s.isSatisfied(row)) return true;
+                    }
+                    return false;
+                };
+            }
+            case NotNode n -> {
+                RowSpecification inner = compileNode(n.child(), store);
+                yield row -> !inner.isSatisfied(row);
+            }
+            case ColorSpec c -> {
+                byte ordinal = (byte) color(c).ordinal();
+                yield row -> store.colorOrdinal(row) == ordinal;
+            }
+            case SizeSpec s -> {
+                byte ordinal = (byte) size(s).ordinal();
+                yield row -> store.sizeOrdinal(row) == ordinal;
+            }
+            case PriceLtSpec pr -> {
+                long bound = ProductStore.centsCeiling(pr.price());
+                yield row -> store.priceCents(row) < bound;
+            }
+            case PriceGteSpec pr -> {
+                long bound = ProductStore.centsCeiling(pr.price());
+                yield row -> store.priceCents(row) >= bound;
+            }
+            case PriceBetweenSpec pr -> {
+                long min = ProductStore.centsCeiling(pr.min());
+                long max = ProductStore.centsCeiling(pr.max());
+                yield row -> {
+                    long cents = store.priceCents(row);
+                    return cents >= min && cents < max;
+                };
+            }
+            case InStockSpec ignored -> store::inStock;
+            case NamePrefixSpec n -> row -> NameIndex.key(store.name(row)).startsWith(n.prefix());
+            case NameContainsSpec n -> row -> NameIndex.key(store.name(row)).contains(n.text());
+        };
+    }
+
+    private Bitmap selectNode(SpecDto dto, ProductStore store, SelectionTrace trace, Map<SpecDto, Bitmap> shared) {
+        if (shared != null) {
+            Bitmap known = shared.get(dto);
+            if (known != null) return known;
+        }
+        ProductIndex index = store.index();
+        PriceIndex prices = index.price();
+        Bitmap rows = switch (dto) {
+            case AndNode a -> selectAnd(a.children(), store, trace, shared);
+            case OrNode o -> {
+                Bitmap union = new Bitmap();
+                for (SpecDto child : o.children()) union = union.or(selectNode(child, store, trace, shared));
+                yield union;
+            }
+            case NotNode n -> index.all().andNot(selectNode(n.child(), store, trace, shared));
+            case ColorSpec c -> index.color(color(c));
+            case SizeSpec s -> index.size(size(s));
+            case InStockSpec ignored -> index.inStock();
+            case PriceLtSpec pr -> prices.lessThan(ProductStore.centsCeiling(pr.price()));
+            case PriceGteSpec pr -> prices.atLeast(ProductStore.centsCeiling(pr.price()));
+            case PriceBetweenSpec pr ->
+              prices.between(ProductStore.centsCeiling(pr.min()), ProductStore.centsCeiling(pr.max()));
+            case NamePrefixSpec n -> store.names().prefix(n.prefix());
+            case NameContainsSpec n -> store.names().contains(n.text());
+        };
+        if (trace != SelectionTrace.NONE && !(dto instanceof AndNode || dto instanceof OrNode || dto instanceof NotNode)) {
+            trace.leaf(dto, rows.cardinality());
+        }
+        if (shared != null) shared.put(dto, rows);
+        return rows;
+    }
+
+    private ColumnMasks masks(ProductStore store) {
+        return kernel != null ? ColumnMasks.of(store, kernel, scanner.segments()) : null;
+    }
+
+    private Bitmap selectMasks(SpecDto canonical, ColumnMasks masks, SelectionTrace trace) {
+        if (trace == SelectionTrace.NONE) return masks.select(segment -> mask(canonical, segment, SelectionTrace.NONE));
+        LeafTotals totals = new LeafTotals(canonical);
+        Bitmap rows = masks.select(segment -> mask(canonical, segment, totals.segment()));
+        totals.report(trace);
+        trace.tested(masks.size());
+        return rows;
+    }
+
+    /** {@code dto} over one segment of the columns: leaves are column compares, AND/OR/NOT word-wise logic. */
+    private long[] mask(SpecDto dto, ColumnMasks masks, SelectionTrace trace) {
+        long[] mask = switch (dto) {
+            case AndNode a -> {
+                long[] acc = masks.all();
+                for (SpecDto child : a.children()) ColumnMasks.and(acc, mask(child, masks, trace));
+                yield acc;
+            }
+            case OrNode o -> {
+                long[] acc = masks.none();
+                for (SpecDto child : o.children()) ColumnMasks.or(acc, mask(child, masks, trace));
+                yield acc;
+            }
+            case NotNode n -> {
+                long[] inner = mask(n.child(), masks, trace);
+                ColumnMasks.not(inner);
+                yield inner;
+            }
+            case ColorSpec c -> masks.color(color(c));
+            case SizeSpec s -> masks.size(size(s));
+            case InStockSpec ignored -> masks.inStock();
+            case PriceLtSpec pr -> masks.priceBelow(ProductStore.centsCeiling(pr.price()));
+            case PriceGteSpec pr -> masks.priceAtLeast(ProductStore.centsCeiling(pr.price()));
+            case PriceBetweenSpec pr ->
+              masks.priceBetween(ProductStore.centsCeiling(pr.min()), ProductStore.centsCeiling(pr.max()));
+            case NamePrefixSpec n -> masks.rows(masks.names().prefix(n.prefix()));
+            case NameContainsSpec n -> masks.rows(masks.names().contains(n.text()));
+        };
+        if (trace != SelectionTrace.NONE && !(dto instanceof AndNode || dto instanceof OrNode || dto instanceof NotNode)) {
+            trace.leaf(dto, masks.cardinality(mask));
+        }
+        return mask;
+    }
+
+    /**
+     * Leaf matches added up across the segments of a mask evaluation and reported once per
+     * leaf. Every segment visits the leaves in the same order, which numbers them.
+     */
+    private static final class LeafTotals {
+
+        private final List<SpecDto> leaves = new ArrayList<>();
+        private final AtomicIntegerArray matches;
+
+        LeafTotals(SpecDto tree) {
+            collect(tree);
+            matches = new AtomicIntegerArray(leaves.size());
+        }
+
+        SelectionTrace segment() {
+            return new SelectionTrace() {
+                private int next;
+
+                @Override
+                public void leaf(SpecDto leaf, int n) {
+                    matches.addAndGet(next++, n);
+                }
+            };
+        }
+
+        void report(SelectionTrace trace) {
+            for (int i = 0; i < leaves.size(); i++) trace.leaf(leaves.get(i), matches.get(i));
+        }
+
+        private void collect(SpecDto dto) {
+            switch (dto) {
+                case AndNode a -> a.children().forEach(this::collect);
+                case OrNode o -> o.children().forEach(this::collect);
+                case NotNode n -> collect(n.child());
+                default -> leaves.add(dto);
+            }
+        }
+    }
+
+    private Bitmap selectAnd(List<SpecDto> children, ProductStore store, SelectionTrace trace,
+                             Map<SpecDto, Bitmap> shared) {
+        Bitmap candidates = null;
+        for (SpecDto child : children) {
+            Bitmap rows = selectNode(child, store, trace, shared);
+            candidates = candidates == null ? rows : candidates.and(rows);
+            if (candidates.isEmpty()) return candidates;
+        }
+        return candidates != null ? candidates : store.index().all();
+    }
+
+    /**
+     * Matches of an AND of {@code children}, up to {@code limit}. A price leaf is counted
+     * against the rows of its siblings with {@link #countPriced}; otherwise the last
+     * intersection is only counted.
+     */
+    private int countAnd(List<SpecDto> children, ProductStore store, int limit) {
+        for (int i = 0; i < children.size(); i++) {
+            long[] range = priceRange(children.get(i));
+            if (range == null) continue;
+            List<SpecDto> siblings = new ArrayList<>(children);
+            siblings.remove(i);
+            return countPriced(store, range[0], range[1], selectAnd(siblings, store, SelectionTrace.NONE, null), limit);
+        }
+        int last = children.size() - 1;
+        Bitmap rest = selectAnd(children.subList(0, last), store, SelectionTrace.NONE, null);
+        Bitmap lastRows = selectNode(children.get(last), store, SelectionTrace.NONE, null);
+        return limit == 1 ? (rest.intersects(lastRows) ? 1 : 0) : rest.andCardinality(lastRows);
+    }
+
+    /**
+     * Rows of {@code among} priced in {@code [minCents, maxCents)}, counted up to {@code limit}
+     * without building either side: the price positions of the range are looked up in
+     * {@code among} when they are fewer, and the rows of {@code among} have their price read
+     * from the column otherwise.
+     */
+    private static int countPriced(ProductStore store, long minCents, long maxCents, Bitmap among, int limit) {
+        PriceIndex prices = store.index().price();
+        int from = prices.lowerBound(minCents);
+        int to = prices.lowerBound(maxCents);
+        if (among == store.index().all()) return Math.max(0, Math.min(to - from, limit));
+        int n = 0;
+        if (to - from <= among.cardinality()) {
+            for (int p = from; p < to && n < limit; p++) {
+                if (among.contains(prices.rowAt(p))) n++;
+            }
+            return n;
+        }
+        for (PrimitiveIterator.OfInt rows = among.iterator(); rows.hasNext() && n < limit; ) {
+            long cents = store.priceCents(rows.nextInt());
+            if (cents >= minCents && cents < maxCents) n++;
+        }
+        return n;
+    }
+
+    /** {@code [min, max)} cents of a price leaf, or {@code null} for any other node. */
+    private static long[] priceRange(SpecDto dto) {
+        return switch (dto) {
+            case PriceLtSpec pr -> new long[]{Long.MIN_VALUE, ProductStore.centsCeiling(pr.price())};
+            case PriceGteSpec pr -> new long[]{ProductStore.centsCeiling(pr.price()), Long.MAX_VALUE};
+            case PriceBetweenSpec pr ->
+              new long[]{ProductStore.centsCeiling(pr.min()), ProductStore.centsCeiling(pr.max())};
+            default -> null;
+        };
+    }
+
+    private boolean existsNode(SpecDto dto, ProductStore store) {
+        return switch (dto) {
+            case AndNode a when a.children().isEmpty() -> !store.isEmpty();
+            case AndNode a -> countAnd(a.children(), store, 1) > 0;
+            case SpecDto leaf when priceRange(leaf) != null -> countAnd(List.of(leaf), store, 1) > 0;
+            case OrNode o -> o.children().stream().anyMatch(child -> existsNode(child, store));
+            case NotNode n -> selectNode(n.child(), store, SelectionTrace.NONE, null).cardinality() < store.count();
+            default -> !selectNode(dto, store, SelectionTrace.NONE, null).isEmpty();
         };
     }
+
+    private static RowSpecification liveOnly(RowSpecification spec, ProductStore store) {
+        return store.hasDeletions() ? row -> store.isLive(row) && spec.isSatisfied(row) : spec;
+    }
+
+    private static Color color(ColorSpec spec) {
+        return SpecRewriter.parseColor(spec.color());
+    }
+
+    private static Size size(SizeSpec spec) {
+        return SpecRewriter.parseSize(spec.size());
+    }
+
+    private RowSpecification[] compileAll(List<SpecDto> children, ProductStore store) {
+        return children.stream().map(c -> compileNode(c, store)).toArray(RowSpecification[]::new);
+    }
 }
@@ -0,0 +1,267 @@
+package tech.terabyte.labs.vendomita.specification.factory;
+
+import tech.terabyte.labs.vendomita.model.Color;
+import tech.terabyte.labs.vendomita.model.Size;
+import tech.terabyte.labs.vendomita.specification.AndNode;
+import tech.terabyte.labs.vendomita.specification.ColorSpec;
+import tech.terabyte.labs.vendomita.catalog.NameIndex;
+import tech.terabyte.labs.vendomita.specification.InStockSpec;
+import tech.terabyte.labs.vendomita.specification.NameContainsSpec;
+import tech.terabyte.labs.vendomita.specification.NamePrefixSpec;
+import tech.terabyte.labs.vendomita.specification.NotNode;
+import tech.terabyte.labs.vendomita.specification.OrNode;
+import tech.terabyte.labs.vendomita.specification.PriceBetweenSpec;
+import tech.terabyte.labs.vendomita.specification.PriceGteSpec;
+import tech.terabyte.labs.vendomita.specification.PriceLtSpec;
+import tech.terabyte.labs.vendomita.specification.SizeSpec;
+import tech.terabyte.labs.vendomita.specification.SpecDto;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Rewrites a {@link SpecDto} tree into a canonical, equivalent one:
+ * <ul>
+ *   <li>leaf values are validated and normalized (upper-case enums, prices without trailing zeros,
+ *       lower-case name searches; an empty name search matches everything);</li>
+ *   <li>{@code NOT(NOT x)} becomes {@code x}, and {@code NOT} over a price bound flips the bound;</li>
+ *   <li>nested {@code AND}/{@code OR} are flattened, duplicates removed and children sorted;</li>
+ *   <li>price bounds under the same {@code AND} (or {@code OR}) are merged into one, and so are name
+ *       prefixes; name searches implied by a sibling are dropped;</li>
+ *   <li>contradictions ({@code Color=RED AND Color=BLUE}, {@code x AND NOT x}) fold to {@link #NEVER}
+ *       and tautologies ({@code x OR NOT x}) to {@link #ALWAYS};</li>
+ *   <li>single-child {@code AND}/{@code OR} are replaced by the child.</li>
+ * </ul>
+ * Constants are plain nodes: an {@code AND} with no children always matches, an {@code OR}
+ * with no children never does. Two trees with the same meaning under these rules rewrite to
+ * equal records, so the result can be used as a key.
+ */
+public final class SpecRewriter {
+
+    public static final SpecDto ALWAYS = new AndNode(List.of());
+    public static final SpecDto NEVER = new OrNode(List.of());
+
+    private static final Comparator<SpecDto> CANONICAL_ORDER = Comparator.comparing(Object::toString);
+
+    public SpecDto rewrite(SpecDto dto) {
+        if (dto == null) throw new IllegalArgumentException("Spec node is required");
+        return switch (dto) {
+            case AndNode a -> rewriteAnd(requireChildren(a.children(), "AND"));
+            case OrNode o -> rewriteOr(requireChildren(o.children(), "OR"));
+            case NotNode n -> rewriteNot(n.child());
+            case ColorSpec c -> {
+                String color = parseColor(c.color()).name();
+                yield color.equals(c.color()) ? c : new ColorSpec(color);
+            }
+            case SizeSpec s -> {
+                String size = parseSize(s.size()).name();
+                yield size.equals(s.size()) ? s : new SizeSpec(size);
+            }
+            case PriceLtSpec p -> new PriceLtSpec(price(p.price(), "PriceLessThanSpecification"));
+            case PriceGteSpec p -> new PriceGteSpec(price(p.price(), "PriceGreaterOrEqualSpecification"));
+            case PriceBetweenSpec p -> between(
+              price(p.min(), "PriceBetweenSpecification"), price(p.max(), "PriceBetweenSpecification"));
+            case InStockSpec ignored -> new InStockSpec();
+            case NamePrefixSpec n -> {
+                String prefix = name(n.prefix(), "NamePrefixSpecification requires 'prefix'");
+                yield prefix.isEmpty() ? ALWAYS : new NamePrefixSpec(prefix);
+            }
+            case NameContainsSpec n -> {
+                String text = name(n.text(), "NameContainsSpecification requires 'text'");
+                yield text.isEmpty() ? ALWAYS : new NameContainsSpec(text);
+            }
+        };
+    }
+
+    public static boolean isAlways(SpecDto dto) {
+        return dto instanceof AndNode a && a.children().isEmpty();
+    }
+
+    public static boolean isNever(SpecDto dto) {
+        return dto instanceof OrNode o && o.children().isEmpty();
+    }
+
+    static Color parseColor(String color) {
+        if (color == null) throw new IllegalArgumentException("ColorSpecification requires 'color'");
+        return Color.from(color);
+    }
+
+    static Size parseSize(String size) {
+        if (size == null) throw new IllegalArgumentException("SizeSpecification requires 'size'");
+        return Size.from(size);
+    }
+
+    private SpecDto rewriteNot(SpecDto child) {
+        if (child == null) throw new IllegalArgumentException("NOT requires exactly one 'child'");
+        SpecDto inner = rewrite(child);
+        if (isAlways(inner)) return NEVER;
+        if (isNever(inner)) return ALWAYS;
+        return switch (inner) {
+            case NotNode n -> n.child();
+            case PriceLtSpec p -> new PriceGteSpec(p.price());
+            case PriceGteSpec p -> new PriceLtSpec(p.price());
+            default -> new NotNode(inner);
+        };
+    }
+
+    private SpecDto rewriteAnd(List<SpecDto> children) {
+        Set<SpecDto> terms = new LinkedHashSet<>();
+        for (SpecDto child : children) {
+            SpecDto r = rewrite(child);
+            if (isNever(r)) return NEVER;
+            if (r instanceof AndNode nested) terms.addAll(nested.children());
+            else terms.add(r);
+        }
+
+        BigDecimal lo = null, hi = null;
+        ColorSpec color = null;
+        SizeSpec size = null;
+        NamePrefixSpec prefix = null;
+        List<SpecDto> rest = new ArrayList<>();
+        for (SpecDto t : terms) {
+            switch (t) {
+                case PriceLtSpec p -> hi = min(hi, p.price());
+                case PriceGteSpec p -> lo = max(lo, p.price());
+                case PriceBetweenSpec p -> {
+                    lo = max(lo, p.min());
+                    hi = min(hi, p.max());
+                }
+                case ColorSpec c -> {
+                    if (color != null) return NEVER;
+                    color = c;
+                    rest.add(c);
+                }
+                case SizeSpec s -> {
+                    if (size != null) return NEVER;
+                    size = s;
+                    rest.add(s);
+                }
+                case NamePrefixSpec p -> {
+                    // the longer of two nested prefixes; two diverging ones never match together
+                    if (prefix == null || p.prefix().startsWith(prefix.prefix())) prefix = p;
+                    else if (!prefix.prefix().startsWith(p.prefix())) return NEVER;
+                }
+                default -> rest.add(t);
+            }
+        }
+        if (prefix != null) rest.add(prefix);
+
+        List<SpecDto> out = new ArrayList<>();
+        for (SpecDto t : rest) {
+            if (t instanceof NameContainsSpec c && impliedByAnd(c.text(), prefix, terms)) continue;
+            if (t instanceof NotNode n) {
+                if (terms.contains(n.child())) return NEVER;
+                // NOT(Color=BLUE) adds nothing next to Color=RED; same for sizes
+                if (n.child() instanceof ColorSpec && color != null) continue;
+                if (n.child() instanceof SizeSpec && size != null) continue;
+            }
+            out.add(t);
+        }
+
+        SpecDto price = lo != null && hi != null ? between(lo, hi)
+          : lo != null ? new PriceGteSpec(lo)
+          : hi != null ? new PriceLtSpec(hi)
+          : null;
+        if (price != null) {
+            if (isNever(price)) return NEVER;
+            out.add(price);
+        }
+        return combine(out, true);
+    }
+
+    private SpecDto rewriteOr(List<SpecDto> children) {
+        Set<SpecDto> terms = new LinkedHashSet<>();
+        for (SpecDto child : children) {
+            SpecDto r = rewrite(child);
+            if (isAlways(r)) return ALWAYS;
+            if (r instanceof OrNode nested) terms.addAll(nested.children());
+            else terms.add(r);
+        }
+
+        BigDecimal below = null, atLeast = null;
+        List<SpecDto> out = new ArrayList<>();
+        for (SpecDto t : terms) {
+            switch (t) {
+                case PriceLtSpec p -> below = max(below, p.price());
+                case PriceGteSpec p -> atLeast = min(atLeast, p.price());
+                case NotNode n -> {
+                    if (terms.contains(n.child())) return ALWAYS;
+                    out.add(t);
+                }
+                case NamePrefixSpec p -> {
+                    if (!coveredByOr(p.prefix(), true, terms)) out.add(t);
+                }
+                case NameContainsSpec c -> {
+                    if (!coveredByOr(c.text(), false, terms)) out.add(t);
+                }
+                default -> out.add(t);
+            }
+        }
+        if (below != null && atLeast != null && atLeast.compareTo(below) <= 0) return ALWAYS;
+        if (below != null) out.add(new PriceLtSpec(below));
+        if (atLeast != null) out.add(new PriceGteSpec(atLeast));
+        return combine(out, false);
+    }
+
+    /** Whether {@code NameContains(text)} follows from {@code prefix} or from a longer sibling search. */
+    private static boolean impliedByAnd(String text, NamePrefixSpec prefix, Set<SpecDto> terms) {
+        if (prefix != null && prefix.prefix().contains(text)) return true;
+        for (SpecDto t : terms) {
+            if (t instanceof NameContainsSpec c && !c.text().equals(text) && c.text().contains(text)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Whether a name search for {@code value} (a prefix when {@code isPrefix}) only matches names
+     * a sibling under the same {@code OR} matches already: a shorter prefix, or a substring of it.
+     */
+    private static boolean coveredByOr(String value, boolean isPrefix, Set<SpecDto> terms) {
+        for (SpecDto t : terms) {
+            if (t instanceof NamePrefixSpec p && isPrefix && !p.prefix().equals(value) && value.startsWith(p.prefix())) {
+                return true;
+            }
+            if (t instanceof NameContainsSpec c && !c.text().equals(value) && value.contains(c.text())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static SpecDto combine(List<SpecDto> terms, boolean and) {
+        if (terms.size() == 1) return terms.getFirst();
+        terms.sort(CANONICAL_ORDER);
+        return and ? new AndNode(List.copyOf(terms)) : new OrNode(List.copyOf(terms));
+    }
+
+    private static SpecDto between(BigDecimal min, BigDecimal max) {
+        return min.compareTo(max) >= 0 ? NEVER : new PriceBetweenSpec(min, max);
+    }
+
+    private static List<SpecDto> requireChildren(List<SpecDto> children, String type) {
+        if (children == null) throw new IllegalArgumentException(type + " requires 'children'");
+        return children;
+    }
+
+    private static String name(String value, String missing) {
+        if (value == null) throw new IllegalArgumentException(missing);
+        return NameIndex.key(value);
+    }
+
+    private static BigDecimal price(BigDecimal price, String type) {
+        if (price == null) throw new IllegalArgumentException(type + " requires a price");
+        return price.signum() == 0 ? BigDecimal.ZERO : price.stripTrailingZeros();
+    }
+
+    private static BigDecimal min(BigDecimal a, BigDecimal b) {
+        return a == null || b.compareTo(a) < 0 ? b : a;
+    }
+
+    private static BigDecimal max(BigDecimal a, BigDecimal b) {
+        return a == null || b.compareTo(a) > 0 ? b : a;
+    }
+}
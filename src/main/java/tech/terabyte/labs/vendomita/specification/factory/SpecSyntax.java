@@ -0,0 +1,210 @@
+package tech.terabyte.labs.vendomita.specification.factory;
+
+import tech.terabyte.labs.vendomita.model.Color;
+import tech.terabyte.labs.vendomita.model.Size;
+import tech.terabyte.labs.vendomita.specification.AndNode;
+import tech.terabyte.labs.vendomita.specification.ColorSpec;
+import tech.terabyte.labs.vendomita.specification.InStockSpec;
+import tech.terabyte.labs.vendomita.specification.NameContainsSpec;
+import tech.terabyte.labs.vendomita.specification.NamePrefixSpec;
+import tech.terabyte.labs.vendomita.specification.NotNode;
+import tech.terabyte.labs.vendomita.specification.OrNode;
+import tech.terabyte.labs.vendomita.specification.PriceBetweenSpec;
+import tech.terabyte.labs.vendomita.specification.PriceGteSpec;
+import tech.terabyte.labs.vendomita.specification.PriceLtSpec;
+import tech.terabyte.labs.vendomita.specification.SizeSpec;
+import tech.terabyte.labs.vendomita.specification.SpecDto;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact text form of a spec, for GET requests such as
+ * {@code ?q=color:RED AND size:LARGE AND NOT inStock}, parsed in one pass without a
+ * separate tokenizer:
+ * <pre>
+ * query := and ('OR' and)*
+ * and   := unary ('AND' unary)*
+ * unary := 'NOT' unary | '(' query ')' | term
+ * term  := 'inStock' | 'color:' word | 'size:' word
+ *        | 'price&lt;' number | 'price&gt;=' number | 'price:' number '..' number
+ *        | 'name:' value '*' | 'name:*' value '*'
+ * value := word | '"' text '"'          (\" and \\ escape inside quotes)
+ * </pre>
+ * {@code NOT} binds tighter than {@code AND}, which binds tighter than {@code OR}. Keywords,
+ * keys, colors and sizes ignore case. {@code name:jack*} is a prefix search and
+ * {@code name:*ket-1*} a substring one. The limits of {@link SpecDeserializer} apply.
+ */
+public final class SpecSyntax {
+
+    private final String q;
+    private int pos;
+    private int nodes;
+
+    private SpecSyntax(String q) {
+        this.q = q;
+    }
+
+    public static SpecDto parse(String q) {
+        if (q == null || q.isBlank()) throw new IllegalArgumentException("Query 'q' must not be empty");
+        SpecSyntax syntax = new SpecSyntax(q);
+        SpecDto spec = syntax.query(0);
+        syntax.skipSpaces();
+        if (syntax.pos < q.length()) throw syntax.error("expected AND, OR or end of query");
+        return spec;
+    }
+
+    private SpecDto query(int depth) {
+        SpecDto first = and(depth);
+        if (!keyword("OR")) return first;
+        List<SpecDto> terms = new ArrayList<>();
+        terms.add(first);
+        do terms.add(and(depth)); while (keyword("OR"));
+        return node(new OrNode(terms));
+    }
+
+    private SpecDto and(int depth) {
+        SpecDto first = unary(depth);
+        if (!keyword("AND")) return first;
+        List<SpecDto> terms = new ArrayList<>();
+        terms.add(first);
+        do terms.add(unary(depth)); while (keyword("AND"));
+        return node(new AndNode(terms));
+    }
+
+    private SpecDto unary(int depth) {
+        if (depth >= SpecDeserializer.MAX_DEPTH) {
+            throw new IllegalArgumentException("Spec nested deeper than " + SpecDeserializer.MAX_DEPTH + " levels");
+        }
+        if (keyword("NOT")) return node(new NotNode(unary(depth + 1)));
+        skipSpaces();
+        if (pos < q.length() && q.charAt(pos) == '(') {
+            pos++;
+            SpecDto inner = query(depth + 1);
+            skipSpaces();
+            expect(')');
+            return inner;
+        }
+        return node(term());
+    }
+
+    private SpecDto term() {
+        int start = pos;
+        while (pos < q.length() && Character.isLetter(q.charAt(pos))) pos++;
+        String key = q.substring(start, pos);
+        if (key.equalsIgnoreCase("inStock") && atBoundary()) return new InStockSpec();
+        if (key.equalsIgnoreCase("color")) {
+            expect(':');
+            return new ColorSpec(Color.from(word()).name());
+        }
+        if (key.equalsIgnoreCase("size")) {
+            expect(':');
+            return new SizeSpec(Size.from(word()).name());
+        }
+        if (key.equalsIgnoreCase("price")) return price();
+        if (key.equalsIgnoreCase("name")) {
+            expect(':');
+            boolean contains = pos < q.length() && q.charAt(pos) == '*';
+            if (contains) pos++;
+            String value = value();
+            if (pos >= q.length() || q.charAt(pos) != '*') throw error("use name:text* (prefix) or name:*text* (contains)");
+            pos++;
+            if (!atBoundary()) throw error("expected end of name search");
+            return contains ? new NameContainsSpec(value) : new NamePrefixSpec(value);
+        }
+        pos = start;
+        throw error("expected inStock, color:, size:, price or name:");
+    }
+
+    private SpecDto price() {
+        if (q.startsWith("<", pos)) {
+            pos++;
+            return new PriceLtSpec(number(word()));
+        }
+        if (q.startsWith(">=", pos)) {
+            pos += 2;
+            return new PriceGteSpec(number(word()));
+        }
+        if (!q.startsWith(":", pos)) throw error("use price<n, price>=n or price:min..max");
+        pos++;
+        String range = word();
+        int dots = range.indexOf("..");
+        if (dots < 0) throw error("use price<n, price>=n or price:min..max");
+        return new PriceBetweenSpec(number(range.substring(0, dots)), number(range.substring(dots + 2)));
+    }
+
+    /** A bare word (up to a space, parenthesis, quote or {@code *}) or a quoted string. */
+    private String value() {
+        if (pos < q.length() && q.charAt(pos) == '"') {
+            StringBuilder out = new StringBuilder();
+            for (pos++; pos < q.length(); pos++) {
+                char c = q.charAt(pos);
+                if (c == '"') {
+                    pos++;
+                    return out.toString();
+                }
+                if (c == '\\' && pos + 1 < q.length()) c = q.charAt(++pos);
+                out.append(c);
+            }
+            throw error("unterminated quote");
+        }
+        int start = pos;
+        while (pos < q.length() && !atDelimiter(pos) && q.charAt(pos) != '"' && q.charAt(pos) != '*') pos++;
+        return q.substring(start, pos);
+    }
+
+    private String word() {
+        int start = pos;
+        while (pos < q.length() && !atDelimiter(pos)) pos++;
+        if (start == pos) throw error("expected a value");
+        return q.substring(start, pos);
+    }
+
+    private BigDecimal number(String text) {
+        try {
+            return new BigDecimal(text);
+        } catch (NumberFormatException e) {
+            throw error("'" + text + "' is not a number");
+        }
+    }
+
+    /** Consumes {@code word}, ignoring case, if it comes next as a whole word. */
+    private boolean keyword(String word) {
+        skipSpaces();
+        int end = pos + word.length();
+        if (!q.regionMatches(true, pos, word, 0, word.length())) return false;
+        if (end < q.length() && !atDelimiter(end)) return false;
+        pos = end;
+        return true;
+    }
+
+    private SpecDto node(SpecDto node) {
+        if (++nodes > SpecDeserializer.MAX_NODES) {
+            throw new IllegalArgumentException("Spec has more than " + SpecDeserializer.MAX_NODES + " nodes");
+        }
+        return node;
+    }
+
+    private void expect(char c) {
+        if (pos >= q.length() || q.charAt(pos) != c) throw error("expected '" + c + "'");
+        pos++;
+    }
+
+    private boolean atBoundary() {
+        return pos == q.length() || atDelimiter(pos);
+    }
+
+    private boolean atDelimiter(int i) {
+        char c = q.charAt(i);
+        return Character.isWhitespace(c) || c == '(' || c == ')';
+    }
+
+    private void skipSpaces() {
+        while (pos < q.length() && Character.isWhitespace(q.charAt(pos))) pos++;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Invalid query at position " + pos + ": " + message);
+    }
+}
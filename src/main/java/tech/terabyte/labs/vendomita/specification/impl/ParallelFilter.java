@@ -0,0 +1,87 @@
+package tech.terabyte.labs.vendomita.specification.impl;
+
+import tech.terabyte.labs.vendomita.catalog.Bitmap;
+import tech.terabyte.labs.vendomita.catalog.RowSegments;
+import tech.terabyte.labs.vendomita.specification.Filter;
+import tech.terabyte.labs.vendomita.specification.RowSpecification;
+import tech.terabyte.labs.vendomita.specification.Specification;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Stream;
+
+/**
+ * {@link Filter} that splits the input into fixed-size segments and evaluates them on
+ * a dedicated {@link ForkJoinPool}. Segment results are joined in segment order, so
+ * matches keep catalog order. Inputs below {@code parallelThreshold} run serially on
+ * the calling thread, where fork/join overhead would dominate. Row scans, and the
+ * column masks of {@code SpecParser}, go through {@link #segments()}.
+ */
+public class ParallelFilter<T> implements Filter<T> {
+
+    private final ForkJoinPool pool;
+    private final int parallelThreshold;
+    private final int segmentSize;
+    private final RowSegments segments;
+
+    public ParallelFilter(ForkJoinPool pool, int parallelThreshold, int segmentSize) {
+        if (segmentSize <= 0) throw new IllegalArgumentException("segmentSize must be positive");
+        this.pool = pool;
+        this.parallelThreshold = parallelThreshold;
+        this.segmentSize = segmentSize;
+        this.segments = new RowSegments(pool, parallelThreshold);
+    }
+
+    /** Always scans on the calling thread. */
+    public static <T> ParallelFilter<T> serial() {
+        return new ParallelFilter<>(null, Integer.MAX_VALUE, 16_384);
+    }
+
+    @Override
+    public Stream<T> filter(List<T> items, Specification<T> spec) {
+        int n = items.size();
+        if (!parallel(n)) return items.stream().filter(spec::isSatisfied);
+
+        List<ForkJoinTask<List<T>>> segments = new ArrayList<>(n / segmentSize + 1);
+        for (int from = 0; from < n; from += segmentSize) {
+            int start = from;
+            int end = Math.min(n, from + segmentSize);
+            segments.add(pool.submit(() -> {
+                List<T> matches = new ArrayList<>();
+                for (int i = start; i < end; i++) {
+                    T item = items.get(i);
+                    if (spec.isSatisfied(item)) matches.add(item);
+                }
+                return matches;
+            }));
+        }
+        return segments.stream().flatMap(segment -> segment.join().stream());
+    }
+
+    /** Rows of {@code [0, size)} satisfying {@code spec}, as a bitmap. */
+    public Bitmap scan(int size, RowSpecification spec) {
+        if (!segments.parallel(size)) return Bitmap.scan(size, spec);
+        return Bitmap.union(segments.map(size, (from, to) -> {
+            Bitmap matches = new Bitmap();
+            for (int row = from; row < to; row++) {
+                if (spec.isSatisfied(row)) matches.add(row);
+            }
+            return matches;
+        }));
+    }
+
+    /** Row segments of this filter's pool and threshold. */
+    public RowSegments segments() {
+        return segments;
+    }
+
+    public int parallelism() {
+        return segments.parallelism();
+    }
+
+    private boolean parallel(int size) {
+        return pool != null && pool.getParallelism() > 1 && size >= parallelThreshold;
+    }
+}
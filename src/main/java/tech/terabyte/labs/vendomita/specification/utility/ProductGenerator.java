@@ -1,37 +1,108 @@
 package tech.terabyte.labs.vendomita.specification.utility;
 
+import tech.terabyte.labs.vendomita.catalog.NameColumn;
+import tech.terabyte.labs.vendomita.catalog.ProductStore;
+import tech.terabyte.labs.vendomita.catalog.RowSegments;
 import tech.terabyte.labs.vendomita.model.Color;
 import tech.terabyte.labs.vendomita.model.Product;
 import tech.terabyte.labs.vendomita.model.Size;
 
-import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
 
+/**
+ * Random catalogs for demos and load tests. The catalog is cut into fixed chunks and
+ * each chunk draws from its own {@link SplittableRandom}, split from the seed in chunk
+ * order, so the same seed gives the same catalog however many threads fill it.
+ * Rows are written straight into store columns: names are picked from a table encoded
+ * once and prices are whole cents, so no per-row {@code String}, {@code BigDecimal} or
+ * {@link Product} is created.
+ */
 public class ProductGenerator {
-    private static final Random random = new Random();
+
+    static final int CHUNK = 1 << 16;
+
+    private static final Color[] COLORS = Color.values();
+    private static final Size[] SIZES = Size.values();
     private static final String[] BASE_NAMES = {
       "T-Shirt", "Hat", "Shoes", "Pants", "Backpack", "Watch", "Glasses", "Sweater", "Socks", "Jacket"
     };
+    private static final int SUFFIXES = 9000;
 
     public static List<Product> generate(int count) {
-        List<Product> products = new ArrayList<>(count);
-        for (int i = 0; i < count; i++) {
-            String name = generateName();
-            Color color = Color.values()[random.nextInt(Color.values().length)];
-            Size size = Size.values()[random.nextInt(Size.values().length)];
-            BigDecimal price = BigDecimal.valueOf(100 + random.nextInt(4901)); // $100 - $5000
-            boolean inStock = random.nextBoolean();
-
-            products.add(new Product(name, color, size, price, inStock));
+        return generate(count, randomSeed());
+    }
+
+    public static List<Product> generate(int count, long seed) {
+        ProductStore store = generateStore(count, seed, null);
+        List<Product> products = new ArrayList<>(store.size());
+        for (int row = 0; row < store.size(); row++) {
+            Product p = store.get(row);
+            products.add(new Product(p.name(), p.color(), p.size(), p.price(), p.inStock()));
         }
         return products;
     }
 
-    private static String generateName() {
-        String base = BASE_NAMES[random.nextInt(BASE_NAMES.length)];
-        int suffix = 1000 + random.nextInt(9000);
-        return base + "-" + suffix;
+    /**
+     * Generates {@code count} products straight into a store, filling chunks and building
+     * the indexes on {@code pool} (serially when {@code null}).
+     */
+    public static ProductStore generateStore(int count, long seed, ForkJoinPool pool) {
+        int n = Math.max(count, 0);
+        int[] names = new int[n];
+        byte[] colors = new byte[n];
+        byte[] sizes = new byte[n];
+        long[] priceCents = new long[n];
+        // CHUNK is a multiple of 64, so chunks never share a word of the stock bits
+        long[] stockWords = new long[(n + 63) >>> 6];
+
+        int chunks = (n + CHUNK - 1) / CHUNK;
+        SplittableRandom root = new SplittableRandom(seed);
+        SplittableRandom[] randoms = new SplittableRandom[chunks];
+        for (int c = 0; c < chunks; c++) randoms[c] = root.split();
+
+        if (pool == null || chunks <= 1) {
+            for (int c = 0; c < chunks; c++) fillChunk(c, n, randoms[c], names, colors, sizes, priceCents, stockWords);
+        } else {
+            pool.submit(() -> IntStream.range(0, chunks).parallel()
+              .forEach(c -> fillChunk(c, n, randoms[c], names, colors, sizes, priceCents, stockWords))).join();
+        }
+        return ProductStore.ofColumns(Names.COLUMN.pick(names), colors, sizes, priceCents, BitSet.valueOf(stockWords),
+          RowSegments.on(pool));
+    }
+
+    public static long randomSeed() {
+        return ThreadLocalRandom.current().nextLong();
+    }
+
+    private static void fillChunk(int c, int n, SplittableRandom random, int[] names, byte[] colors,
+                                   byte[] sizes, long[] priceCents, long[] stockWords) {
+        int to = Math.min(n, (c + 1) * CHUNK);
+        for (int row = c * CHUNK; row < to; row++) {
+            names[row] = random.nextInt(Names.COLUMN.size());
+            colors[row] = (byte) random.nextInt(COLORS.length);
+            sizes[row] = (byte) random.nextInt(SIZES.length);
+            priceCents[row] = (100 + random.nextInt(4901)) * 100L; // $100 - $5000
+            if (random.nextBoolean()) stockWords[row >>> 6] |= 1L << row;
+        }
+    }
+
+    /** Every possible name ({@code base-1000} .. {@code base-9999}), encoded on first use. */
+    private static final class Names {
+        static final NameColumn COLUMN;
+
+        static {
+            String[] table = new String[BASE_NAMES.length * SUFFIXES];
+            int i = 0;
+            for (String base : BASE_NAMES) {
+                for (int suffix = 1000; suffix < 1000 + SUFFIXES; suffix++) table[i++] = base + "-" + suffix;
+            }
+            COLUMN = NameColumn.encode(table);
+        }
     }
 }
@@ -2,13 +2,15 @@ package tech.terabyte.labs.vendomita.specification.utility;
 
 import tech.terabyte.labs.vendomita.specification.Specification;
 
-import java.util.Arrays;
-
 public class SpecsBuilder {
 
     public static <T> Specification<T> and(Specification<T>... specs) {
-        return item -> Arrays.stream(specs)
-          .allMatch(spec -> spec.isSatisfied(item));
+        return item -> {
+            for (Specification<T> s : specs) {
+                if (!s.isSatisfied(item)) return false;
+            }
+            return true;
+        };
     }
 
     public static <T> Specification<T> not(Specification<T> spec) {
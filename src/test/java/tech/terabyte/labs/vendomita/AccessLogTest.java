@@ -0,0 +1,101 @@
+package tech.terabyte.labs.vendomita;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tech.terabyte.labs.vendomita.filter.AccessLog;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * El access log no bloquea al hilo del request: muestrea, descarta (y cuenta) cuando
+ * la cola está llena y escribe por lotes desde su propio hilo.
+ */
+class AccessLogTest {
+
+    private static final long FAST = Duration.ofMillis(2).toNanos();
+    private static final long SLOW = Duration.ofSeconds(2).toNanos();
+
+    private final List<AccessLog.Entry> written = new CopyOnWriteArrayList<>();
+
+    @Test
+    @DisplayName("Con muestreo 0 solo se registran los requests lentos o no-2xx")
+    void samplingKeepsSlowAndFailed() throws InterruptedException {
+        AccessLog accessLog = new AccessLog(16, 0.0, Duration.ofSeconds(1), written::addAll);
+
+        assertFalse(accessLog.record("POST", "/api/products/filter", 200, FAST, "a"));
+        assertTrue(accessLog.record("POST", "/api/products/filter", 200, SLOW, "b"));
+        assertTrue(accessLog.record("POST", "/api/products/filter", 503, FAST, "c"));
+        // los errores del cliente y las redirecciones no se muestrean
+        assertTrue(accessLog.record("POST", "/api/products/filter", 400, FAST, "d"));
+        assertTrue(accessLog.record("POST", "/api/products/count", 412, FAST, "e"));
+        assertTrue(accessLog.record("GET", "/api/products", 302, FAST, "f"));
+        assertFalse(accessLog.record("GET", "/api/products/specs", 204, FAST, "g"));
+        accessLog.stop();
+
+        assertEquals(List.of("b", "c", "d", "e", "f"), written.stream().map(AccessLog.Entry::correlationId).toList());
+    }
+
+    @Test
+    @DisplayName("Con la cola llena se descarta y se cuenta, sin bloquear")
+    void fullQueueDropsAndCounts() throws InterruptedException {
+        AccessLog accessLog = new AccessLog(2, 1.0, Duration.ofSeconds(1), written::addAll);
+
+        assertTrue(accessLog.record("GET", "/a", 200, FAST, "1"));
+        assertTrue(accessLog.record("GET", "/b", 200, FAST, "2"));
+        assertFalse(accessLog.record("GET", "/c", 200, FAST, "3"));
+        assertEquals(1, accessLog.dropped());
+
+        accessLog.stop();
+        assertEquals(2, written.size());
+    }
+
+    @Test
+    @DisplayName("El hilo de fondo escribe todas las entradas en orden")
+    void writerDrainsInOrder() throws InterruptedException {
+        AccessLog accessLog = new AccessLog(1024, 1.0, Duration.ofSeconds(1), written::addAll);
+        accessLog.start();
+        for (int i = 0; i < 500; i++) accessLog.record("GET", "/r/" + i, 200, FAST, null);
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (written.size() < 500 && System.nanoTime() < deadline) Thread.sleep(5);
+        accessLog.stop();
+
+        assertEquals(500, written.size());
+        assertEquals("/r/0", written.get(0).uri());
+        assertEquals("/r/499", written.get(499).uri());
+        assertEquals(0, accessLog.dropped());
+    }
+
+    @Test
+    @DisplayName("Al parar, el resto de la cola lo escribe el mismo hilo de fondo, nunca dos a la vez")
+    void stopDrainsOnWriterThread() throws InterruptedException {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        AtomicInteger inside = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        AccessLog accessLog = new AccessLog(4096, 1.0, Duration.ofSeconds(1), batch -> {
+            if (inside.incrementAndGet() > 1) overlaps.incrementAndGet();
+            threads.add(Thread.currentThread().getName());
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            written.addAll(batch);
+            inside.decrementAndGet();
+        });
+        accessLog.start();
+        for (int i = 0; i < 3000; i++) accessLog.record("GET", "/r/" + i, 200, FAST, null);
+        accessLog.stop();
+
+        assertEquals(3000, written.size());
+        assertEquals(Set.of("access-log"), threads);
+        assertEquals(0, overlaps.get());
+    }
+}
@@ -0,0 +1,139 @@
+package tech.terabyte.labs.vendomita;
+
+import org.junit.jupiter.api.Test;
+import tech.terabyte.labs.vendomita.catalog.Bitmap;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Bitmap vs java.util.BitSet como referencia, mezclando contenedores
+ * dispersos (array) y densos (bitset) en varios chunks de 65536.
+ */
+class BitmapTest {
+
+    private static final int UNIVERSE = 300_000;
+    private final Random random = new Random(42);
+
+    @Test
+    void setOperationsMatchBitSet() {
+        for (double density : new double[]{0.001, 0.05, 0.5, 0.97}) {
+            BitSet a = randomBits(density);
+            BitSet b = randomBits(0.3);
+            Bitmap ba = toBitmap(a);
+            Bitmap bb = toBitmap(b);
+
+            BitSet and = (BitSet) a.clone();
+            and.and(b);
+            BitSet or = (BitSet) a.clone();
+            or.or(b);
+            BitSet andNot = (BitSet) a.clone();
+            andNot.andNot(b);
+            BitSet complement = (BitSet) a.clone();
+            complement.flip(0, UNIVERSE);
+
+            assertArrayEquals(and.stream().toArray(), ba.and(bb).toArray());
+            assertArrayEquals(or.stream().toArray(), ba.or(bb).toArray());
+            assertArrayEquals(andNot.stream().toArray(), ba.andNot(bb).toArray());
+            assertArrayEquals(complement.stream().toArray(), ba.complement(UNIVERSE).toArray());
+            assertEquals(a.cardinality(), ba.cardinality());
+            assertEquals(and.cardinality(), ba.andCardinality(bb));
+            assertEquals(and.cardinality(), bb.andCardinality(ba));
+            assertEquals(!and.isEmpty(), ba.intersects(bb));
+            assertEquals(!and.isEmpty(), bb.intersects(ba));
+        }
+    }
+
+    @Test
+    void operandsAreNotModified() {
+        Bitmap a = toBitmap(randomBits(0.5));
+        Bitmap b = toBitmap(randomBits(0.01));
+        int[] before = a.toArray();
+
+        a.and(b);
+        a.or(b);
+        a.andNot(b);
+        a.complement(UNIVERSE);
+
+        assertArrayEquals(before, a.toArray());
+    }
+
+    @Test
+    void addRemoveAndContains() {
+        Bitmap b = Bitmap.range(10, 70_000);
+        assertEquals(69_990, b.cardinality());
+        b.remove(10);
+        b.remove(65_536);
+        b.add(200_000);
+        assertFalse(b.contains(10));
+        assertFalse(b.contains(65_536));
+        assertTrue(b.contains(65_537));
+        assertTrue(b.contains(200_000));
+        assertEquals(69_989, b.cardinality());
+        assertArrayEquals(b.toArray(), b.stream().toArray());
+    }
+
+    @Test
+    void ofUnsortedMatchesSortedRows() {
+        Random random = new Random(11);
+        for (double density : new double[]{0.0001, 0.002, 0.3, 0.9}) {
+            int[] rows = randomBits(density).stream().toArray();
+            int[] shuffled = rows.clone();
+            for (int i = shuffled.length - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int t = shuffled[i];
+                shuffled[i] = shuffled[j];
+                shuffled[j] = t;
+            }
+            // un tramo del medio, como los rangos de posiciones del índice de precios
+            int from = shuffled.length / 4;
+            int to = shuffled.length - from;
+            int[] expected = Arrays.copyOfRange(shuffled, from, to);
+            Arrays.sort(expected);
+            assertArrayEquals(expected, Bitmap.ofUnsorted(shuffled, from, to).toArray());
+            assertArrayEquals(rows, Bitmap.ofUnsorted(shuffled, 0, shuffled.length).toArray());
+        }
+        assertTrue(Bitmap.ofUnsorted(new int[]{5}, 1, 1).isEmpty());
+    }
+
+    @Test
+    void pagingMatchesSequentialIteration() {
+        for (double density : new double[]{0.002, 0.3, 0.9}) {
+            BitSet bits = randomBits(density);
+            Bitmap b = toBitmap(bits);
+            int[] all = bits.stream().toArray();
+
+            for (int offset : new int[]{0, 1, 17, all.length / 3, all.length - 5, all.length, all.length + 10}) {
+                int from = Math.max(0, Math.min(offset, all.length));
+                int to = Math.min(all.length, from + 50);
+                assertArrayEquals(Arrays.copyOfRange(all, from, to), b.page(offset, 50));
+            }
+            for (int row : new int[]{-1, 0, 65_535, 65_536, 123_457, UNIVERSE}) {
+                int rank = (int) bits.stream().filter(r -> r <= row).count();
+                assertEquals(rank, b.rank(row));
+                int[] expected = bits.stream().filter(r -> r > row).limit(20).toArray();
+                assertArrayEquals(expected, b.after(row, 20));
+            }
+        }
+    }
+
+    private BitSet randomBits(double density) {
+        BitSet bits = new BitSet(UNIVERSE);
+        for (int i = 0; i < UNIVERSE; i++) {
+            if (random.nextDouble() < density) bits.set(i);
+        }
+        return bits;
+    }
+
+    private static Bitmap toBitmap(BitSet bits) {
+        Bitmap b = new Bitmap();
+        bits.stream().forEach(b::add);
+        return b;
+    }
+}
@@ -0,0 +1,221 @@
+package tech.terabyte.labs.vendomita;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tech.terabyte.labs.vendomita.catalog.Catalog;
+import tech.terabyte.labs.vendomita.catalog.CatalogChange;
+import tech.terabyte.labs.vendomita.catalog.ProductStore;
+import tech.terabyte.labs.vendomita.catalog.StoreDelta;
+import tech.terabyte.labs.vendomita.model.CatalogBatch;
+import tech.terabyte.labs.vendomita.model.Color;
+import tech.terabyte.labs.vendomita.model.Product;
+import tech.terabyte.labs.vendomita.model.ProductUpsert;
+import tech.terabyte.labs.vendomita.model.Size;
+import tech.terabyte.labs.vendomita.query.QueryCache;
+import tech.terabyte.labs.vendomita.specification.AndNode;
+import tech.terabyte.labs.vendomita.specification.ColorSpec;
+import tech.terabyte.labs.vendomita.specification.InStockSpec;
+import tech.terabyte.labs.vendomita.specification.NameContainsSpec;
+import tech.terabyte.labs.vendomita.specification.NamePrefixSpec;
+import tech.terabyte.labs.vendomita.specification.NotNode;
+import tech.terabyte.labs.vendomita.specification.OrNode;
+import tech.terabyte.labs.vendomita.specification.PriceBetweenSpec;
+import tech.terabyte.labs.vendomita.specification.PriceGteSpec;
+import tech.terabyte.labs.vendomita.specification.SizeSpec;
+import tech.terabyte.labs.vendomita.specification.SpecDto;
+import tech.terabyte.labs.vendomita.specification.Specification;
+import tech.terabyte.labs.vendomita.specification.factory.SpecParser;
+import tech.terabyte.labs.vendomita.specification.utility.ProductGenerator;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Los batches se aplican como deltas: el store y los índices resultantes deben
+ * responder igual que el path de objetos sobre los productos vivos, y el store
+ * anterior no debe cambiar.
+ */
+class CatalogBatchTest {
+
+    private static final List<SpecDto> SPECS = List.of(
+      new ColorSpec("RED"),
+      new SizeSpec("LARGE"),
+      new InStockSpec(),
+      new NotNode(new InStockSpec()),
+      new PriceGteSpec(BigDecimal.valueOf(2500)),
+      new PriceBetweenSpec(BigDecimal.valueOf(100), BigDecimal.valueOf(4000)),
+      new AndNode(List.of(new OrNode(List.of(new ColorSpec("GREEN"), new SizeSpec("SMALL"))),
+        new NotNode(new PriceGteSpec(BigDecimal.valueOf(3000))))),
+      new NamePrefixSpec("jacket-1"),
+      new NameContainsSpec("new-1"),
+      new AndNode(List.of(new ColorSpec("RED"), new NameContainsSpec("ed-"))),
+      new AndNode(List.of())
+    );
+
+    private final SpecParser parser = new SpecParser();
+    private ProductStore store;
+
+    @BeforeEach
+    void setup() {
+        store = ProductStore.of(ProductGenerator.generate(3000));
+    }
+
+    @Test
+    @DisplayName("Insert asigna ids nuevos, update parcial conserva el resto, delete deja tombstone")
+    void upsertAndDelete() {
+        Product before = store.get(store.rowOf(10));
+        StoreDelta delta = store.apply(new CatalogBatch(List.of(
+          new ProductUpsert(null, "Kite-1", "blue", "SMALL", new BigDecimal("19.99"), true),
+          new ProductUpsert(10L, null, null, null, null, !before.inStock())
+        ), List.of(11L, 999_999L)));
+
+        ProductStore next = delta.store();
+        assertArrayEquals(new long[]{3001, 10}, delta.ids());
+        assertEquals(1, delta.inserted());
+        assertEquals(1, delta.updated());
+        assertEquals(1, delta.deleted());
+        assertEquals(3000, next.count());
+        assertEquals(3002, next.nextId());
+
+        assertEquals(new Product(3001, "Kite-1", Color.BLUE, Size.SMALL, new BigDecimal("19.99"), true),
+          next.get(next.rowOf(3001)));
+        Product flipped = next.get(next.rowOf(10));
+        assertEquals(!before.inStock(), flipped.inStock());
+        assertEquals(before.name(), flipped.name());
+        assertEquals(before.price(), flipped.price());
+        assertEquals(-1, next.rowOf(11));
+
+        // el snapshot anterior sigue intacto
+        assertEquals(before, store.get(store.rowOf(10)));
+        assertTrue(store.rowOf(11) >= 0);
+        assertEquals(3000, store.count());
+    }
+
+    @Test
+    @DisplayName("Un id desconocido rechaza el batch completo")
+    void unknownIdRejectsBatch() {
+        Catalog catalog = new Catalog();
+        catalog.publish(store);
+        CatalogBatch batch = new CatalogBatch(List.of(
+          new ProductUpsert(null, "Kite-1", "BLUE", "SMALL", BigDecimal.TEN, true),
+          new ProductUpsert(123_456L, null, null, null, BigDecimal.ONE, null)
+        ), null);
+
+        assertThrows(IllegalArgumentException.class, () -> catalog.apply(batch));
+        assertSame(store, catalog.current().store());
+        assertEquals(1, catalog.current().version());
+    }
+
+    @Test
+    @DisplayName("Un precio con fracciones de centavo rechaza el batch en vez de redondearse")
+    void subCentPriceRejectsBatch() {
+        Catalog catalog = new Catalog();
+        catalog.publish(store);
+        CatalogBatch insert = new CatalogBatch(List.of(
+          new ProductUpsert(null, "Kite-1", "BLUE", "SMALL", new BigDecimal("19.995"), true)), null);
+        CatalogBatch update = new CatalogBatch(List.of(new ProductUpsert(11L, null, null, null, new BigDecimal("0.001"), null)), null);
+
+        assertThrows(IllegalArgumentException.class, () -> catalog.apply(insert));
+        assertThrows(IllegalArgumentException.class, () -> catalog.apply(update));
+        assertSame(store, catalog.current().store());
+        // los ceros de más no son fracciones de centavo
+        catalog.apply(new CatalogBatch(List.of(new ProductUpsert(11L, null, null, null, new BigDecimal("19.9900"), null)), null));
+        assertEquals(new BigDecimal("19.99"), catalog.current().store().get(catalog.current().store().rowOf(11)).price());
+    }
+
+    @Test
+    @DisplayName("Batches aleatorios: índices parcheados == path de objetos sobre productos vivos")
+    void randomBatchesMatchObjectPath() {
+        Random random = new Random(42);
+        for (int round = 0; round < 30; round++) {
+            store = store.apply(randomBatch(random, store)).store();
+            for (SpecDto spec : SPECS) assertSameMatches(spec);
+        }
+    }
+
+    @Test
+    @DisplayName("Compactar conserva ids y no reutiliza los borrados")
+    void compactionKeepsIds() {
+        List<Long> delete = new ArrayList<>();
+        for (long id = 1; id <= 2000; id++) delete.add(id);
+        delete.add(3000L);
+        StoreDelta delta = store.apply(new CatalogBatch(null, delete));
+
+        assertTrue(delta.compacted());
+        ProductStore next = delta.store();
+        assertEquals(999, next.size());
+        assertEquals(999, next.count());
+        assertEquals(2001, next.id(0));
+        assertEquals(3001, next.nextId());
+        store = next;
+        for (SpecDto spec : SPECS) assertSameMatches(spec);
+    }
+
+    @Test
+    @DisplayName("La caché avanza de versión re-evaluando solo las filas tocadas, al pedirse")
+    void cacheAdvancesWithDelta() {
+        Catalog catalog = new Catalog();
+        catalog.publish(store);
+        QueryCache cache = new QueryCache(parser, 64, 64L * 1024 * 1024);
+        for (SpecDto spec : SPECS) cache.lookup(spec, store, 1);
+
+        // dos lotes seguidos: avanzar solo anota las filas tocadas, sin evaluar ninguna entrada
+        Random random = new Random(7);
+        CatalogChange change = catalog.apply(randomBatch(random, store));
+        cache.advance(change);
+        change = catalog.apply(randomBatch(random, change.current().store()));
+        cache.advance(change);
+        assertEquals(SPECS.size(), cache.stats().get("entries"));
+
+        ProductStore next = change.current().store();
+        for (SpecDto spec : SPECS) {
+            assertEquals(parser.select(spec, next), cache.lookup(spec, next, change.current().version()).rows());
+        }
+        assertEquals((long) SPECS.size(), cache.stats().get("misses"));
+    }
+
+    private static CatalogBatch randomBatch(Random random, ProductStore store) {
+        String[] colors = {"RED", "GREEN", "BLUE", "BLACK"};
+        String[] sizes = {"SMALL", "MEDIUM", "LARGE"};
+        List<ProductUpsert> upserts = new ArrayList<>();
+        List<Long> deletes = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            long id = 1 + random.nextInt((int) store.nextId() - 1);
+            boolean known = store.rowOf(id) >= 0;
+            switch (random.nextInt(5)) {
+                case 0 -> upserts.add(new ProductUpsert(null, "New-" + i, colors[random.nextInt(colors.length)],
+                  sizes[random.nextInt(sizes.length)], BigDecimal.valueOf(100 + random.nextInt(4901)), random.nextBoolean()));
+                case 1 -> {
+                    if (known) upserts.add(new ProductUpsert(id, random.nextBoolean() ? "Renamed-" + random.nextInt(50) : null,
+                      null, null, null, random.nextBoolean()));
+                }
+                case 2 -> {
+                    if (known) upserts.add(new ProductUpsert(id, null, colors[random.nextInt(colors.length)], null,
+                      BigDecimal.valueOf(100 + random.nextInt(4901)), null));
+                }
+                case 3 -> {
+                    if (known) upserts.add(new ProductUpsert(id, null, null, sizes[random.nextInt(sizes.length)], null, null));
+                }
+                default -> deletes.add(id);
+            }
+        }
+        return new CatalogBatch(upserts, deletes);
+    }
+
+    private void assertSameMatches(SpecDto dto) {
+        List<Product> live = store.asList();
+        Specification<Product> objectSpec = parser.fromDto(dto);
+        List<Product> expected = live.stream().filter(objectSpec::isSatisfied).toList();
+
+        List<Product> scanned = store.scan(parser.compile(dto, store)).mapToObj(store::get).toList();
+        List<Product> selected = parser.select(dto, store).stream().mapToObj(store::get).toList();
+
+        assertEquals(expected, scanned, dto.toString());
+        assertEquals(expected, selected, dto.toString());
+    }
+}
@@ -0,0 +1,119 @@
+package tech.terabyte.labs.vendomita;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tech.terabyte.labs.vendomita.catalog.Catalog;
+import tech.terabyte.labs.vendomita.catalog.CatalogChange;
+import tech.terabyte.labs.vendomita.catalog.CatalogSnapshot;
+import tech.terabyte.labs.vendomita.catalog.ProductStore;
+import tech.terabyte.labs.vendomita.model.CatalogBatch;
+import tech.terabyte.labs.vendomita.model.ProductUpsert;
+import tech.terabyte.labs.vendomita.specification.utility.ProductGenerator;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogTest {
+
+    @Test
+    @DisplayName("Arranca vacío en la versión 0 y cada publicación sube la versión")
+    void publish_bumpsVersion() {
+        Catalog catalog = new Catalog();
+        assertEquals(0, catalog.current().version());
+        assertTrue(catalog.current().isEmpty());
+
+        ProductStore store = ProductStore.of(ProductGenerator.generate(20));
+        CatalogSnapshot s1 = catalog.publish(store);
+        assertEquals(1, s1.version());
+        assertSame(store, s1.store());
+        assertSame(s1, catalog.current());
+        assertEquals(2, catalog.publish(ProductStore.empty()).version());
+    }
+
+    @Test
+    @DisplayName("Un catálogo nuevo continúa los ids del anterior; un batch con ids viejos falla")
+    void publish_neverReusesIds() {
+        Catalog catalog = new Catalog();
+        ProductStore first = ProductStore.of(ProductGenerator.generate(20));
+        catalog.publish(first);
+        CatalogChange change = catalog.apply(new CatalogBatch(List.of(
+          new ProductUpsert(null, "Kite-1", "BLUE", "SMALL", BigDecimal.TEN, true)), List.of(5L)));
+        assertEquals(22, change.current().store().nextId());
+
+        ProductStore generated = ProductStore.of(ProductGenerator.generate(20));
+        ProductStore regenerated = catalog.publish(generated).store();
+        assertEquals(22, regenerated.id(0));
+        assertEquals(41, regenerated.id(19));
+        assertEquals(42, regenerated.nextId());
+        assertEquals(-1, regenerated.rowOf(7));
+        assertEquals(generated.name(3), regenerated.name(3));
+        assertSame(generated.index(), regenerated.index());
+
+        CatalogBatch stale = new CatalogBatch(List.of(new ProductUpsert(7L, null, null, null, null, false)), null);
+        assertThrows(IllegalArgumentException.class, () -> catalog.apply(stale));
+
+        // un lote sobre el catálogo renumerado usa y asigna ids desplazados
+        ProductStore patched = catalog.apply(new CatalogBatch(List.of(
+          new ProductUpsert(null, "Kite-2", "RED", "LARGE", BigDecimal.ONE, false),
+          new ProductUpsert(30L, "Renamed", null, null, null, null)), List.of(22L))).current().store();
+        assertEquals(42, patched.id(20));
+        assertEquals("Kite-2", patched.name(patched.rowOf(42)));
+        assertEquals("Renamed", patched.name(patched.rowOf(30)));
+        assertEquals(-1, patched.rowOf(22));
+        assertEquals(41, patched.id(19));
+        assertEquals(generated.name(3), patched.name(3));
+        assertEquals(43, catalog.publish(ProductStore.empty()).store().nextId());
+    }
+
+    @Test
+    @DisplayName("Publicaciones concurrentes: versiones únicas y lectores siempre ven un snapshot coherente")
+    void concurrentPublish_isAtomic() throws Exception {
+        Catalog catalog = new Catalog();
+        List<ProductStore> stores = List.of(
+          ProductStore.of(ProductGenerator.generate(5)),
+          ProductStore.of(ProductGenerator.generate(50)));
+        Set<Long> versions = ConcurrentHashMap.newKeySet();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+
+        Thread reader = new Thread(() -> {
+            long last = 0;
+            while (!done.get()) {
+                CatalogSnapshot s = catalog.current();
+                if (s.version() < last) failure.set("version went backwards");
+                // el índice siempre corresponde al store del mismo snapshot
+                if (!s.isEmpty() && s.store().index().all().cardinality() != s.store().size()) {
+                    failure.set("torn snapshot");
+                }
+                last = s.version();
+            }
+        });
+        reader.start();
+
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int id = t;
+            Thread w = new Thread(() -> {
+                for (int i = 0; i < 250; i++) {
+                    versions.add(catalog.publish(stores.get((id + i) % 2)).version());
+                }
+            });
+            writers.add(w);
+            w.start();
+        }
+        for (Thread w : writers) w.join();
+        done.set(true);
+        reader.join();
+
+        assertNull(failure.get());
+        assertEquals(1000, versions.size());
+        assertEquals(1000, catalog.current().version());
+    }
+}
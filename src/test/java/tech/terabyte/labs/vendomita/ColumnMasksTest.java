@@ -0,0 +1,172 @@
+package tech.terabyte.labs.vendomita;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tech.terabyte.labs.vendomita.catalog.Bitmap;
+import tech.terabyte.labs.vendomita.catalog.MaskKernel;
+import tech.terabyte.labs.vendomita.catalog.ProductStore;
+import tech.terabyte.labs.vendomita.catalog.StorageMode;
+import tech.terabyte.labs.vendomita.model.CatalogBatch;
+import tech.terabyte.labs.vendomita.model.Color;
+import tech.terabyte.labs.vendomita.model.Product;
+import tech.terabyte.labs.vendomita.model.Size;
+import tech.terabyte.labs.vendomita.specification.AndNode;
+import tech.terabyte.labs.vendomita.specification.ColorSpec;
+import tech.terabyte.labs.vendomita.specification.InStockSpec;
+import tech.terabyte.labs.vendomita.specification.NotNode;
+import tech.terabyte.labs.vendomita.specification.OrNode;
+import tech.terabyte.labs.vendomita.specification.PriceBetweenSpec;
+import tech.terabyte.labs.vendomita.specification.PriceGteSpec;
+import tech.terabyte.labs.vendomita.specification.PriceLtSpec;
+import tech.terabyte.labs.vendomita.specification.SizeSpec;
+import tech.terabyte.labs.vendomita.specification.SpecDto;
+import tech.terabyte.labs.vendomita.specification.factory.SelectionTrace;
+import tech.terabyte.labs.vendomita.specification.factory.SpecCompiler;
+import tech.terabyte.labs.vendomita.specification.factory.SpecParser;
+import tech.terabyte.labs.vendomita.specification.impl.ParallelFilter;
+import tech.terabyte.labs.vendomita.specification.utility.ProductGenerator;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * El modo por máscaras de columna (escalar o Vector API) debe dar lo mismo que los índices.
+ */
+class ColumnMasksTest {
+
+    private final SpecParser indexed = new SpecParser();
+
+    @Test
+    @DisplayName("Kernel vectorial == kernel escalar, incluidas las colas que no llenan un vector")
+    void kernelsAgree() {
+        Random random = new Random(9);
+        MaskKernel scalar = MaskKernel.scalar();
+        MaskKernel best = MaskKernel.best();
+        for (int n : new int[]{0, 1, 63, 64, 65, 1000, 4099}) {
+            byte[] bytes = new byte[n];
+            long[] longs = new long[n];
+            for (int i = 0; i < n; i++) {
+                bytes[i] = (byte) random.nextInt(4);
+                longs[i] = random.nextInt(1000);
+            }
+            int words = (n + 63) >>> 6;
+            long[] a = new long[words], b = new long[words];
+            scalar.equal(bytes, (byte) 2, a);
+            best.equal(bytes, (byte) 2, b);
+            assertArrayEquals(a, b, best.name() + " equal n=" + n);
+
+            a = new long[words];
+            b = new long[words];
+            scalar.less(longs, 500, a);
+            best.less(longs, 500, b);
+            assertArrayEquals(a, b, best.name() + " less n=" + n);
+
+            a = new long[words];
+            b = new long[words];
+            scalar.between(longs, 200, 700, a);
+            best.between(longs, 200, 700, b);
+            assertArrayEquals(a, b, best.name() + " between n=" + n);
+        }
+    }
+
+    @Test
+    @DisplayName("Árboles aleatorios: máscaras == índices, con borrados; off-heap cae a los índices")
+    void masksMatchIndexes() {
+        ProductStore store = ProductGenerator.generateStore(70_000, 4, null);
+        List<Long> deleted = new ArrayList<>();
+        for (long id = 3; id <= 70_000; id += 5) deleted.add(id);
+        ProductStore withDeletions = store.apply(new CatalogBatch(List.of(), deleted)).store();
+        ProductStore offHeap = store.withStorage(StorageMode.OFF_HEAP);
+
+        Random random = new Random(2);
+        for (MaskKernel kernel : List.of(MaskKernel.scalar(), MaskKernel.best())) {
+            SpecParser masked = new SpecParser(ParallelFilter.serial(), new SpecCompiler(2, 256), kernel);
+            for (int i = 0; i < 60; i++) {
+                SpecDto dto = randomTree(random, 3);
+                for (ProductStore s : List.of(store, withDeletions, offHeap)) {
+                    Bitmap expected = indexed.select(dto, s);
+                    assertEquals(expected, masked.select(dto, s), kernel.name() + " " + dto);
+                    assertEquals(expected.cardinality(), masked.count(dto, s), kernel.name() + " " + dto);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Catálogo grande: índices y máscaras por segmentos en el pool == serie")
+    void largeStoresRunSegmentsOnThePool() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ProductStore store = ProductGenerator.generateStore(200_000, 6, pool);
+            ProductStore serial = ProductGenerator.generateStore(200_000, 6, null);
+            for (Color color : Color.values()) assertEquals(serial.index().color(color), store.index().color(color));
+            for (Size size : Size.values()) assertEquals(serial.index().size(size), store.index().size(size));
+            assertEquals(serial.index().inStock(), store.index().inStock());
+            assertEquals(serial.index().price().lessThan(2_500_00), store.index().price().lessThan(2_500_00));
+
+            ParallelFilter<Product> filter = new ParallelFilter<>(pool, 100_000, 16_384);
+            SpecParser pooled = new SpecParser(filter, new SpecCompiler(2, 256), MaskKernel.scalar());
+            Random random = new Random(5);
+            for (int i = 0; i < 30; i++) {
+                SpecDto dto = randomTree(random, 3);
+                Bitmap expected = indexed.select(dto, store);
+                assertEquals(expected, pooled.select(dto, store), dto.toString());
+                assertEquals(expected.cardinality(), pooled.count(dto, store), dto.toString());
+                assertEquals(!expected.isEmpty(), pooled.exists(dto, store), dto.toString());
+            }
+            assertTrue(filter.segments().pooledSegments() > 0);
+
+            // cada hoja se reporta una vez, con las coincidencias de todos los segmentos sumadas
+            SpecDto tree = new AndNode(List.of(new ColorSpec("RED"), new PriceLtSpec(BigDecimal.valueOf(2500)), new InStockSpec()));
+            Map<SpecDto, Integer> byIndex = new HashMap<>();
+            Map<SpecDto, Integer> bySegments = new HashMap<>();
+            indexed.select(tree, store, recording(byIndex));
+            pooled.select(tree, store, recording(bySegments));
+            assertEquals(3, bySegments.size());
+            assertEquals(byIndex, bySegments);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // ---- helpers ----
+
+    private static SelectionTrace recording(Map<SpecDto, Integer> leaves) {
+        return new SelectionTrace() {
+            @Override
+            public void leaf(SpecDto leaf, int matches) {
+                assertNull(leaves.put(leaf, matches), "hoja repetida " + leaf);
+            }
+        };
+    }
+
+    private static SpecDto randomTree(Random random, int depth) {
+        int kind = random.nextInt(depth > 0 ? 10 : 6);
+        BigDecimal price = BigDecimal.valueOf(100 + random.nextInt(49) * 100L);
+        return switch (kind) {
+            case 0 -> new ColorSpec(random.nextBoolean() ? "RED" : "blue");
+            case 1 -> new SizeSpec(random.nextBoolean() ? "SMALL" : "LARGE");
+            case 2 -> new InStockSpec();
+            case 3 -> new PriceLtSpec(price);
+            case 4 -> new PriceGteSpec(price);
+            case 5 -> new PriceBetweenSpec(price, price.add(BigDecimal.valueOf(random.nextInt(3000))));
+            case 6 -> new NotNode(randomTree(random, depth - 1));
+            case 7, 8 -> new AndNode(children(random, depth));
+            default -> new OrNode(children(random, depth));
+        };
+    }
+
+    private static List<SpecDto> children(Random random, int depth) {
+        List<SpecDto> children = new ArrayList<>();
+        int n = random.nextInt(4);
+        for (int i = 0; i < n; i++) children.add(randomTree(random, depth - 1));
+        return children;
+    }
+}
@@ -0,0 +1,129 @@
+package tech.terabyte.labs.vendomita;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tech.terabyte.labs.vendomita.catalog.Bitmap;
+import tech.terabyte.labs.vendomita.catalog.ProductStore;
+import tech.terabyte.labs.vendomita.model.Color;
+import tech.terabyte.labs.vendomita.model.Facets;
+import tech.terabyte.labs.vendomita.model.Product;
+import tech.terabyte.labs.vendomita.model.Size;
+import tech.terabyte.labs.vendomita.query.FacetCounter;
+import tech.terabyte.labs.vendomita.specification.AndNode;
+import tech.terabyte.labs.vendomita.specification.ColorSpec;
+import tech.terabyte.labs.vendomita.specification.NotNode;
+import tech.terabyte.labs.vendomita.specification.OrNode;
+import tech.terabyte.labs.vendomita.specification.PriceLtSpec;
+import tech.terabyte.labs.vendomita.specification.SizeSpec;
+import tech.terabyte.labs.vendomita.specification.SpecDto;
+import tech.terabyte.labs.vendomita.specification.factory.SpecParser;
+import tech.terabyte.labs.vendomita.specification.utility.ProductGenerator;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Los facets salen de intersecciones de bitmaps; deben coincidir con contar
+ * producto por producto sobre la lista de coincidencias.
+ */
+class FacetCounterTest {
+
+    private final SpecParser parser = new SpecParser();
+    private ProductStore store;
+
+    @BeforeEach
+    void setup() {
+        store = ProductGenerator.generateStore(20_000, 7, null);
+    }
+
+    @Test
+    @DisplayName("Conteos por color, talla y stock == conteo sobre los productos")
+    void countsMatchObjectPath() {
+        for (SpecDto spec : List.of(
+          new AndNode(List.of()),
+          new ColorSpec("RED"),
+          new OrNode(List.of(new SizeSpec("SMALL"), new PriceLtSpec(BigDecimal.valueOf(900)))),
+          new NotNode(new ColorSpec("BLUE")))) {
+
+            Bitmap matches = parser.select(spec, store);
+            List<Product> products = matches.stream().mapToObj(store::get).toList();
+            Facets facets = FacetCounter.count(matches, store, 10, null, null);
+
+            assertEquals(products.size(), facets.total());
+            for (Color c : Color.values()) {
+                assertEquals(products.stream().filter(p -> p.color() == c).count(), (long) facets.color().get(c));
+            }
+            for (Size s : Size.values()) {
+                assertEquals(products.stream().filter(p -> p.size() == s).count(), (long) facets.size().get(s));
+            }
+            assertEquals(products.stream().filter(Product::inStock).count(), (long) facets.inStock().get(true));
+            assertEquals(products.size(), facets.inStock().get(true) + facets.inStock().get(false));
+
+            Facets.PriceHistogram price = facets.price();
+            assertEquals(products.stream().map(Product::price).min(Comparator.naturalOrder()).orElseThrow(), price.min());
+            assertEquals(products.stream().map(Product::price).max(Comparator.naturalOrder()).orElseThrow(), price.max());
+            assertEquals(products.size(), price.buckets().stream().mapToInt(Facets.Bucket::count).sum());
+            for (Facets.Bucket b : price.buckets()) {
+                long inBucket = products.stream()
+                  .filter(p -> p.price().compareTo(b.from()) >= 0 && p.price().compareTo(b.to()) < 0).count();
+                assertEquals(inBucket, (long) b.count());
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Con límites explícitos solo cuenta los precios dentro del rango")
+    void explicitBoundsClipHistogram() {
+        Bitmap all = store.index().all();
+        Facets.PriceHistogram price = FacetCounter.count(all, store, 4, 100_000L, 199_999L).price();
+
+        assertEquals(4, price.buckets().size());
+        assertEquals(new BigDecimal("1000"), price.buckets().get(0).from());
+        assertEquals(new BigDecimal("2000"), price.buckets().get(3).to());
+        long expected = all.stream().filter(row -> store.priceCents(row) >= 100_000 && store.priceCents(row) < 200_000).count();
+        assertEquals(expected, price.buckets().stream().mapToInt(Facets.Bucket::count).sum());
+    }
+
+    @Test
+    @DisplayName("Los límites de los buckets caen en dólares enteros y el último cubre el máximo")
+    void bucketBoundsAreWholeDollars() {
+        for (int buckets : new int[]{1, 3, 7, 10, 64}) {
+            Bitmap red = parser.select(new ColorSpec("RED"), store);
+            Facets.PriceHistogram price = FacetCounter.count(red, store, buckets, null, null).price();
+
+            assertTrue(price.buckets().size() <= buckets);
+            for (Facets.Bucket b : price.buckets()) {
+                assertTrue(b.from().stripTrailingZeros().scale() <= 0, b.toString());
+                assertTrue(b.to().stripTrailingZeros().scale() <= 0, b.toString());
+            }
+            assertTrue(price.buckets().getFirst().from().compareTo(price.min()) <= 0);
+            Facets.Bucket last = price.buckets().getLast();
+            assertTrue(last.to().compareTo(price.max()) > 0);
+            assertEquals(red.cardinality(), price.buckets().stream().mapToInt(Facets.Bucket::count).sum());
+        }
+    }
+
+    @Test
+    @DisplayName("Sin coincidencias: conteos en cero e histograma vacío")
+    void emptyMatches() {
+        Facets facets = FacetCounter.count(Bitmap.empty(), store, 10, null, null);
+
+        assertEquals(0, facets.total());
+        assertEquals(0, (int) facets.color().get(Color.RED));
+        assertNull(facets.price().min());
+        assertTrue(facets.price().buckets().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Parámetros inválidos se rechazan")
+    void invalidParameters() {
+        Bitmap all = store.index().all();
+        assertThrows(IllegalArgumentException.class, () -> FacetCounter.count(all, store, 0, null, null));
+        assertThrows(IllegalArgumentException.class, () -> FacetCounter.count(all, store, 10, 500L, 100L));
+        assertThrows(IllegalArgumentException.class, () -> FacetCounter.count(all, store, 10, -1L, null));
+    }
+}
@@ -0,0 +1,85 @@
+package tech.terabyte.labs.vendomita;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tech.terabyte.labs.vendomita.catalog.Catalog;
+import tech.terabyte.labs.vendomita.catalog.ProductStore;
+import tech.terabyte.labs.vendomita.metrics.CatalogMetrics;
+import tech.terabyte.labs.vendomita.metrics.FilterMetrics;
+import tech.terabyte.labs.vendomita.model.Color;
+import tech.terabyte.labs.vendomita.query.QueryCache;
+import tech.terabyte.labs.vendomita.specification.AndNode;
+import tech.terabyte.labs.vendomita.specification.ColorSpec;
+import tech.terabyte.labs.vendomita.specification.InStockSpec;
+import tech.terabyte.labs.vendomita.specification.SpecDto;
+import tech.terabyte.labs.vendomita.specification.factory.SpecParser;
+import tech.terabyte.labs.vendomita.specification.utility.ProductGenerator;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Métricas del pipeline de filtrado: tiempos por etapa, filas escaneadas/coincidentes
+ * por request y selectividad por tipo de hoja.
+ */
+class FilterMetricsTest {
+
+    private final SpecDto spec = new AndNode(List.of(new ColorSpec("RED"), new InStockSpec()));
+
+    private MeterRegistry registry;
+    private QueryCache cache;
+    private ProductStore store;
+
+    @BeforeEach
+    void setup() {
+        registry = new SimpleMeterRegistry();
+        cache = new QueryCache(new SpecParser(), new FilterMetrics(registry), 16, 64L * 1024 * 1024);
+        store = ProductGenerator.generateStore(5000, 42, null);
+    }
+
+    @Test
+    @DisplayName("Un miss registra compile y scan, filas leídas de los índices y selectividad por hoja")
+    void missRecordsStagesRowsAndSelectivity() {
+        int matched = cache.lookup(spec, store, 1).rows().cardinality();
+        int red = store.index().color(Color.RED).cardinality();
+        int inStock = store.index().inStock().cardinality();
+
+        assertEquals(1, registry.find("vendomita.filter.stage").tag("stage", "compile").timer().count());
+        assertEquals(1, registry.find("vendomita.filter.stage").tag("stage", "scan").timer().count());
+        assertEquals(red + inStock, registry.find("vendomita.filter.rows.scanned").summary().totalAmount());
+        assertEquals(matched, registry.find("vendomita.filter.rows.matched").summary().totalAmount());
+        assertEquals(red / 5000.0, registry.find("vendomita.filter.selectivity").tag("leaf", "ColorSpec").summary().totalAmount(), 1e-9);
+        assertEquals(inStock / 5000.0, registry.find("vendomita.filter.selectivity").tag("leaf", "InStockSpec").summary().totalAmount(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Un hit no escanea filas ni vuelve a medir la selectividad")
+    void hitScansNothing() {
+        cache.lookup(spec, store, 1);
+        cache.lookup(spec, store, 1);
+
+        var scanned = registry.find("vendomita.filter.rows.scanned").summary();
+        var matched = registry.find("vendomita.filter.rows.matched").summary();
+        assertEquals(2, scanned.count());
+        assertEquals(2, matched.count());
+        assertEquals(2, registry.find("vendomita.filter.stage").tag("stage", "compile").timer().count());
+        assertEquals(1, registry.find("vendomita.filter.stage").tag("stage", "scan").timer().count());
+        assertEquals(1, registry.find("vendomita.filter.selectivity").tag("leaf", "ColorSpec").summary().count());
+    }
+
+    @Test
+    @DisplayName("Los gauges del catálogo siguen al snapshot publicado")
+    void catalogGaugesFollowSnapshot() {
+        Catalog catalog = new Catalog();
+        new CatalogMetrics(catalog).bindTo(registry);
+        assertEquals(0.0, registry.find("vendomita.catalog.version").gauge().value());
+
+        catalog.publish(store);
+        assertEquals(1.0, registry.find("vendomita.catalog.version").gauge().value());
+        assertEquals(5000.0, registry.find("vendomita.catalog.products").gauge().value());
+    }
+}
@@ -0,0 +1,102 @@
+package tech.terabyte.labs.vendomita;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tech.terabyte.labs.vendomita.catalog.NameColumn;
+import tech.terabyte.labs.vendomita.catalog.ProductStore;
+import tech.terabyte.labs.vendomita.catalog.StorageMode;
+import tech.terabyte.labs.vendomita.model.CatalogBatch;
+import tech.terabyte.labs.vendomita.model.ProductUpsert;
+import tech.terabyte.labs.vendomita.specification.utility.ProductGenerator;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Columna de nombres codificada: cualquier nombre debe volver tal cual, ordenarse como
+ * {@code String.compareTo} y seguir igual tras lotes que añaden nombres nuevos.
+ */
+class NameColumnTest {
+
+    private static final String[] SAMPLES = {
+      "Jacket-4821", "Jacket-482", "Jacket-48210", "Jacket-0", "Jacket-007", "Jacket-", "-12", "Jacket",
+      "Jacket-A1", "T-Shirt-1000", "T-Shirt-999", "T-Shirt", "Hat-8388607", "Hat-8388608", "Hat-12345678",
+      "Über-Mantel-3", "Größe L", "😀-42", "", "a", "ab,c\"d", "Zebra-1", "Zebra-10", "Zebra-2"};
+
+    @Test
+    @DisplayName("Cada nombre se decodifica igual, con su longitud y su orden")
+    void roundTripsAndOrders() {
+        Random random = new Random(7);
+        String[] names = new String[2_000];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = random.nextInt(3) == 0 ? SAMPLES[random.nextInt(SAMPLES.length)]
+              : new String[]{"Jacket", "Hat", "T-Shirt", "Jacket-X"}[random.nextInt(4)] + "-" + random.nextInt(20_000);
+        }
+        NameColumn column = NameColumn.encode(names);
+        StringBuilder into = new StringBuilder();
+        for (int row = 0; row < names.length; row++) {
+            assertEquals(names[row], column.get(row));
+            assertEquals(names[row].length(), column.length(row));
+            into.setLength(0);
+            column.appendTo(row, into);
+            assertEquals(names[row], into.toString());
+        }
+        for (int i = 0; i < 20_000; i++) {
+            int a = random.nextInt(names.length), b = random.nextInt(names.length);
+            assertEquals(Integer.signum(names[a].compareTo(names[b])), Integer.signum(column.compare(a, b)),
+              names[a] + " vs " + names[b]);
+        }
+    }
+
+    @Test
+    @DisplayName("Los nombres base-número no ocupan diccionario; los demás se guardan una vez")
+    void onlyIrregularNamesReachTheDictionary() {
+        NameColumn column = NameColumn.encode(new String[]{"Jacket-1", "Jacket-2", "Hat-300", "Sin número", "Sin número", "Jacket-01"});
+        assertEquals(2, column.dictionarySize());
+
+        String[] many = new String[300];
+        for (int i = 0; i < many.length; i++) many[i] = "Base" + i + "-1";
+        assertEquals(many.length - 256, NameColumn.encode(many).dictionarySize());
+    }
+
+    @Test
+    @DisplayName("Los lotes amplían el diccionario sin cambiar los nombres existentes")
+    void batchesExtendTheDictionary() {
+        ProductStore store = ProductGenerator.generateStore(5_000, 11, null);
+        List<ProductUpsert> upserts = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            upserts.add(new ProductUpsert(null, i % 2 == 0 ? "Nuevo producto " + i % 10 : "Hat-" + i, "RED", "SMALL",
+              BigDecimal.ONE, true));
+            upserts.add(new ProductUpsert(1L + i * 13, i % 3 == 0 ? "Jacket-1234" : "Renombrado «" + i % 5 + "»",
+              null, null, null, null));
+        }
+        ProductStore next = store.apply(new CatalogBatch(upserts, List.of(2L, 3L))).store();
+        ProductStore roundTrip = next.withStorage(StorageMode.OFF_HEAP).withStorage(StorageMode.HEAP);
+
+        for (ProductStore s : List.of(next, roundTrip)) {
+            for (int row = 0; row < s.size(); row++) {
+                String expected = row < store.size() && !isRenamed(row) ? store.name(row) : null;
+                if (expected != null) assertEquals(expected, s.name(row));
+                StringBuilder into = new StringBuilder();
+                s.appendName(row, into);
+                assertEquals(s.name(row), into.toString());
+            }
+            for (int a = 0; a < s.size(); a += 7) {
+                for (int b = 0; b < s.size(); b += 191) {
+                    assertEquals(Integer.signum(s.name(a).compareTo(s.name(b))), Integer.signum(s.compareNames(a, b)));
+                }
+            }
+        }
+        assertEquals("Jacket-1234", next.name(0));
+        assertEquals("Renombrado «1»", next.name(13));
+        assertEquals("Nuevo producto 0", next.name(store.size()));
+    }
+
+    private static boolean isRenamed(int row) {
+        return row % 13 == 0 && row / 13 < 200;
+    }
+}
@@ -0,0 +1,105 @@
+package tech.terabyte.labs.vendomita;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tech.terabyte.labs.vendomita.catalog.Bitmap;
+import tech.terabyte.labs.vendomita.catalog.MaskKernel;
+import tech.terabyte.labs.vendomita.catalog.ProductStore;
+import tech.terabyte.labs.vendomita.catalog.StorageMode;
+import tech.terabyte.labs.vendomita.model.CatalogBatch;
+import tech.terabyte.labs.vendomita.model.ProductUpsert;
+import tech.terabyte.labs.vendomita.specification.AndNode;
+import tech.terabyte.labs.vendomita.specification.ColorSpec;
+import tech.terabyte.labs.vendomita.specification.NameContainsSpec;
+import tech.terabyte.labs.vendomita.specification.NamePrefixSpec;
+import tech.terabyte.labs.vendomita.specification.NotNode;
+import tech.terabyte.labs.vendomita.specification.OrNode;
+import tech.terabyte.labs.vendomita.specification.SpecDto;
+import tech.terabyte.labs.vendomita.specification.factory.SpecCompiler;
+import tech.terabyte.labs.vendomita.specification.factory.SpecParser;
+import tech.terabyte.labs.vendomita.specification.impl.ParallelFilter;
+import tech.terabyte.labs.vendomita.specification.utility.ProductGenerator;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Búsqueda por nombre: el índice (prefijos ordenados + trigramas) debe dar lo mismo que
+ * recorrer los nombres, sin distinguir mayúsculas, y seguir así tras aplicar lotes.
+ */
+class NameIndexTest {
+
+    private static final String[] PREFIXES = {"j", "JACKET", "jacket-1", "Jacket-1234", "hat-", "zz", "t-shirt-9"};
+    private static final String[] NEEDLES = {"a", "-1", "CKE", "ket-12", "shirt-99", "s-1", "xyz", "acket-4821"};
+
+    @Test
+    @DisplayName("Prefijo y subcadena == recorrer los nombres, en heap, off-heap y con máscaras")
+    void lookupsMatchScan() {
+        ProductStore store = ProductGenerator.generateStore(50_000, 3, null);
+        ProductStore offHeap = store.withStorage(StorageMode.OFF_HEAP);
+        assertSameLookups(store);
+        assertSameLookups(offHeap);
+
+        SpecParser indexed = new SpecParser();
+        SpecParser masked = new SpecParser(ParallelFilter.serial(), new SpecCompiler(2, 256), MaskKernel.scalar());
+        List<SpecDto> specs = List.of(
+          new AndNode(List.of(new ColorSpec("RED"), new NameContainsSpec("ket-1"))),
+          new OrNode(List.of(new NamePrefixSpec("Hat-2"), new NotNode(new NameContainsSpec("o")))));
+        for (SpecDto spec : specs) {
+            Bitmap expected = store.scan(indexed.compile(spec, store)).collect(Bitmap::new, Bitmap::add, (a, b) -> { });
+            assertEquals(expected, indexed.select(spec, store), spec.toString());
+            assertEquals(expected, masked.select(spec, store), spec.toString());
+            assertEquals(expected, indexed.select(spec, offHeap), spec.toString());
+            assertEquals(expected.cardinality(), indexed.count(spec, store), spec.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("Lotes con nombres nuevos, renombres y borrados parchean el índice ya construido")
+    void batchesPatchTheIndex() {
+        ProductStore store = ProductGenerator.generateStore(20_000, 5, null);
+        int terms = store.names().terms();
+
+        List<ProductUpsert> upserts = new ArrayList<>();
+        List<Long> deletes = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            upserts.add(new ProductUpsert(null, i % 2 == 0 ? "Zebra-" + i : "Jacket-" + (1000 + i), "RED", "SMALL",
+              BigDecimal.TEN, true));
+            upserts.add(new ProductUpsert(1L + i * 37, "ÜBER-" + i % 7, null, null, null, null));
+            deletes.add(2L + i * 41);
+        }
+        ProductStore next = store.apply(new CatalogBatch(upserts, deletes)).store();
+        next = next.apply(new CatalogBatch(List.of(new ProductUpsert(5L, "Hat-1001", null, null, null, null)),
+          List.of(3L))).store();
+
+        assertTrue(next.names().terms() > terms);
+        assertSameLookups(next);
+        assertEquals(brute(next, name -> name.startsWith("über-")), next.names().prefix("über-"));
+        assertEquals(brute(next, name -> name.contains("zebra-2")), next.names().contains("ZEBRA-2"));
+        assertSameLookups(store);
+    }
+
+    private static void assertSameLookups(ProductStore store) {
+        for (String prefix : PREFIXES) {
+            String key = prefix.toLowerCase(Locale.ROOT);
+            assertEquals(brute(store, name -> name.startsWith(key)), store.names().prefix(prefix), "prefix " + prefix);
+        }
+        for (String needle : NEEDLES) {
+            String key = needle.toLowerCase(Locale.ROOT);
+            assertEquals(brute(store, name -> name.contains(key)), store.names().contains(needle), "contains " + needle);
+        }
+    }
+
+    private static Bitmap brute(ProductStore store, Predicate<String> test) {
+        Bitmap rows = new Bitmap();
+        for (int row = 0; row < store.size(); row++) {
+            if (store.isLive(row) && test.test(store.name(row).toLowerCase(Locale.ROOT))) rows.add(row);
+        }
+        return rows;
+    }
+}
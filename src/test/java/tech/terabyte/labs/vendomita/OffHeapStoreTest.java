@@ -0,0 +1,210 @@
+package tech.terabyte.labs.vendomita;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tech.terabyte.labs.vendomita.catalog.Catalog;
+import tech.terabyte.labs.vendomita.catalog.CatalogSnapshot;
+import tech.terabyte.labs.vendomita.catalog.ProductStore;
+import tech.terabyte.labs.vendomita.catalog.StorageMode;
+import tech.terabyte.labs.vendomita.catalog.StoreDelta;
+import tech.terabyte.labs.vendomita.export.ExportFormat;
+import tech.terabyte.labs.vendomita.export.ProductExporter;
+import tech.terabyte.labs.vendomita.model.CatalogBatch;
+import tech.terabyte.labs.vendomita.model.Color;
+import tech.terabyte.labs.vendomita.model.Product;
+import tech.terabyte.labs.vendomita.model.ProductUpsert;
+import tech.terabyte.labs.vendomita.model.Size;
+import tech.terabyte.labs.vendomita.specification.AndNode;
+import tech.terabyte.labs.vendomita.specification.ColorSpec;
+import tech.terabyte.labs.vendomita.specification.InStockSpec;
+import tech.terabyte.labs.vendomita.specification.NameContainsSpec;
+import tech.terabyte.labs.vendomita.specification.NamePrefixSpec;
+import tech.terabyte.labs.vendomita.specification.NotNode;
+import tech.terabyte.labs.vendomita.specification.PriceBetweenSpec;
+import tech.terabyte.labs.vendomita.specification.SizeSpec;
+import tech.terabyte.labs.vendomita.specification.SpecDto;
+import tech.terabyte.labs.vendomita.specification.factory.SpecParser;
+import tech.terabyte.labs.vendomita.specification.utility.ProductGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * El modo off-heap debe ser indistinguible del heap: mismas filas, mismos
+ * resultados de filtro y export, con casi nada en el heap.
+ */
+class OffHeapStoreTest {
+
+    private ProductStore heap;
+    private ProductStore offHeap;
+
+    @BeforeEach
+    void setup() {
+        heap = ProductStore.of(ProductGenerator.generate(20_000, 3));
+        offHeap = heap.withStorage(StorageMode.OFF_HEAP);
+    }
+
+    @Test
+    @DisplayName("Cada fila se lee igual desde los ByteBuffer")
+    void rowsRoundTrip() {
+        assertEquals(StorageMode.OFF_HEAP, offHeap.storageMode());
+        for (int row = 0; row < heap.size(); row++) {
+            assertEquals(heap.get(row), offHeap.get(row));
+        }
+        assertEquals(heap.rowOf(777), offHeap.rowOf(777));
+        assertSame(heap, heap.withStorage(StorageMode.HEAP));
+    }
+
+    @Test
+    @DisplayName("Nombres UTF-8 y precios con centavos sobreviven al layout de ancho fijo")
+    void unicodeNamesAndCents() {
+        ProductStore store = ProductStore.of(List.of(
+          new Product("Café ☕", Color.RED, Size.SMALL, new BigDecimal("12.34"), true),
+          new Product("Emoji 🎒", Color.BLACK, Size.LARGE, BigDecimal.valueOf(5000), false),
+          new Product("Café ☕", Color.BLUE, Size.MEDIUM, BigDecimal.ZERO, true)
+        )).withStorage(StorageMode.OFF_HEAP);
+
+        assertEquals(new Product(1, "Café ☕", Color.RED, Size.SMALL, new BigDecimal("12.34"), true), store.get(0));
+        assertEquals("Emoji 🎒", store.name(1));
+        assertEquals(0, store.priceCents(2));
+    }
+
+    @Test
+    @DisplayName("Filtros y export dan lo mismo en ambos modos")
+    void sameResultsInBothModes() throws IOException {
+        SpecParser parser = new SpecParser();
+        List<SpecDto> specs = List.of(
+          new ColorSpec("GREEN"),
+          new AndNode(List.of(new SizeSpec("LARGE"), new NotNode(new InStockSpec()))),
+          new PriceBetweenSpec(BigDecimal.valueOf(1000), BigDecimal.valueOf(2000)));
+        for (SpecDto spec : specs) {
+            assertEquals(parser.select(spec, heap), parser.select(spec, offHeap));
+            assertArrayEquals(heap.scan(parser.compile(spec, heap)).toArray(),
+              offHeap.scan(parser.compile(spec, offHeap)).toArray());
+        }
+        assertEquals(export(heap), export(offHeap));
+    }
+
+    @Test
+    @DisplayName("El reporte de memoria muestra el heap liberado frente a List<Product>")
+    void memoryReport() {
+        var heapReport = heap.memoryReport();
+        var offHeapReport = offHeap.memoryReport();
+
+        assertEquals("heap", heapReport.get("storage"));
+        assertEquals("off-heap", offHeapReport.get("storage"));
+        assertEquals(0L, heapReport.get("offHeapBytes"));
+        assertTrue((long) offHeapReport.get("heapBytes") < 1024);
+        assertTrue((long) offHeapReport.get("offHeapBytes") >= 20_000L * 24);
+        assertTrue((long) heapReport.get("productListBytes") > (long) heapReport.get("heapBytes"));
+    }
+
+    @Test
+    @DisplayName("Un catálogo off-heap publica los batches también off-heap")
+    void batchesStayOffHeap() {
+        Catalog catalog = new Catalog(StorageMode.OFF_HEAP);
+        CatalogSnapshot first = catalog.publish(heap);
+        assertEquals(StorageMode.OFF_HEAP, first.store().storageMode());
+
+        var change = catalog.apply(new CatalogBatch(
+          List.of(new ProductUpsert(5L, null, null, null, new BigDecimal("9.99"), null)), List.of(6L)));
+        ProductStore store = change.current().store();
+
+        assertEquals(StorageMode.OFF_HEAP, store.storageMode());
+        assertEquals(999, store.priceCents(store.rowOf(5)));
+        assertEquals(-1, store.rowOf(6));
+        assertEquals(heap.count() - 1, store.count());
+    }
+
+    @Test
+    @DisplayName("Un batch sobre off-heap copia solo la página tocada y reutiliza el resto de buffers")
+    void batchReusesBaseBuffers() {
+        int row = offHeap.rowOf(777);
+        boolean before = offHeap.inStock(row);
+        ProductStore next = offHeap.apply(new CatalogBatch(
+          List.of(new ProductUpsert(777L, null, null, null, null, !before)), null)).store();
+
+        assertEquals(StorageMode.OFF_HEAP, next.storageMode());
+        assertEquals(!before, next.inStock(row));
+        assertEquals(before, offHeap.inStock(row));
+        long total = (long) offHeap.memoryReport().get("offHeapBytes");
+        // 20.000 filas son 5 páginas de 4096; solo se copia la de la fila 776
+        assertEquals(total - 4096L * 24, next.sharedOffHeapBytes(offHeap));
+        assertEquals(total - 4096L * 24, offHeap.sharedOffHeapBytes(next));
+        assertEquals(0, heap.sharedOffHeapBytes(offHeap));
+    }
+
+    @Test
+    @DisplayName("Batches aleatorios dan las mismas filas y resultados en heap y off-heap, compactación incluida")
+    void randomBatchesMatchHeap() {
+        SpecParser parser = new SpecParser();
+        List<SpecDto> specs = List.of(
+          new ColorSpec("RED"),
+          new AndNode(List.of(new SizeSpec("SMALL"), new InStockSpec())),
+          new PriceBetweenSpec(BigDecimal.valueOf(100), BigDecimal.valueOf(900)),
+          new NamePrefixSpec("renamed-1"),
+          new NameContainsSpec("ew-"));
+        Random random = new Random(11);
+        boolean compacted = false;
+        for (int round = 0; round < 20; round++) {
+            CatalogBatch batch = randomBatch(random, heap, round < 15 ? 300 : 4000);
+            StoreDelta heapDelta = heap.apply(batch);
+            StoreDelta offHeapDelta = offHeap.apply(batch);
+            assertEquals(heapDelta.compacted(), offHeapDelta.compacted());
+            assertArrayEquals(heapDelta.ids(), offHeapDelta.ids());
+            compacted |= offHeapDelta.compacted();
+            heap = heapDelta.store();
+            offHeap = offHeapDelta.store();
+
+            assertEquals(StorageMode.OFF_HEAP, offHeap.storageMode());
+            assertEquals(heap.size(), offHeap.size());
+            for (int row = 0; row < heap.size(); row++) {
+                assertEquals(heap.isLive(row), offHeap.isLive(row));
+                assertEquals(heap.get(row), offHeap.get(row));
+            }
+            for (SpecDto spec : specs) assertEquals(parser.select(spec, heap), parser.select(spec, offHeap));
+        }
+        assertTrue(compacted);
+    }
+
+    private static CatalogBatch randomBatch(Random random, ProductStore store, int deletes) {
+        String[] colors = {"RED", "GREEN", "BLUE", "BLACK"};
+        String[] sizes = {"SMALL", "MEDIUM", "LARGE"};
+        List<ProductUpsert> upserts = new ArrayList<>();
+        List<Long> delete = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            long id = store.id(random.nextInt(store.size()));
+            boolean known = store.rowOf(id) >= 0;
+            switch (random.nextInt(4)) {
+                case 0 -> upserts.add(new ProductUpsert(null, "New-" + random.nextInt(100), colors[random.nextInt(4)],
+                  sizes[random.nextInt(3)], BigDecimal.valueOf(random.nextInt(5000)), random.nextBoolean()));
+                case 1 -> {
+                    // nombres nuevos y nombres que ya existen en otras filas
+                    String name = random.nextBoolean() ? "Renamed-" + random.nextInt(30) : store.name(random.nextInt(store.size()));
+                    if (known) upserts.add(new ProductUpsert(id, name, null, null, null, null));
+                }
+                case 2 -> {
+                    if (known) upserts.add(new ProductUpsert(id, null, colors[random.nextInt(4)], sizes[random.nextInt(3)],
+                      BigDecimal.valueOf(random.nextInt(5000), 2), random.nextBoolean()));
+                }
+                default -> {
+                }
+            }
+        }
+        for (int i = 0; i < deletes; i++) delete.add(store.id(random.nextInt(store.size())));
+        return new CatalogBatch(upserts, delete);
+    }
+
+    private static String export(ProductStore store) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ProductExporter(store, ExportFormat.NDJSON, out).write(store.index().all());
+        return out.toString();
+    }
+}
@@ -0,0 +1,70 @@
+package tech.terabyte.labs.vendomita;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tech.terabyte.labs.vendomita.catalog.ProductStore;
+import tech.terabyte.labs.vendomita.model.Color;
+import tech.terabyte.labs.vendomita.model.Product;
+import tech.terabyte.labs.vendomita.model.Size;
+import tech.terabyte.labs.vendomita.specification.RowSpecification;
+import tech.terabyte.labs.vendomita.specification.Specification;
+import tech.terabyte.labs.vendomita.specification.impl.ColorSpecification;
+import tech.terabyte.labs.vendomita.specification.impl.InStockSpecification;
+import tech.terabyte.labs.vendomita.specification.impl.ParallelFilter;
+import tech.terabyte.labs.vendomita.specification.impl.SizeSpecification;
+import tech.terabyte.labs.vendomita.specification.utility.ProductGenerator;
+import tech.terabyte.labs.vendomita.specification.utility.SpecsBuilder;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ParallelFilterTest {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    private List<Product> products;
+    private ParallelFilter<Product> parallel;
+
+    @BeforeEach
+    void setup() {
+        products = ProductGenerator.generate(200_000);
+        // umbral bajo y segmentos chicos para forzar muchas tareas
+        parallel = new ParallelFilter<>(POOL, 1_000, 1_024);
+    }
+
+    @Test
+    void parallelFilterKeepsCatalogOrder() {
+        Specification<Product> spec = SpecsBuilder.and(
+          new InStockSpecification(),
+          SpecsBuilder.not(new ColorSpecification(Color.RED)),
+          new SizeSpecification(Size.LARGE)
+        );
+
+        List<Product> expected = products.stream().filter(spec::isSatisfied).toList();
+        List<Product> result = parallel.filter(products, spec).toList();
+
+        assertEquals(expected, result);
+    }
+
+    @Test
+    void parallelRowScanMatchesSerialScan() {
+        ProductStore store = ProductStore.of(products);
+        RowSpecification spec = row -> store.inStock(row) && store.priceCents(row) < 200_000;
+
+        int[] expected = store.scan(spec).toArray();
+
+        assertArrayEquals(expected, parallel.scan(store.size(), spec).toArray());
+        assertArrayEquals(expected, ParallelFilter.<Product>serial().scan(store.size(), spec).toArray());
+    }
+
+    @Test
+    void smallInputsStaySerial() {
+        List<Product> few = products.subList(0, 10);
+        ParallelFilter<Product> filter = new ParallelFilter<>(POOL, 1_000, 1_024);
+
+        assertEquals(few.stream().filter(Product::inStock).toList(), filter.filter(few, Product::inStock).toList());
+    }
+}
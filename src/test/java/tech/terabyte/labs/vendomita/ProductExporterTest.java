@@ -0,0 +1,84 @@
+package tech.terabyte.labs.vendomita;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tech.terabyte.labs.vendomita.catalog.ProductStore;
+import tech.terabyte.labs.vendomita.export.ExportFormat;
+import tech.terabyte.labs.vendomita.export.ProductExporter;
+import tech.terabyte.labs.vendomita.model.Product;
+import tech.terabyte.labs.vendomita.specification.utility.ProductGenerator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductExporterTest {
+
+    private ProductStore store;
+
+    @BeforeEach
+    void setup() {
+        // más filas que un chunk de salida, para cruzar varios flush
+        store = ProductStore.of(ProductGenerator.generate(5000));
+    }
+
+    @Test
+    void textKeepsLegacyLayout() throws IOException {
+        StringBuilder expected = new StringBuilder("Filtered Products:\n\n");
+        store.asList().forEach(p -> expected.append("%s | %s | %s | $%s | %s\n"
+          .formatted(p.name(), p.color(), p.size(), p.price(), p.inStock() ? "IN" : "OUT")));
+
+        assertEquals(expected.toString(), export(ExportFormat.TEXT));
+    }
+
+    @Test
+    void ndjsonLinesAreProducts() throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        List<String> lines = export(ExportFormat.NDJSON).lines().toList();
+
+        assertEquals(store.size(), lines.size());
+        for (int row = 0; row < store.size(); row++) {
+            assertEquals(store.get(row), mapper.readValue(lines.get(row), Product.class));
+        }
+    }
+
+    @Test
+    void csvHasHeaderAndOneLinePerRow() throws IOException {
+        List<String> lines = export(ExportFormat.CSV).lines().toList();
+
+        assertEquals("id,name,color,size,price,inStock", lines.getFirst());
+        assertEquals(store.size() + 1, lines.size());
+        Product first = store.get(0);
+        assertEquals(String.join(",", String.valueOf(first.id()), first.name(), first.color().name(), first.size().name(),
+          first.price().toPlainString(), String.valueOf(first.inStock())), lines.get(1));
+    }
+
+    @Test
+    void gzipFollowsAcceptEncodingQValues() {
+        assertTrue(ProductExporter.acceptsGzip("gzip"));
+        assertTrue(ProductExporter.acceptsGzip("deflate, GZIP;q=0.5"));
+        assertTrue(ProductExporter.acceptsGzip("br;q=1.0, *;q=0.1"));
+        assertTrue(ProductExporter.acceptsGzip("x-gzip"));
+        // q=0 significa "no aceptable", también cuando el comodín lo permitiría
+        assertFalse(ProductExporter.acceptsGzip("gzip;q=0"));
+        assertFalse(ProductExporter.acceptsGzip("gzip; q=0.000, deflate"));
+        assertFalse(ProductExporter.acceptsGzip("*, gzip;q=0"));
+        assertFalse(ProductExporter.acceptsGzip("*;q=0"));
+        assertFalse(ProductExporter.acceptsGzip("gzip;q=abc"));
+        assertFalse(ProductExporter.acceptsGzip("deflate, br"));
+        assertFalse(ProductExporter.acceptsGzip("gzipx"));
+        assertFalse(ProductExporter.acceptsGzip(null));
+    }
+
+    private String export(ExportFormat format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ProductExporter(store, format, out).write(store.index().all());
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
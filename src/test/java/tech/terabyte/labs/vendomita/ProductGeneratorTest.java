@@ -0,0 +1,65 @@
+package tech.terabyte.labs.vendomita;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tech.terabyte.labs.vendomita.catalog.ProductStore;
+import tech.terabyte.labs.vendomita.model.Product;
+import tech.terabyte.labs.vendomita.specification.utility.ProductGenerator;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductGeneratorTest {
+
+    private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+    @Test
+    @DisplayName("Misma semilla → mismo catálogo, en serie o en paralelo")
+    void sameSeedSameCatalog() {
+        ProductStore serial = ProductGenerator.generateStore(200_000, 42, null);
+        ProductStore parallel = ProductGenerator.generateStore(200_000, 42, POOL);
+
+        assertEquals(200_000, parallel.size());
+        for (int row = 0; row < serial.size(); row++) {
+            assertEquals(serial.get(row), parallel.get(row));
+        }
+        assertEquals(serial.index().inStock(), parallel.index().inStock());
+    }
+
+    @Test
+    @DisplayName("Semillas distintas → catálogos distintos")
+    void differentSeedsDiffer() {
+        ProductStore a = ProductGenerator.generateStore(1_000, 1, null);
+        ProductStore b = ProductGenerator.generateStore(1_000, 2, null);
+        assertNotEquals(a.asList(), b.asList());
+    }
+
+    @Test
+    @DisplayName("Valores dentro de los rangos del generador original")
+    void valuesInRange() {
+        ProductStore store = ProductGenerator.generateStore(100_000, 7, POOL);
+        int inStock = store.index().inStock().cardinality();
+        assertTrue(inStock > 45_000 && inStock < 55_000);
+        for (int row = 0; row < store.size(); row++) {
+            long cents = store.priceCents(row);
+            assertTrue(cents >= 100_00 && cents <= 5000_00 && cents % 100 == 0);
+            assertTrue(store.name(row).matches("[A-Za-z-]+-\\d{4}"));
+        }
+    }
+
+    @Test
+    @DisplayName("generate(count, seed) devuelve los mismos productos, sin id asignado")
+    void listMatchesStore() {
+        List<Product> products = ProductGenerator.generate(500, 9);
+        ProductStore store = ProductGenerator.generateStore(500, 9, null);
+        for (int row = 0; row < products.size(); row++) {
+            Product p = products.get(row);
+            assertEquals(0, p.id());
+            assertEquals(store.get(row), new Product(row + 1, p.name(), p.color(), p.size(), p.price(), p.inStock()));
+            assertEquals(0, p.price().compareTo(BigDecimal.valueOf(p.price().longValue())));
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package tech.terabyte.labs.vendomita;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tech.terabyte.labs.vendomita.catalog.ProductStore;
+import tech.terabyte.labs.vendomita.model.Product;
+import tech.terabyte.labs.vendomita.specification.AndNode;
+import tech.terabyte.labs.vendomita.specification.ColorSpec;
+import tech.terabyte.labs.vendomita.specification.InStockSpec;
+import tech.terabyte.labs.vendomita.specification.NotNode;
+import tech.terabyte.labs.vendomita.specification.OrNode;
+import tech.terabyte.labs.vendomita.specification.PriceBetweenSpec;
+import tech.terabyte.labs.vendomita.specification.PriceGteSpec;
+import tech.terabyte.labs.vendomita.specification.PriceLtSpec;
+import tech.terabyte.labs.vendomita.specification.SizeSpec;
+import tech.terabyte.labs.vendomita.specification.SpecDto;
+import tech.terabyte.labs.vendomita.specification.Specification;
+import tech.terabyte.labs.vendomita.specification.factory.SpecParser;
+import tech.terabyte.labs.vendomita.specification.utility.ProductGenerator;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Los paths columnares (SpecParser.compile y SpecParser.select sobre ProductStore)
+ * deben coincidir fila por fila con el path de objetos (Specification<Product>).
+ */
+class ProductStoreTest {
+
+    private List<Product> products;
+    private ProductStore store;
+    private SpecParser parser;
+
+    @BeforeEach
+    void setup() {
+        List<Product> generated = ProductGenerator.generate(15000);
+        store = ProductStore.of(generated);
+        // el store asigna ids 1..n en orden de carga
+        products = IntStream.range(0, generated.size())
+          .mapToObj(row -> {
+              Product p = generated.get(row);
+              return new Product(row + 1, p.name(), p.color(), p.size(), p.price(), p.inStock());
+          })
+          .toList();
+        parser = new SpecParser();
+    }
+
+    @Test
+    void storeRoundTripsProducts() {
+        assertEquals(products.size(), store.size());
+        for (int row = 0; row < products.size(); row++) {
+            assertEquals(products.get(row), store.get(row));
+        }
+    }
+
+    @Test
+    void leavesMatchObjectPath() {
+        assertSameMatches(new ColorSpec("red"));
+        assertSameMatches(new SizeSpec("MEDIUM"));
+        assertSameMatches(new PriceLtSpec(BigDecimal.valueOf(1500)));
+        assertSameMatches(new PriceLtSpec(new BigDecimal("1500.01")));
+        assertSameMatches(new InStockSpec());
+    }
+
+    @Test
+    void priceIndexMatchesObjectPath() {
+        assertSameMatches(new PriceGteSpec(BigDecimal.valueOf(2500)));
+        assertSameMatches(new PriceGteSpec(new BigDecimal("99.99")));
+        assertSameMatches(new PriceBetweenSpec(BigDecimal.valueOf(1000), BigDecimal.valueOf(1200)));
+        assertSameMatches(new PriceBetweenSpec(BigDecimal.valueOf(200), BigDecimal.valueOf(4900)));
+        assertSameMatches(new PriceBetweenSpec(BigDecimal.valueOf(3000), BigDecimal.valueOf(1000)));
+        assertSameMatches(new NotNode(new PriceLtSpec(BigDecimal.valueOf(1000))));
+        assertSameMatches(new PriceLtSpec(BigDecimal.valueOf(100)));
+        assertSameMatches(new PriceLtSpec(BigDecimal.valueOf(1_000_000)));
+    }
+
+    @Test
+    void compositesMatchObjectPath() {
+        SpecDto dto = new AndNode(List.of(
+          new OrNode(List.of(new ColorSpec("GREEN"), new ColorSpec("BLUE"))),
+          new SizeSpec("LARGE"),
+          new NotNode(new InStockSpec()),
+          new NotNode(new PriceLtSpec(BigDecimal.valueOf(1000)))
+        ));
+        assertSameMatches(dto);
+    }
+
+    @Test
+    void priceRangesUnderAndMatchObjectPath() {
+        // rango angosto: se recorren sus posiciones; rango ancho: se recorren las filas de los hermanos
+        assertSameMatches(new AndNode(List.of(new ColorSpec("RED"),
+          new PriceBetweenSpec(BigDecimal.valueOf(1000), BigDecimal.valueOf(1010)))));
+        assertSameMatches(new AndNode(List.of(new ColorSpec("RED"), new SizeSpec("SMALL"),
+          new PriceBetweenSpec(BigDecimal.valueOf(150), BigDecimal.valueOf(4000)))));
+        assertSameMatches(new AndNode(List.of(new InStockSpec(), new PriceLtSpec(BigDecimal.valueOf(100)))));
+        assertSameMatches(new AndNode(List.of(new NotNode(new ColorSpec("RED")),
+          new PriceLtSpec(BigDecimal.valueOf(2000)))));
+    }
+
+    @Test
+    void emptyCompositesFollowObjectPath() {
+        assertSameMatches(new AndNode(List.of()));
+        assertSameMatches(new OrNode(List.of()));
+        assertSameMatches(new NotNode(new AndNode(List.of(new ColorSpec("RED"), new ColorSpec("BLUE")))));
+    }
+
+    private void assertSameMatches(SpecDto dto) {
+        Specification<Product> objectSpec = parser.fromDto(dto);
+        List<Product> expected = products.stream().filter(objectSpec::isSatisfied).toList();
+
+        List<Product> scanned = store.scan(parser.compile(dto, store)).mapToObj(store::get).toList();
+        List<Product> selected = parser.select(dto, store).stream().mapToObj(store::get).toList();
+
+        assertEquals(expected, scanned);
+        assertEquals(expected, selected);
+        assertEquals(expected.size(), parser.count(dto, store), dto.toString());
+        assertEquals(!expected.isEmpty(), parser.exists(dto, store), dto.toString());
+    }
+}
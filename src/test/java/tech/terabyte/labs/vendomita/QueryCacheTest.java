@@ -0,0 +1,156 @@
+package tech.terabyte.labs.vendomita;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tech.terabyte.labs.vendomita.catalog.ProductStore;
+import tech.terabyte.labs.vendomita.query.CachedQuery;
+import tech.terabyte.labs.vendomita.query.QueryCache;
+import tech.terabyte.labs.vendomita.specification.AndNode;
+import tech.terabyte.labs.vendomita.specification.ColorSpec;
+import tech.terabyte.labs.vendomita.specification.InStockSpec;
+import tech.terabyte.labs.vendomita.specification.NotNode;
+import tech.terabyte.labs.vendomita.specification.OrNode;
+import tech.terabyte.labs.vendomita.specification.SizeSpec;
+import tech.terabyte.labs.vendomita.specification.SpecDto;
+import tech.terabyte.labs.vendomita.specification.factory.SelectionTrace;
+import tech.terabyte.labs.vendomita.specification.factory.SpecCompiler;
+import tech.terabyte.labs.vendomita.specification.factory.SpecParser;
+import tech.terabyte.labs.vendomita.specification.impl.ParallelFilter;
+import tech.terabyte.labs.vendomita.specification.utility.ProductGenerator;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class QueryCacheTest {
+
+    private ProductStore store;
+    private QueryCache cache;
+
+    @BeforeEach
+    void setup() {
+        store = ProductStore.of(ProductGenerator.generate(2000));
+        cache = new QueryCache(new SpecParser(), 2, 64L * 1024 * 1024);
+    }
+
+    @Test
+    void equivalentSpecsShareOneEntry() {
+        CachedQuery first = cache.lookup(new AndNode(List.of(new ColorSpec("red"), new InStockSpec())), store, 1);
+        CachedQuery second = cache.lookup(new AndNode(List.of(new InStockSpec(), new ColorSpec("RED"))), store, 1);
+
+        assertSame(first, second);
+        assertEquals(1L, cache.stats().get("hits"));
+        assertEquals(1L, cache.stats().get("misses"));
+    }
+
+    @Test
+    void newCatalogVersionMisses() {
+        CachedQuery v1 = cache.lookup(new InStockSpec(), store, 1);
+        CachedQuery v2 = cache.lookup(new InStockSpec(), store, 2);
+
+        assertNotSame(v1, v2);
+        assertEquals(2L, cache.stats().get("misses"));
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        cache.lookup(new ColorSpec("RED"), store, 1);
+        cache.lookup(new SizeSpec("SMALL"), store, 1);
+        cache.lookup(new ColorSpec("RED"), store, 1);
+        cache.lookup(new InStockSpec(), store, 1);
+
+        assertEquals(2, cache.stats().get("entries"));
+        assertEquals(1L, cache.stats().get("evictions"));
+
+        cache.lookup(new ColorSpec("RED"), store, 1);
+        assertEquals(2L, cache.stats().get("hits"));
+    }
+
+    @Test
+    void memoryLimitBoundsCachedRows() {
+        QueryCache tiny = new QueryCache(new SpecParser(), 100, 1);
+        tiny.lookup(new InStockSpec(), store, 1);
+
+        assertEquals(0, tiny.stats().get("entries"));
+        assertEquals(0L, tiny.stats().get("bytes"));
+    }
+
+    @Test
+    void batchEvaluatesEachCanonicalSpecOnce() {
+        SpecParser parser = new SpecParser();
+        QueryCache batchCache = new QueryCache(parser, 16, 64L * 1024 * 1024);
+        List<SpecDto> roots = List.of(
+          new AndNode(List.of(new ColorSpec("RED"), new InStockSpec())),
+          new OrNode(List.of(new ColorSpec("RED"), new SizeSpec("SMALL"))),
+          new AndNode(List.of(new InStockSpec(), new ColorSpec("red"))),
+          new InStockSpec());
+
+        List<CachedQuery> results = batchCache.lookupAll(roots, store, 1);
+
+        assertSame(results.get(0), results.get(2));
+        for (int i = 0; i < roots.size(); i++) assertEquals(parser.select(roots.get(i), store), results.get(i).rows());
+        assertEquals(3L, batchCache.stats().get("misses"));
+        assertEquals(1L, batchCache.stats().get("hits"));
+
+        assertSame(results.get(1), batchCache.lookupAll(List.of(roots.get(1)), store, 1).get(0));
+        assertEquals(2L, batchCache.stats().get("hits"));
+    }
+
+    @Test
+    void batchSharesLeavesBetweenSpecs() {
+        Map<SpecDto, Integer> evaluated = new HashMap<>();
+        SelectionTrace trace = new SelectionTrace() {
+            @Override
+            public void leaf(SpecDto leaf, int matches) {
+                evaluated.merge(leaf, 1, Integer::sum);
+            }
+        };
+        new SpecParser().selectAll(List.of(
+          new AndNode(List.of(new ColorSpec("RED"), new InStockSpec())),
+          new OrNode(List.of(new ColorSpec("RED"), new SizeSpec("SMALL"))),
+          new NotNode(new ColorSpec("RED"))), store, trace);
+
+        assertEquals(Map.of(new ColorSpec("RED"), 1, new InStockSpec(), 1, new SizeSpec("SMALL"), 1), evaluated);
+    }
+
+    @Test
+    void lookupsDoNotCompilePredicates() {
+        // umbral 1: cualquier compile definiría una clase; lookup y lookupAll solo evalúan sobre índices
+        SpecCompiler compiler = new SpecCompiler(1, 256);
+        QueryCache lazy = new QueryCache(new SpecParser(ParallelFilter.serial(), compiler, null), 16, 64L * 1024 * 1024);
+        lazy.lookup(new AndNode(List.of(new ColorSpec("red"), new InStockSpec())), store, 1);
+        lazy.lookupAll(List.of(new SizeSpec("SMALL"), new NotNode(new InStockSpec())), store, 1);
+
+        assertEquals(0, compiler.shapes());
+        assertEquals(3, lazy.stats().get("entries"));
+    }
+
+    @Test
+    void countAndExistsAgreeWithSelection() {
+        SpecParser parser = new SpecParser();
+        List<SpecDto> specs = List.of(
+          new InStockSpec(),
+          new NotNode(new ColorSpec("red")),
+          new AndNode(List.of(new ColorSpec("red"), new SizeSpec("small"), new InStockSpec())),
+          new OrNode(List.of(new ColorSpec("blue"), new NotNode(new InStockSpec()))),
+          new AndNode(List.of(new ColorSpec("red"), new ColorSpec("blue"))),
+          new AndNode(List.of()));
+
+        for (SpecDto spec : specs) {
+            int selected = parser.select(spec, store).cardinality();
+            assertEquals(selected, cache.count(spec, store, 1));
+            assertEquals(selected > 0, cache.exists(spec, store, 1));
+        }
+        assertEquals(0, cache.stats().get("entries"));
+        assertEquals(2L * specs.size(), cache.stats().get("misses"));
+
+        CachedQuery cached = cache.lookup(new ColorSpec("red"), store, 1);
+        assertEquals(cached.rows().cardinality(), cache.count(new ColorSpec("RED"), store, 1));
+        assertEquals(1L, cache.stats().get("hits"));
+        assertEquals(2L * specs.size() + 1, cache.stats().get("misses"));
+    }
+}
@@ -0,0 +1,176 @@
+package tech.terabyte.labs.vendomita;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tech.terabyte.labs.vendomita.catalog.Catalog;
+import tech.terabyte.labs.vendomita.catalog.CatalogPersistence;
+import tech.terabyte.labs.vendomita.catalog.CatalogSnapshot;
+import tech.terabyte.labs.vendomita.catalog.ProductStore;
+import tech.terabyte.labs.vendomita.catalog.SnapshotFile;
+import tech.terabyte.labs.vendomita.catalog.StorageMode;
+import tech.terabyte.labs.vendomita.model.CatalogBatch;
+import tech.terabyte.labs.vendomita.model.ProductUpsert;
+import tech.terabyte.labs.vendomita.specification.AndNode;
+import tech.terabyte.labs.vendomita.specification.ColorSpec;
+import tech.terabyte.labs.vendomita.specification.InStockSpec;
+import tech.terabyte.labs.vendomita.specification.NotNode;
+import tech.terabyte.labs.vendomita.specification.PriceBetweenSpec;
+import tech.terabyte.labs.vendomita.specification.SizeSpec;
+import tech.terabyte.labs.vendomita.specification.SpecDto;
+import tech.terabyte.labs.vendomita.specification.factory.SpecParser;
+import tech.terabyte.labs.vendomita.specification.utility.ProductGenerator;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.channels.FileChannel;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * El snapshot en disco debe reabrirse mapeado con las mismas filas, índices,
+ * versión y próximo id, y rechazar archivos dañados.
+ */
+class SnapshotFileTest {
+
+    private Path dir;
+    private Path file;
+
+    @BeforeEach
+    void setup() throws IOException {
+        dir = Files.createTempDirectory("vendomita-snapshot");
+        file = dir.resolve("catalog.snapshot");
+    }
+
+    @Test
+    @DisplayName("Escribir y mapear devuelve el mismo catálogo, servido desde el archivo")
+    void roundTrip() throws IOException {
+        ProductStore store = ProductGenerator.generateStore(100_000, 11, null)
+          .apply(new CatalogBatch(
+            List.of(new ProductUpsert(null, "Kite-1", "BLUE", "SMALL", new BigDecimal("19.99"), true)),
+            List.of(3L, 4L, 5L)))
+          .store();
+        SnapshotFile.write(new CatalogSnapshot(7, store), file);
+
+        CatalogSnapshot loaded = SnapshotFile.read(file, true);
+        ProductStore mapped = loaded.store();
+
+        assertEquals(7, loaded.version());
+        assertEquals(StorageMode.OFF_HEAP, mapped.storageMode());
+        assertEquals(store.size(), mapped.size());
+        assertEquals(store.count(), mapped.count());
+        assertEquals(store.nextId(), mapped.nextId());
+        assertEquals(-1, mapped.rowOf(4));
+        for (int row = 0; row < store.size(); row++) {
+            assertEquals(store.get(row), mapped.get(row));
+        }
+
+        SpecParser parser = new SpecParser();
+        for (SpecDto spec : List.<SpecDto>of(
+          new ColorSpec("RED"),
+          new AndNode(List.of(new SizeSpec("SMALL"), new NotNode(new InStockSpec()))),
+          new PriceBetweenSpec(BigDecimal.valueOf(500), BigDecimal.valueOf(4500)))) {
+            assertEquals(parser.select(spec, store), parser.select(spec, mapped));
+        }
+    }
+
+    @Test
+    @DisplayName("Catálogo vacío también se guarda y se carga")
+    void emptyCatalog() throws IOException {
+        SnapshotFile.write(new CatalogSnapshot(1, ProductStore.empty()), file);
+        CatalogSnapshot loaded = SnapshotFile.read(file, true);
+        assertTrue(loaded.isEmpty());
+        assertEquals(1, loaded.store().nextId());
+    }
+
+    @Test
+    @DisplayName("Sobrescribir reemplaza el archivo sin dejar temporales")
+    void overwriteIsAtomic() throws IOException {
+        SnapshotFile.write(new CatalogSnapshot(1, ProductGenerator.generateStore(10, 1, null)), file);
+        SnapshotFile.write(new CatalogSnapshot(2, ProductGenerator.generateStore(20, 2, null)), file);
+
+        assertEquals(2, SnapshotFile.read(file, true).version());
+        SnapshotFile.verify(file);
+        try (var files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    @DisplayName("Un byte alterado en las filas se detecta por checksum")
+    void corruptionIsDetected() throws IOException {
+        SnapshotFile.write(new CatalogSnapshot(1, ProductGenerator.generateStore(1_000, 5, null)), file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), 4096 + 100);
+        }
+
+        assertThrows(IOException.class, () -> SnapshotFile.read(file, true));
+        // sin verificar filas el archivo se abre igual (solo header e índices)
+        assertEquals(1, SnapshotFile.read(file, false).version());
+        // y la verificación en segundo plano lo detecta después
+        assertThrows(IOException.class, () -> SnapshotFile.verify(file));
+    }
+
+    @Test
+    @DisplayName("Filas corruptas detectadas tras restaurar dejan el catálogo vacío y reescriben el archivo")
+    void corruptRowsAfterRestoreAreDropped() throws Exception {
+        ProductStore store = ProductGenerator.generateStore(1_000, 5, null);
+        SnapshotFile.write(new CatalogSnapshot(3, store), file);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{42}), 4096 + 100);
+        }
+
+        // sin verify-rows se restaura y la sección ROWS se verifica en segundo plano
+        Catalog catalog = new Catalog(StorageMode.OFF_HEAP);
+        CatalogPersistence persistence = new CatalogPersistence(catalog, true, file.toString(), false);
+        persistence.start();
+
+        // el catálogo vacío se publica como v4 y se escribe sobre el archivo dañado
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        CatalogSnapshot written = null;
+        while (written == null || written.version() != 4) {
+            assertTrue(System.nanoTime() < deadline, "el snapshot vacío no se escribió");
+            Thread.sleep(5);
+            try {
+                written = SnapshotFile.read(file, true);
+            } catch (IOException stillCorrupt) {
+                written = null;
+            }
+        }
+        persistence.stop();
+
+        assertTrue(catalog.current().isEmpty());
+        assertEquals(4, catalog.current().version());
+        assertEquals(store.nextId(), catalog.current().store().nextId());
+        assertTrue(written.isEmpty());
+        assertEquals(store.nextId(), written.store().nextId());
+    }
+
+    @Test
+    @DisplayName("Un guardado tardío de una versión anterior no pisa la ya escrita")
+    void staleSaveKeepsNewerVersion() throws Exception {
+        CatalogPersistence persistence = new CatalogPersistence(new Catalog(), true, file.toString(), false);
+        persistence.save(new CatalogSnapshot(6, ProductGenerator.generateStore(20, 6, null)));
+        while (!Files.exists(file)) Thread.sleep(5);
+
+        // dos publicadores: v5 llega al listener después de que v6 ya se escribió
+        persistence.save(new CatalogSnapshot(5, ProductGenerator.generateStore(10, 5, null)));
+        persistence.save(new CatalogSnapshot(8, ProductGenerator.generateStore(10, 8, null)));
+        persistence.save(new CatalogSnapshot(7, ProductGenerator.generateStore(10, 7, null)));
+        persistence.stop();
+
+        assertEquals(8, SnapshotFile.read(file, true).version());
+    }
+
+    @Test
+    @DisplayName("Un archivo que no es snapshot se rechaza")
+    void rejectsForeignFiles() throws IOException {
+        Files.write(file, new byte[8192]);
+        assertThrows(IOException.class, () -> SnapshotFile.read(file, true));
+    }
+}
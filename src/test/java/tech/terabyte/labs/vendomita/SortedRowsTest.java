@@ -0,0 +1,193 @@
+package tech.terabyte.labs.vendomita;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tech.terabyte.labs.vendomita.catalog.Bitmap;
+import tech.terabyte.labs.vendomita.catalog.Catalog;
+import tech.terabyte.labs.vendomita.catalog.CatalogChange;
+import tech.terabyte.labs.vendomita.catalog.CatalogSnapshot;
+import tech.terabyte.labs.vendomita.catalog.ProductStore;
+import tech.terabyte.labs.vendomita.model.CatalogBatch;
+import tech.terabyte.labs.vendomita.model.ProductUpsert;
+import tech.terabyte.labs.vendomita.query.PageCursor;
+import tech.terabyte.labs.vendomita.query.SortOrder;
+import tech.terabyte.labs.vendomita.query.SortedRows;
+import tech.terabyte.labs.vendomita.specification.AndNode;
+import tech.terabyte.labs.vendomita.specification.ColorSpec;
+import tech.terabyte.labs.vendomita.specification.InStockSpec;
+import tech.terabyte.labs.vendomita.specification.SpecDto;
+import tech.terabyte.labs.vendomita.specification.factory.SpecParser;
+import tech.terabyte.labs.vendomita.specification.utility.ProductGenerator;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PrimitiveIterator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Las páginas ordenadas (índice de precios, buckets o heap acotado) deben coincidir
+ * con ordenar todas las coincidencias y cortar.
+ */
+class SortedRowsTest {
+
+    private final SpecParser parser = new SpecParser();
+    private ProductStore store;
+
+    @BeforeEach
+    void setup() {
+        store = ProductGenerator.generateStore(5_000, 11, null);
+    }
+
+    @Test
+    @DisplayName("Cada clave y dirección == orden completo, con resultados densos y dispersos")
+    void pagesMatchFullSort() {
+        for (SpecDto spec : List.of(
+          new AndNode(List.of()),
+          new InStockSpec(),
+          new AndNode(List.of(new ColorSpec("RED"), new InStockSpec())))) {
+
+            Bitmap matches = parser.select(spec, store);
+            for (SortOrder.Key key : SortOrder.Key.values()) {
+                for (boolean desc : new boolean[]{false, true}) {
+                    SortOrder order = new SortOrder(key, desc);
+                    int[] expected = fullSort(matches, order);
+                    for (int offset : new int[]{0, 7, expected.length / 2, expected.length - 3, expected.length}) {
+                        SortedRows.Slice slice = SortedRows.page(matches, store, order, offset, 20);
+                        int from = Math.min(offset, expected.length);
+                        assertArrayEquals(Arrays.copyOfRange(expected, from, Math.min(from + 20, expected.length)),
+                          slice.rows(), key + (desc ? " desc" : " asc") + " @" + offset);
+                        assertEquals(from, slice.before());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Encadenar cursores recorre el orden completo sin huecos ni repetidos (índice y heap)")
+    void cursorsWalkTheWholeOrder() {
+        CatalogSnapshot snapshot = new CatalogSnapshot(1, store);
+        // denso: el precio recorre el índice; disperso: busca con el heap acotado
+        for (SpecDto spec : List.of(new InStockSpec(), new AndNode(List.of(new ColorSpec("RED"), new InStockSpec())))) {
+            Bitmap matches = parser.select(spec, store);
+            for (SortOrder.Key key : SortOrder.Key.values()) {
+                for (boolean desc : new boolean[]{false, true}) {
+                    SortOrder order = new SortOrder(key, desc);
+                    List<Integer> walked = new ArrayList<>();
+                    SortedRows.Slice slice = SortedRows.page(matches, store, order, 0, 50);
+                    while (true) {
+                        assertEquals(walked.size(), slice.before());
+                        for (int row : slice.rows()) walked.add(row);
+                        assertEquals(walked.size() < matches.cardinality(), slice.more(), order + " @" + walked.size());
+                        if (!slice.more()) break;
+                        int last = slice.rows()[slice.rows().length - 1];
+                        String cursor = PageCursor.after(snapshot, order, last, walked.size()).encode();
+                        slice = SortedRows.after(matches, store, PageCursor.decode(cursor), 50);
+                    }
+                    assertArrayEquals(fullSort(matches, order), walked.stream().mapToInt(Integer::intValue).toArray());
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("El cursor sigue desde la clave que vio el cliente aunque un lote cambie la de su última fila")
+    void cursorSeeksByCarriedKey() {
+        Catalog catalog = new Catalog();
+        CatalogSnapshot snapshot = catalog.publish(store);
+        Bitmap all = snapshot.store().index().all();
+        for (SortOrder order : List.of(SortOrder.parse("price"), SortOrder.parse("name,desc"))) {
+            int[] expected = fullSort(all, order);
+            int last = expected[99];
+            PageCursor cursor = PageCursor.after(catalog.current(), order, last, 100);
+
+            // la última fila entregada pasa al final del orden: la página siguiente no cambia
+            ProductUpsert moved = order.key() == SortOrder.Key.PRICE
+              ? new ProductUpsert(store.id(last), null, null, null, BigDecimal.valueOf(1_000_000), null)
+              : new ProductUpsert(store.id(last), "", null, null, null, null);
+            CatalogSnapshot batched = catalog.apply(new CatalogBatch(List.of(moved), null)).current();
+            SortedRows.Slice next = SortedRows.after(all, batched.store(), cursor.validFor(batched, order), 50);
+            assertArrayEquals(Arrays.copyOfRange(expected, 100, 150), next.rows(), order.value());
+            assertEquals(100, next.before());
+            assertTrue(next.more());
+        }
+    }
+
+    @Test
+    @DisplayName("Un cursor sigue sirviendo tras un lote sin compactar y se rechaza tras compactar o con otro orden")
+    void cursorsAcrossCompactingBatch() {
+        Catalog catalog = new Catalog();
+        CatalogSnapshot snapshot = catalog.publish(store);
+        SortOrder order = SortOrder.parse("price");
+        Bitmap matches = snapshot.store().index().all();
+        int[] firstPage = SortedRows.page(matches, snapshot.store(), order, 0, 100).rows();
+        String cursor = PageCursor.after(snapshot, order, firstPage[99], 100).encode();
+
+        // borrar unas pocas filas deja tombstones: los números de fila no cambian
+        List<Long> few = new ArrayList<>();
+        for (int row = 0; row < 100; row++) few.add(snapshot.store().id(row));
+        CatalogSnapshot batched = catalog.apply(new CatalogBatch(List.of(), few)).current();
+        assertEquals(snapshot.rowsVersion(), batched.rowsVersion());
+        PageCursor after = PageCursor.decode(cursor).validFor(batched, order);
+        int[] next = SortedRows.after(batched.store().index().all(), batched.store(), after, 100).rows();
+        assertTrue(batched.store().priceCents(next[0]) >= snapshot.store().priceCents(firstPage[99]));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(cursor).validFor(batched, SortOrder.parse("name")));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(cursor).validFor(batched, null));
+
+        // borrar más de la mitad compacta el store: el cursor ya no apunta a las mismas filas
+        List<Long> most = new ArrayList<>();
+        for (int row = 100; row < 3_000; row++) most.add(snapshot.store().id(row));
+        CatalogChange compacting = catalog.apply(new CatalogBatch(List.of(), most));
+        assertTrue(compacting.delta().compacted());
+        assertEquals(compacting.current().version(), compacting.current().rowsVersion());
+        IllegalArgumentException stale = assertThrows(IllegalArgumentException.class,
+          () -> PageCursor.decode(cursor).validFor(compacting.current(), order));
+        assertTrue(stale.getMessage().contains("compacted"));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode("r1:42"));
+        String notCents = Base64.getUrlEncoder().encodeToString("r3:1:price,asc:5:6:cheap".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IllegalArgumentException.class, () -> PageCursor.decode(notCents));
+    }
+
+    @Test
+    @DisplayName("El iterador de descarga entrega todas las coincidencias en orden")
+    void iteratorYieldsFullOrder() {
+        Bitmap matches = parser.select(new ColorSpec("BLUE"), store);
+        for (SortOrder order : List.of(SortOrder.parse("price,desc"), SortOrder.parse("name"))) {
+            PrimitiveIterator.OfInt it = SortedRows.iterator(matches, store, order);
+            for (int row : fullSort(matches, order)) assertEquals(row, it.nextInt());
+            assertFalse(it.hasNext());
+        }
+    }
+
+    @Test
+    @DisplayName("sort inválido → IllegalArgumentException")
+    void parseRejectsUnknownKeysAndDirections() {
+        assertEquals(new SortOrder(SortOrder.Key.PRICE, true), SortOrder.parse("Price,DESC"));
+        assertEquals(new SortOrder(SortOrder.Key.NAME, false), SortOrder.parse("name"));
+        assertThrows(IllegalArgumentException.class, () -> SortOrder.parse("weight"));
+        assertThrows(IllegalArgumentException.class, () -> SortOrder.parse("price,up"));
+        assertThrows(IllegalArgumentException.class, () -> SortedRows.after(Bitmap.empty(), store,
+          new PageCursor(0, SortOrder.parse("price"), store.size(), "0", 0), 10));
+        assertThrows(IllegalArgumentException.class, () -> SortedRows.after(Bitmap.empty(), store,
+          new PageCursor(0, SortOrder.parse("color"), 0, "9", 0), 10));
+    }
+
+    private int[] fullSort(Bitmap matches, SortOrder order) {
+        Comparator<Integer> byKey = switch (order.key()) {
+            case PRICE -> Comparator.comparingLong(store::priceCents);
+            case NAME -> Comparator.comparing(store::name);
+            case SIZE -> Comparator.comparingInt(store::sizeOrdinal);
+            case COLOR -> Comparator.comparingInt(store::colorOrdinal);
+        };
+        Comparator<Integer> asc = byKey.thenComparingInt(row -> row);
+        return matches.stream().boxed().sorted(order.descending() ? asc.reversed() : asc)
+          .mapToInt(Integer::intValue).toArray();
+    }
+}
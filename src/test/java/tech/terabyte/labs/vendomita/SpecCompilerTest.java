@@ -0,0 +1,103 @@
+package tech.terabyte.labs.vendomita;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tech.terabyte.labs.vendomita.catalog.ProductStore;
+import tech.terabyte.labs.vendomita.model.CatalogBatch;
+import tech.terabyte.labs.vendomita.specification.AndNode;
+import tech.terabyte.labs.vendomita.specification.ColorSpec;
+import tech.terabyte.labs.vendomita.specification.InStockSpec;
+import tech.terabyte.labs.vendomita.specification.NotNode;
+import tech.terabyte.labs.vendomita.specification.OrNode;
+import tech.terabyte.labs.vendomita.specification.PriceBetweenSpec;
+import tech.terabyte.labs.vendomita.specification.PriceGteSpec;
+import tech.terabyte.labs.vendomita.specification.PriceLtSpec;
+import tech.terabyte.labs.vendomita.specification.RowSpecification;
+import tech.terabyte.labs.vendomita.specification.SizeSpec;
+import tech.terabyte.labs.vendomita.specification.SpecDto;
+import tech.terabyte.labs.vendomita.specification.factory.SpecCompiler;
+import tech.terabyte.labs.vendomita.specification.factory.SpecParser;
+import tech.terabyte.labs.vendomita.specification.impl.ParallelFilter;
+import tech.terabyte.labs.vendomita.specification.utility.ProductGenerator;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Las clases generadas por forma de árbol deben dar exactamente lo mismo que el
+ * intérprete, y reutilizarse entre árboles que solo cambian sus constantes.
+ */
+class SpecCompilerTest {
+
+    private final SpecParser interpreter = new SpecParser(ParallelFilter.serial(), new SpecCompiler(0, 0), null);
+
+    @Test
+    @DisplayName("Árboles aleatorios: clase generada == intérprete, con y sin borrados")
+    void compiledMatchesInterpreter() {
+        ProductStore store = ProductGenerator.generateStore(2_000, 5, null);
+        List<Long> deleted = new ArrayList<>();
+        for (long id = 1; id <= 2_000; id += 7) deleted.add(id);
+        ProductStore withDeletions = store.apply(new CatalogBatch(List.of(), deleted)).store();
+
+        SpecCompiler compiler = new SpecCompiler(1, 1_000);
+        Random random = new Random(3);
+        for (int i = 0; i < 300; i++) {
+            SpecDto canonical = interpreter.normalize(randomTree(random, 4));
+            for (ProductStore s : List.of(store, withDeletions)) {
+                RowSpecification compiled = compiler.compile(canonical, s);
+                assertNotNull(compiled, canonical::toString);
+                RowSpecification interpreted = interpreter.compile(canonical, s);
+                for (int row = 0; row < s.size(); row++) {
+                    assertEquals(interpreted.isSatisfied(row), compiled.isSatisfied(row), canonical + " @" + row);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Misma forma con otras constantes reutiliza la clase; formas raras se interpretan")
+    void shapesAreSharedAndThresholded() {
+        ProductStore store = ProductGenerator.generateStore(500, 5, null);
+        SpecCompiler compiler = new SpecCompiler(2, 1);
+        SpecDto red = new AndNode(List.of(new ColorSpec("RED"), new PriceLtSpec(BigDecimal.valueOf(900))));
+        SpecDto blue = new AndNode(List.of(new ColorSpec("BLUE"), new PriceLtSpec(BigDecimal.valueOf(2500))));
+
+        assertNull(compiler.compile(red, store), "primera vez: intérprete");
+        assertNotNull(compiler.compile(blue, store), "segunda vez con la misma forma: compilada");
+        assertEquals(1, compiler.shapes());
+
+        SpecDto other = new OrNode(List.of(new SizeSpec("SMALL"), new InStockSpec()));
+        compiler.compile(other, store);
+        assertNull(compiler.compile(other, store), "max-shapes alcanzado: intérprete");
+        assertEquals(1, compiler.shapes());
+    }
+
+    // ---- helpers ----
+
+    private static SpecDto randomTree(Random random, int depth) {
+        int kind = random.nextInt(depth > 0 ? 10 : 6);
+        BigDecimal price = BigDecimal.valueOf(100 + random.nextInt(49) * 100L);
+        return switch (kind) {
+            case 0 -> new ColorSpec(random.nextBoolean() ? "RED" : "blue");
+            case 1 -> new SizeSpec(random.nextBoolean() ? "SMALL" : "LARGE");
+            case 2 -> new InStockSpec();
+            case 3 -> new PriceLtSpec(price);
+            case 4 -> new PriceGteSpec(price);
+            case 5 -> new PriceBetweenSpec(price, price.add(BigDecimal.valueOf(random.nextInt(3000))));
+            case 6 -> new NotNode(randomTree(random, depth - 1));
+            case 7, 8 -> new AndNode(children(random, depth));
+            default -> new OrNode(children(random, depth));
+        };
+    }
+
+    private static List<SpecDto> children(Random random, int depth) {
+        List<SpecDto> children = new ArrayList<>();
+        int n = random.nextInt(4);
+        for (int i = 0; i < n; i++) children.add(randomTree(random, depth - 1));
+        return children;
+    }
+}
@@ -0,0 +1,119 @@
+package tech.terabyte.labs.vendomita;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tech.terabyte.labs.vendomita.model.FilterBatch;
+import tech.terabyte.labs.vendomita.specification.AndNode;
+import tech.terabyte.labs.vendomita.specification.ColorSpec;
+import tech.terabyte.labs.vendomita.specification.InStockSpec;
+import tech.terabyte.labs.vendomita.specification.NotNode;
+import tech.terabyte.labs.vendomita.specification.PriceLtSpec;
+import tech.terabyte.labs.vendomita.specification.SizeSpec;
+import tech.terabyte.labs.vendomita.specification.SpecDto;
+import tech.terabyte.labs.vendomita.specification.factory.SpecDeserializer;
+import tech.terabyte.labs.vendomita.specification.factory.SpecParser;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Lector de specs en streaming: mismo árbol que el binding polimórfico de Jackson,
+ * sin distinguir mayúsculas en tipos y enums, y con límites de profundidad y nodos.
+ */
+class SpecDeserializerTest {
+
+    private final ObjectMapper streaming = new ObjectMapper()
+      .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+      .registerModule(new SimpleModule().addDeserializer(SpecDto.class, new SpecDeserializer()));
+    private final ObjectMapper polymorphic = new ObjectMapper()
+      .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    private final SpecParser parser = new SpecParser();
+
+    private static final List<String> DOCUMENTS = List.of(
+      """
+        { "type": "InStockSpecification" }""",
+      """
+        { "type": "AND", "children": [
+          { "type": "ColorSpecification", "color": "red" },
+          { "type": "NOT", "child": { "type": "SizeSpecification", "size": "Large" } },
+          { "type": "PriceLessThanSpecification", "price": 1000.50 } ] }""",
+      """
+        { "children": [
+          { "price": "250", "type": "PriceGreaterOrEqualSpecification" },
+          { "min": 100, "max": 400.10, "type": "PriceBetweenSpecification", "comment": { "a": [1, 2] } },
+          { "type": "OR", "children": [
+            { "type": "NamePrefixSpecification", "prefix": "Jack" },
+            { "type": "NameContainsSpecification", "text": "ket-12", "extra": null } ] } ],
+          "type": "OR" }""");
+
+    @Test
+    @DisplayName("Da el mismo árbol que el binding polimórfico, en cualquier orden de campos")
+    void matchesPolymorphicBinding() throws Exception {
+        for (String json : DOCUMENTS) {
+            SpecDto fast = streaming.readValue(json, SpecDto.class);
+            assertEquals(parser.normalize(polymorphic.readValue(json, SpecDto.class)), parser.normalize(fast), json);
+        }
+        FilterBatch batch = streaming.readValue("""
+          { "queries": [ { "name": "a", "spec": { "type": "InStockSpecification" } } ] }""", FilterBatch.class);
+        assertEquals(new InStockSpec(), batch.queries().get(0).spec());
+    }
+
+    @Test
+    @DisplayName("Tipos, colores y tallas sin distinguir mayúsculas; los enums quedan canónicos")
+    void ignoresCase() throws Exception {
+        SpecDto spec = streaming.readValue("""
+          { "type": "and", "children": [
+            { "type": "colorspecification", "color": "bLuE" },
+            { "type": "SIZESPECIFICATION", "size": "small" },
+            { "type": "not", "child": { "type": "priceLessThanSpecification", "price": 5 } } ] }""", SpecDto.class);
+        assertEquals(new AndNode(List.of(new ColorSpec("BLUE"), new SizeSpec("SMALL"),
+          new NotNode(new PriceLtSpec(new BigDecimal("5"))))), spec);
+    }
+
+    @Test
+    @DisplayName("Errores de contenido y límites -> IllegalArgumentException (400)")
+    void rejectsInvalidSpecs() {
+        assertInvalid("{ \"type\": \"Whatever\" }", "Unknown spec type");
+        assertInvalid("{ \"color\": \"RED\" }", "requires 'type'");
+        assertInvalid("{ \"type\": \"ColorSpecification\", \"color\": \"PURPLE\" }", "Unsupported color");
+        assertInvalid("{ \"type\": \"PriceLessThanSpecification\", \"price\": \"cheap\" }", "must be a number");
+        assertInvalid("{ \"type\": \"AND\", \"children\": [ 1 ] }", "must be a JSON object");
+
+        String deep = "{ \"type\": \"NOT\", \"child\": ".repeat(SpecDeserializer.MAX_DEPTH)
+          + "{ \"type\": \"InStockSpecification\" }" + " }".repeat(SpecDeserializer.MAX_DEPTH);
+        assertInvalid(deep, "deeper than");
+        String wide = "{ \"type\": \"OR\", \"children\": ["
+          + String.join(",", Collections.nCopies(SpecDeserializer.MAX_NODES, "{ \"type\": \"InStockSpecification\" }"))
+          + "] }";
+        assertInvalid(wide, "more than");
+
+        // dentro de otro objeto Jackson envuelve la excepción; la causa se conserva
+        JsonMappingException wrapped = assertThrows(JsonMappingException.class, () -> streaming.readValue(
+          "{ \"queries\": [ { \"name\": \"a\", \"spec\": " + deep + " } ] }", FilterBatch.class));
+        assertInstanceOf(IllegalArgumentException.class, wrapped.getCause());
+    }
+
+    @Test
+    @DisplayName("Justo en los límites se acepta")
+    void acceptsTreesAtTheLimits() throws Exception {
+        int depth = SpecDeserializer.MAX_DEPTH - 1;
+        String deep = "{ \"type\": \"NOT\", \"child\": ".repeat(depth) + "{ \"type\": \"InStockSpecification\" }" + " }".repeat(depth);
+        assertNotNull(streaming.readValue(deep, SpecDto.class));
+        String wide = "{ \"type\": \"AND\", \"children\": ["
+          + String.join(",", Collections.nCopies(SpecDeserializer.MAX_NODES - 1, "{ \"type\": \"InStockSpecification\" }"))
+          + "] }";
+        assertEquals(new InStockSpec(), parser.normalize(streaming.readValue(wide, SpecDto.class)));
+    }
+
+    private void assertInvalid(String json, String message) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> streaming.readValue(json, SpecDto.class));
+        assertTrue(e.getMessage().contains(message), e.getMessage());
+    }
+}
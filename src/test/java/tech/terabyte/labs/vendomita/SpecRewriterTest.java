@@ -0,0 +1,167 @@
+package tech.terabyte.labs.vendomita;
+
+import org.junit.jupiter.api.Test;
+import tech.terabyte.labs.vendomita.model.Product;
+import tech.terabyte.labs.vendomita.specification.AndNode;
+import tech.terabyte.labs.vendomita.specification.ColorSpec;
+import tech.terabyte.labs.vendomita.specification.InStockSpec;
+import tech.terabyte.labs.vendomita.specification.NameContainsSpec;
+import tech.terabyte.labs.vendomita.specification.NamePrefixSpec;
+import tech.terabyte.labs.vendomita.specification.NotNode;
+import tech.terabyte.labs.vendomita.specification.OrNode;
+import tech.terabyte.labs.vendomita.specification.PriceBetweenSpec;
+import tech.terabyte.labs.vendomita.specification.PriceGteSpec;
+import tech.terabyte.labs.vendomita.specification.PriceLtSpec;
+import tech.terabyte.labs.vendomita.specification.SizeSpec;
+import tech.terabyte.labs.vendomita.specification.SpecDto;
+import tech.terabyte.labs.vendomita.specification.factory.SpecRewriter;
+import tech.terabyte.labs.vendomita.specification.utility.ProductGenerator;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SpecRewriterTest {
+
+    private final SpecRewriter rewriter = new SpecRewriter();
+
+    @Test
+    void doubleNegationAndSingleChildNodesCollapse() {
+        SpecDto dto = new AndNode(List.of(new NotNode(new NotNode(new ColorSpec("red")))));
+
+        assertEquals(new ColorSpec("RED"), rewriter.rewrite(dto));
+    }
+
+    @Test
+    void nestedNodesFlattenAndDuplicatesAreRemoved() {
+        SpecDto dto = new AndNode(List.of(
+          new InStockSpec(),
+          new AndNode(List.of(new SizeSpec("LARGE"), new InStockSpec())),
+          new SizeSpec("large")
+        ));
+
+        SpecDto expected = rewriter.rewrite(new AndNode(List.of(new SizeSpec("LARGE"), new InStockSpec())));
+        assertEquals(expected, rewriter.rewrite(dto));
+        assertEquals(2, ((AndNode) expected).children().size());
+    }
+
+    @Test
+    void childOrderDoesNotMatter() {
+        SpecDto a = new OrNode(List.of(new ColorSpec("BLUE"), new InStockSpec(), new SizeSpec("SMALL")));
+        SpecDto b = new OrNode(List.of(new SizeSpec("SMALL"), new ColorSpec("BLUE"), new InStockSpec()));
+
+        assertEquals(rewriter.rewrite(a), rewriter.rewrite(b));
+    }
+
+    @Test
+    void contradictionsFoldToNever() {
+        assertEquals(SpecRewriter.NEVER, rewriter.rewrite(new AndNode(List.of(new ColorSpec("RED"), new ColorSpec("BLUE")))));
+        assertEquals(SpecRewriter.NEVER, rewriter.rewrite(new AndNode(List.of(new InStockSpec(), new NotNode(new InStockSpec())))));
+        assertEquals(SpecRewriter.NEVER, rewriter.rewrite(new AndNode(List.of(
+          new PriceGteSpec(BigDecimal.valueOf(2000)), new PriceLtSpec(BigDecimal.valueOf(1000))))));
+        assertEquals(SpecRewriter.NEVER, rewriter.rewrite(new NotNode(new AndNode(List.of()))));
+    }
+
+    @Test
+    void tautologiesFoldToAlways() {
+        assertEquals(SpecRewriter.ALWAYS, rewriter.rewrite(new OrNode(List.of(new InStockSpec(), new NotNode(new InStockSpec())))));
+        assertEquals(SpecRewriter.ALWAYS, rewriter.rewrite(new OrNode(List.of(
+          new PriceLtSpec(BigDecimal.valueOf(2000)), new PriceGteSpec(BigDecimal.valueOf(1000))))));
+    }
+
+    @Test
+    void priceBoundsMerge() {
+        SpecDto dto = new AndNode(List.of(
+          new NotNode(new PriceLtSpec(new BigDecimal("1000.00"))),
+          new PriceLtSpec(BigDecimal.valueOf(3000)),
+          new PriceLtSpec(BigDecimal.valueOf(2000))
+        ));
+
+        assertEquals(new PriceBetweenSpec(new BigDecimal("1E+3"), new BigDecimal("2E+3")), rewriter.rewrite(dto));
+    }
+
+    @Test
+    void nameSearchesMerge() {
+        assertEquals(new NamePrefixSpec("jacket-1"), rewriter.rewrite(new AndNode(List.of(
+          new NamePrefixSpec("Jac"), new NamePrefixSpec("JACKET-1"), new NameContainsSpec("ket")))));
+        assertEquals(SpecRewriter.NEVER, rewriter.rewrite(new AndNode(List.of(
+          new NamePrefixSpec("hat"), new NamePrefixSpec("jacket")))));
+        assertEquals(new OrNode(List.of(new NameContainsSpec("ck"), new NamePrefixSpec("hat"))),
+          rewriter.rewrite(new OrNode(List.of(new NamePrefixSpec("Hat"), new NamePrefixSpec("hat-1"),
+            new NameContainsSpec("ck"), new NameContainsSpec("jack"), new NamePrefixSpec("Jacket")))));
+        assertEquals(SpecRewriter.ALWAYS, rewriter.rewrite(new NameContainsSpec("")));
+    }
+
+    @Test
+    void invalidNodesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> rewriter.rewrite(new NotNode(null)));
+        assertThrows(IllegalArgumentException.class, () -> rewriter.rewrite(new ColorSpec(null)));
+        assertThrows(IllegalArgumentException.class, () -> rewriter.rewrite(new ColorSpec("PURPLE")));
+        assertThrows(IllegalArgumentException.class, () -> rewriter.rewrite(new AndNode(null)));
+        assertThrows(IllegalArgumentException.class, () -> rewriter.rewrite(new NamePrefixSpec(null)));
+    }
+
+    @Test
+    void rewrittenTreesAreEquivalent() {
+        Random random = new Random(7);
+        List<Product> products = ProductGenerator.generate(500);
+        for (int i = 0; i < 500; i++) {
+            SpecDto dto = randomTree(random, 4);
+            SpecDto canonical = rewriter.rewrite(dto);
+            assertEquals(canonical, rewriter.rewrite(canonical), "rewrite must be idempotent: " + dto);
+            for (Product p : products) {
+                assertEquals(matches(dto, p), matches(canonical, p), dto + " -> " + canonical);
+            }
+        }
+    }
+
+    // ---- helpers ----
+
+    private static final String[] PREFIXES = {"", "h", "Hat", "hat-1", "JACKET", "jacket-12", "Socks-9"};
+    private static final String[] NEEDLES = {"", "t", "AT", "hat", "-1", "ket-1", "t-s", "99"};
+
+    private static SpecDto randomTree(Random random, int depth) {
+        int kind = random.nextInt(depth > 0 ? 12 : 8);
+        BigDecimal price = BigDecimal.valueOf(100 + random.nextInt(49) * 100L);
+        return switch (kind) {
+            case 0 -> new ColorSpec(random.nextBoolean() ? "RED" : "blue");
+            case 1 -> new SizeSpec(random.nextBoolean() ? "SMALL" : "LARGE");
+            case 2 -> new InStockSpec();
+            case 3 -> new PriceLtSpec(price);
+            case 4 -> new PriceGteSpec(price);
+            case 5 -> new PriceBetweenSpec(price, price.add(BigDecimal.valueOf(random.nextInt(3000) - 500L)));
+            case 6 -> new NamePrefixSpec(PREFIXES[random.nextInt(PREFIXES.length)]);
+            case 7 -> new NameContainsSpec(NEEDLES[random.nextInt(NEEDLES.length)]);
+            case 8 -> new NotNode(randomTree(random, depth - 1));
+            case 9, 10 -> new AndNode(children(random, depth));
+            default -> new OrNode(children(random, depth));
+        };
+    }
+
+    private static List<SpecDto> children(Random random, int depth) {
+        List<SpecDto> children = new ArrayList<>();
+        int n = random.nextInt(4);
+        for (int i = 0; i < n; i++) children.add(randomTree(random, depth - 1));
+        return children;
+    }
+
+    private static boolean matches(SpecDto dto, Product p) {
+        return switch (dto) {
+            case AndNode a -> a.children().stream().allMatch(c -> matches(c, p));
+            case OrNode o -> o.children().stream().anyMatch(c -> matches(c, p));
+            case NotNode n -> !matches(n.child(), p);
+            case ColorSpec c -> p.color().name().equalsIgnoreCase(c.color());
+            case SizeSpec s -> p.size().name().equalsIgnoreCase(s.size());
+            case InStockSpec ignored -> p.inStock();
+            case PriceLtSpec pr -> p.price().compareTo(pr.price()) < 0;
+            case PriceGteSpec pr -> p.price().compareTo(pr.price()) >= 0;
+            case PriceBetweenSpec pr -> p.price().compareTo(pr.min()) >= 0 && p.price().compareTo(pr.max()) < 0;
+            case NamePrefixSpec n -> p.name().toLowerCase().startsWith(n.prefix().toLowerCase());
+            case NameContainsSpec n -> p.name().toLowerCase().contains(n.text().toLowerCase());
+        };
+    }
+}
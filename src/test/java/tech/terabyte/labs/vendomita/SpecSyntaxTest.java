@@ -0,0 +1,103 @@
+package tech.terabyte.labs.vendomita;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import tech.terabyte.labs.vendomita.catalog.ProductStore;
+import tech.terabyte.labs.vendomita.specification.AndNode;
+import tech.terabyte.labs.vendomita.specification.ColorSpec;
+import tech.terabyte.labs.vendomita.specification.InStockSpec;
+import tech.terabyte.labs.vendomita.specification.NameContainsSpec;
+import tech.terabyte.labs.vendomita.specification.NamePrefixSpec;
+import tech.terabyte.labs.vendomita.specification.NotNode;
+import tech.terabyte.labs.vendomita.specification.OrNode;
+import tech.terabyte.labs.vendomita.specification.PriceBetweenSpec;
+import tech.terabyte.labs.vendomita.specification.PriceGteSpec;
+import tech.terabyte.labs.vendomita.specification.PriceLtSpec;
+import tech.terabyte.labs.vendomita.specification.SizeSpec;
+import tech.terabyte.labs.vendomita.specification.SpecDto;
+import tech.terabyte.labs.vendomita.specification.factory.SpecDeserializer;
+import tech.terabyte.labs.vendomita.specification.factory.SpecParser;
+import tech.terabyte.labs.vendomita.specification.factory.SpecSyntax;
+import tech.terabyte.labs.vendomita.specification.utility.ProductGenerator;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Forma compacta {@code q=...}: precedencia NOT > AND > OR, paréntesis, búsquedas por
+ * nombre con comodines y los mismos límites que el cuerpo JSON.
+ */
+class SpecSyntaxTest {
+
+    @Test
+    @DisplayName("Cada término produce su nodo; mayúsculas indiferentes")
+    void parsesTerms() {
+        assertEquals(new InStockSpec(), SpecSyntax.parse("inStock"));
+        assertEquals(new ColorSpec("RED"), SpecSyntax.parse("COLOR:red"));
+        assertEquals(new SizeSpec("LARGE"), SpecSyntax.parse("  size:Large "));
+        assertEquals(new PriceLtSpec(new BigDecimal("1000")), SpecSyntax.parse("price<1000"));
+        assertEquals(new PriceGteSpec(new BigDecimal("99.5")), SpecSyntax.parse("price>=99.5"));
+        assertEquals(new PriceBetweenSpec(new BigDecimal("100"), new BigDecimal("500")), SpecSyntax.parse("price:100..500"));
+        assertEquals(new NamePrefixSpec("Jack"), SpecSyntax.parse("name:Jack*"));
+        assertEquals(new NameContainsSpec("ket-12"), SpecSyntax.parse("name:*ket-12*"));
+        assertEquals(new NamePrefixSpec("T-Shirt (L) \"x\""), SpecSyntax.parse("name:\"T-Shirt (L) \\\"x\\\"\"*"));
+        assertEquals(new NameContainsSpec("a*b"), SpecSyntax.parse("name:*\"a*b\"*"));
+    }
+
+    @Test
+    @DisplayName("NOT liga más que AND, AND más que OR; los paréntesis mandan")
+    void respectsPrecedence() {
+        assertEquals(new AndNode(List.of(new ColorSpec("RED"), new SizeSpec("LARGE"), new NotNode(new InStockSpec()))),
+          SpecSyntax.parse("color:RED AND size:LARGE AND NOT inStock"));
+        assertEquals(new OrNode(List.of(
+            new AndNode(List.of(new ColorSpec("RED"), new SizeSpec("SMALL"))),
+            new NotNode(new ColorSpec("BLUE")))),
+          SpecSyntax.parse("color:red and size:small or not color:blue"));
+        assertEquals(new AndNode(List.of(
+            new OrNode(List.of(new ColorSpec("RED"), new ColorSpec("BLUE"))),
+            new NotNode(new OrNode(List.of(new InStockSpec(), new PriceLtSpec(new BigDecimal("10"))))))),
+          SpecSyntax.parse("(color:RED OR color:BLUE) AND NOT(inStock OR price<10)"));
+    }
+
+    @Test
+    @DisplayName("Selecciona lo mismo que el árbol JSON equivalente")
+    void selectsLikeJsonTree() {
+        ProductStore store = ProductGenerator.generateStore(20_000, 5, null);
+        SpecParser parser = new SpecParser();
+        SpecDto tree = new AndNode(List.of(
+          new OrNode(List.of(new ColorSpec("RED"), new NamePrefixSpec("hat-1"))),
+          new PriceBetweenSpec(new BigDecimal("500"), new BigDecimal("2500")),
+          new NotNode(new SizeSpec("MEDIUM"))));
+        SpecDto parsed = SpecSyntax.parse("(color:red OR name:HAT-1*) AND price:500..2500 AND NOT size:medium");
+        assertEquals(parser.normalize(tree), parser.normalize(parsed));
+        assertEquals(parser.select(tree, store), parser.select(parsed, store));
+    }
+
+    @Test
+    @DisplayName("Errores con posición; límites de profundidad y nodos")
+    void rejectsInvalidQueries() {
+        assertInvalid("", "must not be empty");
+        assertInvalid("color:PURPLE", "Unsupported color");
+        assertInvalid("color:RED size:LARGE", "position 10");
+        assertInvalid("color:RED AND", "expected inStock");
+        assertInvalid("(inStock", "expected ')'");
+        assertInvalid("price>100", "price<n");
+        assertInvalid("price<cheap", "not a number");
+        assertInvalid("name:jack", "name:text*");
+        assertInvalid("name:\"jack*", "unterminated quote");
+        assertInvalid("weight:3", "position 0");
+
+        assertInvalid("NOT ".repeat(SpecDeserializer.MAX_DEPTH) + "inStock", "deeper than");
+        assertInvalid("(".repeat(1000) + "inStock" + ")".repeat(1000), "deeper than");
+        assertInvalid(String.join(" OR ", Collections.nCopies(SpecDeserializer.MAX_NODES, "inStock")), "more than");
+        assertNotNull(SpecSyntax.parse("NOT ".repeat(SpecDeserializer.MAX_DEPTH - 1) + "inStock"));
+    }
+
+    private static void assertInvalid(String q, String message) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> SpecSyntax.parse(q));
+        assertTrue(e.getMessage().contains(message), e.getMessage());
+    }
+}
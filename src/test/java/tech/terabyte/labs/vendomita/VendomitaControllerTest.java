@@ -7,22 +7,39 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
-import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import tech.terabyte.labs.vendomita.catalog.Bitmap;
+import tech.terabyte.labs.vendomita.catalog.Catalog;
+import tech.terabyte.labs.vendomita.catalog.ProductStore;
+import tech.terabyte.labs.vendomita.config.ScanConfig;
 import tech.terabyte.labs.vendomita.controller.VendomitaController;
+import tech.terabyte.labs.vendomita.filter.AccessLog;
 import tech.terabyte.labs.vendomita.filter.CorrelationIdFilter;
 import tech.terabyte.labs.vendomita.filter.CorrelationResponseAdvice;
+import tech.terabyte.labs.vendomita.metrics.FilterMetrics;
 import tech.terabyte.labs.vendomita.model.Product;
+import tech.terabyte.labs.vendomita.query.QueryCache;
 import tech.terabyte.labs.vendomita.specification.SpecDto;
-import tech.terabyte.labs.vendomita.specification.Specification;
+import tech.terabyte.labs.vendomita.specification.factory.SelectionTrace;
+import tech.terabyte.labs.vendomita.specification.factory.SpecCompiler;
 import tech.terabyte.labs.vendomita.specification.factory.SpecParser;
+import tech.terabyte.labs.vendomita.specification.impl.ParallelFilter;
 
 import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.web.servlet.MvcResult;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPInputStream;
 
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -30,20 +47,26 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 /**
  * Tests de integración del controller con MockMvc.
- * - Mockeamos SpecParser para controlar el Specification resultante.
+ * - Espiamos SpecParser (normaliza de verdad) para controlar el Bitmap resultante.
  * - Sembramos catálogo con /generate antes de /filter y /download.
+ * - Con vendomita.scan.vector y 4 hilos de escaneo, las specs se evalúan por máscaras de columna.
  */
 @WebMvcTest(controllers = VendomitaController.class)
-@Import({CorrelationIdFilter.class, CorrelationResponseAdvice.class})
+@Import({AccessLog.class, Catalog.class, CorrelationIdFilter.class, CorrelationResponseAdvice.class, FilterMetrics.class,
+  QueryCache.class, ScanConfig.class, SpecCompiler.class})
+@TestPropertySource(properties = {"vendomita.scan.parallelism=4", "vendomita.scan.vector=true"})
 class VendomitaControllerTest {
 
     @Autowired
     MockMvc mvc;
 
+    @Autowired
+    ParallelFilter<Product> productFilter;
+
     @Autowired
     ObjectMapper objectMapper;
 
-    @MockBean
+    @SpyBean
     SpecParser specParser;
 
     private String correlationId;
@@ -76,8 +99,8 @@ class VendomitaControllerTest {
           .andExpect(status().isOk());
 
         // 2) Mock del parser: devolver specification que acepta todo (para tener matches = total)
-        Mockito.when(specParser.fromDto(any(SpecDto.class)))
-          .thenReturn(alwaysTrue());
+        Mockito.doAnswer(inv -> alwaysTrue(inv.getArgument(1)))
+          .when(specParser).select(any(SpecDto.class), any(ProductStore.class), any(SelectionTrace.class));
 
         String body = """
                 { "type": "InStockSpecification" }
@@ -106,6 +129,132 @@ class VendomitaControllerTest {
           .andExpect(jsonPath("$.meta.hasPrev").value(true));
     }
 
+    @Test
+    void filter_shouldReportPinnedCatalogVersion() throws Exception {
+        MvcResult generated = mvc.perform(get("/api/products/generate")
+            .param("count", "10")
+            .header("X-Correlation-Id", correlationId))
+          .andExpect(status().isOk())
+          .andReturn();
+        long version = objectMapper.readTree(generated.getResponse().getContentAsString())
+          .path("meta").path("catalogVersion").asLong();
+
+        Mockito.doAnswer(inv -> alwaysTrue(inv.getArgument(1)))
+          .when(specParser).select(any(SpecDto.class), any(ProductStore.class), any(SelectionTrace.class));
+
+        // la versión del meta es la del snapshot publicado por /generate
+        mvc.perform(post("/api/products/filter")
+            .header("X-Correlation-Id", correlationId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{ \"type\": \"InStockSpecification\" }"))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.meta.total").value(10))
+          .andExpect(jsonPath("$.meta.catalogVersion").value(version));
+    }
+
+    @Test
+    void filter_withCursor_shouldContinueAfterLastRow() throws Exception {
+        mvc.perform(get("/api/products/generate")
+            .param("count", "25")
+            .header("X-Correlation-Id", correlationId))
+          .andExpect(status().isOk());
+
+        Mockito.doAnswer(inv -> alwaysTrue(inv.getArgument(1)))
+          .when(specParser).select(any(SpecDto.class), any(ProductStore.class), any(SelectionTrace.class));
+
+        String body = """
+                { "type": "InStockSpecification" }
+                """;
+
+        // 1) Primera página: trae nextCursor
+        MvcResult first = mvc.perform(post("/api/products/filter")
+            .param("size", "10")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(body))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.meta.hasNext").value(true))
+          .andExpect(jsonPath("$.meta.nextCursor").isString())
+          .andReturn();
+
+        String cursor = objectMapper.readTree(first.getResponse().getContentAsString())
+          .path("meta").path("nextCursor").asText();
+
+        // 2) Con el cursor: la segunda página, sin recorrer la primera
+        MvcResult second = mvc.perform(post("/api/products/filter")
+            .param("size", "10")
+            .param("cursor", cursor)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(body))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.data.length()").value(10))
+          .andExpect(jsonPath("$.meta.page").value(1))
+          .andExpect(jsonPath("$.meta.hasPrev").value(true))
+          .andReturn();
+
+        // 3) Tercera página: quedan 5 y ya no hay siguiente
+        String cursor2 = objectMapper.readTree(second.getResponse().getContentAsString())
+          .path("meta").path("nextCursor").asText();
+        mvc.perform(post("/api/products/filter")
+            .param("size", "10")
+            .param("cursor", cursor2)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(body))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.data.length()").value(5))
+          .andExpect(jsonPath("$.meta.hasNext").value(false));
+    }
+
+    @Test
+    void filter_withCursor_shouldRejectCursorAfterCompactionOrWithOtherSort() throws Exception {
+        MvcResult generated = mvc.perform(get("/api/products/generate")
+            .param("count", "30")
+            .header("X-Correlation-Id", correlationId))
+          .andExpect(status().isOk())
+          .andReturn();
+        long first = objectMapper.readTree(generated.getResponse().getContentAsString()).path("meta").path("firstId").asLong();
+        String all = "{ \"type\": \"AND\", \"children\": [] }";
+
+        MvcResult page = mvc.perform(post("/api/products/filter")
+            .param("size", "10")
+            .param("sort", "price")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(all))
+          .andExpect(status().isOk())
+          .andReturn();
+        String cursor = objectMapper.readTree(page.getResponse().getContentAsString()).path("meta").path("nextCursor").asText();
+
+        // un lote sin compactar conserva los números de fila: el cursor sigue sirviendo
+        batch("{ \"delete\": [%d] }".formatted(first));
+        mvc.perform(post("/api/products/filter")
+            .param("size", "10")
+            .param("sort", "price")
+            .param("cursor", cursor)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(all))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.data.length()").value(10));
+
+        // con otro orden el cursor no aplica
+        mvc.perform(post("/api/products/filter")
+            .param("sort", "name")
+            .param("cursor", cursor)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(all))
+          .andExpect(status().isBadRequest());
+
+        // borrar más de la mitad compacta el store: las filas cambian de número
+        String most = LongStream.range(first + 1, first + 20).mapToObj(Long::toString).collect(Collectors.joining(","));
+        batch("{ \"delete\": [%s] }".formatted(most));
+        mvc.perform(post("/api/products/filter")
+            .param("size", "10")
+            .param("sort", "price")
+            .param("cursor", cursor)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(all))
+          .andExpect(status().isBadRequest())
+          .andExpect(jsonPath("$.message").value(Matchers.containsString("compacted")));
+    }
+
     @Test
     void download_shouldReturnTxtWithAttachment() throws Exception {
         // 1) Genera catálogo para habilitar descarga
@@ -115,8 +264,8 @@ class VendomitaControllerTest {
           .andExpect(status().isOk());
 
         // 2) Mock parser → acepta todo
-        Mockito.when(specParser.fromDto(any(SpecDto.class)))
-          .thenReturn(alwaysTrue());
+        Mockito.doAnswer(inv -> alwaysTrue(inv.getArgument(1)))
+          .when(specParser).select(any(SpecDto.class), any(ProductStore.class), any(SelectionTrace.class));
 
         String body = """
                 { "type": "InStockSpecification" }
@@ -138,9 +287,430 @@ class VendomitaControllerTest {
         org.junit.jupiter.api.Assertions.assertTrue(txt.contains("Filtered Products:"));
     }
 
+    @Test
+    void download_csv_shouldBeGzippedWhenAccepted() throws Exception {
+        mvc.perform(get("/api/products/generate")
+            .param("count", "5")
+            .header("X-Correlation-Id", correlationId))
+          .andExpect(status().isOk());
+
+        Mockito.doAnswer(inv -> alwaysTrue(inv.getArgument(1)))
+          .when(specParser).select(any(SpecDto.class), any(ProductStore.class), any(SelectionTrace.class));
+
+        MvcResult res = mvc.perform(post("/api/products/download")
+            .param("format", "csv")
+            .header("Accept-Encoding", "gzip")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{ \"type\": \"InStockSpecification\" }"))
+          .andExpect(status().isOk())
+          .andExpect(header().string("Content-Encoding", "gzip"))
+          .andExpect(header().string("Content-Disposition", Matchers.containsString("filtered-products.csv")))
+          .andReturn();
+
+        byte[] zipped = res.getResponse().getContentAsByteArray();
+        String csv = new String(new GZIPInputStream(new ByteArrayInputStream(zipped)).readAllBytes(), StandardCharsets.UTF_8);
+        org.junit.jupiter.api.Assertions.assertTrue(csv.startsWith("id,name,color,size,price,inStock"));
+        org.junit.jupiter.api.Assertions.assertEquals(6, csv.lines().count());
+    }
+
+    @Test
+    void download_csv_shouldNotBeGzippedWhenRefusedWithQZero() throws Exception {
+        mvc.perform(get("/api/products/generate")
+            .param("count", "5")
+            .header("X-Correlation-Id", correlationId))
+          .andExpect(status().isOk());
+
+        Mockito.doAnswer(inv -> alwaysTrue(inv.getArgument(1)))
+          .when(specParser).select(any(SpecDto.class), any(ProductStore.class), any(SelectionTrace.class));
+
+        MvcResult res = mvc.perform(post("/api/products/download")
+            .param("format", "csv")
+            .header("Accept-Encoding", "gzip;q=0, identity")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{ \"type\": \"InStockSpecification\" }"))
+          .andExpect(status().isOk())
+          .andExpect(header().doesNotExist("Content-Encoding"))
+          .andReturn();
+
+        String csv = res.getResponse().getContentAsString(StandardCharsets.UTF_8);
+        org.junit.jupiter.api.Assertions.assertTrue(csv.startsWith("id,name,color,size,price,inStock"));
+        org.junit.jupiter.api.Assertions.assertEquals(6, csv.lines().count());
+    }
+
+    @Test
+    void batch_shouldInsertUpdateAndDeleteById() throws Exception {
+        long first = generateTen();
+
+        String body = """
+                {
+                  "upsert": [
+                    { "name": "Kite-1", "color": "blue", "size": "SMALL", "price": 19.99, "inStock": true },
+                    { "id": %d, "inStock": false }
+                  ],
+                  "delete": [%d, %d]
+                }
+                """.formatted(first + 2, first + 3, first + 4);
+
+        mvc.perform(post("/api/products/batch")
+            .header("X-Correlation-Id", correlationId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(body))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.message").value("Batch applied"))
+          .andExpect(jsonPath("$.data[0]").value(first + 10))
+          .andExpect(jsonPath("$.data[1]").value(first + 2))
+          .andExpect(jsonPath("$.meta.inserted").value(1))
+          .andExpect(jsonPath("$.meta.updated").value(1))
+          .andExpect(jsonPath("$.meta.deleted").value(2))
+          .andExpect(jsonPath("$.meta.count").value(9));
+    }
+
+    @Test
+    void batch_withUnknownId_shouldReturn400() throws Exception {
+        long first = generateTen();
+
+        mvc.perform(post("/api/products/batch")
+            .header("X-Correlation-Id", correlationId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{ \"upsert\": [ { \"id\": %d, \"inStock\": true } ] }".formatted(first + 10)))
+          .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void generate_shouldNotReuseIdsOfPreviousCatalog() throws Exception {
+        long first = generateTen();
+        long next = generateTen();
+        org.junit.jupiter.api.Assertions.assertTrue(next >= first + 10);
+
+        // un id del catálogo anterior ya no existe: no se actualiza otro producto por error
+        mvc.perform(post("/api/products/batch")
+            .header("X-Correlation-Id", correlationId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{ \"upsert\": [ { \"id\": %d, \"inStock\": true } ] }".formatted(first)))
+          .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void filter_withSort_shouldReturnCheapestFirst() throws Exception {
+        mvc.perform(get("/api/products/generate")
+            .param("count", "40")
+            .header("X-Correlation-Id", correlationId))
+          .andExpect(status().isOk());
+
+        MvcResult result = mvc.perform(post("/api/products/filter")
+            .param("size", "10")
+            .param("sort", "price")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{ \"type\": \"AND\", \"children\": [] }"))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.data.length()").value(10))
+          .andExpect(jsonPath("$.meta.total").value(40))
+          .andReturn();
+
+        var prices = objectMapper.readTree(result.getResponse().getContentAsString()).path("data");
+        for (int i = 1; i < prices.size(); i++) {
+            assertTrue(prices.get(i - 1).path("price").decimalValue()
+              .compareTo(prices.get(i).path("price").decimalValue()) <= 0);
+        }
+
+        mvc.perform(post("/api/products/filter")
+            .param("sort", "weight")
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{ \"type\": \"InStockSpecification\" }"))
+          .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void filterBatch_shouldReturnOnePagePerNamedSpec() throws Exception {
+        mvc.perform(get("/api/products/generate")
+            .param("count", "30")
+            .header("X-Correlation-Id", correlationId))
+          .andExpect(status().isOk());
+
+        String body = """
+                {
+                  "queries": [
+                    { "name": "all", "spec": { "type": "AND", "children": [] }, "size": 10 },
+                    { "name": "none", "spec": { "type": "OR", "children": [] } },
+                    { "name": "stock", "spec": { "type": "InStockSpecification" }, "page": 0, "size": 5 }
+                  ]
+                }
+                """;
+
+        mvc.perform(post("/api/products/filter/batch")
+            .header("X-Correlation-Id", correlationId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(body))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.message").value("Batch filter executed"))
+          .andExpect(jsonPath("$.meta.queries").value(3))
+          .andExpect(jsonPath("$.data.all.data.length()").value(10))
+          .andExpect(jsonPath("$.data.all.meta.total").value(30))
+          .andExpect(jsonPath("$.data.all.meta.hasNext").value(true))
+          .andExpect(jsonPath("$.data.none.meta.total").value(0))
+          .andExpect(jsonPath("$.data.none.data.length()").value(0))
+          .andExpect(jsonPath("$.data.stock.meta.size").value(5));
+    }
+
+    @Test
+    void filterBatch_withDuplicateNames_shouldReturn400() throws Exception {
+        mvc.perform(get("/api/products/generate")
+            .param("count", "10")
+            .header("X-Correlation-Id", correlationId))
+          .andExpect(status().isOk());
+
+        String body = """
+                {
+                  "queries": [
+                    { "name": "a", "spec": { "type": "InStockSpecification" } },
+                    { "name": "a", "spec": { "type": "ColorSpecification", "color": "RED" } }
+                  ]
+                }
+                """;
+
+        mvc.perform(post("/api/products/filter/batch")
+            .header("X-Correlation-Id", correlationId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(body))
+          .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void facets_shouldCountByAttributeWithoutPaging() throws Exception {
+        mvc.perform(get("/api/products/generate")
+            .param("count", "30")
+            .header("X-Correlation-Id", correlationId))
+          .andExpect(status().isOk());
+
+        mvc.perform(post("/api/products/facets")
+            .param("buckets", "5")
+            .header("X-Correlation-Id", correlationId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{ \"type\": \"AND\", \"children\": [] }"))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.message").value("Facets computed"))
+          .andExpect(jsonPath("$.data.total").value(30))
+          .andExpect(jsonPath("$.data.color.RED").isNumber())
+          .andExpect(jsonPath("$.data.size.LARGE").isNumber())
+          .andExpect(jsonPath("$.data.inStock.true").isNumber())
+          .andExpect(jsonPath("$.data.price.min").isNumber())
+          .andExpect(jsonPath("$.data.price.buckets.length()").value(Matchers.lessThanOrEqualTo(5)));
+
+        mvc.perform(post("/api/products/facets")
+            .param("buckets", "0")
+            .header("X-Correlation-Id", correlationId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{ \"type\": \"InStockSpecification\" }"))
+          .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void emptyCatalog_shouldAnswerPreconditionFailedEverywhere() throws Exception {
+        // un catálogo de 0 productos deja todas las consultas sin nada que responder
+        mvc.perform(get("/api/products/generate")
+            .param("count", "0")
+            .header("X-Correlation-Id", correlationId))
+          .andExpect(status().isOk());
+
+        String message = "No products available. Generate the catalog first with POST /api/products/generate";
+        for (String path : List.of("/api/products/filter", "/api/products/facets", "/api/products/count",
+          "/api/products/exists")) {
+            mvc.perform(post(path)
+                .header("X-Correlation-Id", correlationId)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{ \"type\": \"InStockSpecification\" }"))
+              .andExpect(status().isPreconditionFailed())
+              .andExpect(jsonPath("$.message").value(message));
+        }
+
+        // la descarga responde con el mismo mensaje, como archivo de texto
+        mvc.perform(post("/api/products/download")
+            .header("X-Correlation-Id", correlationId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{ \"type\": \"InStockSpecification\" }"))
+          .andExpect(status().isPreconditionFailed())
+          .andExpect(header().string("Content-Disposition", Matchers.containsString("info.txt")))
+          .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_PLAIN))
+          .andExpect(content().string(message));
+    }
+
+    @Test
+    void countAndExists_shouldAnswerWithoutProducts() throws Exception {
+        mvc.perform(post("/api/products/count")
+            .header("X-Correlation-Id", correlationId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{ \"type\": \"InStockSpecification\" }"))
+          .andExpect(status().isPreconditionFailed());
+
+        mvc.perform(get("/api/products/generate")
+            .param("count", "30")
+            .header("X-Correlation-Id", correlationId))
+          .andExpect(status().isOk());
+
+        mvc.perform(post("/api/products/count")
+            .header("X-Correlation-Id", correlationId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{ \"type\": \"AND\", \"children\": [] }"))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.message").value("Count computed"))
+          .andExpect(jsonPath("$.data.count").value(30))
+          .andExpect(jsonPath("$.meta.catalogVersion").isNumber());
+
+        mvc.perform(post("/api/products/exists")
+            .header("X-Correlation-Id", correlationId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{ \"type\": \"OR\", \"children\": [] }"))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.message").value("Existence checked"))
+          .andExpect(jsonPath("$.data.exists").value(false));
+    }
+
+    @Test
+    void filter_byName_shouldIgnoreCase() throws Exception {
+        mvc.perform(get("/api/products/generate")
+            .param("count", "200")
+            .header("X-Correlation-Id", correlationId))
+          .andExpect(status().isOk());
+
+        mvc.perform(post("/api/products/filter")
+            .param("size", "50")
+            .header("X-Correlation-Id", correlationId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{ \"type\": \"NamePrefixSpecification\", \"prefix\": \"jACKET-\" }"))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.data[*].name", Matchers.everyItem(Matchers.startsWith("Jacket-"))));
+
+        mvc.perform(post("/api/products/count")
+            .header("X-Correlation-Id", correlationId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{ \"type\": \"NameContainsSpecification\" }"))
+          .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void filterByQuery_shouldMatchJsonBody() throws Exception {
+        mvc.perform(get("/api/products/generate")
+            .param("count", "200")
+            .param("seed", "7")
+            .header("X-Correlation-Id", correlationId))
+          .andExpect(status().isOk());
+
+        String body = mvc.perform(post("/api/products/count")
+            .header("X-Correlation-Id", correlationId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("""
+              { "type": "and", "children": [
+                { "type": "ColorSpecification", "color": "red" },
+                { "type": "NOT", "child": { "type": "InStockSpecification" } } ] }"""))
+          .andExpect(status().isOk())
+          .andReturn().getResponse().getContentAsString();
+        int count = objectMapper.readTree(body).path("data").path("count").asInt();
+
+        mvc.perform(get("/api/products/count")
+            .param("q", "color:RED AND NOT inStock")
+            .header("X-Correlation-Id", correlationId))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.data.count").value(count));
+
+        mvc.perform(get("/api/products/filter")
+            .param("q", "color:red and not inStock")
+            .param("size", "5")
+            .header("X-Correlation-Id", correlationId))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.meta.total").value(count))
+          .andExpect(jsonPath("$.data[*].color", Matchers.everyItem(Matchers.is("RED"))))
+          .andExpect(jsonPath("$.data[*].inStock", Matchers.everyItem(Matchers.is(false))));
+
+        mvc.perform(get("/api/products/exists")
+            .param("q", "name:*zzz* OR price<0")
+            .header("X-Correlation-Id", correlationId))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.data.exists").value(false));
+
+        mvc.perform(get("/api/products/filter")
+            .param("q", "color:RED size:LARGE")
+            .header("X-Correlation-Id", correlationId))
+          .andExpect(status().isBadRequest())
+          .andExpect(jsonPath("$.message").value(Matchers.containsString("position 10")));
+    }
+
+    @Test
+    void filter_shouldRejectOversizedSpecWith400() throws Exception {
+        mvc.perform(get("/api/products/generate")
+            .param("count", "10")
+            .header("X-Correlation-Id", correlationId))
+          .andExpect(status().isOk());
+
+        String deep = "{ \"type\": \"NOT\", \"child\": ".repeat(40) + "{ \"type\": \"InStockSpecification\" }" + " }".repeat(40);
+        mvc.perform(post("/api/products/filter")
+            .header("X-Correlation-Id", correlationId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(deep))
+          .andExpect(status().isBadRequest())
+          .andExpect(jsonPath("$.message").value(Matchers.containsString("deeper than")));
+
+        mvc.perform(post("/api/products/filter/batch")
+            .header("X-Correlation-Id", correlationId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content("{ \"queries\": [ { \"name\": \"a\", \"spec\": " + deep + " } ] }"))
+          .andExpect(status().isBadRequest())
+          .andExpect(jsonPath("$.message").value(Matchers.containsString("deeper than")));
+    }
+
+    @Test
+    void filter_onLargeCatalog_shouldEvaluateSegmentsOnTheScanPool() throws Exception {
+        // con vendomita.scan.vector (kernel escalar si la JVM no tiene el módulo), 200k filas superan
+        // vendomita.scan.parallel-threshold: /filter y /count van por segmentos en el pool
+        mvc.perform(get("/api/products/generate")
+            .param("count", "200000")
+            .param("seed", "8")
+            .header("X-Correlation-Id", correlationId))
+          .andExpect(status().isOk());
+        long before = productFilter.segments().pooledSegments();
+
+        String body = """
+                { "type": "AND", "children": [
+                  { "type": "ColorSpecification", "color": "RED" },
+                  { "type": "PriceLessThanSpecification", "price": 2500 } ] }
+                """;
+        mvc.perform(post("/api/products/filter")
+            .header("X-Correlation-Id", correlationId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(body))
+          .andExpect(status().isOk())
+          .andExpect(jsonPath("$.meta.total").value(Matchers.greaterThan(0)));
+        long afterFilter = productFilter.segments().pooledSegments();
+        assertTrue(afterFilter > before, "/filter no pasó por el pool");
+
+        mvc.perform(post("/api/products/count")
+            .header("X-Correlation-Id", correlationId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(body.replace("2500", "2400")))
+          .andExpect(status().isOk());
+        assertTrue(productFilter.segments().pooledSegments() > afterFilter, "/count no pasó por el pool");
+    }
+
     // ---- helpers ----
 
-    private Specification<Product> alwaysTrue() {
-        return p -> true;
+    /** Genera 10 productos y devuelve el primer id asignado. */
+    private long generateTen() throws Exception {
+        MvcResult generated = mvc.perform(get("/api/products/generate")
+            .param("count", "10")
+            .header("X-Correlation-Id", correlationId))
+          .andExpect(status().isOk())
+          .andReturn();
+        return objectMapper.readTree(generated.getResponse().getContentAsString()).path("meta").path("firstId").asLong();
+    }
+
+    private void batch(String body) throws Exception {
+        mvc.perform(post("/api/products/batch")
+            .header("X-Correlation-Id", correlationId)
+            .contentType(MediaType.APPLICATION_JSON)
+            .content(body))
+          .andExpect(status().isOk());
+    }
+
+    private Bitmap alwaysTrue(ProductStore store) {
+        return store.index().all();
     }
 }
@@ -0,0 +1,66 @@
+package tech.terabyte.labs.vendomita.catalog;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link MaskKernel} on the Vector API: one compare per vector of rows, its lane mask
+ * shifted straight into the mask word. Species are the preferred ones as long as their
+ * lane count divides 64, so a vector never straddles two words; the tail that does not
+ * fill a vector is done one row at a time. Lives in the {@code vector} source set, the only
+ * one compiled with the incubator module, and is only loaded when the JVM has it.
+ */
+final class VectorMaskKernel implements MaskKernel {
+
+    private static final VectorSpecies<Byte> BYTES = fitting(ByteVector.SPECIES_PREFERRED, ByteVector.SPECIES_128);
+    private static final VectorSpecies<Long> LONGS = fitting(LongVector.SPECIES_PREFERRED, LongVector.SPECIES_128);
+
+    @Override
+    public void equal(byte[] column, int from, int to, byte value, long[] out) {
+        int i = from;
+        for (int bound = from + BYTES.loopBound(to - from); i < bound; i += BYTES.length()) {
+            long bits = ByteVector.fromArray(BYTES, column, i).eq(value).toLong();
+            out[(i - from) >>> 6] |= bits << i;
+        }
+        for (; i < to; i++) {
+            if (column[i] == value) out[(i - from) >>> 6] |= 1L << i;
+        }
+    }
+
+    @Override
+    public void less(long[] column, int from, int to, long bound, long[] out) {
+        int i = from;
+        for (int end = from + LONGS.loopBound(to - from); i < end; i += LONGS.length()) {
+            long bits = LongVector.fromArray(LONGS, column, i).lt(bound).toLong();
+            out[(i - from) >>> 6] |= bits << i;
+        }
+        for (; i < to; i++) {
+            if (column[i] < bound) out[(i - from) >>> 6] |= 1L << i;
+        }
+    }
+
+    @Override
+    public void between(long[] column, int from, int to, long min, long max, long[] out) {
+        int i = from;
+        for (int end = from + LONGS.loopBound(to - from); i < end; i += LONGS.length()) {
+            LongVector v = LongVector.fromArray(LONGS, column, i);
+            long bits = v.compare(VectorOperators.GE, min).and(v.lt(max)).toLong();
+            out[(i - from) >>> 6] |= bits << i;
+        }
+        for (; i < to; i++) {
+            long v = column[i];
+            if (v >= min && v < max) out[(i - from) >>> 6] |= 1L << i;
+        }
+    }
+
+    @Override
+    public String name() {
+        return "vector-" + BYTES.vectorBitSize();
+    }
+
+    private static <E> VectorSpecies<E> fitting(VectorSpecies<E> preferred, VectorSpecies<E> fallback) {
+        return preferred.length() <= 64 && 64 % preferred.length() == 0 ? preferred : fallback;
+    }
+}